@@ -0,0 +1,15 @@
+package com.dbf.heatmaps;
+
+/**
+ * The format of an animated heat map. See {@link HeatMap#renderAnimation(java.util.List, Viewport, int, AnimationFormat, java.io.OutputStream)}.
+ */
+public enum AnimationFormat {
+	/**
+	 * An animated PNG file, which supports every colour and is displayed as a still image by viewers that do not support animation.
+	 */
+	APNG,
+	/**
+	 * An animated GIF file. Requires {@link HeatMapOptions#isIndexedColour()}, since GIF images are limited to 256 colours.
+	 */
+	GIF;
+}
@@ -0,0 +1,58 @@
+package com.dbf.heatmaps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dbf.heatmaps.axis.Axis;
+
+/**
+ * Read-only view of the title and the ordered labels of an axis, as seen by the renderer.
+ * Windows and reduced views are derived without modifying, or rebuilding, the original axis.
+ */
+final class AxisView {
+	
+	private final String title;
+	private final List<String> labels;
+	
+	private AxisView(String title, List<String> labels) {
+		this.title = title;
+		this.labels = labels;
+	}
+	
+	static AxisView of(Axis<?> axis) {
+		return new AxisView(axis.getTitle(), axis.getOrderedLabels());
+	}
+	
+	/**
+	 * @return a view of the entries between the start and end indices, inclusive. The labels are not copied.
+	 */
+	AxisView window(int start, int end) {
+		if(start == 0 && end == labels.size() - 1) return this;
+		return new AxisView(title, labels.subList(start, end + 1));
+	}
+	
+	/**
+	 * @return a reduced view where each entry represents a block of consecutive entries, labelled using the label of its first entry.
+	 */
+	AxisView blocks(int blockSize) {
+		if(blockSize == 1) return this;
+		
+		final List<String> blockLabels = new ArrayList<String>((labels.size() + blockSize - 1) / blockSize);
+		for(int i = 0; i < labels.size(); i += blockSize) {
+			blockLabels.add(labels.get(i));
+		}
+		return new AxisView(title, blockLabels);
+	}
+	
+	String getTitle() {
+		return title;
+	}
+	
+	List<String> getLabels() {
+		return labels;
+	}
+	
+	int getCount() {
+		return labels.size();
+	}
+}
@@ -0,0 +1,259 @@
+package com.dbf.heatmaps;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.dbf.heatmaps.axis.Axis;
+import com.dbf.heatmaps.data.BoundedDataGrid;
+import com.dbf.heatmaps.data.CellConsumer;
+import com.dbf.heatmaps.data.DataGrid;
+import com.dbf.heatmaps.data.DataRecord;
+import com.dbf.heatmaps.data.SymmetricDataGrid;
+
+/**
+ * Common view over the different forms of input data, so the renderer only needs to deal with axis indices and primitive values.
+ * The cells must always be visited in the same order, since the grid values are measured and drawn in separate passes.
+ */
+abstract class CellSource {
+	
+	/**
+	 * Visits every non-empty cell.
+	 */
+	abstract void forEach(CellConsumer consumer);
+	
+	/**
+	 * @return true if the value of every cell (x, y) is always the same as the value of the cell (y, x).
+	 */
+	boolean isSymmetric() {
+		return false;
+	}
+	
+	/**
+	 * Visits every non-empty cell on or above the diagonal, meaning where <code>x &gt;= y</code>.
+	 * For a symmetric source, the other cells are mirror images of these ones.
+	 */
+	void forEachUpper(CellConsumer consumer) {
+		forEach((x, y, value)->{
+			if(x >= y) consumer.accept(x, y, value);
+		});
+	}
+	
+	/**
+	 * @return the minimum and maximum values of the cells, in the form of <code>[min, max]</code>, if they are known without visiting every cell. Otherwise, null.
+	 */
+	double[] getBounds() {
+		return null;
+	}
+	
+	/**
+	 * Restricts the cells to a rectangular window. The indices of the visited cells are relative to the start of the window.
+	 */
+	CellSource window(int xStart, int yStart, int width, int height) {
+		final CellSource source = this;
+		final int xEnd = xStart + width;
+		final int yEnd = yStart + height;
+		return new CellSource() {
+			@Override
+			void forEach(CellConsumer consumer) {
+				source.forEach((x, y, value)->{
+					if(x < xStart || x >= xEnd || y < yStart || y >= yEnd) return;
+					consumer.accept(x - xStart, y - yStart, value);
+				});
+			}
+		};
+	}
+	
+	/**
+	 * Bins the cells by row, so that a window of rows can be visited without visiting every other cell again, such as when drawing one band of rows at a time.
+	 * Takes two passes over the cells, and keeps the order of the cells within each row. Sources that can already visit a window of rows directly, such as grids, are returned as-is.
+	 * 
+	 * @param height The number of rows of the cells.
+	 */
+	CellSource indexRows(int height) {
+		//Counting sort of the cells by row
+		final int[] rowStarts = new int[height + 1];
+		forEach((x, y, value)->rowStarts[y + 1]++);
+		for (int y = 0; y < height; y++) rowStarts[y + 1] += rowStarts[y];
+		
+		final int[] next = Arrays.copyOf(rowStarts, height);
+		final int[] xs = new int[rowStarts[height]];
+		final double[] values = new double[xs.length];
+		forEach((x, y, value)->{
+			final int i = next[y]++;
+			xs[i] = x;
+			values[i] = value;
+		});
+		return new RowIndexedCellSource(rowStarts, xs, values, 0, 0, Integer.MAX_VALUE, height);
+	}
+	
+	/**
+	 * Visits the cells of every source in turn, such as the frames of an animation, so that a single layout can be shared by all of them.
+	 */
+	static CellSource concat(CellSource... sources) {
+		return new CellSource() {
+			@Override
+			void forEach(CellConsumer consumer) {
+				for (CellSource source : sources) source.forEach(consumer);
+			}
+			
+			@Override
+			double[] getBounds() {
+				//Only known when the bounds of every source are known
+				final double[] bounds = {Double.MAX_VALUE, -Double.MAX_VALUE};
+				for (CellSource source : sources) {
+					final double[] sourceBounds = source.getBounds();
+					if(null == sourceBounds) return null;
+					bounds[0] = Math.min(bounds[0], sourceBounds[0]);
+					bounds[1] = Math.max(bounds[1], sourceBounds[1]);
+				}
+				return bounds;
+			}
+		};
+	}
+	
+	static CellSource of(Collection<DataRecord> data, Axis<?> xAxis, Axis<?> yAxis) {
+		return new CellSource() {
+			@Override
+			void forEach(CellConsumer consumer) {
+				for (DataRecord record : data) {
+					if(null == record.getValue()) continue; //No data, perfectly valid.
+					final Integer x = xAxis.getIndex(record.getX());
+					final Integer y = yAxis.getIndex(record.getY());
+					if(null == x || null == y) continue; //Not on the axes, nowhere to draw it
+					consumer.accept(x, y, record.getValue());
+				}
+			}
+		};
+	}
+	
+	static CellSource of(DataGrid grid) {
+		return new GridCellSource(grid, 0, 0, grid.getWidth(), grid.getHeight());
+	}
+	
+	/**
+	 * Visits the cells of a rectangular region of a grid, without visiting anything outside of it.
+	 */
+	private static final class GridCellSource extends CellSource {
+		//Approximate number of values read from the grid at once
+		private static final int BAND_SIZE = 1 << 16;
+		
+		private final DataGrid grid;
+		private final int xStart;
+		private final int yStart;
+		private final int width;
+		private final int height;
+		
+		private GridCellSource(DataGrid grid, int xStart, int yStart, int width, int height) {
+			this.grid = grid;
+			this.xStart = xStart;
+			this.yStart = yStart;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		void forEach(CellConsumer consumer) {
+			//Read the grid in bands of rows, so that grids can produce many values at once without the whole region ever being stored
+			final int bandRows = Math.max(1, Math.min(height, BAND_SIZE / width));
+			final double[] band = new double[bandRows * width];
+			for (int bandStart = 0; bandStart < height; bandStart += bandRows) {
+				final int rows = Math.min(bandRows, height - bandStart);
+				grid.getValues(xStart, yStart + bandStart, width, rows, band);
+				int i = 0;
+				for (int y = bandStart; y < bandStart + rows; y++) {
+					for (int x = 0; x < width; x++) {
+						final double value = band[i++];
+						if(Double.isNaN(value)) continue;
+						consumer.accept(x, y, value);
+					}
+				}
+			}
+		}
+		
+		@Override
+		boolean isSymmetric() {
+			//The window must be centred on the diagonal
+			return grid instanceof SymmetricDataGrid && xStart == yStart && width == height;
+		}
+		
+		@Override
+		void forEachUpper(CellConsumer consumer) {
+			for (int y = 0; y < height; y++) {
+				for (int x = y; x < width; x++) {
+					final double value = grid.getValue(xStart + x, yStart + y);
+					if(Double.isNaN(value)) continue;
+					consumer.accept(x, y, value);
+				}
+			}
+		}
+		
+		@Override
+		double[] getBounds() {
+			//Only the bounds of the whole grid are known
+			if(!(grid instanceof BoundedDataGrid) || xStart != 0 || yStart != 0 || width != grid.getWidth() || height != grid.getHeight()) return null;
+			
+			final BoundedDataGrid bounded = (BoundedDataGrid) grid;
+			final double min = bounded.getMinValue();
+			final double max = bounded.getMaxValue();
+			
+			//Every cell may be empty, in which case there is no range
+			if(Double.isNaN(min) || Double.isNaN(max)) return new double[] {0, 0};
+			return new double[] {min, max};
+		}
+		
+		@Override
+		CellSource window(int xStart, int yStart, int width, int height) {
+			return new GridCellSource(grid, this.xStart + xStart, this.yStart + yStart, width, height);
+		}
+		
+		@Override
+		CellSource indexRows(int height) {
+			return this;
+		}
+	}
+	
+	/**
+	 * Visits a rectangular region of cells that have been binned by row, without visiting the rows outside of it.
+	 */
+	private static final class RowIndexedCellSource extends CellSource {
+		private final int[] rowStarts;
+		private final int[] xs;
+		private final double[] values;
+		private final int xStart;
+		private final int yStart;
+		private final int width;
+		private final int height;
+		
+		private RowIndexedCellSource(int[] rowStarts, int[] xs, double[] values, int xStart, int yStart, int width, int height) {
+			this.rowStarts = rowStarts;
+			this.xs = xs;
+			this.values = values;
+			this.xStart = xStart;
+			this.yStart = yStart;
+			this.width = width;
+			this.height = height;
+		}
+		
+		@Override
+		void forEach(CellConsumer consumer) {
+			for (int y = 0; y < height; y++) {
+				final int row = yStart + y;
+				for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+					final int x = xs[i] - xStart;
+					if(x < 0 || x >= width) continue;
+					consumer.accept(x, y, values[i]);
+				}
+			}
+		}
+		
+		@Override
+		CellSource window(int xStart, int yStart, int width, int height) {
+			return new RowIndexedCellSource(rowStarts, xs, values, this.xStart + xStart, this.yStart + yStart, width, height);
+		}
+		
+		@Override
+		CellSource indexRows(int height) {
+			return this;
+		}
+	}
+}
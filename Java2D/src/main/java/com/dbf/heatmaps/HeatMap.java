@@ -5,28 +5,56 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 
-import javax.imageio.ImageIO;
 import com.dbf.heatmaps.axis.Axis;
+import com.dbf.heatmaps.data.AggregatedDataGrid;
+import com.dbf.heatmaps.data.BoundedDataGrid;
+import com.dbf.heatmaps.data.CellConsumer;
+import com.dbf.heatmaps.data.DataGrid;
 import com.dbf.heatmaps.data.DataRecord;
+import com.dbf.heatmaps.data.QuantileSketch;
+import com.dbf.heatmaps.data.SymmetricDataGrid;
+import com.dbf.heatmaps.encoding.AnimationWriter;
+import com.dbf.heatmaps.encoding.GifWriter;
+import com.dbf.heatmaps.encoding.ParallelPngEncoder;
+import com.dbf.heatmaps.encoding.PngBandWriter;
+import com.dbf.heatmaps.encoding.PngEncoder;
+import com.dbf.heatmaps.encoding.QoiEncoder;
 
 public class HeatMap {
 
 	private static final Color ALTERNATIVE_BACKGROUND_COLOUR = new Color(210, 210, 210);
 	
+	//Approximate number of pixels of each band, when streaming
+	private static final int STREAMING_BAND_SIZE = 1 << 22;
+	
+	//Approximate number of cells of each band of an SVG image, and the number of colours the gradient is quantised to
+	private static final int SVG_BAND_SIZE = 1 << 20;
+	private static final int SVG_GRADIENT_STEPS = 256;
+	
 	private HeatMapOptions options;
 
 	private Axis<?> xAxis;
@@ -59,60 +87,798 @@ public class HeatMap {
 	}
 
 	/**
-     * Renders the heat map and writes it as a PNG file.
+     * Renders the heat map and writes it as a PNG file, using a {@link ParallelPngEncoder} with the default settings.
+     * Large images are compressed on every available core.
      */
 	public void render(File file, Collection<DataRecord> data) throws IOException {
 		if(null == file) throw new IllegalArgumentException("Invalid file.");
 		
 		BufferedImage heatmapImage = render(data);
-		ImageIO.write(heatmapImage, "png", file);
+		new ParallelPngEncoder().encode(heatmapImage, file);
+	}
+	
+	/**
+     * Renders the heat map and writes it to the output stream in the given format. The stream is flushed but not closed.
+     * 
+     * @see #render(OutputStream, OutputFormat, DataGrid, Viewport)
+     */
+	public HeatMapLayout render(OutputStream out, OutputFormat format, Collection<DataRecord> data) throws IOException {
+		return render(out, format, data, null);
+	}
+	
+	/**
+     * Renders only the cells of the heat map data that fall within the viewport, and writes the heat map to the output stream in the given format.
+     * The stream is flushed but not closed.
+     * 
+     * @param viewport The window of the axes to render. May be null to render everything.
+     * 
+     * @return the layout of the rendered heat map.
+     */
+	public HeatMapLayout render(OutputStream out, OutputFormat format, Collection<DataRecord> data, Viewport viewport) throws IOException {
+		//Basic sanity checks
+		if(null == data || data.isEmpty())
+			throw new IllegalArgumentException("Missing data.");
+		
+		validate();
+		return render(out, format, CellSource.of(data, xAxis, yAxis), viewport);
+	}
+	
+	/**
+     * Renders the heat map data grid and writes it to the output stream in the given format. The encoded bytes are written directly to the stream,
+     * in chunks of about 64KB, without first being collected into a byte array. The stream is flushed but not closed.
+     * 
+     * @param viewport The window of the axes to render. May be null to render everything.
+     * 
+     * @return the layout of the rendered heat map.
+     */
+	public HeatMapLayout render(OutputStream out, OutputFormat format, DataGrid grid, Viewport viewport) throws IOException {
+		//Basic sanity checks
+		if(null == grid)
+			throw new IllegalArgumentException("Missing data.");
+		
+		validate();
+		validateGrid(grid);
+		return render(out, format, CellSource.of(grid), viewport);
+	}
+	
+	/**
+     * Renders the heat map and writes it to the channel in the given format, such as a <code>FileChannel</code> or a socket. The channel is not closed.
+     * 
+     * @see #render(OutputStream, OutputFormat, DataGrid, Viewport)
+     */
+	public HeatMapLayout render(WritableByteChannel channel, OutputFormat format, Collection<DataRecord> data, Viewport viewport) throws IOException {
+		if(null == channel) throw new IllegalArgumentException("Missing channel.");
+		return render(channelStream(channel), format, data, viewport);
+	}
+	
+	/**
+     * Renders the heat map data grid and writes it to the channel in the given format, such as a <code>FileChannel</code> or a socket. The channel is not closed.
+     * 
+     * @see #render(OutputStream, OutputFormat, DataGrid, Viewport)
+     */
+	public HeatMapLayout render(WritableByteChannel channel, OutputFormat format, DataGrid grid, Viewport viewport) throws IOException {
+		if(null == channel) throw new IllegalArgumentException("Missing channel.");
+		return render(channelStream(channel), format, grid, viewport);
+	}
+	
+	private HeatMapLayout render(OutputStream out, OutputFormat format, CellSource cells, Viewport viewport) throws IOException {
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		if(null == format) throw new IllegalArgumentException("Missing output format.");
+		
+		//Streaming never renders the whole image
+		if(format == OutputFormat.PNG_STREAMING) return renderStreaming(cells, viewport, out, new PngEncoder(), 0);
+		if(format == OutputFormat.SVG) return renderSvg(new OutputStreamWriter(out, StandardCharsets.UTF_8), cells, viewport);
+		
+		final RenderedHeatMap rendered = render(cells, viewport);
+		switch (format) {
+		case QOI:
+			new QoiEncoder().encode(rendered.getImage(), out);
+			break;
+		default:
+			new ParallelPngEncoder().encode(rendered.getImage(), out);
+		}
+		return rendered.getLayout();
+	}
+	
+	/**
+	 * Large writes, such as whole compressed chunks, go straight to the channel without being copied. Only the small writes of the headers are buffered.
+	 */
+	private static OutputStream channelStream(WritableByteChannel channel) {
+		return new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 13);
+	}
+	
+	/**
+     * Renders the heat map as an SVG image, written to the writer, for reports that need vector output. The writer is flushed but not closed.
+     * 
+     * @see #renderSvg(Writer, DataGrid, Viewport)
+     */
+	public HeatMapLayout renderSvg(Writer out, Collection<DataRecord> data, Viewport viewport) throws IOException {
+		//Basic sanity checks
+		if(null == data || data.isEmpty())
+			throw new IllegalArgumentException("Missing data.");
+		
+		validate();
+		return renderSvg(out, CellSource.of(data, xAxis, yAxis), viewport);
+	}
+	
+	/**
+     * Renders the heat map data grid as an SVG image, written to the writer, for reports that need vector output. The writer is flushed but not closed.
+     * 
+     * The SVG image has the same layout as the bitmap image. The cell colours are quantised to 256 colours of the gradient, or to the palette of an indexed colour heat map,
+     * and each colour is defined once as a CSS class. Horizontal runs of cells of the same colour are merged into a single rectangle,
+     * so the size of the image depends on the number of colour changes rather than on the number of cells. All titles and labels are written as text.
+     * The image is written as it is generated, without building a document in memory. Colour blending is not supported.
+     * 
+     * @param viewport The window of the axes to render. May be null to render everything.
+     * 
+     * @return the layout of the rendered heat map.
+     */
+	public HeatMapLayout renderSvg(Writer out, DataGrid grid, Viewport viewport) throws IOException {
+		//Basic sanity checks
+		if(null == grid)
+			throw new IllegalArgumentException("Missing data.");
+		
+		validate();
+		validateGrid(grid);
+		return renderSvg(out, CellSource.of(grid), viewport);
+	}
+	
+	private HeatMapLayout renderSvg(Writer out, CellSource cells, Viewport viewport) throws IOException {
+		if(null == out) throw new IllegalArgumentException("Missing writer.");
+		//Blending would need a bitmap of the matrix
+		if(options.isBlendColours()) throw new IllegalArgumentException("Colour blending is not supported in SVG images.");
+		
+		final Scene scene = layout(cells, viewport);
+		paintSvg(new SvgWriter(out), scene.layout, scene.cells);
+		return scene.layout;
+	}
+	
+	/**
+     * Renders the heat map data grid as a PNG image written to the output stream, using a {@link PngEncoder} with the default settings.
+     * 
+     * @see #renderStreaming(DataGrid, Viewport, OutputStream, PngEncoder)
+     */
+	public HeatMapLayout renderStreaming(DataGrid grid, OutputStream out) throws IOException {
+		return renderStreaming(grid, null, out, new PngEncoder());
+	}
+	
+	/**
+     * Renders the heat map data grid as a PNG image written to the output stream, without ever holding the whole image in memory.
+     * 
+     * The image is drawn one horizontal band of rows at a time, and each band is compressed as soon as it has been drawn.
+     * Only the cells, labels and legend entries that overlap the band are drawn, so the memory used is proportional to the width of the image rather than its area.
+     * This allows heat maps far larger than the maximum size of a <code>BufferedImage</code> to be rendered. Colour blending is not supported.
+     * The stream is flushed but not closed.
+     * 
+     * @param viewport The window of the axes to render. May be null to render everything.
+     * @param encoder The compression settings of the PNG image.
+     * 
+     * @return the layout of the rendered heat map.
+     */
+	public HeatMapLayout renderStreaming(DataGrid grid, Viewport viewport, OutputStream out, PngEncoder encoder) throws IOException {
+		return renderStreaming(grid, viewport, out, encoder, 0);
+	}
+	
+	/**
+	 * @param bandHeight The number of rows of pixels of each band, or 0 to use bands of about 4 million pixels.
+	 */
+	HeatMapLayout renderStreaming(DataGrid grid, Viewport viewport, OutputStream out, PngEncoder encoder, int bandHeight) throws IOException {
+		//Basic sanity checks
+		if(null == grid) throw new IllegalArgumentException("Missing data.");
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		if(null == encoder) throw new IllegalArgumentException("Missing encoder.");
+		
+		validate();
+		validateGrid(grid);
+		return renderStreaming(CellSource.of(grid), viewport, out, encoder, bandHeight);
+	}
+	
+	private HeatMapLayout renderStreaming(CellSource cells, Viewport viewport, OutputStream out, PngEncoder encoder, int bandHeight) throws IOException {
+		//Blending scales up an image of the whole matrix
+		if(options.isBlendColours()) throw new IllegalArgumentException("Colour blending is not supported when streaming.");
+		
+		final Scene scene = layout(cells, viewport);
+		final HeatMapLayout layout = scene.layout;
+		
+		//The same band image is drawn over for every band
+		if(bandHeight < 1) bandHeight = STREAMING_BAND_SIZE / layout.imageWidth;
+		//Java 2D dithers the anti-aliased text of indexed colour images using an 8x8 pattern, which must line up between the bands
+		if(null != layout.palette) bandHeight = ((bandHeight + 7) / 8) * 8;
+		bandHeight = Math.max(1, Math.min(layout.imageHeight, bandHeight));
+		final BufferedImage band = createImage(layout, bandHeight);
+		//Each band only visits its own rows, rather than every record once per band
+		final CellSource rowCells = bandHeight < layout.imageHeight ? scene.cells.indexRows(layout.yAxis.getCount()) : scene.cells;
+		final PngBandWriter writer = encoder.open(out, layout.imageHeight);
+		for(int top = 0; top < layout.imageHeight; top += bandHeight) {
+			final int bottom = Math.min(layout.imageHeight, top + bandHeight);
+			
+			//The last band may be shorter
+			final BufferedImage target = (bottom - top == bandHeight) ? band : band.getSubimage(0, 0, layout.imageWidth, bottom - top);
+			Graphics2D g2d = target.createGraphics();
+			try {
+				g2d.translate(0, -top);
+				paint(g2d, target, layout, rowCells, top, bottom);
+			} finally {
+				g2d.dispose();
+			}
+			writer.write(target);
+		}
+		writer.finish();
+		return layout;
+	}
+	
+	/**
+     * Renders a sequence of data grids as the frames of an animated image, written to the output stream. The stream is flushed but not closed.
+     * 
+     * Every frame shares the same layout and colour scale, determined from the data of all of the frames, so the frames line up and their colours can be compared.
+     * The titles, labels and legend are only drawn for the first frame. Each later frame only repaints the cells that differ from the previous frame,
+     * and only the rectangle of the image covering those cells is encoded, so the time taken and the size of the animation grow with the amount of change between the frames.
+     * When colour blending is enabled, the whole matrix is repainted and encoded for every frame instead.
+     * 
+     * @param frames The data grid of each frame, in order. The dimensions of every grid must match the axes.
+     * @param viewport The window of the axes to render. May be null to render everything.
+     * @param frameDelayMillis How long each frame is shown for, in milliseconds.
+     * @param format The format of the animation. GIF animations require {@link HeatMapOptions#isIndexedColour()}.
+     * 
+     * @return the layout shared by every frame.
+     */
+	public HeatMapLayout renderAnimation(List<? extends DataGrid> frames, Viewport viewport, int frameDelayMillis, AnimationFormat format, OutputStream out) throws IOException {
+		//Basic sanity checks
+		if(null == frames || frames.isEmpty()) throw new IllegalArgumentException("Missing frames.");
+		if(null == format) throw new IllegalArgumentException("Missing animation format.");
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		
+		validate();
+		if(format == AnimationFormat.GIF && !options.isIndexedColour()) throw new IllegalArgumentException("GIF animations require indexed colour.");
+		final CellSource[] cells = new CellSource[frames.size()];
+		for (int i = 0; i < cells.length; i++) {
+			if(null == frames.get(i)) throw new IllegalArgumentException("Missing data for frame " + i + ".");
+			validateGrid(frames.get(i));
+			cells[i] = CellSource.of(frames.get(i));
+		}
+		final AnimationWriter writer = (format == AnimationFormat.GIF) ? new GifWriter(out, frameDelayMillis)
+				: new PngEncoder().openAnimation(out, cells.length, frameDelayMillis);
+		
+		final Scene[] scenes = layout(cells, viewport);
+		final HeatMapLayout layout = scenes[0].layout;
+		final Rectangle matrix = new Rectangle(layout.matrixStartPosX, layout.matrixStartPosY, layout.matrixWidth, layout.matrixHeight);
+		
+		//The first frame is drawn in full, including everything that stays the same between the frames
+		final BufferedImage image = createImage(layout, layout.imageHeight);
+		paintFrame(image, scenes[0]);
+		writer.writeFrame(image, 0, 0);
+		
+		double[] previous = options.isBlendColours() ? null : getCellValues(scenes[0]);
+		for (int i = 1; i < scenes.length; i++) {
+			Rectangle dirty = null;
+			if(null != previous) {
+				final double[] next = getCellValues(scenes[i]);
+				dirty = paintChanges(image, layout, previous, next);
+				previous = next;
+			}
+			
+			//Blending bleeds into the neighbouring cells, so the whole matrix is repainted
+			if(null == dirty) {
+				paintFrame(image, scenes[i]);
+				dirty = matrix;
+			}
+			
+			//A frame must have at least one pixel, even when nothing has changed
+			if(dirty.isEmpty()) dirty = new Rectangle(0, 0, 1, 1);
+			writer.writeFrame(image.getSubimage(dirty.x, dirty.y, dirty.width, dirty.height), dirty.x, dirty.y);
+		}
+		writer.finish();
+		return layout;
+	}
+	
+	private void paintFrame(BufferedImage image, Scene scene) {
+		Graphics2D g2d = image.createGraphics();
+		try {
+			paint(g2d, image, scene.layout, scene.cells, 0, scene.layout.imageHeight);
+		} finally {
+			g2d.dispose();
+		}
+	}
+	
+	/**
+	 * @return the value of every cell of the matrix, row by row, NaN for empty cells.
+	 */
+	private static double[] getCellValues(Scene scene) {
+		final int columns = scene.layout.xAxis.getCount();
+		final double[] values = new double[columns * scene.layout.yAxis.getCount()];
+		Arrays.fill(values, Double.NaN);
+		scene.cells.forEach((x, y, value)->values[(y * columns) + x] = value);
+		return values;
+	}
+	
+	/**
+	 * Repaints the cells whose values differ between two frames.
+	 * 
+	 * @return the rectangle of the image covering the repainted cells, which is empty when nothing has changed, or null if the cells could not be repainted in place.
+	 */
+	private Rectangle paintChanges(BufferedImage image, HeatMapLayout layout, double[] previous, double[] next) {
+		int count = 0;
+		for (int i = 0; i < next.length; i++) {
+			if(Double.compare(previous[i], next[i]) != 0) count++;
+		}
+		if(count == 0) return new Rectangle();
+		
+		final int columns = layout.xAxis.getCount();
+		final int[] xIndices = new int[count];
+		final int[] yIndices = new int[count];
+		final double[] values = new double[count];
+		int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = 0, bottom = 0;
+		for (int i = 0, j = 0; j < count; i++) {
+			if(Double.compare(previous[i], next[i]) == 0) continue;
+			xIndices[j] = i % columns;
+			yIndices[j] = i / columns;
+			values[j] = next[i];
+			
+			final int cellPosX = layout.getCellPosX(xIndices[j]);
+			final int cellPosY = layout.getCellPosY(yIndices[j]);
+			left = Math.min(left, cellPosX);
+			top = Math.min(top, cellPosY);
+			right = Math.max(right, cellPosX + layout.cellWidth);
+			bottom = Math.max(bottom, cellPosY + layout.cellHeight);
+			j++;
+		}
+		
+		if(!paintCells(image, layout, xIndices, yIndices, values)) return null;
+		return new Rectangle(left, top, right - left, bottom - top);
 	}
 	
 	/**
      * Renders the heat map data to a bitmap image.
      */
 	public BufferedImage render(Collection<DataRecord> data) {
+		return render(data, null);
+	}
+	
+	/**
+     * Renders only the cells of the heat map data that fall within the viewport to a bitmap image.
+     * Records outside of the viewport are skipped.
+     */
+	public BufferedImage render(Collection<DataRecord> data, Viewport viewport) {
+		return renderWithLayout(data, viewport).getImage();
+	}
+	
+	/**
+     * Renders the heat map data grid to a bitmap image.
+     * The dimensions of the grid must match the number of entries of the X-axis and Y-axis.
+     */
+	public BufferedImage render(DataGrid grid) {
+		return render(grid, null);
+	}
+	
+	/**
+     * Renders only the cells of the heat map data grid that fall within the viewport to a bitmap image.
+     * Only the cells within the viewport are visited, unless the colour scale is determined from the whole grid.
+     * The dimensions of the grid must match the number of entries of the X-axis and Y-axis.
+     */
+	public BufferedImage render(DataGrid grid, Viewport viewport) {
+		return renderWithLayout(grid, viewport).getImage();
+	}
+	
+	/**
+     * Renders the heat map data to a bitmap image, and returns it along with its layout.
+     * The result can later be passed to {@link #update(RenderedHeatMap, Collection, Collection)}.
+     * 
+     * @param viewport The window of the axes to render. May be null to render everything.
+     */
+	public RenderedHeatMap renderWithLayout(Collection<DataRecord> data, Viewport viewport) {
 		//Basic sanity checks
 		if(null == data || data.isEmpty())
 			throw new IllegalArgumentException("Missing data.");
 		
 		validate();
+		return render(CellSource.of(data, xAxis, yAxis), viewport);
+	}
+	
+	/**
+     * Renders the heat map data grid to a bitmap image, and returns it along with its layout.
+     * The result can later be passed to {@link #update(RenderedHeatMap, DataGrid, Collection)}.
+     * 
+     * @param viewport The window of the axes to render. May be null to render everything.
+     */
+	public RenderedHeatMap renderWithLayout(DataGrid grid, Viewport viewport) {
+		//Basic sanity checks
+		if(null == grid)
+			throw new IllegalArgumentException("Missing data.");
 		
-		//Determine the bounds of the data values
-		double minValue = Double.MAX_VALUE;
-		double maxValue = Double.MIN_VALUE;
-		if(null == options.getColourScaleLowerBound() || null == options.getColourScaleUpperBound()) {
-			for (DataRecord record: data) {
-				if(record.getValue() < minValue) minValue = record.getValue();
-				if(record.getValue() > maxValue) maxValue = record.getValue();
+		validate();
+		validateGrid(grid);
+		return render(CellSource.of(grid), viewport);
+	}
+	
+	private void validateGrid(DataGrid grid) {
+		if(grid.getWidth() != xAxis.getCount() || grid.getHeight() != yAxis.getCount())
+			throw new IllegalArgumentException("The grid dimensions (" + grid.getWidth() + "x" + grid.getHeight()
+				+ ") do not match the axes (" + xAxis.getCount() + "x" + yAxis.getCount() + ").");
+	}
+	
+	private RenderedHeatMap render(CellSource cells, Viewport viewport) {
+		final Scene scene = layout(cells, viewport);
+		final HeatMapLayout layout = scene.layout;
+		
+        //We are ready to start the actual drawing, create the image object.
+        BufferedImage heatmapImage = createImage(layout, layout.imageHeight);
+        Graphics2D g2d = heatmapImage.createGraphics();
+        try {
+        	paint(g2d, heatmapImage, layout, scene.cells, 0, layout.imageHeight);
+        } finally {
+        	g2d.dispose();
+        }
+        
+        //We are done! 🙂
+        return new RenderedHeatMap(heatmapImage, layout);
+	}
+	
+	/**
+	 * Applies the viewport and the target size to the cells, and calculates the layout of the heat map.
+	 */
+	private Scene layout(CellSource cells, Viewport viewport) {
+		return layout(new CellSource[] {cells}, viewport)[0];
+	}
+	
+	/**
+	 * Applies the viewport and the target size to the cells of every frame, and calculates a single layout shared by all of the frames.
+	 * The colour scale and the size of the cells are determined from the cells of every frame.
+	 */
+	private Scene[] layout(CellSource[] frames, Viewport viewport) {
+		if(null == viewport) viewport = Viewport.of(0, xAxis.getCount() - 1, 0, yAxis.getCount() - 1);
+		viewport.validate(xAxis.getCount(), yAxis.getCount());
+		
+		final AxisView xAxisView = AxisView.of(xAxis).window(viewport.getXStart(), viewport.getXEnd());
+		final AxisView yAxisView = AxisView.of(yAxis).window(viewport.getYStart(), viewport.getYEnd());
+		final boolean windowed = xAxisView.getCount() != xAxis.getCount() || yAxisView.getCount() != yAxis.getCount();
+		
+		//Reduce the resolution of the data if it would not fit within the target size
+		//The cells are enlarged to fit the axis labels, and the grid values, so the size they are drawn at is only known once the layout has been calculated
+		final int labelSize = getMaxStringSize(Collections.singletonList("0"), options.getAxisLabelFont()).getValue() + options.getAxisLabelPadding();
+		int cellWidth  = Math.max(options.getCellWidth(),  options.isShowXAxisLabels() ? labelSize : 0);
+		int cellHeight = Math.max(options.getCellHeight(), options.isShowYAxisLabels() ? labelSize : 0);
+		int blockWidth = 1;
+		int blockHeight = 1;
+		CellSource[] windowCells;
+		HeatMapLayout layout;
+		while(true) {
+			blockWidth  = Math.max(blockWidth,  getBlockSize(xAxisView.getCount(), cellWidth,  options.getTargetMatrixWidth()));
+			blockHeight = Math.max(blockHeight, getBlockSize(yAxisView.getCount(), cellHeight, options.getTargetMatrixHeight()));
+			
+			windowCells = new CellSource[frames.length];
+			for (int i = 0; i < frames.length; i++) {
+				windowCells[i] = windowed ? frames[i].window(viewport.getXStart(), viewport.getYStart(), viewport.getWidth(), viewport.getHeight()) : frames[i];
+				if(blockWidth > 1 || blockHeight > 1) {
+					//Single streaming pass over the data, only the reduced grid is kept in memory
+					final AggregatedDataGrid grid = new AggregatedDataGrid(xAxisView.getCount(), yAxisView.getCount(), blockWidth, blockHeight, options.getAggregation());
+					windowCells[i].forEach(grid::add);
+					windowCells[i] = CellSource.of(grid);
+				}
 			}
+			
+			//Determine the colour scale from all of the data, if requested, aggregated the same way as the cells that are drawn
+			final double[] bounds = (viewport.isGlobalColourScale() && isColourScaleScanRequired()) ? getGlobalDataBounds(frames, windowCells, viewport, blockWidth, blockHeight) : null;
+			
+			layout = layout(frames.length == 1 ? windowCells[0] : CellSource.concat(windowCells),
+					xAxisView.blocks(blockWidth), yAxisView.blocks(blockHeight), bounds);
+			
+			//The grid values of the aggregated cells may have made the cells larger still, in which case the blocks must grow
+			if(getBlockSize(xAxisView.getCount(), layout.cellWidth, options.getTargetMatrixWidth()) <= blockWidth
+					&& getBlockSize(yAxisView.getCount(), layout.cellHeight, options.getTargetMatrixHeight()) <= blockHeight) break;
+			cellWidth = layout.cellWidth;
+			cellHeight = layout.cellHeight;
 		}
 		
-		//Adjust the data bounds if the scale is clamped
-		boolean minClamped = false;
-		boolean maxClamped = false;
-		if(null != options.getColourScaleLowerBound()) {
-			minClamped = true;
-			minValue = options.getColourScaleLowerBound();
+		layout.xOffset = viewport.getXStart();
+		layout.yOffset = viewport.getYStart();
+		layout.blockWidth = blockWidth;
+		layout.blockHeight = blockHeight;
+		layout.globalColourScale = viewport.isGlobalColourScale();
+		
+		final Scene[] scenes = new Scene[frames.length];
+		for (int i = 0; i < frames.length; i++) scenes[i] = new Scene(layout, windowCells[i]);
+		return scenes;
+	}
+	
+	/**
+	 * Updates a previously rendered heat map in place by repainting only the cells that have changed, along with their grid values.
+	 * 
+	 * The heat map is fully re-rendered instead when the update cannot be done in place: when a changed value falls outside
+	 * of an automatically determined colour scale, when the colour scale is set to percentiles of the data, when a grid value no longer fits within its cell,
+	 * when colour blending is enabled, or when the cells were aggregated to fit a target size. Note that the colour scale is never narrowed by an in place update.
+	 * 
+	 * @param previous The result of a previous call to {@link #renderWithLayout(DataGrid, Viewport)} using the same axes and options.
+	 * @param grid The whole data grid, including the changes.
+	 * @param changedCells The X-axis and Y-axis indices of the cells that have changed. Cells outside of the rendered viewport are ignored.
+	 * 
+	 * @return the updated heat map, which is the previous heat map unless it had to be fully re-rendered.
+	 */
+	public RenderedHeatMap update(RenderedHeatMap previous, DataGrid grid, Collection<Point> changedCells) {
+		//Basic sanity checks
+		if(null == previous) throw new IllegalArgumentException("Missing previous heat map.");
+		if(null == grid) throw new IllegalArgumentException("Missing data.");
+		
+		validate();
+		validateGrid(grid);
+		
+		final int changedCount = null == changedCells ? 0 : changedCells.size();
+		int[] xIndices = new int[changedCount];
+		int[] yIndices = new int[changedCount];
+		double[] values = new double[changedCount];
+		int i = 0;
+		if(changedCount > 0) {
+			for (Point cell : changedCells) {
+				xIndices[i] = cell.x;
+				yIndices[i] = cell.y;
+				values[i] = grid.getValue(cell.x, cell.y);
+				i++;
+			}
 		}
 		
-		if(null != options.getColourScaleUpperBound()) {
-			maxClamped = true;
-			maxValue = options.getColourScaleUpperBound();
+		//Each cell of a symmetric grid has a mirror image that has also changed
+		if(grid instanceof SymmetricDataGrid) {
+			xIndices = Arrays.copyOf(xIndices, changedCount * 2);
+			yIndices = Arrays.copyOf(yIndices, changedCount * 2);
+			values = Arrays.copyOf(values, changedCount * 2);
+			System.arraycopy(yIndices, 0, xIndices, changedCount, changedCount);
+			System.arraycopy(xIndices, 0, yIndices, changedCount, changedCount);
+			System.arraycopy(values, 0, values, changedCount, changedCount);
 		}
+		
+		if(update(previous, xIndices, yIndices, values)) return previous;
+		return render(CellSource.of(grid), getViewport(previous.getLayout()));
+	}
+	
+	/**
+	 * Updates a previously rendered heat map in place by repainting only the cells that have changed, along with their grid values.
+	 * Changed records with a null value are treated as removed, and their cells are cleared.
+	 * 
+	 * @param previous The result of a previous call to {@link #renderWithLayout(Collection, Viewport)} using the same axes and options.
+	 * @param data The whole data collection, including the changes. Only used when the heat map needs to be fully re-rendered.
+	 * @param changedRecords The records that have changed.
+	 * 
+	 * @return the updated heat map, which is the previous heat map unless it had to be fully re-rendered.
+	 * 
+	 * @see #update(RenderedHeatMap, DataGrid, Collection)
+	 */
+	public RenderedHeatMap update(RenderedHeatMap previous, Collection<DataRecord> data, Collection<DataRecord> changedRecords) {
+		//Basic sanity checks
+		if(null == previous) throw new IllegalArgumentException("Missing previous heat map.");
+		if(null == data || data.isEmpty()) throw new IllegalArgumentException("Missing data.");
+		
+		validate();
+		
+		final int changedCount = null == changedRecords ? 0 : changedRecords.size();
+		final int[] xIndices = new int[changedCount];
+		final int[] yIndices = new int[changedCount];
+		final double[] values = new double[changedCount];
+		int i = 0;
+		if(changedCount > 0) {
+			for (DataRecord record : changedRecords) {
+				final Integer x = xAxis.getIndex(record.getX());
+				final Integer y = yAxis.getIndex(record.getY());
+				if(null == x || null == y) continue; //Not on the axes, nothing to repaint
+				xIndices[i] = x;
+				yIndices[i] = y;
+				values[i] = null == record.getValue() ? Double.NaN : record.getValue();
+				i++;
+			}
+		}
+		
+		if(update(previous, Arrays.copyOf(xIndices, i), Arrays.copyOf(yIndices, i), Arrays.copyOf(values, i))) return previous;
+		return render(CellSource.of(data, xAxis, yAxis), getViewport(previous.getLayout()));
+	}
+	
+	/**
+	 * Repaints the changed cells directly onto the previously rendered image.
+	 * 
+	 * @return false if the update can't be done in place and the heat map needs to be fully re-rendered.
+	 */
+	private boolean update(RenderedHeatMap previous, int[] xIndices, int[] yIndices, double[] values) {
+		final HeatMapLayout layout = previous.getLayout();
+		
+		//Blending bleeds into the neighbouring cells and aggregated cells depend on many source cells
+		if(options.isBlendColours() || layout.blockWidth > 1 || layout.blockHeight > 1) return false;
+		
+		//Any change may move the percentiles of the data
+		if(isPercentileColourScale()) return false;
+		
+		//The colour scale must not have changed
+		if(null != options.getColourScaleLowerBound() && options.getColourScaleLowerBound() != layout.minValue) return false;
+		if(null != options.getColourScaleUpperBound() && options.getColourScaleUpperBound() != layout.maxValue) return false;
+		for (int i = 0; i < values.length; i++) {
+			if(Double.isNaN(values[i])) continue;
+			if(null == options.getColourScaleLowerBound() && values[i] < layout.minValue) return false;
+			if(null == options.getColourScaleUpperBound() && values[i] > layout.maxValue) return false;
+		}
+		
+		//Only the visible cells are repainted, relative to the start of the viewport
+		for (int i = 0; i < values.length; i++) {
+			xIndices[i] -= layout.xOffset;
+			yIndices[i] -= layout.yOffset;
+		}
+		return paintCells(previous.getImage(), layout, xIndices, yIndices, values);
+	}
+	
+	/**
+	 * Repaints cells directly onto a rendered image, along with their grid values. Cells outside of the matrix are ignored.
+	 * 
+	 * @param xIndices The column of each cell within the matrix.
+	 * @param yIndices The row of each cell within the matrix.
+	 * @param values The new value of each cell, NaN for empty cells.
+	 * 
+	 * @return false if a grid value no longer fits within its cell, in which case nothing is repainted.
+	 */
+	private boolean paintCells(BufferedImage image, HeatMapLayout layout, int[] xIndices, int[] yIndices, double[] values) {
+		Graphics2D g2d = image.createGraphics();
+		try {
+			g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g2d.setFont(options.getGridValuesFont());
+			final FontMetrics valueFontMetrics = g2d.getFontMetrics();
+			final int textVerticalOffset = (int) (valueFontMetrics.getHeight()*0.25);
+			final DecimalFormat dataValuesDF = new DecimalFormat(options.getGridValuesFormat()); //Not thread safe, don't make static
+			
+			//The new grid values must still fit within the cells, with the same 4 pixel margin on all sides
+			final String[] gridValues = new String[values.length];
+			if(options.isShowGridValues()) {
+				if(valueFontMetrics.getHeight() + 8 > layout.cellHeight) return false;
+				for (int i = 0; i < values.length; i++) {
+					if(Double.isNaN(values[i])) continue;
+					gridValues[i] = dataValuesDF.format(values[i]);
+					if(valueFontMetrics.stringWidth(gridValues[i]) + 8 > layout.cellWidth) return false;
+				}
+			}
+			
+			for (int i = 0; i < values.length; i++) {
+				//Cells outside of the viewport are not visible
+				final int x = xIndices[i];
+				final int y = yIndices[i];
+				if(x < 0 || y < 0 || x >= layout.xAxis.getCount() || y >= layout.yAxis.getCount()) continue;
+				
+				//Empty cells are reset back to the background colour
+				final int matrixBoxPosX = layout.getCellPosX(x);
+				final int matrixBoxPosY = layout.getCellPosY(y);
+				g2d.setColor(Double.isNaN(values[i]) ? layout.backgroundColour : getCellColour(values[i], layout));
+				g2d.fillRect(matrixBoxPosX, matrixBoxPosY, layout.cellWidth, layout.cellHeight);
+				
+				if(null != gridValues[i]) {
+					g2d.setColor(options.getGridValuesFontColour());
+					final int textPosX = matrixBoxPosX + layout.halfCellWidth - (valueFontMetrics.stringWidth(gridValues[i])/2); // Centre the text in the X dimension
+					final int textPosY = matrixBoxPosY + layout.halfCellHeight + textVerticalOffset;
+					g2d.drawString(gridValues[i], textPosX, textPosY);
+				}
+			}
+		} finally {
+			g2d.dispose();
+		}
+		//The grid lines are never painted over, since the cells are drawn between them
+		return true;
+	}
+	
+	/**
+	 * Rebuilds the viewport that was used to render a layout.
+	 */
+	private static Viewport getViewport(HeatMapLayout layout) {
+		return Viewport.of(layout.xOffset, layout.xOffset + (layout.xAxis.getCount() * layout.blockWidth) - 1,
+						   layout.yOffset, layout.yOffset + (layout.yAxis.getCount() * layout.blockHeight) - 1)
+				.withGlobalColourScale(layout.globalColourScale);
+	}
+	
+	/**
+	 * @return true if at least one of the colour scale bounds needs to be determined from the data.
+	 */
+	private boolean isColourScaleScanRequired() {
+		return null == options.getColourScaleLowerBound() || null == options.getColourScaleUpperBound();
+	}
+	
+	/**
+	 * @return true if at least one of the colour scale bounds is set to a percentile of the data, rather than a fixed value.
+	 */
+	private boolean isPercentileColourScale() {
+		return (null == options.getColourScaleLowerBound() && null != options.getColourScaleLowerPercentile())
+			|| (null == options.getColourScaleUpperBound() && null != options.getColourScaleUpperPercentile());
+	}
+	
+	/**
+	 * Determines the minimum and maximum values of the cells, or the configured percentiles of the values.
+	 * The percentiles are estimated in the same pass, using a sketch of bounded size rather than sorting the values.
+	 * The cells are not scanned at all when their minimum and maximum values are already known, such as for a {@link BoundedDataGrid}.
+	 * 
+	 * @return the bounds, in the form of <code>[min, max]</code>. Both are zero if every cell is empty.
+	 */
+	private double[] getDataBounds(CellSource cells) {
+		final double[] knownBounds = isPercentileColourScale() ? null : cells.getBounds();
+		if(null != knownBounds) return knownBounds;
+		
+		final double[] bounds = {Double.MAX_VALUE, -Double.MAX_VALUE};
+		final QuantileSketch sketch = isPercentileColourScale() ? new QuantileSketch() : null;
+		cells.forEach((x, y, value)->{
+			if(value < bounds[0]) bounds[0] = value;
+			if(value > bounds[1]) bounds[1] = value;
+			if(null != sketch) sketch.add(value);
+		});
+		
+		//Every cell may be empty, in which case there is no range
+		if(bounds[0] > bounds[1]) {
+			bounds[0] = 0;
+			bounds[1] = 0;
+		} else if (null != sketch) {
+			if(null != options.getColourScaleLowerPercentile()) bounds[0] = sketch.getQuantile(options.getColourScaleLowerPercentile() / 100);
+			if(null != options.getColourScaleUpperPercentile()) bounds[1] = sketch.getQuantile(options.getColourScaleUpperPercentile() / 100);
+		}
+		return bounds;
+	}
+	
+	/**
+	 * Determines the colour scale from all of the data, rather than only the cells within the viewport.
+	 * When the cells are aggregated, the whole data is aggregated into blocks of the same size, aligned with the start of the viewport,
+	 * since the aggregated values can fall well outside of the range of the raw values, such as the sums of the cells.
+	 * The bounds are then widened to the cells that are drawn, since the blocks at the far edges of the viewport may be cut short.
+	 * 
+	 * @param frames The cells of every frame, over the whole axes.
+	 * @param windowCells The cells of every frame that are drawn, within the viewport and aggregated.
+	 */
+	private double[] getGlobalDataBounds(CellSource[] frames, CellSource[] windowCells, Viewport viewport, int blockWidth, int blockHeight) {
+		if(blockWidth == 1 && blockHeight == 1) return getDataBounds(frames.length == 1 ? frames[0] : CellSource.concat(frames));
+		
+		//Shift the cells so that the blocks start at the start of the viewport
+		final int xShift = (blockWidth  - (viewport.getXStart() % blockWidth))  % blockWidth;
+		final int yShift = (blockHeight - (viewport.getYStart() % blockHeight)) % blockHeight;
+		final CellSource[] aggregated = new CellSource[frames.length];
+		for (int i = 0; i < frames.length; i++) {
+			final AggregatedDataGrid grid = new AggregatedDataGrid(xAxis.getCount() + xShift, yAxis.getCount() + yShift, blockWidth, blockHeight, options.getAggregation());
+			frames[i].forEach((x, y, value)->grid.add(x + xShift, y + yShift, value));
+			aggregated[i] = CellSource.of(grid);
+		}
+		final double[] bounds = getDataBounds(frames.length == 1 ? aggregated[0] : CellSource.concat(aggregated));
+		
+		//A percentile colour scale is clamped, so the cells that are drawn do not need to fit within it
+		if(isPercentileColourScale()) return bounds;
+		for (CellSource cells : windowCells) {
+			cells.forEach((x, y, value)->{
+				if(value < bounds[0]) bounds[0] = value;
+				if(value > bounds[1]) bounds[1] = value;
+			});
+		}
+		return bounds;
+	}
+	
+	/**
+	 * Creates an image for the whole width of the heat map, or for a band of it.
+	 * Indexed colour images use one byte per pixel, rather than four.
+	 */
+	private static BufferedImage createImage(HeatMapLayout layout, int height) {
+		if(null == layout.palette) return new BufferedImage(layout.imageWidth, height, BufferedImage.TYPE_INT_RGB);
+		return new BufferedImage(layout.imageWidth, height, BufferedImage.TYPE_BYTE_INDEXED, layout.palette.getColourModel());
+	}
+	
+	/**
+	 * Calculates the dimensions and positions of all of the elements of the heat map, without drawing anything.
+	 */
+	private HeatMapLayout layout(CellSource cells, AxisView xAxis, AxisView yAxis, double[] dataBounds) {
+		//Determine the bounds of the data values
+		final double[] bounds = (null != dataBounds || !isColourScaleScanRequired()) ? dataBounds : getDataBounds(cells);
+		
+		//Adjust the data bounds if the scale is clamped, either to a fixed value or to a percentile of the data
+		final boolean minClamped = null != options.getColourScaleLowerBound() || null != options.getColourScaleLowerPercentile();
+		final boolean maxClamped = null != options.getColourScaleUpperBound() || null != options.getColourScaleUpperPercentile();
+		final boolean clamped = minClamped || maxClamped;
+		final double minValue = null != options.getColourScaleLowerBound() ? options.getColourScaleLowerBound() : bounds[0];
+		final double maxValue = null != options.getColourScaleUpperBound() ? options.getColourScaleUpperBound() : bounds[1];
 		final double valueRange = maxValue - minValue;
 		
 		//Determine the dimensions of the X-axis and Y-axis labels
 		//We need to render all of the X & Y labels first so we can determine the maximum size the labels will take to render
-		final Entry<Integer, Integer> xAxisLabelMaxSize = getMaxStringSize(options.isShowXAxisLabels() ? xAxis.getEntryLabels().values() : Collections.emptyList(), options.getAxisLabelFont());
-		final Entry<Integer, Integer> yAxisLabelMaxSize = getMaxStringSize(options.isShowXAxisLabels() ? yAxis.getEntryLabels().values() : Collections.emptyList(), options.getAxisLabelFont());
+		final Entry<Integer, Integer> xAxisLabelMaxSize = getMaxStringSize(options.isShowXAxisLabels() ? xAxis.getLabels() : Collections.emptyList(), options.getAxisLabelFont());
+		final Entry<Integer, Integer> yAxisLabelMaxSize = getMaxStringSize(options.isShowXAxisLabels() ? yAxis.getLabels() : Collections.emptyList(), options.getAxisLabelFont());
 		int xAxisLabelHeight = xAxisLabelMaxSize.getKey(); //Assume rotated by default, we'll check this assumption later
 		final int yAxisLabelMaxWidth = yAxisLabelMaxSize.getKey();
 		final int axisLabelFontHeight = Math.max(xAxisLabelMaxSize.getValue(), yAxisLabelMaxSize.getValue()); //May or may be set by either axis
 		
 		//Determine the dimensions of grid values
 		final DecimalFormat dataValuesDF = new DecimalFormat(options.getGridValuesFormat()); //Not thread safe, don't make static
-		final List<String> dataValues = options.isShowGridValues() ? data.stream().map(r-> r.getValue() == null ? "" : dataValuesDF.format(r.getValue())).collect(Collectors.toList()) : Collections.emptyList();
+		final List<String> dataValues = new ArrayList<String>();
+		if(options.isShowGridValues()) cells.forEach((x, y, value)->dataValues.add(dataValuesDF.format(value)));
 		final Entry<Integer, Integer> gridValuesDimensions = getMaxStringSize(dataValues, options.getGridValuesFont());
 		
 		//Determine the dimensions of the axis titles
@@ -121,15 +887,13 @@ public class HeatMap {
 		
 		//When labels are enabled, the cells need to be at least as big as the font height
 		//This is true for the x-axis as  well since at a minimum we can rotate the text
-		int cellWidth  = Math.max(options.getCellWidth(),  options.isShowXAxisLabels() ? axisLabelFontHeight + options.getAxisLabelPadding() : 0);
-		int cellHeight = Math.max(options.getCellHeight(), options.isShowYAxisLabels() ? axisLabelFontHeight + options.getAxisLabelPadding() : 0);
+		final int minCellWidth  = Math.max(options.getCellWidth(),  options.isShowXAxisLabels() ? axisLabelFontHeight + options.getAxisLabelPadding() : 0);
+		final int minCellHeight = Math.max(options.getCellHeight(), options.isShowYAxisLabels() ? axisLabelFontHeight + options.getAxisLabelPadding() : 0);
 		
 		//The cells also need to be big enough to display the grid values if we are rendering those
-		if(options.isShowGridValues()) {
-			//We need to leave a bit of margin around the text to not squeeze it. 4 pixels on all sides should be fine.
-			cellWidth  = Math.max(cellWidth,  gridValuesDimensions.getKey() + 8);
-			cellHeight = Math.max(cellHeight, gridValuesDimensions.getValue() + 8);
-		}
+		//We need to leave a bit of margin around the text to not squeeze it. 4 pixels on all sides should be fine.
+		final int cellWidth  = options.isShowGridValues() ? Math.max(minCellWidth,  gridValuesDimensions.getKey() + 8)   : minCellWidth;
+		final int cellHeight = options.isShowGridValues() ? Math.max(minCellHeight, gridValuesDimensions.getValue() + 8) : minCellHeight;
 		
 		//Save a little bit of math later on
 		final int halfCellWidth  = cellWidth  / 2;
@@ -228,41 +992,101 @@ public class HeatMap {
         //Outside padding + big title + title padding + X Axis Title + label padding + X Axis Labels + label padding + chart height + outside padding
         final int imageHeight = matrixStartPosY + Math.max(matrixHeight, legendHeight) + ((options.isShowXAxisLabels() && options.isxAxisLabelsBelow()) ? (options.getAxisLabelPadding() + xAxisLabelHeight): 0) + options.getOutsidePadding();
         
-        //We are ready to start the actual drawing, create the image object.
-        BufferedImage heatmapImage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = heatmapImage.createGraphics();
-        
-        //Start the actual drawing onto the canvas
-		 try {	 
+        //If the background colour is explicitly set, then use it. Otherwise, automatically determine a good colour.
+        Color backgroundColour = options.getBackgroundColour();
+		if(null == backgroundColour) {
+			//Make the background all white, except if the colour scale goes to white
+			Color maxColour = options.getGradient().getColour(1.0);
+			if(maxColour.getBlue() > 240 && maxColour.getGreen() > 240 && maxColour.getRed() > 240) {
+				backgroundColour = ALTERNATIVE_BACKGROUND_COLOUR;
+			} else {
+				backgroundColour = Color.WHITE;
+			}
+		}
+		
+		final HeatMapLayout layout = new HeatMapLayout();
+		layout.backgroundColour = backgroundColour;
+		layout.palette = options.isIndexedColour() ? new IndexedPalette(options, backgroundColour) : null;
+		layout.gridLineWidth = options.isShowGridlines() ? options.getGridLineWidth() : 0;
+		layout.clamped = clamped;
+		layout.minValue = minValue;
+		layout.maxValue = maxValue;
+		layout.valueRange = valueRange;
+		layout.yAxisLabelMaxWidth = yAxisLabelMaxWidth;
+		layout.axisLabelFontHeight = axisLabelFontHeight;
+		layout.xTitleDimensions = xTitleDimensions;
+		layout.yTitleDimensions = yTitleDimensions;
+		layout.cellWidth = cellWidth;
+		layout.cellHeight = cellHeight;
+		layout.halfCellWidth = halfCellWidth;
+		layout.halfCellHeight = halfCellHeight;
+		layout.rotateXLabels = rotateXLabels;
+		layout.legendBoxes = legendBoxes;
+		layout.legendValues = legendValues;
+		layout.legendLabels = legendLabels;
+		layout.legendHeight = legendHeight;
+		layout.legendBoxesWidth = legendBoxesWidth;
+		layout.yAxisTitleStartPosX = yAxisTitleStartPosX;
+		layout.yAxisLabelStartPosX = yAxisLabelStartPosX;
+		layout.matrixStartPosX = matrixStartPosX;
+		layout.matrixWidth = matrixWidth;
+		layout.matrixCentreX = matrixCentreX;
+		layout.xAxisLabelStartPosX = xAxisLabelStartPosX;
+		layout.legendStartPosX = legendStartPosX;
+		layout.legendLabelStartPosX = legendLabelStartPosX;
+		layout.imageWidth = imageWidth;
+		layout.imageCenterY = imageCenterY;
+		layout.titleLines = titleLines;
+		layout.chartTitleLineHeight = chartTitleLineHeight;
+		layout.chartTitleStartPosY = chartTitleStartPosY;
+		layout.xAxisTitleStartPosY = xAxisTitleStartPosY;
+		layout.xAxisLabelStartPosY = xAxisLabelStartPosY;
+		layout.matrixStartPosY = matrixStartPosY;
+		layout.matrixHeight = matrixHeight;
+		layout.matrixCentreY = matrixCentreY;
+		layout.yAxisLabelStartPosY = yAxisLabelStartPosY;
+		layout.legendStartPosY = legendStartPosY;
+		layout.legendLabelStartPosY = legendLabelStartPosY;
+		layout.imageHeight = imageHeight;
+		layout.xAxis = xAxis;
+		layout.yAxis = yAxis;
+		return layout;
+	}
+	
+	/**
+	 * Draws the heat map onto the canvas, using a previously calculated layout.
+	 * 
+	 * Only the elements that overlap the rows of pixels from <code>top</code> to <code>bottom</code> are drawn, which is the whole image unless
+	 * the heat map is being drawn one band at a time. The canvas must then be translated so that the top of the band is at <code>top</code>.
+	 * 
+	 * @param target The image being drawn onto, only used when blending the colours of an indexed colour heat map.
+	 * @param top The first row of pixels to draw.
+	 * @param bottom The row of pixels after the last row to draw.
+	 */
+	private void paint(Graphics2D g2d, BufferedImage target, HeatMapLayout layout, CellSource cells, int top, int bottom) {
 			//Render the text smoothly, always
 			g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 			 
-			//If the background colour is explicitly set, then use it. Otherwise, automatically determine a good colour.
-			if(null != options.getBackgroundColour()) {
-				g2d.setColor(options.getBackgroundColour());
-			} else {
-				//Make the background all white, except if the colour scale goes to white
-				Color maxColour = options.getGradient().getColour(1.0);
-				if(maxColour.getBlue() > 240 && maxColour.getGreen() > 240 && maxColour.getRed() > 240) {
-					g2d.setColor(ALTERNATIVE_BACKGROUND_COLOUR);
-				} else {
-					g2d.setColor(Color.WHITE);
-				}
-			}
+			g2d.setColor(layout.backgroundColour);
 			//Paint the background
-			g2d.fillRect(0, 0, imageWidth, imageHeight);
+			g2d.fillRect(0, top, layout.imageWidth, bottom - top);
+			
+			//The rows of cells, and their labels, that overlap the band, plus a row on either side for any text that extends past its cell
+			final int cellPitchY = layout.cellHeight + layout.gridLineWidth;
+			final int firstRow = clamp(Math.floorDiv(top - layout.matrixStartPosY, cellPitchY) - 1, layout.yAxis.getCount());
+			final int endRow = clamp(Math.floorDiv(bottom - layout.matrixStartPosY, cellPitchY) + 2, layout.yAxis.getCount());
 			
 			//Render the chart title
 			if(!title.isEmpty()) {
 				//Set the title font
 				g2d.setFont(options.getHeatMapTitleFont());
 				g2d.setColor(options.getHeatMapTitleFontColour());
-				for (int i = 0; i < titleLines.size(); i++) {
-					Entry<String, Entry<Integer, Integer>> line = titleLines.get(i);
+				for (int i = 0; i < layout.titleLines.size(); i++) {
+					Entry<String, Entry<Integer, Integer>> line = layout.titleLines.get(i);
 					// Label positions are bottom left so we need to add 1 to the line number
-					final int linePosY = chartTitleStartPosY + ((i + 1) * chartTitleLineHeight);
+					final int linePosY = layout.chartTitleStartPosY + ((i + 1) * layout.chartTitleLineHeight);
 					//Centre each line horizontally
-					g2d.drawString(line.getKey(), imageCenterY - (line.getValue().getKey()/2), linePosY);
+					g2d.drawString(line.getKey(), layout.imageCenterY - (line.getValue().getKey()/2), linePosY);
 				}
 			}
 			
@@ -274,47 +1098,51 @@ public class HeatMap {
 		        
 		        //Render the legend labels
 	    		//The number of legend boxes may be greater than the number of labels
-		   		g2d.drawString(legendLabels.get(legendLabels.size()-1), legendLabelStartPosX, legendLabelStartPosY); //First
-	    		g2d.drawString(legendLabels.get(0), legendLabelStartPosX, legendLabelStartPosY + (cellHeight * (legendBoxes-1)) + (options.isShowGridlines() ? options.getGridLineWidth()*(legendBoxes-1) : 0)); //Last
-	    		if(valueRange > 0 ) {
+		   		g2d.drawString(layout.legendLabels.get(layout.legendLabels.size()-1), layout.legendLabelStartPosX, layout.legendLabelStartPosY); //First
+	    		g2d.drawString(layout.legendLabels.get(0), layout.legendLabelStartPosX, layout.legendLabelStartPosY + (layout.cellHeight * (layout.legendBoxes-1)) + (options.isShowGridlines() ? options.getGridLineWidth()*(layout.legendBoxes-1) : 0)); //Last
+	    		//Only the legend boxes that overlap the band, plus enough boxes on either side for their labels, which may be taller than the boxes
+	    		final int legendLabelMargin = ((g2d.getFontMetrics().getHeight() + cellPitchY - 1) / cellPitchY) + 1;
+	    		final int firstLegendBox = clamp(Math.floorDiv(top - layout.legendStartPosY, cellPitchY) - legendLabelMargin, layout.legendBoxes);
+	    		final int endLegendBox = clamp(Math.floorDiv(bottom - layout.legendStartPosY, cellPitchY) + 1 + legendLabelMargin, layout.legendBoxes);
+	    		if(layout.valueRange > 0 ) {
 	    			//Only render the rest of the labels if there is a range to the colours
-	    			for(int i = 1; i < legendBoxes-1; i++) {
-	    				final int legendLabelPosY = legendLabelStartPosY + (cellHeight * i) + (options.isShowGridlines() ? options.getGridLineWidth()*i : 0);
-	    				g2d.drawString(legendLabels.get(legendBoxes-i-1), legendLabelStartPosX, legendLabelPosY);
+	    			for(int i = Math.max(1, firstLegendBox); i < Math.min(layout.legendBoxes-1, endLegendBox); i++) {
+	    				final int legendLabelPosY = layout.legendLabelStartPosY + (layout.cellHeight * i) + (options.isShowGridlines() ? options.getGridLineWidth()*i : 0);
+	    				g2d.drawString(layout.legendLabels.get(layout.legendBoxes-i-1), layout.legendLabelStartPosX, legendLabelPosY);
 	    			}
 	    		}
 	    		
 	    		//Render the legend boxes, starting with the top (maximum colour value) first
-	    		for(int i = 0; i < legendBoxes; i++) {
+	    		for(int i = firstLegendBox; i < endLegendBox; i++) {
 	    			if(i == 0) {
-	    				g2d.setColor(options.getGradient().getColour(1.0));
-	    			} else if (i == legendBoxes -1) {
-	    				g2d.setColor(options.getGradient().getColour(0.0));
+	    				g2d.setColor(getGradientColour(1.0, layout));
+	    			} else if (i == layout.legendBoxes -1) {
+	    				g2d.setColor(getGradientColour(0.0, layout));
 	    			} else {
-	    				g2d.setColor(options.getGradient().getColour((1-(legendValues.get(i)-minValue)/valueRange)));
+	    				g2d.setColor(getGradientColour((1-(layout.legendValues.get(i)-layout.minValue)/layout.valueRange), layout));
 	    			}
-	    			final int legendBoxPosX = legendStartPosX + (options.isShowGridlines() ? options.getGridLineWidth() : 0);
-	    			final int legendBoxPosY = legendStartPosY + (options.isShowGridlines() ? (options.getGridLineWidth() + i * (cellHeight + options.getGridLineWidth())) : i * cellHeight);
-					g2d.fillRect(legendBoxPosX, legendBoxPosY, cellWidth, cellHeight);
+	    			final int legendBoxPosX = layout.legendStartPosX + (options.isShowGridlines() ? options.getGridLineWidth() : 0);
+	    			final int legendBoxPosY = layout.legendStartPosY + (options.isShowGridlines() ? (options.getGridLineWidth() + i * (layout.cellHeight + options.getGridLineWidth())) : i * layout.cellHeight);
+					g2d.fillRect(legendBoxPosX, legendBoxPosY, layout.cellWidth, layout.cellHeight);
 					
 					//Also render the dividing lines
 					//The last box doesn't need a line, that's handled by the outside border
-					if(options.isShowGridlines() && (i != legendBoxes -1)) {
+					if(options.isShowGridlines() && (i != layout.legendBoxes -1)) {
 						g2d.setColor(options.getGridLineColour()); //Reset back to grid line colour! The last colour was from the legend
-						g2d.fillRect(legendBoxPosX, legendBoxPosY + cellHeight, cellWidth, options.getGridLineWidth()); 
+						g2d.fillRect(legendBoxPosX, legendBoxPosY + layout.cellHeight, layout.cellWidth, options.getGridLineWidth()); 
 					}
 	    		}
 	    		
 	    		//Render the legend grid lines or outside border
 	    		g2d.setColor(options.getGridLineColour());
 	    		if(options.isShowGridlines()) {
-	    			g2d.fillRect(legendStartPosX, legendStartPosY, legendBoxesWidth, options.getGridLineWidth()); //Top
-	    			g2d.fillRect(legendStartPosX, legendStartPosY + legendHeight - options.getGridLineWidth(), legendBoxesWidth, options.getGridLineWidth()); //Bottom
-	    			g2d.fillRect(legendStartPosX, legendStartPosY, options.getGridLineWidth(), legendHeight); //Left
-	    			g2d.fillRect(legendStartPosX + legendBoxesWidth - options.getGridLineWidth(), legendStartPosY, options.getGridLineWidth(), legendHeight); //Right
+	    			g2d.fillRect(layout.legendStartPosX, layout.legendStartPosY, layout.legendBoxesWidth, options.getGridLineWidth()); //Top
+	    			g2d.fillRect(layout.legendStartPosX, layout.legendStartPosY + layout.legendHeight - options.getGridLineWidth(), layout.legendBoxesWidth, options.getGridLineWidth()); //Bottom
+	    			g2d.fillRect(layout.legendStartPosX, layout.legendStartPosY, options.getGridLineWidth(), layout.legendHeight); //Left
+	    			g2d.fillRect(layout.legendStartPosX + layout.legendBoxesWidth - options.getGridLineWidth(), layout.legendStartPosY, options.getGridLineWidth(), layout.legendHeight); //Right
 	    		} else {
 	    			//Render the legend border on top of the boxes
-	        		g2d.drawRect(legendStartPosX, legendStartPosY, cellWidth-1, (cellHeight*legendBoxes) -1);
+	        		g2d.drawRect(layout.legendStartPosX, layout.legendStartPosY, layout.cellWidth-1, (layout.cellHeight*layout.legendBoxes) -1);
 	    		}
 	        }
     		
@@ -323,20 +1151,20 @@ public class HeatMap {
     		g2d.setColor(options.getAxisTitleFontColour()); //Set to Axis title colour. The last colour was from the legend.
     		
     		//Render the X-axis title
-	    	if(!xAxis.getTitle().isEmpty()) {
+	    	if(!layout.xAxis.getTitle().isEmpty()) {
 	    		//TODO: Wrap the title if it's too long
-	    		final int xAxisTitleWidth = xTitleDimensions.getKey();
-	    		g2d.drawString(xAxis.getTitle(), matrixCentreX - (xAxisTitleWidth/2), xAxisTitleStartPosY);
+	    		final int xAxisTitleWidth = layout.xTitleDimensions.getKey();
+	    		g2d.drawString(layout.xAxis.getTitle(), layout.matrixCentreX - (xAxisTitleWidth/2), layout.xAxisTitleStartPosY);
 	    	}
     		
     		//Render the Y-axis title
-	    	if(!yAxis.getTitle().isEmpty()) {
+	    	if(!layout.yAxis.getTitle().isEmpty()) {
 	    		//TODO: Wrap the title if it's too long
-	    		final int yAxisTitleWidth = yTitleDimensions.getKey();
+	    		final int yAxisTitleWidth = layout.yTitleDimensions.getKey();
 	    		AffineTransform transform = g2d.getTransform();
-	    		g2d.translate(yAxisTitleStartPosX, matrixCentreY + (yAxisTitleWidth/2));
+	    		g2d.translate(layout.yAxisTitleStartPosX, layout.matrixCentreY + (yAxisTitleWidth/2));
 				g2d.rotate(-Math.PI / 2); // Rotate 90 degrees counter-clockwise
-	    		g2d.drawString(yAxis.getTitle(), 0, 0);
+	    		g2d.drawString(layout.yAxis.getTitle(), 0, 0);
 	    		g2d.setTransform(transform);
 	    	}
     		
@@ -345,50 +1173,59 @@ public class HeatMap {
     		g2d.setColor(options.getAxisLabelFontColour());
 	    	FontMetrics labelFontMetrics = g2d.getFontMetrics(); //Font is different between titles and labels
 	    	
-	    	if(options.isShowXAxisLabels()) {
+	    	//The X-axis labels are either entirely above or entirely below the matrix
+	    	final boolean xLabelsInBand = options.isxAxisLabelsBelow() ? bottom > layout.matrixStartPosY + layout.matrixHeight : top < layout.matrixStartPosY;
+	    	if(options.isShowXAxisLabels() && xLabelsInBand) {
 	    		//Draw all of the x labels, drawn vertically or horizontally
 		    	AffineTransform transform;
-	    		for (Entry<String, Integer> entry : xAxis.getLabelIndices().entrySet()) {
-	    			if(rotateXLabels) {
+	    		final List<String> xLabels = layout.xAxis.getLabels();
+	    		for (int i = 0; i < xLabels.size(); i++) {
+	    			final String label = xLabels.get(i);
+	    			if(layout.rotateXLabels) {
 		    			//Store the current transform
 		    			transform = g2d.getTransform();
-		    			final int cellOffsetX = xAxisLabelStartPosX + (entry.getValue() * cellWidth) + (options.isShowGridlines() ? entry.getValue()*options.getGridLineWidth() : 0) + halfCellWidth + (int)(axisLabelFontHeight*0.25);
+		    			final int cellOffsetX = layout.xAxisLabelStartPosX + (i * layout.cellWidth) + (options.isShowGridlines() ? i*options.getGridLineWidth() : 0) + layout.halfCellWidth + (int)(layout.axisLabelFontHeight*0.25);
 		    			//Need to align vertically at the top if the labels are drawn below the matrix
-		    			g2d.translate(cellOffsetX, xAxisLabelStartPosY + (options.isxAxisLabelsBelow() ? labelFontMetrics.stringWidth(entry.getKey()) : 0)); 
+		    			g2d.translate(cellOffsetX, layout.xAxisLabelStartPosY + (options.isxAxisLabelsBelow() ? labelFontMetrics.stringWidth(label) : 0)); 
 		    			g2d.rotate(-Math.PI / 2); // Rotate 90 degrees counter-clockwise
 		    			
 		    			// Draw the x axis label
-		    			g2d.drawString(entry.getKey(), 0, 0);
+		    			g2d.drawString(label, 0, 0);
 	    	
 		    			//Restore the old transform
 		    			g2d.setTransform(transform);
 	    			} else {
-	    				final int labelWidth = labelFontMetrics.stringWidth(entry.getKey());
-	    				final int cellOffsetX = xAxisLabelStartPosX - (labelWidth/2) + (entry.getValue() * cellWidth) + (options.isShowGridlines() ? entry.getValue()*options.getGridLineWidth() : 0) + halfCellWidth;
-	    				g2d.drawString(entry.getKey(), cellOffsetX, xAxisLabelStartPosY);
+	    				final int labelWidth = labelFontMetrics.stringWidth(label);
+	    				final int cellOffsetX = layout.xAxisLabelStartPosX - (labelWidth/2) + (i * layout.cellWidth) + (options.isShowGridlines() ? i*options.getGridLineWidth() : 0) + layout.halfCellWidth;
+	    				g2d.drawString(label, cellOffsetX, layout.xAxisLabelStartPosY);
 	    			}
 	    		}
 	    	}
 	    	
 	    	if(options.isShowYAxisLabels()) {
 	    		//Add all of the Y labels, drawn horizontally
-	    		final int labelVerticalOffset = (int)(axisLabelFontHeight*0.25);
-	    		for (Entry<String, Integer> entry : yAxis.getLabelIndices().entrySet()) {
-	    			final int labelWidth = labelFontMetrics.stringWidth(entry.getKey());
-	    			final int cellOffsetY = yAxisLabelStartPosY + labelVerticalOffset + (entry.getValue() * cellHeight) + (options.isShowGridlines() ? entry.getValue()*options.getGridLineWidth() : 0) + halfCellHeight;
+	    		final int labelVerticalOffset = (int)(layout.axisLabelFontHeight*0.25);
+	    		final List<String> yLabels = layout.yAxis.getLabels();
+	    		for (int i = firstRow; i < endRow; i++) {
+	    			final String label = yLabels.get(i);
+	    			final int labelWidth = labelFontMetrics.stringWidth(label);
+	    			final int cellOffsetY = layout.yAxisLabelStartPosY + labelVerticalOffset + (i * layout.cellHeight) + (options.isShowGridlines() ? i*options.getGridLineWidth() : 0) + layout.halfCellHeight;
 	    			//Aligned right
-	    			g2d.drawString(entry.getKey(), yAxisLabelStartPosX + (yAxisLabelMaxWidth - labelWidth), cellOffsetY);
+	    			g2d.drawString(label, layout.yAxisLabelStartPosX + (layout.yAxisLabelMaxWidth - labelWidth), cellOffsetY);
 	    		}
 	    	}
     		
+    		//Only the rows of cells that overlap the band are visited, their Y-axis indices are relative to the first row
+    		final CellSource bandCells = (firstRow == 0 && endRow == layout.yAxis.getCount()) ? cells : cells.window(0, firstRow, layout.xAxis.getCount(), endRow - firstRow);
+    		
     		//Determine if we should smoothly blend the colours
     		if(options.isBlendColours()) {
     			final int scaleFactor = options.getBlendColoursScale();
     			
     			//Blending colours means we are going to first render the graph as a tiny image and then scale it up using interpolation.
     			//Render the whole map using a single pixel per cell
-    			final int tinyMatrixWidth = xAxis.getCount();
-    			final int tinyMatrixHeight = yAxis.getCount();
+    			final int tinyMatrixWidth = layout.xAxis.getCount();
+    			final int tinyMatrixHeight = layout.yAxis.getCount();
     			final int bilinearMatrixWidth = tinyMatrixWidth*scaleFactor;
     			final int bilinearMatrixHeight = tinyMatrixHeight*scaleFactor;
     			
@@ -399,14 +1236,23 @@ public class HeatMap {
     	        Graphics2D g2dBilinearMask = bilinearMatrixMask.createGraphics();
     	        g2dBilinearMask.setColor(Color.BLACK); //Black means fully opaque
     	        
-    	        for (DataRecord record: data) {
-    	        	if(null == record.getValue()) continue; //No data, perfectly valid.
+    	        final CellConsumer tinyPainter = (x, y, value)->{
         			//Determine the colour for this pixel of the map
-    				final double val = minClamped || maxClamped ? Math.max(Math.min(record.getValue(), maxValue), minValue) : record.getValue();
-    				g2dTiny.setColor(options.getGradient().getColour((valueRange == 0 ? 1.0 : (val-minValue) / valueRange)));
-        			g2dTiny.fillRect(xAxis.getIndex(record.getX()), yAxis.getIndex(record.getY()), 1, 1);
-        			g2dBilinearMask.fillRect(xAxis.getIndex(record.getX())*scaleFactor, yAxis.getIndex(record.getY())*scaleFactor, scaleFactor, scaleFactor);
-    			}
+    				g2dTiny.setColor(getCellColour(value, layout));
+        			g2dTiny.fillRect(x, y, 1, 1);
+        			g2dBilinearMask.fillRect(x*scaleFactor, y*scaleFactor, scaleFactor, scaleFactor);
+        			
+        			//Mirror the colour into the other triangle
+        			if(cells.isSymmetric() && x != y) {
+        				g2dTiny.fillRect(y, x, 1, 1);
+            			g2dBilinearMask.fillRect(y*scaleFactor, x*scaleFactor, scaleFactor, scaleFactor);
+        			}
+    			};
+    	        if(cells.isSymmetric()) {
+    	        	cells.forEachUpper(tinyPainter);
+    	        } else {
+    	        	cells.forEach(tinyPainter);
+    	        }
     	        
     	        g2dBilinearMask.dispose();
     	        g2dTiny.dispose();
@@ -428,35 +1274,46 @@ public class HeatMap {
     			
     	        //Scale the tiny image up to the full size using nearest neighbour interpolation
     	        //We use nearest neighbour interpolation because it will keep the edges sharp
-    	        BufferedImage scaledImage = new BufferedImage(matrixWidth, matrixHeight, BufferedImage.TYPE_INT_ARGB);
+    	        BufferedImage scaledImage = new BufferedImage(layout.matrixWidth, layout.matrixHeight, BufferedImage.TYPE_INT_ARGB);
     	        Graphics2D g2dScaled = scaledImage.createGraphics();
     	        g2dScaled.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
     	        g2dScaled.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-    	        g2dScaled.drawRenderedImage(bilinearScaledImage,  AffineTransform.getScaleInstance(((double)matrixWidth)/bilinearMatrixWidth, ((double)matrixHeight)/bilinearMatrixHeight));
+    	        g2dScaled.drawRenderedImage(bilinearScaledImage,  AffineTransform.getScaleInstance(((double)layout.matrixWidth)/bilinearMatrixWidth, ((double)layout.matrixHeight)/bilinearMatrixHeight));
     	        g2dScaled.dispose();
     	        
     	        //Draw the scaled image on top of the main canvas
     	        //Note that the grid lines, if present, will be drawn directly on top
-    	        g2d.drawImage(scaledImage, matrixStartPosX, matrixStartPosY, null);
+    	        if(null == layout.palette) {
+    	        	g2d.drawImage(scaledImage, layout.matrixStartPosX, layout.matrixStartPosY, null);
+    	        } else {
+    	        	//Java 2D would dither the blended colours, map them to the palette instead
+    	        	layout.palette.drawImage(scaledImage, target, layout.matrixStartPosX, layout.matrixStartPosY);
+    	        }
     		} else {
     			//Draw the heat map itself, normally. No scaling trickery, this is much simpler.
-        		for (DataRecord record: data) {
-        			if(null == record.getValue()) continue; //No data, perfectly valid.
+        		final CellConsumer painter = (x, y, value)->{
+        			//Determine the colour for this square of the map
+    				g2d.setColor(getCellColour(value, layout));
         			
-        			final int x = xAxis.getIndex(record.getX());
-        			final int y = yAxis.getIndex(record.getY());
+    				final int matrixCellOffsetX = options.isShowGridlines() ?  x * (layout.cellWidth  + options.getGridLineWidth()) : x * layout.cellWidth;
+    				final int matrixCellOffsetY = options.isShowGridlines() ?  (y + firstRow) * (layout.cellHeight + options.getGridLineWidth()) : (y + firstRow) * layout.cellHeight;
         			
-        			//Determine the colour for this square of the map
-    				final double val = minClamped || maxClamped ? Math.max(Math.min(record.getValue(), maxValue), minValue) : record.getValue();
-    				g2d.setColor(options.getGradient().getColour((valueRange == 0 ? 1.0 : (val-minValue) / valueRange)));
+    				final int matrixBoxPosX = layout.matrixStartPosX + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetX;
+        			final int matrixBoxPosY = layout.matrixStartPosY + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetY;
+    				g2d.fillRect(matrixBoxPosX, matrixBoxPosY, layout.cellWidth, layout.cellHeight);
     				
-    				final int matrixCellOffsetX = options.isShowGridlines() ?  x * (cellWidth  + options.getGridLineWidth()) : x * cellWidth;
-    				final int matrixCellOffsetY = options.isShowGridlines() ?  y * (cellHeight + options.getGridLineWidth()) : y * cellHeight;
+    				//Mirror the colour into the other triangle, at column y and row x
+    				if(bandCells.isSymmetric() && x != y) {
+    					g2d.fillRect(layout.getCellPosX(y), layout.getCellPosY(x), layout.cellWidth, layout.cellHeight);
+    				}
+    			};
     				
-    				final int matrixBoxPosX = matrixStartPosX + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetX;
-        			final int matrixBoxPosY = matrixStartPosY + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetY;
-    				g2d.fillRect(matrixBoxPosX, matrixBoxPosY, cellWidth, cellHeight);
-    			}
+        		//Symmetric sources only need the colour of each pair of cells to be determined once
+        		if(bandCells.isSymmetric()) {
+        			bandCells.forEachUpper(painter);
+        		} else {
+        			bandCells.forEach(painter);
+        		}
     		}
     		
     		//Draw the grid values, if needed
@@ -466,49 +1323,293 @@ public class HeatMap {
     			FontMetrics valueFontMetrics = g2d.getFontMetrics();
   
     			final int textVerticalOffset = (int) (valueFontMetrics.getHeight()*0.25);
-    			int gridValIndex = 0;
-    			for (DataRecord record: data) {
-    				final String val = dataValues.get(gridValIndex);
+    			final DecimalFormat dataValuesDF = new DecimalFormat(options.getGridValuesFormat()); //Not thread safe, don't make static
+    			bandCells.forEach((x, y, value)->{
+    				final String val = dataValuesDF.format(value);
     				if(!"".equals(val)) {
-    					final int x = xAxis.getIndex(record.getX());
-            			final int y = yAxis.getIndex(record.getY());
-        				
-        				final int matrixCellOffsetX = options.isShowGridlines() ?  x * (cellWidth  + options.getGridLineWidth()) : x * cellWidth;
-        				final int matrixCellOffsetY = options.isShowGridlines() ?  y * (cellHeight + options.getGridLineWidth()) : y * cellHeight;
+        				final int matrixCellOffsetX = options.isShowGridlines() ?  x * (layout.cellWidth  + options.getGridLineWidth()) : x * layout.cellWidth;
+        				final int matrixCellOffsetY = options.isShowGridlines() ?  (y + firstRow) * (layout.cellHeight + options.getGridLineWidth()) : (y + firstRow) * layout.cellHeight;
         				
-        				final int matrixBoxPosX = matrixStartPosX + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetX;
-            			final int matrixBoxPosY = matrixStartPosY + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetY;
+        				final int matrixBoxPosX = layout.matrixStartPosX + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetX;
+            			final int matrixBoxPosY = layout.matrixStartPosY + (options.isShowGridlines() ? options.getGridLineWidth() : 0) + matrixCellOffsetY;
             			
             			final int textWidth = valueFontMetrics.stringWidth(val);
-            			final int textPosX = matrixBoxPosX + halfCellWidth - (textWidth/2); // Centre the text in the X dimension
-            			final int textPosY = matrixBoxPosY + halfCellHeight + textVerticalOffset;
+            			final int textPosX = matrixBoxPosX + layout.halfCellWidth - (textWidth/2); // Centre the text in the X dimension
+            			final int textPosY = matrixBoxPosY + layout.halfCellHeight + textVerticalOffset;
             					
 	    				g2d.drawString(val, textPosX, textPosY);
     				}
-        			
-    				gridValIndex++;
-    			}
+    			});
     		}
     		
     		//Draw the grid lines
 			if(options.isShowGridlines()) {
 				g2d.setColor(options.getGridLineColour()); //Reset back to grid line colour! The last colour was from the matrix or gid values.
-				for(int y = 0; y <= yAxis.getCount(); y++) { //Y grid lines
-					final int matrixOffsetY = y * (cellHeight + options.getGridLineWidth());
-					g2d.fillRect(matrixStartPosX, matrixStartPosY + matrixOffsetY , matrixWidth, options.getGridLineWidth()); // Top line of each row
+				for(int y = firstRow; y <= endRow; y++) { //Y grid lines
+					final int matrixOffsetY = y * (layout.cellHeight + options.getGridLineWidth());
+					g2d.fillRect(layout.matrixStartPosX, layout.matrixStartPosY + matrixOffsetY , layout.matrixWidth, options.getGridLineWidth()); // Top line of each row
 				}
 				
-				for(int x = 0; x <= xAxis.getCount(); x++) { //X grid lines
-					final int matrixOffsetX = x * (cellWidth + options.getGridLineWidth());
-					g2d.fillRect(matrixStartPosX + matrixOffsetX, matrixStartPosY , options.getGridLineWidth(), matrixHeight); // Top line of each row
+				//Only the part of the X grid lines that is within the band
+				final int linesTop = Math.max(layout.matrixStartPosY, top);
+				final int linesBottom = Math.min(layout.matrixStartPosY + layout.matrixHeight, bottom);
+				if(linesBottom > linesTop) {
+					for(int x = 0; x <= layout.xAxis.getCount(); x++) { //X grid lines
+						final int matrixOffsetX = x * (layout.cellWidth + options.getGridLineWidth());
+						g2d.fillRect(layout.matrixStartPosX + matrixOffsetX, linesTop, options.getGridLineWidth(), linesBottom - linesTop); // Left line of each column
+					}
+				}
+			}
+	}
+	
+	/**
+	 * Writes the heat map as an SVG image, in the same layout as {@link #paint(Graphics2D, BufferedImage, HeatMapLayout, CellSource, int, int)}.
+	 * 
+	 * The cell colours are quantised to a fixed number of gradient colours, each defined once as a CSS class, and each horizontal run of cells of the same colour
+	 * is written as a single rectangle. The cells are visited one band of rows at a time, so only the colours of a band are held in memory.
+	 */
+	private void paintSvg(SvgWriter svg, HeatMapLayout layout, CellSource cells) throws IOException {
+		final Color[] gradientColours = getSvgGradientColours(layout);
+		final int lastStep = gradientColours.length - 1;
+		
+		//Define every colour and font once
+		final StringBuilder css = new StringBuilder();
+		css.append(SvgWriter.fillRule("bg", layout.backgroundColour));
+		css.append(SvgWriter.fillRule("grid", options.getGridLineColour()));
+		css.append(SvgWriter.strokeRule("border", options.getGridLineColour()));
+		css.append(SvgWriter.textRule("title", options.getHeatMapTitleFont(), options.getHeatMapTitleFontColour()));
+		css.append(SvgWriter.textRule("axis-title", options.getAxisTitleFont(), options.getAxisTitleFontColour()));
+		css.append(SvgWriter.textRule("axis-label", options.getAxisLabelFont(), options.getAxisLabelFontColour()));
+		css.append(SvgWriter.textRule("legend-label", options.getLegendLabelFont(), options.getLegendLabelFontColour()));
+		css.append(SvgWriter.textRule("value", options.getGridValuesFont(), options.getGridValuesFontColour()));
+		for (int i = 0; i <= lastStep; i++) {
+			css.append(SvgWriter.fillRule("g" + i, gradientColours[i]));
+		}
+		svg.begin(layout.imageWidth, layout.imageHeight, css);
+		svg.rect("bg", 0, 0, layout.imageWidth, layout.imageHeight);
+		
+		//Text is positioned using the same measurements as the bitmap image
+		final BufferedImage tinyImage = new BufferedImage(1, 1, BufferedImage.BITMASK);
+		final Graphics2D g2d = tinyImage.createGraphics();
+		try {
+			g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			
+			//Render the chart title
+			if(!title.isEmpty()) {
+				for (int i = 0; i < layout.titleLines.size(); i++) {
+					Entry<String, Entry<Integer, Integer>> line = layout.titleLines.get(i);
+					final int linePosY = layout.chartTitleStartPosY + ((i + 1) * layout.chartTitleLineHeight);
+					svg.text("title", layout.imageCenterY - (line.getValue().getKey()/2), linePosY, line.getKey());
 				}
 			}
 			
-			//We are done! 🙂
-    		return heatmapImage;
-        } finally {
-        	g2d.dispose();
-        }
+			//Render the legend if needed
+			if (options.isShowLegend()) {
+				final int gridLineWidth = options.isShowGridlines() ? options.getGridLineWidth() : 0;
+				svg.text("legend-label", layout.legendLabelStartPosX, layout.legendLabelStartPosY, layout.legendLabels.get(layout.legendLabels.size()-1)); //First
+				svg.text("legend-label", layout.legendLabelStartPosX, layout.legendLabelStartPosY + (layout.cellHeight + gridLineWidth) * (layout.legendBoxes-1), layout.legendLabels.get(0)); //Last
+				if(layout.valueRange > 0) {
+					for(int i = 1; i < layout.legendBoxes-1; i++) {
+						svg.text("legend-label", layout.legendLabelStartPosX, layout.legendLabelStartPosY + (layout.cellHeight + gridLineWidth) * i, layout.legendLabels.get(layout.legendBoxes-i-1));
+					}
+				}
+				
+				//Render the legend boxes, starting with the top (maximum colour value) first
+				for(int i = 0; i < layout.legendBoxes; i++) {
+					final double position = (i == 0) ? 1.0 : (i == layout.legendBoxes - 1) ? 0.0 : (1-(layout.legendValues.get(i)-layout.minValue)/layout.valueRange);
+					final int legendBoxPosX = layout.legendStartPosX + gridLineWidth;
+					final int legendBoxPosY = layout.legendStartPosY + gridLineWidth + i * (layout.cellHeight + gridLineWidth);
+					svg.rect("g" + getGradientStep(position, lastStep), legendBoxPosX, legendBoxPosY, layout.cellWidth, layout.cellHeight);
+					if(gridLineWidth > 0 && (i != layout.legendBoxes -1)) {
+						svg.rect("grid", legendBoxPosX, legendBoxPosY + layout.cellHeight, layout.cellWidth, gridLineWidth);
+					}
+				}
+				
+				//Render the legend grid lines or outside border
+				if(gridLineWidth > 0) {
+					svg.rect("grid", layout.legendStartPosX, layout.legendStartPosY, layout.legendBoxesWidth, gridLineWidth); //Top
+					svg.rect("grid", layout.legendStartPosX, layout.legendStartPosY + layout.legendHeight - gridLineWidth, layout.legendBoxesWidth, gridLineWidth); //Bottom
+					svg.rect("grid", layout.legendStartPosX, layout.legendStartPosY, gridLineWidth, layout.legendHeight); //Left
+					svg.rect("grid", layout.legendStartPosX + layout.legendBoxesWidth - gridLineWidth, layout.legendStartPosY, gridLineWidth, layout.legendHeight); //Right
+				} else {
+					svg.outline("border", layout.legendStartPosX, layout.legendStartPosY, layout.cellWidth-1, (layout.cellHeight*layout.legendBoxes) -1);
+				}
+			}
+			
+			//Render the axis titles
+			if(!layout.xAxis.getTitle().isEmpty()) {
+				svg.text("axis-title", layout.matrixCentreX - (layout.xTitleDimensions.getKey()/2), layout.xAxisTitleStartPosY, layout.xAxis.getTitle());
+			}
+			if(!layout.yAxis.getTitle().isEmpty()) {
+				svg.verticalText("axis-title", layout.yAxisTitleStartPosX, layout.matrixCentreY + (layout.yTitleDimensions.getKey()/2), layout.yAxis.getTitle());
+			}
+			
+			g2d.setFont(options.getAxisLabelFont());
+			final FontMetrics labelFontMetrics = g2d.getFontMetrics();
+			final int gridLineWidth = options.isShowGridlines() ? options.getGridLineWidth() : 0;
+			if(options.isShowXAxisLabels()) {
+				final List<String> xLabels = layout.xAxis.getLabels();
+				for (int i = 0; i < xLabels.size(); i++) {
+					final String label = xLabels.get(i);
+					if(layout.rotateXLabels) {
+						final int cellOffsetX = layout.xAxisLabelStartPosX + i * (layout.cellWidth + gridLineWidth) + layout.halfCellWidth + (int)(layout.axisLabelFontHeight*0.25);
+						svg.verticalText("axis-label", cellOffsetX, layout.xAxisLabelStartPosY + (options.isxAxisLabelsBelow() ? labelFontMetrics.stringWidth(label) : 0), label);
+					} else {
+						final int cellOffsetX = layout.xAxisLabelStartPosX - (labelFontMetrics.stringWidth(label)/2) + i * (layout.cellWidth + gridLineWidth) + layout.halfCellWidth;
+						svg.text("axis-label", cellOffsetX, layout.xAxisLabelStartPosY, label);
+					}
+				}
+			}
+			
+			if(options.isShowYAxisLabels()) {
+				final int labelVerticalOffset = (int)(layout.axisLabelFontHeight*0.25);
+				final List<String> yLabels = layout.yAxis.getLabels();
+				for (int i = 0; i < yLabels.size(); i++) {
+					final String label = yLabels.get(i);
+					final int cellOffsetY = layout.yAxisLabelStartPosY + labelVerticalOffset + i * (layout.cellHeight + gridLineWidth) + layout.halfCellHeight;
+					//Aligned right
+					svg.text("axis-label", layout.yAxisLabelStartPosX + (layout.yAxisLabelMaxWidth - labelFontMetrics.stringWidth(label)), cellOffsetY, label);
+				}
+			}
+			
+			//The colour of every cell of a band of rows, -1 for empty cells
+			final int columns = layout.xAxis.getCount();
+			final int rows = layout.yAxis.getCount();
+			final int bandRows = Math.max(1, Math.min(rows, SVG_BAND_SIZE / columns));
+			//Each band only visits its own rows, rather than every record once per band
+			final CellSource rowCells = bandRows < rows ? cells.indexRows(rows) : cells;
+			final int[] steps = new int[bandRows * columns];
+			for (int bandStart = 0; bandStart < rows; bandStart += bandRows) {
+				final int bandHeight = Math.min(bandRows, rows - bandStart);
+				Arrays.fill(steps, -1);
+				final CellSource bandCells = (bandStart == 0 && bandHeight == rows) ? rowCells : rowCells.window(0, bandStart, columns, bandHeight);
+				bandCells.forEach((x, y, value)->{
+					steps[y * columns + x] = getGradientStep(getCellPosition(value, layout), lastStep);
+				});
+				
+				//One rectangle per run of cells of the same colour
+				for (int y = 0; y < bandHeight; y++) {
+					final int rowOffset = y * columns;
+					final int cellPosY = layout.getCellPosY(bandStart + y);
+					int x = 0;
+					while (x < columns) {
+						final int step = steps[rowOffset + x];
+						int end = x + 1;
+						while (end < columns && steps[rowOffset + end] == step) end++;
+						if(step >= 0) {
+							final int cellPosX = layout.getCellPosX(x);
+							svg.rect("g" + step, cellPosX, cellPosY, layout.getCellPosX(end - 1) + layout.cellWidth - cellPosX, layout.cellHeight);
+						}
+						x = end;
+					}
+				}
+			}
+			
+			//Draw the grid values, if needed
+			if(options.isShowGridValues()) {
+				g2d.setFont(options.getGridValuesFont());
+				final FontMetrics valueFontMetrics = g2d.getFontMetrics();
+				final int textVerticalOffset = (int) (valueFontMetrics.getHeight()*0.25);
+				final DecimalFormat dataValuesDF = new DecimalFormat(options.getGridValuesFormat()); //Not thread safe, don't make static
+				final IOException[] failure = new IOException[1];
+				cells.forEach((x, y, value)->{
+					final String val = dataValuesDF.format(value);
+					if("".equals(val) || null != failure[0]) return;
+					final int textPosX = layout.getCellPosX(x) + layout.halfCellWidth - (valueFontMetrics.stringWidth(val)/2); // Centre the text in the X dimension
+					final int textPosY = layout.getCellPosY(y) + layout.halfCellHeight + textVerticalOffset;
+					try {
+						svg.text("value", textPosX, textPosY, val);
+					} catch (IOException e) {
+						failure[0] = e;
+					}
+				});
+				if(null != failure[0]) throw failure[0];
+			}
+		} finally {
+			g2d.dispose();
+		}
+		
+		//Draw the grid lines
+		if(options.isShowGridlines()) {
+			final int gridLineWidth = options.getGridLineWidth();
+			for(int y = 0; y <= layout.yAxis.getCount(); y++) {
+				svg.rect("grid", layout.matrixStartPosX, layout.matrixStartPosY + y * (layout.cellHeight + gridLineWidth), layout.matrixWidth, gridLineWidth);
+			}
+			for(int x = 0; x <= layout.xAxis.getCount(); x++) {
+				svg.rect("grid", layout.matrixStartPosX + x * (layout.cellWidth + gridLineWidth), layout.matrixStartPosY, gridLineWidth, layout.matrixHeight);
+			}
+		}
+		svg.end();
+	}
+	
+	/**
+	 * @return the colours that the gradient is quantised to in SVG images: the gradient colours of the palette for indexed colour heat maps,
+	 * otherwise evenly spaced colours of the gradient.
+	 */
+	private Color[] getSvgGradientColours(HeatMapLayout layout) {
+		if(null != layout.palette) return layout.palette.getGradientColours();
+		
+		final Color[] colours = new Color[SVG_GRADIENT_STEPS];
+		for (int i = 0; i < colours.length; i++) {
+			colours[i] = options.getGradient().getColour(i / (double) (colours.length - 1));
+		}
+		return colours;
+	}
+	
+	/**
+	 * @return the index of the quantised gradient colour nearest to the position, from 0.0 to 1.0.
+	 */
+	private static int getGradientStep(double position, int lastStep) {
+		return (int) Math.round(Math.max(0.0, Math.min(1.0, position)) * lastStep);
+	}
+	
+	/**
+	 * @return the index, limited to between 0 and the count.
+	 */
+	private static int clamp(int index, int count) {
+		return Math.max(0, Math.min(count, index));
+	}
+	
+	/**
+	 * Determines the colour of a single cell of the heat map.
+	 */
+	private Color getCellColour(double value, HeatMapLayout layout) {
+		return getGradientColour(getCellPosition(value, layout), layout);
+	}
+	
+	/**
+	 * Determines the position of the colour of a single cell within the gradient, from 0.0 to 1.0.
+	 */
+	private static double getCellPosition(double value, HeatMapLayout layout) {
+		final double val = layout.clamped ? Math.max(Math.min(value, layout.maxValue), layout.minValue) : value;
+		return layout.valueRange == 0 ? 1.0 : (val-layout.minValue) / layout.valueRange;
+	}
+	
+	/**
+	 * Determines the colour at a position of the gradient, from 0.0 to 1.0.
+	 * Indexed colour heat maps use the nearest colour of the palette.
+	 */
+	private Color getGradientColour(double position, HeatMapLayout layout) {
+		return null == layout.palette ? options.getGradient().getColour(position) : layout.palette.getGradientColour(position);
+	}
+	
+	/**
+	 * Determines how many axis entries need to be combined into each cell so that the matrix fits within the target size.
+	 * The target size is compared against the configured cell size, plus the grid lines, not the final enlarged cell size.
+	 * 
+	 * @param count The number of entries of the axis.
+	 * @param cellSize The configured cell width or height.
+	 * @param targetSize The target matrix width or height, in pixels. May be null.
+	 * 
+	 * @return the number of axis entries per cell, 1 meaning no aggregation is needed.
+	 */
+	private int getBlockSize(int count, int cellSize, Integer targetSize) {
+		if(null == targetSize) return 1;
+		
+		final int cellPitch = cellSize + (options.isShowGridlines() ? options.getGridLineWidth() : 0);
+		final int maxCells = Math.max(1, targetSize / cellPitch);
+		if(count <= maxCells) return 1;
+		return (count + maxCells - 1) / maxCells; //Round up so we never exceed the target
 	}
 	
 	/**
@@ -662,6 +1763,19 @@ public class HeatMap {
 		this.options = options;
 	}
 
+	/**
+	 * A calculated layout, along with the cells to draw using it.
+	 */
+	private static final class Scene {
+		private final HeatMapLayout layout;
+		private final CellSource cells;
+		
+		private Scene(HeatMapLayout layout, CellSource cells) {
+			this.layout = layout;
+			this.cells = cells;
+		}
+	}
+	
 	/**
 	 * Creates builder to build {@link HeatMap}.
 	 * @return created builder
@@ -0,0 +1,181 @@
+package com.dbf.heatmaps;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * The calculated dimensions and positions of all of the elements of a rendered heat map.
+ * 
+ * A layout is produced alongside every rendered image and can be used to map axis indices to pixel positions,
+ * or to update the rendered image later on, without recalculating anything.
+ */
+public class HeatMapLayout {
+	
+	/* AXES */
+	AxisView xAxis;
+	AxisView yAxis;
+	int xOffset; //Index of the first visible entry of the X-axis, for viewports
+	int yOffset; //Index of the first visible entry of the Y-axis, for viewports
+	int blockWidth  = 1; //Number of X-axis entries per cell, when aggregated
+	int blockHeight = 1; //Number of Y-axis entries per cell, when aggregated
+	
+	/* COLOUR SCALE */
+	boolean globalColourScale;
+	boolean clamped;
+	double minValue;
+	double maxValue;
+	double valueRange;
+	Color backgroundColour;
+	IndexedPalette palette; //Only set for indexed colour heat maps
+	
+	/* CELLS */
+	int cellWidth;
+	int cellHeight;
+	int halfCellWidth;
+	int halfCellHeight;
+	int gridLineWidth; //Zero when the grid lines are not rendered
+	
+	/* OVERALL IMAGE */
+	int imageWidth;
+	int imageHeight;
+	int imageCenterY;
+	
+	/* MATRIX */
+	int matrixStartPosX;
+	int matrixStartPosY;
+	int matrixWidth;
+	int matrixHeight;
+	int matrixCentreX;
+	int matrixCentreY;
+	
+	/* TITLES */
+	List<Entry<String, Entry<Integer, Integer>>> titleLines;
+	int chartTitleLineHeight;
+	int chartTitleStartPosY;
+	Entry<Integer, Integer> xTitleDimensions;
+	Entry<Integer, Integer> yTitleDimensions;
+	int xAxisTitleStartPosY;
+	int yAxisTitleStartPosX;
+	
+	/* AXIS LABELS */
+	boolean rotateXLabels;
+	int axisLabelFontHeight;
+	int yAxisLabelMaxWidth;
+	int xAxisLabelStartPosX;
+	int xAxisLabelStartPosY;
+	int yAxisLabelStartPosX;
+	int yAxisLabelStartPosY;
+	
+	/* LEGEND */
+	int legendBoxes;
+	List<Double> legendValues;
+	List<String> legendLabels;
+	int legendHeight;
+	int legendBoxesWidth;
+	int legendStartPosX;
+	int legendStartPosY;
+	int legendLabelStartPosX;
+	int legendLabelStartPosY;
+	
+	HeatMapLayout() {}
+	
+	/**
+	 * Returns the X position, in pixels, of the left edge of a cell, excluding the grid lines.
+	 * 
+	 * @param x The X-axis index of the cell, relative to the rendered area.
+	 */
+	public int getCellPosX(int x) {
+		return matrixStartPosX + gridLineWidth + (x * (cellWidth + gridLineWidth));
+	}
+	
+	/**
+	 * Returns the Y position, in pixels, of the top edge of a cell, excluding the grid lines.
+	 * 
+	 * @param y The Y-axis index of the cell, relative to the rendered area.
+	 */
+	public int getCellPosY(int y) {
+		return matrixStartPosY + gridLineWidth + (y * (cellHeight + gridLineWidth));
+	}
+	
+	/**
+	 * @return the width of the grid lines in pixels, or zero if the grid lines are not rendered.
+	 */
+	public int getGridLineWidth() {
+		return gridLineWidth;
+	}
+	
+	/**
+	 * @return the number of cells rendered along the X-axis.
+	 */
+	public int getColumnCount() {
+		return xAxis.getCount();
+	}
+	
+	/**
+	 * @return the number of cells rendered along the Y-axis.
+	 */
+	public int getRowCount() {
+		return yAxis.getCount();
+	}
+
+	public int getxOffset() {
+		return xOffset;
+	}
+
+	public int getyOffset() {
+		return yOffset;
+	}
+
+	public int getBlockWidth() {
+		return blockWidth;
+	}
+
+	public int getBlockHeight() {
+		return blockHeight;
+	}
+
+	public double getMinValue() {
+		return minValue;
+	}
+
+	public double getMaxValue() {
+		return maxValue;
+	}
+
+	public Color getBackgroundColour() {
+		return backgroundColour;
+	}
+
+	public int getCellWidth() {
+		return cellWidth;
+	}
+
+	public int getCellHeight() {
+		return cellHeight;
+	}
+
+	public int getImageWidth() {
+		return imageWidth;
+	}
+
+	public int getImageHeight() {
+		return imageHeight;
+	}
+
+	public int getMatrixStartPosX() {
+		return matrixStartPosX;
+	}
+
+	public int getMatrixStartPosY() {
+		return matrixStartPosY;
+	}
+
+	public int getMatrixWidth() {
+		return matrixWidth;
+	}
+
+	public int getMatrixHeight() {
+		return matrixHeight;
+	}
+}
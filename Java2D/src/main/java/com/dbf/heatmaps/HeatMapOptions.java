@@ -3,6 +3,8 @@ package com.dbf.heatmaps;
 import java.awt.Color;
 import java.awt.Font;
 
+import com.dbf.heatmaps.data.Aggregation;
+
 public class HeatMapOptions {
 	
 	/* FONTS */
@@ -79,6 +81,17 @@ public class HeatMapOptions {
 	private HeatMapGradient gradient = HeatMapGradient.BASIC_GRADIENT;
 	private Double colourScaleLowerBound;
 	private Double colourScaleUpperBound;
+	private Double colourScaleLowerPercentile;
+	private Double colourScaleUpperPercentile;
+	
+	/* LEVEL OF DETAIL */
+	private static final Aggregation DEFAULT_AGGREGATION = Aggregation.MEAN;
+	private Integer targetMatrixWidth;
+	private Integer targetMatrixHeight;
+	private Aggregation aggregation = DEFAULT_AGGREGATION;
+	
+	/* OUTPUT */
+	private boolean indexedColour = false;
 
 	private HeatMapOptions(Builder builder) {
 		this.backgroundColour = builder.backgroundColour;
@@ -116,6 +129,12 @@ public class HeatMapOptions {
 		this.gradient = builder.gradient;
 		this.colourScaleLowerBound = builder.colourScaleLowerBound;
 		this.colourScaleUpperBound = builder.colourScaleUpperBound;
+		this.colourScaleLowerPercentile = builder.colourScaleLowerPercentile;
+		this.colourScaleUpperPercentile = builder.colourScaleUpperPercentile;
+		this.targetMatrixWidth = builder.targetMatrixWidth;
+		this.targetMatrixHeight = builder.targetMatrixHeight;
+		this.aggregation = builder.aggregation;
+		this.indexedColour = builder.indexedColour;
 	}
 
 	public HeatMapOptions() {}
@@ -153,6 +172,15 @@ public class HeatMapOptions {
 		
 		if(null != legendSteps && legendSteps < 2) throw new IllegalArgumentException("The number of steps of the legend must be at least 2.");
 		if(blendColoursScale < 2 || blendColoursScale>20)  throw new IllegalArgumentException("The colour blend scale must be between 2 and 20, inclusive.");
+		
+		if(null != colourScaleLowerPercentile && !(colourScaleLowerPercentile >= 0 && colourScaleLowerPercentile <= 100)) throw new IllegalArgumentException("The colour scale lower percentile must be between 0 and 100, inclusive.");
+		if(null != colourScaleUpperPercentile && !(colourScaleUpperPercentile >= 0 && colourScaleUpperPercentile <= 100)) throw new IllegalArgumentException("The colour scale upper percentile must be between 0 and 100, inclusive.");
+		if(null != colourScaleLowerPercentile && null != colourScaleUpperPercentile && colourScaleLowerPercentile >= colourScaleUpperPercentile)
+			throw new IllegalArgumentException("The colour scale lower percentile must be less than the upper percentile.");
+		
+		if(null != targetMatrixWidth && targetMatrixWidth < 1) throw new IllegalArgumentException("Target matrix width must be at least 1.");
+		if(null != targetMatrixHeight && targetMatrixHeight < 1) throw new IllegalArgumentException("Target matrix height must be at least 1.");
+		if(null == aggregation) aggregation = DEFAULT_AGGREGATION;
 	}
 	
 	public int getCellWidth() {
@@ -283,6 +311,22 @@ public class HeatMapOptions {
 		this.colourScaleUpperBound = colourScaleUpperBound;
 	}
 
+	public Double getColourScaleLowerPercentile() {
+		return colourScaleLowerPercentile;
+	}
+
+	public void setColourScaleLowerPercentile(Double colourScaleLowerPercentile) {
+		this.colourScaleLowerPercentile = colourScaleLowerPercentile;
+	}
+
+	public Double getColourScaleUpperPercentile() {
+		return colourScaleUpperPercentile;
+	}
+
+	public void setColourScaleUpperPercentile(Double colourScaleUpperPercentile) {
+		this.colourScaleUpperPercentile = colourScaleUpperPercentile;
+	}
+
 	public Color getGridLineColour() {
 		return gridLineColour;
 	}
@@ -443,6 +487,38 @@ public class HeatMapOptions {
 		this.xAxisLabelsRotate = xAxisLabelsRotate;
 	}
 
+	public Integer getTargetMatrixWidth() {
+		return targetMatrixWidth;
+	}
+
+	public void setTargetMatrixWidth(Integer targetMatrixWidth) {
+		this.targetMatrixWidth = targetMatrixWidth;
+	}
+
+	public Integer getTargetMatrixHeight() {
+		return targetMatrixHeight;
+	}
+
+	public void setTargetMatrixHeight(Integer targetMatrixHeight) {
+		this.targetMatrixHeight = targetMatrixHeight;
+	}
+
+	public Aggregation getAggregation() {
+		return aggregation;
+	}
+
+	public void setAggregation(Aggregation aggregation) {
+		this.aggregation = aggregation;
+	}
+
+	public boolean isIndexedColour() {
+		return indexedColour;
+	}
+
+	public void setIndexedColour(boolean indexedColour) {
+		this.indexedColour = indexedColour;
+	}
+
 	/**
 	 * Creates builder to build {@link HeatMapOptions}.
 	 * @return created builder
@@ -487,6 +563,12 @@ public class HeatMapOptions {
 		private HeatMapGradient gradient = HeatMapGradient.BASIC_GRADIENT;
 		private Double colourScaleLowerBound;
 		private Double colourScaleUpperBound;
+		private Double colourScaleLowerPercentile;
+		private Double colourScaleUpperPercentile;
+		private Integer targetMatrixWidth;
+		private Integer targetMatrixHeight;
+		private Aggregation aggregation = DEFAULT_AGGREGATION;
+		private boolean indexedColour = false;
 
 		private Builder(Builder builder) {
 			this.backgroundColour = builder.backgroundColour;
@@ -524,6 +606,12 @@ public class HeatMapOptions {
 			this.gradient = builder.gradient;
 			this.colourScaleLowerBound = builder.colourScaleLowerBound;
 			this.colourScaleUpperBound = builder.colourScaleUpperBound;
+			this.colourScaleLowerPercentile = builder.colourScaleLowerPercentile;
+			this.colourScaleUpperPercentile = builder.colourScaleUpperPercentile;
+			this.targetMatrixWidth = builder.targetMatrixWidth;
+			this.targetMatrixHeight = builder.targetMatrixHeight;
+			this.aggregation = builder.aggregation;
+			this.indexedColour = builder.indexedColour;
 		}
 
 		private Builder() {
@@ -926,6 +1014,81 @@ public class HeatMapOptions {
 			return this;
 		}
 
+		/**
+		* Builder method for colourScaleLowerPercentile parameter.
+		* Sets the minimum value (low bound) of the heat map gradient to a percentile of the data, between 0 and 100, such as 1 for p1.
+		* Any value below this percentile will be assigned the same minimum colour according to the chosen gradient.
+		* The percentile is estimated while scanning the data. It is ignored if colourScaleLowerBound is set.
+		* @param colourScaleLowerPercentile field to set
+		* @return builder
+		*/
+		public Builder withColourScaleLowerPercentile(Double colourScaleLowerPercentile) {
+			this.colourScaleLowerPercentile = colourScaleLowerPercentile;
+			return this;
+		}
+
+		/**
+		* Builder method for colourScaleUpperPercentile parameter.
+		* Sets the maximum value (upper bound) of the heat map gradient to a percentile of the data, between 0 and 100, such as 99 for p99.
+		* Any value above this percentile will be assigned the same maximum colour according to the chosen gradient.
+		* The percentile is estimated while scanning the data. It is ignored if colourScaleUpperBound is set.
+		* @param colourScaleUpperPercentile field to set
+		* @return builder
+		*/
+		public Builder withColourScaleUpperPercentile(Double colourScaleUpperPercentile) {
+			this.colourScaleUpperPercentile = colourScaleUpperPercentile;
+			return this;
+		}
+
+		/**
+		* Builder method for targetMatrixWidth parameter.
+		* Sets the maximum width, in pixels, of the heat map grid. When the X-axis has more entries than can fit,
+		* consecutive entries are combined into a single cell using the chosen aggregation, and the X-axis labels are reduced to match.
+		* The cells are measured at the size they are drawn, after being enlarged to fit the labels and grid values. Disabled by default.
+		* @param targetMatrixWidth field to set
+		* @return builder
+		*/
+		public Builder withTargetMatrixWidth(Integer targetMatrixWidth) {
+			this.targetMatrixWidth = targetMatrixWidth;
+			return this;
+		}
+
+		/**
+		* Builder method for targetMatrixHeight parameter.
+		* Sets the maximum height, in pixels, of the heat map grid. When the Y-axis has more entries than can fit,
+		* consecutive entries are combined into a single cell using the chosen aggregation, and the Y-axis labels are reduced to match.
+		* The cells are measured at the size they are drawn, after being enlarged to fit the labels and grid values. Disabled by default.
+		* @param targetMatrixHeight field to set
+		* @return builder
+		*/
+		public Builder withTargetMatrixHeight(Integer targetMatrixHeight) {
+			this.targetMatrixHeight = targetMatrixHeight;
+			return this;
+		}
+
+		/**
+		* Builder method for aggregation parameter.
+		* Sets the function used to combine multiple cells into one when the heat map grid exceeds the target size.
+		* @param aggregation field to set
+		* @return builder
+		*/
+		public Builder withAggregation(Aggregation aggregation) {
+			this.aggregation = aggregation;
+			return this;
+		}
+
+		/**
+		* Builder method for indexedColour parameter.
+		* Renders the heat map into an 8-bit indexed colour image, using a palette of at most 256 colours built from the gradient and the chart colours.
+		* The image uses a quarter of the memory and is encoded as a much smaller palette PNG file, at the cost of quantising the gradient.
+		* @param indexedColour field to set
+		* @return builder
+		*/
+		public Builder withIndexedColour(boolean indexedColour) {
+			this.indexedColour = indexedColour;
+			return this;
+		}
+
 		/**
 		* Builder method of the builder.
 		* @return built class
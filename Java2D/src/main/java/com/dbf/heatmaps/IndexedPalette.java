@@ -0,0 +1,144 @@
+package com.dbf.heatmaps;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The palette of an indexed colour heat map: the background, grid line and font colours, a few shades of each font colour
+ * blended into the background for the anti-aliased edges of the text, and as many evenly spaced colours of the gradient as will fit in the remaining entries.
+ * 
+ * Cells are coloured using the nearest gradient colour of the palette, so that every cell is painted using an exact palette entry.
+ */
+final class IndexedPalette {
+	
+	private static final int MAX_COLOURS = 256;
+	
+	//The number of intermediate shades between each font colour and the background
+	private static final int TEXT_SHADES = 14;
+	
+	private final IndexColorModel colourModel;
+	private final Color[] gradientColours;
+	
+	IndexedPalette(HeatMapOptions options, Color backgroundColour) {
+		//The chart colours first, without duplicates
+		final Set<Integer> chartColours = new LinkedHashSet<Integer>();
+		chartColours.add(backgroundColour.getRGB() | 0xFF000000);
+		chartColours.add(options.getGridLineColour().getRGB() | 0xFF000000);
+		final Color[] fontColours = {options.getHeatMapTitleFontColour(), options.getAxisTitleFontColour(), options.getAxisLabelFontColour(),
+				options.getLegendLabelFontColour(), options.getGridValuesFontColour()};
+		for (Color fontColour : fontColours) {
+			chartColours.add(fontColour.getRGB() | 0xFF000000);
+		}
+		for (Color fontColour : fontColours) {
+			for (int i = 1; i <= TEXT_SHADES; i++) {
+				chartColours.add(blend(fontColour, backgroundColour, i / (double) (TEXT_SHADES + 1)));
+			}
+		}
+		
+		//The gradient takes up the rest
+		gradientColours = new Color[MAX_COLOURS - chartColours.size()];
+		for (int i = 0; i < gradientColours.length; i++) {
+			gradientColours[i] = options.getGradient().getColour(i / (double) (gradientColours.length - 1));
+		}
+		
+		final byte[] red = new byte[MAX_COLOURS];
+		final byte[] green = new byte[MAX_COLOURS];
+		final byte[] blue = new byte[MAX_COLOURS];
+		int index = 0;
+		for (int rgb : chartColours) {
+			red[index] = (byte) (rgb >> 16);
+			green[index] = (byte) (rgb >> 8);
+			blue[index] = (byte) rgb;
+			index++;
+		}
+		for (Color colour : gradientColours) {
+			red[index] = (byte) colour.getRed();
+			green[index] = (byte) colour.getGreen();
+			blue[index] = (byte) colour.getBlue();
+			index++;
+		}
+		colourModel = new IndexColorModel(8, MAX_COLOURS, red, green, blue);
+	}
+	
+	/**
+	 * @param position The position within the gradient, from 0.0 to 1.0.
+	 * @return the gradient colour of the palette nearest to the position.
+	 */
+	Color getGradientColour(double position) {
+		final double clamped = Math.max(0.0, Math.min(1.0, position));
+		return gradientColours[(int) Math.round(clamped * (gradientColours.length - 1))];
+	}
+	
+	/**
+	 * Draws an image onto an indexed colour image using the palette, replacing each pixel with the nearest colour of the palette rather than dithering.
+	 * Translucent pixels of the source image are blended with the colour already drawn, and transparent pixels are skipped.
+	 */
+	void drawImage(BufferedImage source, BufferedImage target, int x, int y) {
+		final WritableRaster raster = target.getRaster();
+		final int width = Math.min(source.getWidth(), target.getWidth() - x);
+		final int height = Math.min(source.getHeight(), target.getHeight() - y);
+		final int[] row = new int[width];
+		final int[] indices = new int[width];
+		final Map<Integer, Integer> nearest = new HashMap<Integer, Integer>();
+		for (int j = 0; j < height; j++) {
+			raster.getPixels(x, y + j, width, 1, indices);
+			source.getRGB(0, j, width, 1, row, 0, width);
+			for (int i = 0; i < width; i++) {
+				final int alpha = row[i] >>> 24;
+				if(alpha == 0) continue;
+				final int rgb = alpha == 0xFF ? row[i] & 0xFFFFFF : blend(new Color(colourModel.getRGB(indices[i])), new Color(row[i]), alpha / 255.0) & 0xFFFFFF;
+				indices[i] = nearest.computeIfAbsent(rgb, this::getNearestIndex);
+			}
+			raster.setPixels(x, y + j, width, 1, indices);
+		}
+	}
+	
+	/**
+	 * @return the index of the palette colour closest to the RGB value.
+	 */
+	private int getNearestIndex(int rgb) {
+		final int red = (rgb >> 16) & 0xFF;
+		final int green = (rgb >> 8) & 0xFF;
+		final int blue = rgb & 0xFF;
+		int nearest = 0;
+		int nearestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < MAX_COLOURS; i++) {
+			final int dr = colourModel.getRed(i) - red;
+			final int dg = colourModel.getGreen(i) - green;
+			final int db = colourModel.getBlue(i) - blue;
+			final int distance = dr * dr + dg * dg + db * db;
+			if(distance < nearestDistance) {
+				nearestDistance = distance;
+				nearest = i;
+			}
+		}
+		return nearest;
+	}
+	
+	/**
+	 * @return the evenly spaced gradient colours of the palette, from the start to the end of the gradient.
+	 */
+	Color[] getGradientColours() {
+		return gradientColours;
+	}
+	
+	IndexColorModel getColourModel() {
+		return colourModel;
+	}
+	
+	/**
+	 * @return the RGB value of the first colour, mixed with the given fraction of the second colour.
+	 */
+	private static int blend(Color first, Color second, double fraction) {
+		final int red   = (int) Math.round(first.getRed()   + (second.getRed()   - first.getRed())   * fraction);
+		final int green = (int) Math.round(first.getGreen() + (second.getGreen() - first.getGreen()) * fraction);
+		final int blue  = (int) Math.round(first.getBlue()  + (second.getBlue()  - first.getBlue())  * fraction);
+		return 0xFF000000 | (red << 16) | (green << 8) | blue;
+	}
+}
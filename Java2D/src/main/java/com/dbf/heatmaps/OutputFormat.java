@@ -0,0 +1,28 @@
+package com.dbf.heatmaps;
+
+/**
+ * The format of a heat map written directly to an output stream or channel.
+ * 
+ * Indexed colour PNG files are produced by enabling {@link HeatMapOptions#isIndexedColour()} in the options, with either PNG format: {@link #PNG} or {@link #PNG_STREAMING}.
+ */
+public enum OutputFormat {
+	/**
+	 * A PNG file, encoded from the fully rendered image on every available core.
+	 */
+	PNG,
+	/**
+	 * A PNG file, drawn and compressed one band of rows at a time so that the whole image is never held in memory.
+	 * Slower than {@link #PNG} for small heat maps, and does not support colour blending.
+	 */
+	PNG_STREAMING,
+	/**
+	 * A lossless QOI (Quite OK Image) file, which is many times faster to encode and decode than PNG but larger.
+	 * Suited to images that are decoded again right away, such as between the stages of a pipeline. See {@link com.dbf.heatmaps.encoding.QoiDecoder}.
+	 */
+	QOI,
+	/**
+	 * An SVG image, encoded as UTF-8, for reports that need vector output. See {@link HeatMap#renderSvg(java.io.Writer, com.dbf.heatmaps.data.DataGrid, Viewport)}.
+	 * Does not support colour blending.
+	 */
+	SVG;
+}
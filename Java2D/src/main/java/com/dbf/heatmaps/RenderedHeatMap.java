@@ -0,0 +1,25 @@
+package com.dbf.heatmaps;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A rendered heat map image along with the layout that was used to draw it.
+ */
+public class RenderedHeatMap {
+	
+	private final BufferedImage image;
+	private final HeatMapLayout layout;
+	
+	public RenderedHeatMap(BufferedImage image, HeatMapLayout layout) {
+		this.image = image;
+		this.layout = layout;
+	}
+
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	public HeatMapLayout getLayout() {
+		return layout;
+	}
+}
@@ -0,0 +1,136 @@
+package com.dbf.heatmaps;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the elements of an SVG image, one at a time, without building a document in memory.
+ * Shapes and text are styled using CSS classes, which are defined once at the start of the image.
+ */
+final class SvgWriter {
+	
+	private final Writer out;
+	
+	SvgWriter(Writer out) {
+		this.out = new BufferedWriter(out, 1 << 16);
+	}
+	
+	/**
+	 * Starts the image, and defines the CSS classes.
+	 * 
+	 * @param css The rules of the CSS classes, see {@link #fillRule(String, Color)} and {@link #textRule(String, Font, Color)}.
+	 */
+	void begin(int width, int height, CharSequence css) throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " " + height
+				+ "\" shape-rendering=\"crispEdges\">\n");
+		out.write("<style>\n");
+		out.append(css);
+		out.write("</style>\n");
+	}
+	
+	/**
+	 * Draws a filled rectangle.
+	 */
+	void rect(String cssClass, int x, int y, int width, int height) throws IOException {
+		out.write("<rect class=\"");
+		out.write(cssClass);
+		out.write("\" x=\"");
+		out.write(Integer.toString(x));
+		out.write("\" y=\"");
+		out.write(Integer.toString(y));
+		out.write("\" width=\"");
+		out.write(Integer.toString(width));
+		out.write("\" height=\"");
+		out.write(Integer.toString(height));
+		out.write("\"/>\n");
+	}
+	
+	/**
+	 * Draws the one pixel outline of a rectangle, covering the same pixels as <code>Graphics2D.drawRect</code>.
+	 */
+	void outline(String cssClass, int x, int y, int width, int height) throws IOException {
+		//The stroke is centred on the edge, so it is moved half a pixel inwards
+		out.write("<rect class=\"" + cssClass + "\" x=\"" + x + ".5\" y=\"" + y + ".5\" width=\"" + width + "\" height=\"" + height + "\"/>\n");
+	}
+	
+	/**
+	 * Draws a line of text, with its baseline starting at the given position, in the same way as <code>Graphics2D.drawString</code>.
+	 */
+	void text(String cssClass, int x, int y, String text) throws IOException {
+		out.write("<text class=\"" + cssClass + "\" x=\"" + x + "\" y=\"" + y + "\">");
+		escape(text);
+		out.write("</text>\n");
+	}
+	
+	/**
+	 * Draws a line of text rotated 90 degrees counter-clockwise, with its baseline starting at the given position.
+	 */
+	void verticalText(String cssClass, int x, int y, String text) throws IOException {
+		out.write("<text class=\"" + cssClass + "\" transform=\"translate(" + x + " " + y + ") rotate(-90)\">");
+		escape(text);
+		out.write("</text>\n");
+	}
+	
+	/**
+	 * Ends the image, and flushes the writer without closing it.
+	 */
+	void end() throws IOException {
+		out.write("</svg>\n");
+		out.flush();
+	}
+	
+	private void escape(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				out.write("&lt;");
+				break;
+			case '>':
+				out.write("&gt;");
+				break;
+			case '&':
+				out.write("&amp;");
+				break;
+			default:
+				out.write(c);
+			}
+		}
+	}
+	
+	/**
+	 * @return a CSS rule that fills shapes with the colour.
+	 */
+	static String fillRule(String cssClass, Color colour) {
+		return "." + cssClass + "{fill:" + hex(colour) + "}\n";
+	}
+	
+	/**
+	 * @return a CSS rule that outlines shapes with the colour, without filling them.
+	 */
+	static String strokeRule(String cssClass, Color colour) {
+		return "." + cssClass + "{fill:none;stroke:" + hex(colour) + ";stroke-width:1}\n";
+	}
+	
+	/**
+	 * @return a CSS rule that draws text using the font and colour. Font sizes are in pixels, the same as Java 2D.
+	 */
+	static String textRule(String cssClass, Font font, Color colour) {
+		final StringBuilder rule = new StringBuilder();
+		//The requested font, rather than the font Java 2D substituted for it when it is not installed
+		rule.append('.').append(cssClass).append("{font-family:'").append(font.getName().replace("'", "")).append("',sans-serif;");
+		rule.append("font-size:").append(font.getSize()).append("px;");
+		if(font.isBold()) rule.append("font-weight:bold;");
+		if(font.isItalic()) rule.append("font-style:italic;");
+		rule.append("fill:").append(hex(colour)).append(";white-space:pre}\n");
+		return rule.toString();
+	}
+	
+	private static String hex(Color colour) {
+		return String.format("#%06x", colour.getRGB() & 0xFFFFFF);
+	}
+}
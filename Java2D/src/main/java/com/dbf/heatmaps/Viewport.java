@@ -0,0 +1,88 @@
+package com.dbf.heatmaps;
+
+/**
+ * A rectangular window of the heat map, defined by a range of indices on each axis.
+ * 
+ * Only the cells within the window are rendered, along with the matching axis labels. The axes and data remain untouched.
+ */
+public class Viewport {
+	
+	private final int xStart;
+	private final int xEnd;
+	private final int yStart;
+	private final int yEnd;
+	private boolean globalColourScale = false;
+	
+	/**
+	 * @param xStart The first X-axis index, inclusive.
+	 * @param xEnd The last X-axis index, inclusive.
+	 * @param yStart The first Y-axis index, inclusive.
+	 * @param yEnd The last Y-axis index, inclusive.
+	 */
+	public Viewport(int xStart, int xEnd, int yStart, int yEnd) {
+		if(xStart < 0 || yStart < 0) throw new IllegalArgumentException("Viewport indices cannot be negative.");
+		if(xEnd < xStart) throw new IllegalArgumentException("The viewport X-axis end index must not be less than the start index.");
+		if(yEnd < yStart) throw new IllegalArgumentException("The viewport Y-axis end index must not be less than the start index.");
+		this.xStart = xStart;
+		this.xEnd = xEnd;
+		this.yStart = yStart;
+		this.yEnd = yEnd;
+	}
+	
+	/**
+	 * @see #Viewport(int, int, int, int)
+	 */
+	public static Viewport of(int xStart, int xEnd, int yStart, int yEnd) {
+		return new Viewport(xStart, xEnd, yStart, yEnd);
+	}
+	
+	/**
+	 * Checks that the viewport fits within the axes.
+	 */
+	public void validate(int xCount, int yCount) {
+		if(xEnd >= xCount) throw new IllegalArgumentException("The viewport X-axis end index (" + xEnd + ") exceeds the X-axis (" + xCount + " entries).");
+		if(yEnd >= yCount) throw new IllegalArgumentException("The viewport Y-axis end index (" + yEnd + ") exceeds the Y-axis (" + yCount + " entries).");
+	}
+
+	public int getXStart() {
+		return xStart;
+	}
+
+	public int getXEnd() {
+		return xEnd;
+	}
+
+	public int getYStart() {
+		return yStart;
+	}
+
+	public int getYEnd() {
+		return yEnd;
+	}
+	
+	public int getWidth() {
+		return xEnd - xStart + 1;
+	}
+	
+	public int getHeight() {
+		return yEnd - yStart + 1;
+	}
+
+	public boolean isGlobalColourScale() {
+		return globalColourScale;
+	}
+
+	public void setGlobalColourScale(boolean globalColourScale) {
+		this.globalColourScale = globalColourScale;
+	}
+	
+	/**
+	 * Sets whether the bounds of the colour scale are determined from all of the data (true),
+	 * or only the data within the viewport (false). Defaults to false.
+	 * Explicitly set colour scale bounds always take precedence.
+	 */
+	public Viewport withGlobalColourScale(boolean globalColourScale) {
+		this.globalColourScale = globalColourScale;
+		return this;
+	}
+}
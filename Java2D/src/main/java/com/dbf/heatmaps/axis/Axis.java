@@ -1,7 +1,10 @@
 package com.dbf.heatmaps.axis;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public abstract class Axis<T> {
@@ -13,6 +16,7 @@ public abstract class Axis<T> {
 	protected final Map<T, String>       entryLabels  = new HashMap<T, String>();
 	protected final Map<T, Integer>      entryIndices = new HashMap<T, Integer>();
 	protected final Map<String, Integer> labelIndices = new HashMap<String, Integer>();
+	private List<String> orderedLabels;
 	
 	public Axis(){}
 	
@@ -48,6 +52,22 @@ public abstract class Axis<T> {
 		return labelIndices;
 	}
 	
+	/**
+	 * @return the labels of all of the entries, ordered by their index on the axis. The list is cached until the next entry is added.
+	 */
+	public List<String> getOrderedLabels() {
+		if(null != orderedLabels && orderedLabels.size() == count) return orderedLabels;
+		
+		final String[] labels = new String[count];
+		Arrays.fill(labels, "");
+		for(Map.Entry<T, Integer> entry : entryIndices.entrySet()) {
+			final String label = entryLabels.get(entry.getKey());
+			if(null != label) labels[entry.getValue()] = label;
+		}
+		orderedLabels = Collections.unmodifiableList(Arrays.asList(labels));
+		return orderedLabels;
+	}
+	
 	public abstract String getLabel(T entry);
 	
 	public abstract Integer getIndex(Object entry);
@@ -58,6 +78,7 @@ public abstract class Axis<T> {
 			entryIndices.put(entry, count);
 			labelIndices.put(label, count);
 			count++;
+			orderedLabels = null;
 		}
 		return this;
 	}
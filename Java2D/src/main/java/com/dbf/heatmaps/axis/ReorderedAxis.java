@@ -0,0 +1,46 @@
+package com.dbf.heatmaps.axis;
+
+import java.util.Map;
+
+/**
+ * A copy of an axis with its entries rearranged, for example in the order produced by {@link com.dbf.heatmaps.data.HierarchicalClustering}.
+ * The entries and labels are the same as those of the source axis, so the same data records can be rendered using either axis.
+ */
+public class ReorderedAxis<T> extends Axis<T> {
+	
+	/**
+	 * @param source The axis to rearrange.
+	 * @param order The index, on the source axis, of each entry of the new axis.
+	 */
+	@SuppressWarnings("unchecked")
+	public ReorderedAxis(Axis<T> source, int[] order) {
+		super(source.getTitle());
+		if(null == order || order.length != source.getCount()) throw new IllegalArgumentException("The order must contain one index per entry of the axis.");
+		
+		final Object[] entries = new Object[source.getCount()];
+		for(Map.Entry<T, Integer> entry : source.getEntryIndices().entrySet()) {
+			entries[entry.getValue()] = entry.getKey();
+		}
+		for(int i : order) {
+			if(i < 0 || i >= entries.length) throw new IllegalArgumentException("Invalid index in order: " + i);
+			final T entry = (T) entries[i];
+			addEntry(entry, source.getLabel(entry));
+		}
+		if(count != order.length) throw new IllegalArgumentException("The order contains duplicate indices.");
+	}
+	
+	@Override
+	public String getLabel(T entry) {
+		return this.entryLabels.get(entry);
+	}
+	
+	@Override
+	public Integer getIndex(Object entry) {
+		return this.entryIndices.get(entry);
+	}
+	
+	@Override
+	public ReorderedAxis<T> withTitle(String title) {
+		return (ReorderedAxis<T>) super.withTitle(title);
+	}
+}
@@ -0,0 +1,163 @@
+package com.dbf.heatmaps.axis;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An axis holding a fixed maximum number of entries, such as the last N minutes of a time series.
+ * 
+ * The entries are stored in a circular buffer. Once the axis is full, adding a new entry evicts the oldest one
+ * and every other entry moves down by one index, without anything being copied or re-indexed.
+ */
+public class RollingAxis<T> extends Axis<T> {
+	
+	private final int capacity;
+	private final Object[] entries;
+	private final String[] labels;
+	
+	//Position of the oldest entry within the circular buffer
+	private int head;
+	
+	//Each entry is assigned an ever increasing sequence number, so its index can be derived from the sequence of the oldest entry
+	private long firstSequence;
+	private final Map<T, Long> entrySequences = new HashMap<T, Long>();
+	
+	public static <T> RollingAxis<T> instance(int capacity) {
+		return new RollingAxis<T>(capacity);
+	}
+	
+	public RollingAxis(int capacity) {
+		this("", capacity);
+	}
+	
+	public RollingAxis(String title, int capacity) {
+		super(title);
+		if(capacity < 1) throw new IllegalArgumentException("Rolling axis capacity must be at least 1.");
+		this.capacity = capacity;
+		this.entries = new Object[capacity];
+		this.labels = new String[capacity];
+	}
+	
+	/**
+	 * Adds a new entry at the end of the axis. If the axis is already full then the oldest entry is evicted first.
+	 * Entries that are already present on the axis are ignored.
+	 */
+	@Override
+	public RollingAxis<T> addEntry(T entry, String label) {
+		if(entrySequences.containsKey(entry)) return this;
+		if(null == label) label = "";
+		
+		if(count == capacity) {
+			@SuppressWarnings("unchecked")
+			final T oldest = (T) entries[head];
+			entrySequences.remove(oldest);
+			entryLabels.remove(oldest);
+			head = (head + 1) % capacity;
+			firstSequence++;
+			count--;
+		}
+		
+		final int pos = (head + count) % capacity;
+		entries[pos] = entry;
+		labels[pos] = label;
+		entryLabels.put(entry, label);
+		entrySequences.put(entry, firstSequence + count);
+		count++;
+		return this;
+	}
+	
+	public RollingAxis<T> addEntry(T entry) {
+		return addEntry(entry, null == entry ? "" : entry.toString());
+	}
+	
+	/**
+	 * @return a view of the labels, in order from oldest to newest. The labels are read directly from the circular buffer without being copied,
+	 * so the view is only valid until the next entry is added.
+	 */
+	@Override
+	public List<String> getOrderedLabels() {
+		final int viewHead = head;
+		final int viewCount = count;
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				if(index < 0 || index >= viewCount) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + viewCount);
+				return labels[(viewHead + index) % capacity];
+			}
+			
+			@Override
+			public int size() {
+				return viewCount;
+			}
+		};
+	}
+	
+	/**
+	 * @return the entry at the given index, where index zero is the oldest entry.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getEntry(int index) {
+		if(index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		return (T) entries[(head + index) % capacity];
+	}
+	
+	/**
+	 * @return the most recently added entry, or null if the axis is empty.
+	 */
+	public T getNewestEntry() {
+		return count == 0 ? null : getEntry(count - 1);
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return true if the axis holds its maximum number of entries, meaning the next entry will evict the oldest one.
+	 */
+	public boolean isFull() {
+		return count == capacity;
+	}
+	
+	@Override
+	public String getLabel(T entry) {
+		return entryLabels.get(entry);
+	}
+	
+	@Override
+	public Integer getIndex(Object entry) {
+		final Long sequence = entrySequences.get(entry);
+		return null == sequence ? null : (int) (sequence - firstSequence);
+	}
+	
+	/**
+	 * @return a new map of the current index of each entry. Since the indices shift as entries are added, this map is rebuilt on every call.
+	 */
+	@Override
+	public Map<T, Integer> getEntryIndices() {
+		final Map<T, Integer> indices = new HashMap<T, Integer>(count * 2);
+		for(int i = 0; i < count; i++) {
+			indices.put(getEntry(i), i);
+		}
+		return indices;
+	}
+	
+	/**
+	 * @return a new map of the current index of each label. Since the indices shift as entries are added, this map is rebuilt on every call.
+	 */
+	@Override
+	public Map<String, Integer> getLabelIndices() {
+		final Map<String, Integer> indices = new HashMap<String, Integer>(count * 2);
+		for(int i = 0; i < count; i++) {
+			indices.put(labels[(head + i) % capacity], i);
+		}
+		return indices;
+	}
+	
+	@Override
+	public RollingAxis<T> withTitle(String title) {
+		return (RollingAxis<T>) super.withTitle(title);
+	}
+}
@@ -0,0 +1,114 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+
+/**
+ * A reduced {@link DataGrid} where each cell combines a rectangular block of cells of a larger source grid.
+ * 
+ * Values are streamed in one at a time using their source grid coordinates, so the larger source grid never needs to be
+ * materialized. Memory usage is proportional to the size of the reduced grid only.
+ */
+public class AggregatedDataGrid implements DataGrid {
+
+	private final int blockWidth;
+	private final int blockHeight;
+	private final int width;
+	private final int height;
+	private final Aggregation aggregation;
+	
+	private final double[] values;
+	private final int[] counts;
+	
+	/**
+	 * @param sourceWidth The number of columns of the source grid.
+	 * @param sourceHeight The number of rows of the source grid.
+	 * @param blockWidth The number of source columns combined into each cell.
+	 * @param blockHeight The number of source rows combined into each cell.
+	 * @param aggregation The function used to combine the values.
+	 */
+	public AggregatedDataGrid(int sourceWidth, int sourceHeight, int blockWidth, int blockHeight, Aggregation aggregation) {
+		if(sourceWidth < 1 || sourceHeight < 1) throw new IllegalArgumentException("The source grid dimensions must be at least 1.");
+		if(blockWidth < 1 || blockHeight < 1) throw new IllegalArgumentException("The block dimensions must be at least 1.");
+		if(null == aggregation) throw new IllegalArgumentException("Missing aggregation.");
+		
+		this.blockWidth = blockWidth;
+		this.blockHeight = blockHeight;
+		this.width = (sourceWidth + blockWidth - 1) / blockWidth;
+		this.height = (sourceHeight + blockHeight - 1) / blockHeight;
+		this.aggregation = aggregation;
+		this.values = new double[width * height];
+		this.counts = new int[width * height];
+		
+		switch (aggregation) {
+		case MIN:
+			Arrays.fill(values, Double.POSITIVE_INFINITY);
+			break;
+		case MAX:
+			Arrays.fill(values, Double.NEGATIVE_INFINITY);
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Adds a value to the block containing the given source grid coordinates.
+	 * 
+	 * @param sourceX The X-axis index in the source grid.
+	 * @param sourceY The Y-axis index in the source grid.
+	 * @param value The value to add. <code>Double.NaN</code> values are ignored.
+	 */
+	public void add(int sourceX, int sourceY, double value) {
+		if(Double.isNaN(value)) return;
+		
+		final int index = ((sourceY / blockHeight) * width) + (sourceX / blockWidth);
+		switch (aggregation) {
+		case MIN:
+			if(value < values[index]) values[index] = value;
+			break;
+		case MAX:
+			if(value > values[index]) values[index] = value;
+			break;
+		default:
+			values[index] += value;
+		}
+		counts[index]++;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public double getValue(int x, int y) {
+		final int index = (y * width) + x;
+		final int count = counts[index];
+		if(count == 0) return Double.NaN;
+		return aggregation == Aggregation.MEAN ? values[index] / count : values[index];
+	}
+	
+	/**
+	 * @return the number of non-empty source cells combined into the given cell.
+	 */
+	public int getCount(int x, int y) {
+		return counts[(y * width) + x];
+	}
+
+	public int getBlockWidth() {
+		return blockWidth;
+	}
+
+	public int getBlockHeight() {
+		return blockHeight;
+	}
+
+	public Aggregation getAggregation() {
+		return aggregation;
+	}
+}
@@ -0,0 +1,23 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * The function used to combine the values of multiple cells into a single cell.
+ */
+public enum Aggregation {
+	/**
+	 * The arithmetic mean of the non-empty cells.
+	 */
+	MEAN,
+	/**
+	 * The sum of the non-empty cells.
+	 */
+	SUM,
+	/**
+	 * The smallest value of the non-empty cells.
+	 */
+	MIN,
+	/**
+	 * The largest value of the non-empty cells.
+	 */
+	MAX;
+}
@@ -0,0 +1,85 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.dbf.heatmaps.axis.Axis;
+
+/**
+ * A simple {@link DataGrid} backed by a single primitive array, stored row by row.
+ */
+public class BasicDataGrid implements DataGrid {
+	
+	private final int width;
+	private final int height;
+	private final double[] values;
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 */
+	public BasicDataGrid(int width, int height) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) width) * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		this.values = new double[width * height];
+		Arrays.fill(values, Double.NaN);
+	}
+	
+	/**
+	 * Creates a new grid using the entries of the provided axes to locate each data record.
+	 * Records with a null value, or with coordinates that are not present on the axes, are ignored.
+	 * If multiple records share the same coordinates then the last one wins, same as when rendering.
+	 */
+	public static BasicDataGrid fromRecords(Collection<? extends DataRecord> data, Axis<?> xAxis, Axis<?> yAxis) {
+		BasicDataGrid grid = new BasicDataGrid(xAxis.getCount(), yAxis.getCount());
+		for (DataRecord record : data) {
+			if(null == record.getValue()) continue;
+			final Integer x = xAxis.getIndex(record.getX());
+			final Integer y = yAxis.getIndex(record.getY());
+			if(null == x || null == y) continue;
+			grid.setValue(x, y, record.getValue());
+		}
+		return grid;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public double getValue(int x, int y) {
+		return values[(y * width) + x];
+	}
+	
+	/**
+	 * Sets the value of a single cell. Setting a value of <code>Double.NaN</code> empties the cell.
+	 */
+	public void setValue(int x, int y, double value) {
+		values[(y * width) + x] = value;
+	}
+	
+	/**
+	 * Empties a single cell.
+	 */
+	public void clearValue(int x, int y) {
+		values[(y * width) + x] = Double.NaN;
+	}
+	
+	/**
+	 * Empties all of the cells of the grid.
+	 */
+	public void clear() {
+		Arrays.fill(values, Double.NaN);
+	}
+}
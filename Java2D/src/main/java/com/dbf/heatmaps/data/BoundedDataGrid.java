@@ -0,0 +1,20 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * A {@link DataGrid} that already knows the minimum and maximum values of its cells.
+ * 
+ * When rendering a whole grid of this type, the renderer uses these bounds directly for the colour scale,
+ * rather than scanning every cell to determine them.
+ */
+public interface BoundedDataGrid extends DataGrid {
+	
+	/**
+	 * @return the smallest value of all of the cells, or <code>Double.NaN</code> if every cell is empty.
+	 */
+	public double getMinValue();
+	
+	/**
+	 * @return the largest value of all of the cells, or <code>Double.NaN</code> if every cell is empty.
+	 */
+	public double getMaxValue();
+}
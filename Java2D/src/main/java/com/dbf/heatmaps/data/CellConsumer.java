@@ -0,0 +1,9 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * Receives the value of a single heat map cell, addressed by its X-axis and Y-axis indices.
+ */
+@FunctionalInterface
+public interface CellConsumer {
+	public void accept(int x, int y, double value);
+}
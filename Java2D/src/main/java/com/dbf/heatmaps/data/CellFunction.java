@@ -0,0 +1,13 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * Computes the value of a single heat map cell, addressed by its X-axis and Y-axis indices.
+ */
+@FunctionalInterface
+public interface CellFunction {
+	
+	/**
+	 * @return the value of the cell, or <code>Double.NaN</code> if the cell is empty.
+	 */
+	public double getValue(int x, int y);
+}
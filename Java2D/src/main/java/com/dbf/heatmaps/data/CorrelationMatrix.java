@@ -0,0 +1,167 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the pairwise correlations of many series of values, such as metric time series, directly into a {@link SymmetricDataGrid} ready to be rendered.
+ * 
+ * Each series is first normalized, so that the correlation of each pair of series becomes a simple dot product.
+ * The dot products are then computed in square blocks of series, and in chunks of values, so that the series being multiplied stay in the CPU cache.
+ * The blocks are computed in parallel, and only the blocks on or above the diagonal are computed, since the matrix is symmetric.
+ */
+public class CorrelationMatrix {
+	
+	//Number of series per block, and number of values per chunk, sized so that a block of chunks fits comfortably within the L2 cache
+	private static final int BLOCK_SIZE = 64;
+	private static final int CHUNK_SIZE = 512;
+	
+	private CorrelationMatrix() {}
+	
+	/**
+	 * Computes the correlation of every pair of series.
+	 * 
+	 * @param series The series of values, one array per series. All of the series must have the same number of values, at least 2, and all of the values must be finite.
+	 * @param method The correlation method.
+	 * 
+	 * @return a grid where the cell (x, y) is the correlation of the series x and y, between -1 and 1.
+	 * The cells of a series whose values are all the same are empty, since its correlation is undefined.
+	 */
+	public static SymmetricDataGrid compute(double[][] series, CorrelationMethod method) {
+		if(null == series || series.length < 1) throw new IllegalArgumentException("Missing series.");
+		if(null == method) throw new IllegalArgumentException("Missing correlation method.");
+		
+		final int count = series.length;
+		final int length = null == series[0] ? 0 : series[0].length;
+		if(length < 2) throw new IllegalArgumentException("Each series must have at least 2 values.");
+		if(((long) count) * length > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many values: " + count + "x" + length);
+		for(int i = 0; i < count; i++) {
+			if(null == series[i] || series[i].length != length) throw new IllegalArgumentException("Series " + i + " does not have " + length + " values.");
+			//Checked before ranking, since the ranks of invalid values would be valid
+			for(int k = 0; k < length; k++) {
+				if(!Double.isFinite(series[i][k])) throw new IllegalArgumentException("Series " + i + " contains an invalid value: " + series[i][k]);
+			}
+		}
+		
+		//Normalize all of the series into a single array, stored series by series
+		final double[] normalized = new double[count * length];
+		IntStream.range(0, count).parallel().forEach(i->{
+			final double[] values = (method == CorrelationMethod.SPEARMAN) ? rank(series[i]) : series[i];
+			normalize(values, normalized, i * length);
+		});
+		
+		//Compute all of the blocks on or above the diagonal in parallel
+		final SymmetricDataGrid grid = new SymmetricDataGrid(count);
+		final int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		IntStream.range(0, blocks * blocks).parallel().forEach(block->{
+			final int blockY = block / blocks;
+			final int blockX = block % blocks;
+			if(blockX >= blockY) computeBlock(normalized, length, count, blockX * BLOCK_SIZE, blockY * BLOCK_SIZE, grid);
+		});
+		return grid;
+	}
+	
+	/**
+	 * Centres the values on their mean and scales them to a length of 1, so that the dot product of two normalized series is their Pearson correlation.
+	 * A series whose values are all the same is filled with <code>Double.NaN</code>, so that its correlations are empty.
+	 */
+	private static void normalize(double[] values, double[] target, int offset) {
+		double mean = 0;
+		for(int k = 0; k < values.length; k++) {
+			mean += values[k];
+		}
+		mean /= values.length;
+		
+		double sumOfSquares = 0;
+		for(int k = 0; k < values.length; k++) {
+			final double centred = values[k] - mean;
+			target[offset + k] = centred;
+			sumOfSquares += centred * centred;
+		}
+		
+		final double scale = sumOfSquares > 0 ? 1 / Math.sqrt(sumOfSquares) : Double.NaN;
+		for(int k = 0; k < values.length; k++) {
+			target[offset + k] *= scale;
+		}
+	}
+	
+	/**
+	 * @return the ranks of the values, starting at 1. Tied values are all assigned the average of their ranks.
+	 */
+	private static double[] rank(double[] values) {
+		final Integer[] order = new Integer[values.length];
+		for(int k = 0; k < values.length; k++) {
+			order[k] = k;
+		}
+		Arrays.sort(order, (a, b)->Double.compare(values[a], values[b]));
+		
+		final double[] ranks = new double[values.length];
+		for(int start = 0; start < values.length;) {
+			int end = start + 1;
+			while (end < values.length && values[order[end]] == values[order[start]]) end++;
+			final double rank = (start + end + 1) / 2.0;
+			for(int k = start; k < end; k++) {
+				ranks[order[k]] = rank;
+			}
+			start = end;
+		}
+		return ranks;
+	}
+	
+	/**
+	 * Computes the dot products of all of the pairs of series between one block of series (the columns) and another (the rows),
+	 * one chunk of values at a time, and writes the results into the grid.
+	 */
+	private static void computeBlock(double[] normalized, int length, int count, int xStart, int yStart, SymmetricDataGrid grid) {
+		final int xEnd = Math.min(count, xStart + BLOCK_SIZE);
+		final int yEnd = Math.min(count, yStart + BLOCK_SIZE);
+		final double[] sums = new double[BLOCK_SIZE * BLOCK_SIZE];
+		
+		for(int chunkStart = 0; chunkStart < length; chunkStart += CHUNK_SIZE) {
+			final int chunkEnd = Math.min(length, chunkStart + CHUNK_SIZE);
+			for(int y = yStart; y < yEnd; y++) {
+				final int rowOffset = y * length;
+				final int sumOffset = (y - yStart) * BLOCK_SIZE;
+				
+				//Only the pairs on or above the diagonal are needed
+				int x = Math.max(xStart, y);
+				
+				//Four series at a time, so that each value of the row series is only loaded once for all four
+				for(; x + 3 < xEnd; x += 4) {
+					final int o0 = x * length;
+					final int o1 = o0 + length;
+					final int o2 = o1 + length;
+					final int o3 = o2 + length;
+					double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+					for(int k = chunkStart; k < chunkEnd; k++) {
+						final double v = normalized[rowOffset + k];
+						s0 += v * normalized[o0 + k];
+						s1 += v * normalized[o1 + k];
+						s2 += v * normalized[o2 + k];
+						s3 += v * normalized[o3 + k];
+					}
+					sums[sumOffset + x - xStart]     += s0;
+					sums[sumOffset + x - xStart + 1] += s1;
+					sums[sumOffset + x - xStart + 2] += s2;
+					sums[sumOffset + x - xStart + 3] += s3;
+				}
+				for(; x < xEnd; x++) {
+					final int o0 = x * length;
+					double s0 = 0;
+					for(int k = chunkStart; k < chunkEnd; k++) {
+						s0 += normalized[rowOffset + k] * normalized[o0 + k];
+					}
+					sums[sumOffset + x - xStart] += s0;
+				}
+			}
+		}
+		
+		//Each block writes to its own distinct cells of the grid
+		for(int y = yStart; y < yEnd; y++) {
+			for(int x = Math.max(xStart, y); x < xEnd; x++) {
+				final double correlation = sums[((y - yStart) * BLOCK_SIZE) + x - xStart];
+				grid.setValue(x, y, Double.isNaN(correlation) ? Double.NaN : Math.max(-1, Math.min(1, correlation)));
+			}
+		}
+	}
+}
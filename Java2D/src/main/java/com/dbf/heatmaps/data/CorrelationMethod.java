@@ -0,0 +1,16 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * The methods used to measure the correlation between two series of values.
+ */
+public enum CorrelationMethod {
+	/**
+	 * Measures the linear relationship between the values.
+	 */
+	PEARSON,
+	
+	/**
+	 * Measures the monotonic relationship between the values, using the Pearson correlation of their ranks. Tied values share the average of their ranks.
+	 */
+	SPEARMAN
+}
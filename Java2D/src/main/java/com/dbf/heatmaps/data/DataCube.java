@@ -0,0 +1,219 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.dbf.heatmaps.axis.Axis;
+
+/**
+ * An in-memory cube of values over three or more axes, such as host by hour by day, from which any two dimensional heat map can be produced
+ * without going back to the raw data.
+ * 
+ * The values are aggregated as they are added, into primitive arrays with one cell per combination of the entries of the axes.
+ * {@link #rollUp(int, int)} and {@link #slice(int, int, int...)} then produce a grid over any two of the axes by combining the cells of the remaining axes,
+ * in parallel, using the same aggregation.
+ */
+public class DataCube {
+	
+	private final Aggregation aggregation;
+	private final Axis<?>[] axes;
+	private final int[] sizes;
+	private final int[] strides;
+	
+	private final double[] values;
+	private final int[] counts;
+	
+	/**
+	 * Creates a new cube with all of the cells empty.
+	 * 
+	 * @param aggregation The function used to combine the values added to the same cell, and the cells combined by a roll-up.
+	 * @param axes The axes of the cube, at least two, each with at least one entry. The entries of the axes must not change once the cube has been created.
+	 */
+	public DataCube(Aggregation aggregation, Axis<?>... axes) {
+		if(null == aggregation) throw new IllegalArgumentException("Missing aggregation.");
+		if(null == axes || axes.length < 2) throw new IllegalArgumentException("The cube must have at least two axes.");
+		
+		this.aggregation = aggregation;
+		this.axes = axes.clone();
+		this.sizes = new int[axes.length];
+		this.strides = new int[axes.length];
+		
+		//The last axis is contiguous
+		long size = 1;
+		for(int d = axes.length - 1; d >= 0; d--) {
+			if(null == axes[d] || axes[d].getCount() < 1) throw new IllegalArgumentException("Axis " + d + " must have at least one entry.");
+			sizes[d] = axes[d].getCount();
+			strides[d] = (int) Math.min(size, Integer.MAX_VALUE);
+			size *= sizes[d];
+			if(size > Integer.MAX_VALUE) throw new IllegalArgumentException("The cube is too large.");
+		}
+		this.values = new double[(int) size];
+		this.counts = new int[(int) size];
+		if(aggregation == Aggregation.MIN) Arrays.fill(values, Double.POSITIVE_INFINITY);
+		if(aggregation == Aggregation.MAX) Arrays.fill(values, Double.NEGATIVE_INFINITY);
+	}
+	
+	/**
+	 * Adds a value to the cell located by one entry of each axis, in the same order as the axes.
+	 * 
+	 * @return false if the value was ignored, because it is <code>Double.NaN</code> or one of the entries isn't present on its axis.
+	 */
+	public boolean add(double value, Object... entries) {
+		if(entries.length != axes.length) throw new IllegalArgumentException("Expected " + axes.length + " entries, got " + entries.length + ".");
+		if(Double.isNaN(value)) return false;
+		int index = 0;
+		for(int d = 0; d < axes.length; d++) {
+			final Integer i = axes[d].getIndex(entries[d]);
+			if(null == i) return false;
+			index += i * strides[d];
+		}
+		addAt(index, value);
+		return true;
+	}
+	
+	/**
+	 * Adds a value to the cell located by one index of each axis, in the same order as the axes. <code>Double.NaN</code> values are ignored.
+	 */
+	public void addByIndex(double value, int... indices) {
+		if(indices.length != axes.length) throw new IllegalArgumentException("Expected " + axes.length + " indices, got " + indices.length + ".");
+		if(Double.isNaN(value)) return;
+		int index = 0;
+		for(int d = 0; d < axes.length; d++) {
+			if(indices[d] < 0 || indices[d] >= sizes[d]) throw new IndexOutOfBoundsException("Index: " + indices[d] + ", Axis: " + d + ", Size: " + sizes[d]);
+			index += indices[d] * strides[d];
+		}
+		addAt(index, value);
+	}
+	
+	private void addAt(int index, double value) {
+		switch (aggregation) {
+		case MIN:
+			if(value < values[index]) values[index] = value;
+			break;
+		case MAX:
+			if(value > values[index]) values[index] = value;
+			break;
+		default:
+			values[index] += value;
+		}
+		counts[index]++;
+	}
+	
+	/**
+	 * Produces a grid over two of the axes, combining all of the cells of the other axes.
+	 * 
+	 * @param xAxis The index of the axis to use as the X-axis of the grid.
+	 * @param yAxis The index of the axis to use as the Y-axis of the grid.
+	 */
+	public BasicDataGrid rollUp(int xAxis, int yAxis) {
+		final int[] fixed = new int[axes.length];
+		Arrays.fill(fixed, -1);
+		return slice(xAxis, yAxis, fixed);
+	}
+	
+	/**
+	 * Produces a grid over two of the axes, restricting some of the other axes to a single entry and combining all of the cells of the rest.
+	 * The cells of the grid are computed in parallel.
+	 * 
+	 * @param xAxis The index of the axis to use as the X-axis of the grid.
+	 * @param yAxis The index of the axis to use as the Y-axis of the grid.
+	 * @param fixed For each axis of the cube, the index of the only entry to include, or -1 to combine all of its entries. Ignored for the X-axis and the Y-axis.
+	 */
+	public BasicDataGrid slice(int xAxis, int yAxis, int... fixed) {
+		if(xAxis < 0 || xAxis >= axes.length || yAxis < 0 || yAxis >= axes.length) throw new IllegalArgumentException("Invalid axis.");
+		if(xAxis == yAxis) throw new IllegalArgumentException("The X-axis and the Y-axis must be different.");
+		if(null == fixed || fixed.length != axes.length) throw new IllegalArgumentException("Expected " + axes.length + " fixed indices.");
+		
+		//Offsets of all of the cells combined into each cell of the grid, relative to the cell where the other axes are at index zero
+		int combined = 1;
+		for(int d = 0; d < axes.length; d++) {
+			if(d == xAxis || d == yAxis) continue;
+			if(fixed[d] < -1 || fixed[d] >= sizes[d]) throw new IndexOutOfBoundsException("Index: " + fixed[d] + ", Axis: " + d + ", Size: " + sizes[d]);
+			if(fixed[d] == -1) combined *= sizes[d];
+		}
+		final int[] offsets = new int[combined];
+		int count = 1;
+		for(int d = 0; d < axes.length; d++) {
+			if(d == xAxis || d == yAxis) continue;
+			if(fixed[d] >= 0) {
+				for(int i = 0; i < count; i++) {
+					offsets[i] += fixed[d] * strides[d];
+				}
+			} else {
+				//Repeat the offsets so far once per entry of this axis
+				for(int e = sizes[d] - 1; e >= 0; e--) {
+					for(int i = 0; i < count; i++) {
+						offsets[(e * count) + i] = offsets[i] + (e * strides[d]);
+					}
+				}
+				count *= sizes[d];
+			}
+		}
+		Arrays.sort(offsets);
+		
+		final int width = sizes[xAxis];
+		final int height = sizes[yAxis];
+		final BasicDataGrid grid = new BasicDataGrid(width, height);
+		IntStream.range(0, width * height).parallel().forEach(cell->{
+			final int x = cell % width;
+			final int y = cell / width;
+			final int base = (x * strides[xAxis]) + (y * strides[yAxis]);
+			grid.setValue(x, y, combine(base, offsets));
+		});
+		return grid;
+	}
+	
+	private double combine(int base, int[] offsets) {
+		double result = aggregation == Aggregation.MIN ? Double.POSITIVE_INFINITY : aggregation == Aggregation.MAX ? Double.NEGATIVE_INFINITY : 0;
+		long count = 0;
+		for(int offset : offsets) {
+			final int index = base + offset;
+			if(counts[index] == 0) continue;
+			count += counts[index];
+			switch (aggregation) {
+			case MIN:
+				result = Math.min(result, values[index]);
+				break;
+			case MAX:
+				result = Math.max(result, values[index]);
+				break;
+			default:
+				result += values[index];
+			}
+		}
+		if(count == 0) return Double.NaN;
+		return aggregation == Aggregation.MEAN ? result / count : result;
+	}
+	
+	/**
+	 * @return the aggregated value of the cell located by one index of each axis, or <code>Double.NaN</code> if the cell is empty.
+	 */
+	public double getValue(int... indices) {
+		if(indices.length != axes.length) throw new IllegalArgumentException("Expected " + axes.length + " indices, got " + indices.length + ".");
+		int index = 0;
+		for(int d = 0; d < axes.length; d++) {
+			if(indices[d] < 0 || indices[d] >= sizes[d]) throw new IndexOutOfBoundsException("Index: " + indices[d] + ", Axis: " + d + ", Size: " + sizes[d]);
+			index += indices[d] * strides[d];
+		}
+		if(counts[index] == 0) return Double.NaN;
+		return aggregation == Aggregation.MEAN ? values[index] / counts[index] : values[index];
+	}
+	
+	/**
+	 * @return the axis of the cube at the given index, to be used as an axis of a heat map of a slice or roll-up.
+	 */
+	public Axis<?> getAxis(int axis) {
+		return axes[axis];
+	}
+	
+	/**
+	 * @return the number of axes of the cube.
+	 */
+	public int getDimensions() {
+		return axes.length;
+	}
+	
+	public Aggregation getAggregation() {
+		return aggregation;
+	}
+}
@@ -0,0 +1,54 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * A dense, index-addressed source of heat map values.
+ * 
+ * Unlike a collection of {@link DataRecord}, the cells of a grid are addressed directly by their
+ * X-axis and Y-axis indices, starting at zero. Empty cells are represented by <code>Double.NaN</code>.
+ */
+public interface DataGrid {
+	
+	/**
+	 * @return the number of columns of the grid, corresponding to the number of entries of the X-axis.
+	 */
+	public int getWidth();
+	
+	/**
+	 * @return the number of rows of the grid, corresponding to the number of entries of the Y-axis.
+	 */
+	public int getHeight();
+	
+	/**
+	 * @param x The X-axis index, between zero and <code>getWidth() - 1</code>, inclusive.
+	 * @param y The Y-axis index, between zero and <code>getHeight() - 1</code>, inclusive.
+	 * 
+	 * @return the value of the cell, or <code>Double.NaN</code> if the cell is empty.
+	 */
+	public double getValue(int x, int y);
+	
+	/**
+	 * @return true if the cell at the given X-axis and Y-axis indices contains a value.
+	 */
+	public default boolean hasValue(int x, int y) {
+		return !Double.isNaN(getValue(x, y));
+	}
+	
+	/**
+	 * Reads the values of a rectangular region of the grid, row by row, into the provided array.
+	 * The renderer reads the grid in bands of rows using this method, so implementations may override it to compute a whole band at once.
+	 * 
+	 * @param xStart The X-axis index of the first column of the region.
+	 * @param yStart The Y-axis index of the first row of the region.
+	 * @param width The number of columns of the region.
+	 * @param height The number of rows of the region.
+	 * @param values The array receiving the values, of at least <code>width * height</code> elements.
+	 */
+	public default void getValues(int xStart, int yStart, int width, int height, double[] values) {
+		int i = 0;
+		for (int y = yStart; y < yStart + height; y++) {
+			for (int x = xStart; x < xStart + width; x++) {
+				values[i++] = getValue(x, y);
+			}
+		}
+	}
+}
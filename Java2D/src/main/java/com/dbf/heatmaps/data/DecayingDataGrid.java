@@ -0,0 +1,132 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+
+/**
+ * An accumulator of values that exponentially fade over time, for "recent activity" heat maps.
+ * 
+ * Each cell stores its value along with the time at which it was last updated. Rather than decaying every cell on every tick,
+ * the decay is applied lazily: only when a cell is updated, or when it is read. Adding a value is always O(1),
+ * no matter how many cells exist. The heat map is rendered from a {@link #snapshot(long)} at a chosen time.
+ * 
+ * Times are expressed in any consistent unit, such as milliseconds, as long as the half-life is expressed in the same unit.
+ */
+public class DecayingDataGrid {
+	
+	private final int width;
+	private final int height;
+	private final double halfLife;
+	private final double decayRate;
+	
+	//The value of each cell as of its last update time. Cells that have never been updated are NaN.
+	private final double[] values;
+	private final long[] times;
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 * @param halfLife The time it takes for a value to decay to half of its original value. Must be greater than zero.
+	 */
+	public DecayingDataGrid(int width, int height, double halfLife) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) width) * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		if(!(halfLife > 0) || Double.isInfinite(halfLife)) throw new IllegalArgumentException("Half-life must be greater than zero.");
+		this.width = width;
+		this.height = height;
+		this.halfLife = halfLife;
+		this.decayRate = Math.log(2) / halfLife;
+		this.values = new double[width * height];
+		this.times = new long[width * height];
+		Arrays.fill(values, Double.NaN);
+	}
+	
+	/**
+	 * Adds a value to a cell at the given time. The existing value of the cell is first decayed up to that time.
+	 * If the time is older than the last update of the cell, the added value is decayed instead, so events may arrive out of order.
+	 */
+	public void add(int x, int y, double value, long time) {
+		if(Double.isNaN(value)) return;
+		final int i = getIndex(x, y);
+		if(Double.isNaN(values[i])) {
+			values[i] = value;
+			times[i] = time;
+		} else if (time >= times[i]) {
+			values[i] = decay(values[i], time - times[i]) + value;
+			times[i] = time;
+		} else {
+			values[i] += decay(value, times[i] - time);
+		}
+	}
+	
+	/**
+	 * @return the value of a cell, decayed to the given time, or <code>Double.NaN</code> if the cell has never been updated.
+	 */
+	public double getValue(int x, int y, long time) {
+		final int i = getIndex(x, y);
+		final double value = values[i];
+		if(Double.isNaN(value)) return value;
+		return decay(value, time - times[i]);
+	}
+	
+	/**
+	 * Empties a single cell.
+	 */
+	public void clearValue(int x, int y) {
+		values[getIndex(x, y)] = Double.NaN;
+	}
+	
+	/**
+	 * Empties all of the cells of the grid.
+	 */
+	public void clear() {
+		Arrays.fill(values, Double.NaN);
+	}
+	
+	/**
+	 * @return a read-only view of the grid with all of the values decayed to the given time.
+	 * The values are not copied, they are decayed as they are read by the renderer.
+	 */
+	public DataGrid snapshot(long time) {
+		return new DataGrid() {
+			@Override
+			public int getWidth() {
+				return width;
+			}
+			
+			@Override
+			public int getHeight() {
+				return height;
+			}
+			
+			@Override
+			public double getValue(int x, int y) {
+				return DecayingDataGrid.this.getValue(x, y, time);
+			}
+		};
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	public double getHalfLife() {
+		return halfLife;
+	}
+	
+	private double decay(double value, long elapsed) {
+		return elapsed == 0 ? value : value * Math.exp(-decayRate * elapsed);
+	}
+	
+	private int getIndex(int x, int y) {
+		if(x < 0 || x >= width) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + width);
+		if(y < 0 || y >= height) throw new IndexOutOfBoundsException("Row: " + y + ", Height: " + height);
+		return (y * width) + x;
+	}
+}
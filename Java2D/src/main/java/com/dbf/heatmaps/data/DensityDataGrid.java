@@ -0,0 +1,339 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+
+/**
+ * A {@link DataGrid} of the density of a cloud of (x, y) points, such as request latency against payload size, for scatter-style data
+ * with far too many points to render as individual data records.
+ * 
+ * Each point is binned into a cell in a single pass, so memory is proportional to the size of the grid and not to the number of points.
+ * The grid can then be smoothed using a separable kernel, computed in parallel, and rendered using the usual gradients and legend.
+ * Column zero holds the smallest X values and row zero holds the smallest Y values. Cells without any density are empty.
+ */
+public class DensityDataGrid implements DataGrid {
+	
+	//Minimum number of points binned by each task, when adding arrays of points in parallel
+	private static final int CHUNK_SIZE = 1 << 20;
+	
+	private final int width;
+	private final int height;
+	private final double minX;
+	private final double maxX;
+	private final double minY;
+	private final double maxY;
+	private final double scaleX;
+	private final double scaleY;
+	
+	private final double[] values;
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 * @param minX The smallest X value of the grid, at the left edge of the first column.
+	 * @param maxX The largest X value of the grid, at the right edge of the last column.
+	 * @param minY The smallest Y value of the grid, at the edge of the first row.
+	 * @param maxY The largest Y value of the grid, at the edge of the last row.
+	 */
+	public DensityDataGrid(int width, int height, double minX, double maxX, double minY, double maxY) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) width) * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		if(!(maxX > minX) || Double.isInfinite(maxX - minX)) throw new IllegalArgumentException("Invalid X range: " + minX + " to " + maxX);
+		if(!(maxY > minY) || Double.isInfinite(maxY - minY)) throw new IllegalArgumentException("Invalid Y range: " + minY + " to " + maxY);
+		this.width = width;
+		this.height = height;
+		this.minX = minX;
+		this.maxX = maxX;
+		this.minY = minY;
+		this.maxY = maxY;
+		this.scaleX = width / (maxX - minX);
+		this.scaleY = height / (maxY - minY);
+		this.values = new double[width * height];
+	}
+	
+	/**
+	 * Adds a point with a weight of 1. Points outside of the range of the grid, or with NaN coordinates, are ignored.
+	 */
+	public void add(double x, double y) {
+		add(x, y, 1);
+	}
+	
+	/**
+	 * Adds a point with the given weight. Points outside of the range of the grid, or with NaN coordinates, are ignored.
+	 */
+	public void add(double x, double y, double weight) {
+		final int i = getBin(x, y);
+		if(i >= 0) values[i] += weight;
+	}
+	
+	/**
+	 * Adds many points, each with a weight of 1. Large arrays are split into one range per available processor, each binned in parallel into its own copy of the grid,
+	 * so the memory used is proportional to the size of the grid times the number of processors.
+	 * 
+	 * @param xs The X value of each point.
+	 * @param ys The Y value of each point, the same length as <code>xs</code>.
+	 */
+	public void addAll(double[] xs, double[] ys) {
+		if(xs.length != ys.length) throw new IllegalArgumentException("The X and Y arrays must have the same length.");
+		final int ranges = Math.min(Runtime.getRuntime().availableProcessors(), (xs.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		if(ranges <= 1) {
+			addRange(xs, ys, 0, xs.length, values);
+			return;
+		}
+		
+		final long rangeSize = ((long) xs.length + ranges - 1) / ranges;
+		final double[] total = IntStream.range(0, ranges).parallel().mapToObj(range->{
+			final double[] partial = new double[values.length];
+			addRange(xs, ys, (int) (range * rangeSize), (int) Math.min(xs.length, (range + 1) * rangeSize), partial);
+			return partial;
+		}).reduce((a, b)->{
+			for(int i = 0; i < a.length; i++) {
+				a[i] += b[i];
+			}
+			return a;
+		}).get();
+		for(int i = 0; i < values.length; i++) {
+			values[i] += total[i];
+		}
+	}
+	
+	private void addRange(double[] xs, double[] ys, int start, int end, double[] target) {
+		for(int p = start; p < end; p++) {
+			final int i = getBin(xs[p], ys[p]);
+			if(i >= 0) target[i]++;
+		}
+	}
+	
+	/**
+	 * Adds all of the points of another grid, of the same dimensions and range, to this one.
+	 */
+	public void merge(DensityDataGrid other) {
+		if(other.width != width || other.height != height) throw new IllegalArgumentException("Cannot merge grids with different dimensions.");
+		if(other.minX != minX || other.maxX != maxX || other.minY != minY || other.maxY != maxY) throw new IllegalArgumentException("Cannot merge grids with different ranges.");
+		for(int i = 0; i < values.length; i++) {
+			values[i] += other.values[i];
+		}
+	}
+	
+	/**
+	 * Creates a smoothed copy of the grid, using a separable kernel: the rows are smoothed first, then the columns, each in parallel.
+	 * The total density is preserved, except for the density spreading beyond the edges of the grid.
+	 * 
+	 * @param kernel The smoothing kernel.
+	 * @param radius The radius of the kernel, in cells. For the box kernel, the radius is rounded to the nearest whole number of cells.
+	 */
+	public DensityDataGrid smooth(DensityKernel kernel, double radius) {
+		if(null == kernel) throw new IllegalArgumentException("Missing kernel.");
+		if(!(radius >= 0) || Double.isInfinite(radius)) throw new IllegalArgumentException("Invalid radius: " + radius);
+		
+		final DensityDataGrid smoothed = new DensityDataGrid(width, height, minX, maxX, minY, maxY);
+		final double[] temp = new double[values.length];
+		if(kernel == DensityKernel.BOX) {
+			final int r = (int) Math.round(radius);
+			boxRows(values, temp, r);
+			boxColumns(temp, smoothed.values, r);
+		} else {
+			final double[] weights = getGaussianWeights(radius);
+			convolveRows(values, temp, weights);
+			convolveColumns(temp, smoothed.values, weights);
+		}
+		return smoothed;
+	}
+	
+	/**
+	 * @return the sum of the weights of all of the points in the grid.
+	 */
+	public double getTotal() {
+		double total = 0;
+		for(double value : values) {
+			total += value;
+		}
+		return total;
+	}
+	
+	/**
+	 * @return the density of the cell, or <code>Double.NaN</code> if the cell is empty.
+	 */
+	@Override
+	public double getValue(int x, int y) {
+		if(x < 0 || x >= width) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + width);
+		if(y < 0 || y >= height) throw new IndexOutOfBoundsException("Row: " + y + ", Height: " + height);
+		final double value = values[(y * width) + x];
+		return value == 0 ? Double.NaN : value;
+	}
+	
+	/**
+	 * Builds an axis matching the columns of the grid, labelled with the X value at the centre of each column.
+	 * 
+	 * @param title The title of the axis.
+	 * @param format The format of the labels, as used by {@link String#format(String, Object...)}, for example "%.1f".
+	 */
+	public IntegerAxis buildXAxis(String title, String format) {
+		return buildAxis(title, format, width, minX, maxX);
+	}
+	
+	/**
+	 * Builds an axis matching the rows of the grid, labelled with the Y value at the centre of each row.
+	 * 
+	 * @param title The title of the axis.
+	 * @param format The format of the labels, as used by {@link String#format(String, Object...)}, for example "%.1f".
+	 */
+	public IntegerAxis buildYAxis(String title, String format) {
+		return buildAxis(title, format, height, minY, maxY);
+	}
+	
+	private static IntegerAxis buildAxis(String title, String format, int count, double min, double max) {
+		final IntegerAxis axis = new IntegerAxis(title);
+		final double size = (max - min) / count;
+		for(int i = 0; i < count; i++) {
+			axis.addEntry(i, String.format(format, min + ((i + 0.5) * size)));
+		}
+		return axis;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Empties all of the cells of the grid.
+	 */
+	public void clear() {
+		Arrays.fill(values, 0);
+	}
+	
+	/**
+	 * @return the index of the cell containing the point, or -1 if it is outside of the grid.
+	 */
+	private int getBin(double x, double y) {
+		//Written so that NaN coordinates fail the range checks
+		if(!(x >= minX && x <= maxX && y >= minY && y <= maxY)) return -1;
+		final int column = Math.min(width - 1, (int) ((x - minX) * scaleX));
+		final int row = Math.min(height - 1, (int) ((y - minY) * scaleY));
+		return (row * width) + column;
+	}
+	
+	/**
+	 * @return the normalized weights of a Gaussian kernel, from the centre outwards.
+	 */
+	private static double[] getGaussianWeights(double sigma) {
+		final int r = (int) Math.ceil(sigma * 3);
+		final double[] weights = new double[r + 1];
+		if(r == 0) {
+			weights[0] = 1;
+			return weights;
+		}
+		double sum = 0;
+		for(int i = 0; i <= r; i++) {
+			weights[i] = Math.exp(-(i * i) / (2 * sigma * sigma));
+			sum += (i == 0) ? weights[i] : 2 * weights[i];
+		}
+		for(int i = 0; i <= r; i++) {
+			weights[i] /= sum;
+		}
+		return weights;
+	}
+	
+	private void convolveRows(double[] source, double[] target, double[] weights) {
+		final int r = weights.length - 1;
+		IntStream.range(0, height).parallel().forEach(y->{
+			final int offset = y * width;
+			for(int x = 0; x < width; x++) {
+				double sum = weights[0] * source[offset + x];
+				for(int k = 1; k <= r; k++) {
+					if(x - k >= 0) sum += weights[k] * source[offset + x - k];
+					if(x + k < width) sum += weights[k] * source[offset + x + k];
+				}
+				target[offset + x] = sum;
+			}
+		});
+	}
+	
+	private void convolveColumns(double[] source, double[] target, double[] weights) {
+		//Each output row is a weighted sum of whole source rows, so the inner loop reads contiguous memory
+		final int r = weights.length - 1;
+		IntStream.range(0, height).parallel().forEach(y->{
+			final int offset = y * width;
+			for(int k = -r; k <= r; k++) {
+				if(y + k < 0 || y + k >= height) continue;
+				final double weight = weights[Math.abs(k)];
+				final int sourceOffset = (y + k) * width;
+				for(int x = 0; x < width; x++) {
+					target[offset + x] += weight * source[sourceOffset + x];
+				}
+			}
+		});
+	}
+	
+	private void boxRows(double[] source, double[] target, int r) {
+		final double scale = 1.0 / ((2 * r) + 1);
+		IntStream.range(0, height).parallel().forEach(y->{
+			final int offset = y * width;
+			//Running sum of the window [x - r, x + r], along with the number of non-empty cells within it
+			double sum = 0;
+			int count = 0;
+			for(int x = 0; x < Math.min(r, width); x++) {
+				sum += source[offset + x];
+				if(source[offset + x] != 0) count++;
+			}
+			for(int x = 0; x < width; x++) {
+				if(x + r < width && source[offset + x + r] != 0) {
+					sum += source[offset + x + r];
+					count++;
+				}
+				if(x - r - 1 >= 0 && source[offset + x - r - 1] != 0) {
+					sum -= source[offset + x - r - 1];
+					count--;
+				}
+				//Rounding errors of the running sum must not leave a trace of density behind once the window is empty
+				if(count == 0) sum = 0;
+				target[offset + x] = sum * scale;
+			}
+		});
+	}
+	
+	private void boxColumns(double[] source, double[] target, int r) {
+		//Running sums of strips of columns, so that each row of the strip is read contiguously
+		final double scale = 1.0 / ((2 * r) + 1);
+		final int stripWidth = 256;
+		final int strips = (width + stripWidth - 1) / stripWidth;
+		IntStream.range(0, strips).parallel().forEach(strip->{
+			final int start = strip * stripWidth;
+			final int end = Math.min(width, start + stripWidth);
+			final double[] sums = new double[end - start];
+			final int[] counts = new int[end - start];
+			for(int y = 0; y < Math.min(r, height); y++) {
+				addRow(sums, counts, source, (y * width) + start, 1);
+			}
+			for(int y = 0; y < height; y++) {
+				if(y + r < height) addRow(sums, counts, source, ((y + r) * width) + start, 1);
+				if(y - r - 1 >= 0) addRow(sums, counts, source, ((y - r - 1) * width) + start, -1);
+				final int offset = (y * width) + start;
+				for(int i = 0; i < sums.length; i++) {
+					if(counts[i] == 0) sums[i] = 0;
+					target[offset + i] = sums[i] * scale;
+				}
+			}
+		});
+	}
+	
+	private static void addRow(double[] sums, int[] counts, double[] source, int offset, int sign) {
+		for(int i = 0; i < sums.length; i++) {
+			final double value = source[offset + i];
+			if(value == 0) continue;
+			sums[i] += sign * value;
+			counts[i] += sign;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * The kernel used by {@link DensityDataGrid} to smooth the density of the points.
+ */
+public enum DensityKernel {
+	/**
+	 * Averages the cells within the radius, in constant time per cell no matter how large the radius is.
+	 */
+	BOX,
+	/**
+	 * Weights the cells by a Gaussian function, where the radius is the standard deviation. Cells are included up to three times the radius.
+	 */
+	GAUSSIAN;
+}
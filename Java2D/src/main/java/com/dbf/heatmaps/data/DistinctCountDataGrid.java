@@ -0,0 +1,130 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+
+/**
+ * A {@link DataGrid} where the value of each cell is the estimated number of distinct items added to it, such as the number of unique users by hour and day.
+ * 
+ * Rather than keeping a set of the items of each cell, each cell holds a {@link HyperLogLog} sketch of a fixed size, no matter how many items are added.
+ * Grids of the same dimensions and precision can be merged, for example to combine grids built by different threads or on different nodes.
+ * Cells without any items are empty.
+ */
+public class DistinctCountDataGrid implements DataGrid {
+	
+	private final int width;
+	private final int height;
+	private final int precision;
+	
+	//Created on the first item of each cell
+	private final HyperLogLog[] sketches;
+	
+	/**
+	 * Creates a new grid with all of the cells empty, using the default sketch precision.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 */
+	public DistinctCountDataGrid(int width, int height) {
+		this(width, height, HyperLogLog.DEFAULT_PRECISION);
+	}
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 * @param precision The precision of the sketch of each cell, between 4 and 18 inclusively. Each cell uses <code>2^precision</code> bytes.
+	 */
+	public DistinctCountDataGrid(int width, int height, int precision) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) width) * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		if(precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION)
+			throw new IllegalArgumentException("Precision must be between " + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION + ".");
+		this.width = width;
+		this.height = height;
+		this.precision = precision;
+		this.sketches = new HyperLogLog[width * height];
+	}
+	
+	/**
+	 * Adds an item to a cell. Adding the same item more than once to the same cell has no effect on its count.
+	 */
+	public void add(int x, int y, Object item) {
+		if(null == item) return;
+		getOrCreateSketch(x, y).add(item);
+	}
+	
+	/**
+	 * Adds an item, identified by a numeric ID, to a cell.
+	 */
+	public void add(int x, int y, long item) {
+		getOrCreateSketch(x, y).add(item);
+	}
+	
+	/**
+	 * Adds all of the items of another grid, of the same dimensions and precision, to this one.
+	 */
+	public void merge(DistinctCountDataGrid other) {
+		if(other.width != width || other.height != height) throw new IllegalArgumentException("Cannot merge grids with different dimensions.");
+		if(other.precision != precision) throw new IllegalArgumentException("Cannot merge grids with different precisions.");
+		for(int i = 0; i < sketches.length; i++) {
+			if(null == other.sketches[i]) continue;
+			if(null == sketches[i]) sketches[i] = new HyperLogLog(precision);
+			sketches[i].merge(other.sketches[i]);
+		}
+	}
+	
+	/**
+	 * @return the sketch of a cell, or null if the cell is empty.
+	 */
+	public HyperLogLog getSketch(int x, int y) {
+		return sketches[getIndex(x, y)];
+	}
+	
+	/**
+	 * @return the estimated number of distinct items of a cell, or <code>Double.NaN</code> if the cell is empty.
+	 */
+	@Override
+	public double getValue(int x, int y) {
+		final HyperLogLog sketch = sketches[getIndex(x, y)];
+		return null == sketch ? Double.NaN : sketch.getEstimate();
+	}
+	
+	/**
+	 * Empties all of the cells of the grid.
+	 */
+	public void clear() {
+		Arrays.fill(sketches, null);
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	public int getPrecision() {
+		return precision;
+	}
+	
+	private HyperLogLog getOrCreateSketch(int x, int y) {
+		final int i = getIndex(x, y);
+		HyperLogLog sketch = sketches[i];
+		if(null == sketch) {
+			sketch = new HyperLogLog(precision);
+			sketches[i] = sketch;
+		}
+		return sketch;
+	}
+	
+	private int getIndex(int x, int y) {
+		if(x < 0 || x >= width) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + width);
+		if(y < 0 || y >= height) throw new IndexOutOfBoundsException("Row: " + y + ", Height: " + height);
+		return (y * width) + x;
+	}
+}
@@ -0,0 +1,89 @@
+package com.dbf.heatmaps.data;
+
+import java.util.stream.IntStream;
+
+/**
+ * A {@link DataGrid} whose values are computed by a function as they are read, such as model scores over a parameter grid or an analytic surface.
+ * 
+ * Nothing is stored: the renderer pulls the values in bands of rows, and only evaluates the cells within the rendered viewport.
+ * Note that the function may be evaluated more than once for the same cell, since the renderer may read the cells in multiple passes,
+ * for example to determine the colour scale. Setting explicit colour scale bounds avoids that extra pass.
+ * 
+ * When parallel evaluation is enabled, the cells of each band are evaluated concurrently, in runs of cells across both dimensions, so the function must be thread safe.
+ */
+public class FunctionDataGrid implements DataGrid {
+	
+	//Number of cells evaluated by each task, when evaluating in parallel
+	private static final int CHUNK_SIZE = 1 << 10;
+	
+	private final int width;
+	private final int height;
+	private final CellFunction function;
+	private final boolean parallel;
+	
+	/**
+	 * Creates a new grid that evaluates the function sequentially.
+	 */
+	public FunctionDataGrid(int width, int height, CellFunction function) {
+		this(width, height, function, false);
+	}
+	
+	/**
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 * @param function The function computing the value of each cell.
+	 * @param parallel True to evaluate the cells concurrently. The function must then be thread safe.
+	 */
+	public FunctionDataGrid(int width, int height, CellFunction function, boolean parallel) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(null == function) throw new IllegalArgumentException("Missing function.");
+		this.width = width;
+		this.height = height;
+		this.function = function;
+		this.parallel = parallel;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	@Override
+	public double getValue(int x, int y) {
+		return function.getValue(x, y);
+	}
+	
+	@Override
+	public void getValues(int xStart, int yStart, int width, int height, double[] values) {
+		final int count = width * height;
+		if(!parallel || count <= CHUNK_SIZE) {
+			DataGrid.super.getValues(xStart, yStart, width, height, values);
+			return;
+		}
+		
+		//Split the band into runs of cells rather than rows, so that a band of a single wide row is still evaluated concurrently
+		IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk->{
+			final int start = chunk * CHUNK_SIZE;
+			final int end = Math.min(count, start + CHUNK_SIZE);
+			int x = start % width;
+			int y = start / width;
+			for (int i = start; i < end; i++) {
+				values[i] = function.getValue(xStart + x, yStart + y);
+				if(++x == width) {
+					x = 0;
+					y++;
+				}
+			}
+		});
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+}
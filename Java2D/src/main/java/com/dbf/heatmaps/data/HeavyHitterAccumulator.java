@@ -0,0 +1,235 @@
+package com.dbf.heatmaps.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dbf.heatmaps.axis.StringAxis;
+
+/**
+ * Accumulates the values of a Y-axis with an unbounded number of keys, such as client IP addresses or tenants,
+ * while only keeping track of the keys with the largest total values (the heavy hitters).
+ * 
+ * The keys are tracked using the Space-Saving algorithm, with a fixed number of counters. When a new key arrives and all of the counters are in use,
+ * the counter with the smallest total is reassigned to the new key and its values are moved to the "other" row.
+ * The total of any key is over-estimated by at most the smallest total, and every key whose actual total exceeds
+ * the grand total divided by the number of counters is guaranteed to be tracked. Using more counters than the number of rows to display improves the accuracy.
+ * 
+ * Once all of the values have been added, {@link #buildAxis(String, int, String)} builds a {@link StringAxis} of the top keys, with an optional "other" row,
+ * and {@link #buildGrid(StringAxis)} builds the matching data grid. Memory is bounded by the number of counters multiplied by the width of the grid.
+ */
+public class HeavyHitterAccumulator {
+	
+	private final int width;
+	private final int capacity;
+	
+	private final Map<String, Counter> counters;
+	
+	//Min-heap of the counters, ordered by total, so the smallest counter can always be found and reassigned in O(log n)
+	private final Counter[] heap;
+	private int size;
+	
+	//Values of all of the keys that are no longer tracked
+	private final double[] otherRow;
+	
+	private static final class Counter {
+		private String key;
+		private double total;
+		private double error;
+		private int heapIndex;
+		private final double[] row;
+		
+		private Counter(int width) {
+			row = new double[width];
+		}
+	}
+	
+	/**
+	 * @param width The number of columns, corresponding to the number of entries of the X-axis. Must be at least 1.
+	 * @param capacity The number of keys to keep track of. Must be at least 1 and should be larger than the number of rows to display.
+	 */
+	public HeavyHitterAccumulator(int width, int capacity) {
+		if(width < 1) throw new IllegalArgumentException("Width must be at least 1.");
+		if(capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+		this.width = width;
+		this.capacity = capacity;
+		this.counters = new HashMap<String, Counter>(capacity * 2);
+		this.heap = new Counter[capacity];
+		this.otherRow = new double[width];
+		Arrays.fill(otherRow, Double.NaN);
+	}
+	
+	/**
+	 * Adds a value for the given key, in the given column.
+	 * 
+	 * @param x The X-axis index of the value.
+	 * @param key The Y-axis key of the value.
+	 * @param value The value to add to the cell. Must not be negative, since the keys are ranked by their total value. <code>Double.NaN</code> values are ignored.
+	 */
+	public void add(int x, String key, double value) {
+		if(null == key || Double.isNaN(value)) return;
+		if(x < 0 || x >= width) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + width);
+		if(value < 0) throw new IllegalArgumentException("Invalid value: " + value + ". Values must not be negative.");
+		
+		Counter counter = counters.get(key);
+		if(null == counter) counter = assignCounter(key);
+		
+		counter.total += value;
+		counter.row[x] = Double.isNaN(counter.row[x]) ? value : counter.row[x] + value;
+		siftDown(counter.heapIndex);
+	}
+	
+	/**
+	 * @return the keys with the largest estimated totals, in descending order. At most <code>k</code> keys are returned.
+	 */
+	public List<String> getTopKeys(int k) {
+		if(k < 1) throw new IllegalArgumentException("The number of keys must be at least 1.");
+		final List<Counter> sorted = new ArrayList<Counter>(counters.values());
+		Collections.sort(sorted, (a, b)->Double.compare(b.total, a.total));
+		
+		final List<String> keys = new ArrayList<String>(Math.min(k, sorted.size()));
+		for(int i = 0; i < sorted.size() && i < k; i++) {
+			keys.add(sorted.get(i).key);
+		}
+		return keys;
+	}
+	
+	/**
+	 * Builds an axis of the keys with the largest estimated totals, in descending order.
+	 * 
+	 * @param title The title of the axis.
+	 * @param k The maximum number of keys to include.
+	 * @param otherLabel The label of an extra entry, at the end of the axis, which groups the values of all of the other keys. Set to null to leave it out.
+	 */
+	public StringAxis buildAxis(String title, int k, String otherLabel) {
+		final StringAxis axis = new StringAxis(title);
+		for(String key : getTopKeys(k)) {
+			axis.addEntry(key);
+		}
+		if(null != otherLabel) {
+			if(counters.containsKey(otherLabel)) throw new IllegalArgumentException("The other label " + otherLabel + " conflicts with a tracked key.");
+			axis.addEntry(otherLabel);
+		}
+		return axis;
+	}
+	
+	/**
+	 * Builds the data grid matching an axis previously built by {@link #buildAxis(String, int, String)}.
+	 * The values of any tracked key that isn't on the axis are added to the last row, if the axis has an "other" entry.
+	 */
+	public BasicDataGrid buildGrid(StringAxis axis) {
+		final BasicDataGrid grid = new BasicDataGrid(width, axis.getCount());
+		
+		//The "other" entry is the only entry that isn't a tracked key
+		final int lastIndex = axis.getCount() - 1;
+		final boolean hasOther = axis.getCount() > 0 && !counters.containsKey(axis.getOrderedLabels().get(lastIndex));
+		final double[] other = hasOther ? otherRow.clone() : null;
+		
+		for(Counter counter : counters.values()) {
+			final Integer y = axis.getIndex(counter.key);
+			if(null != y && !(hasOther && y == lastIndex)) {
+				for(int x = 0; x < width; x++) {
+					grid.setValue(x, y, counter.row[x]);
+				}
+			} else if (hasOther) {
+				addRow(other, counter.row);
+			}
+		}
+		
+		if(hasOther) {
+			for(int x = 0; x < width; x++) {
+				grid.setValue(x, lastIndex, other[x]);
+			}
+		}
+		return grid;
+	}
+	
+	/**
+	 * @return the estimated total of a key, or zero if the key isn't tracked. The estimate may exceed the actual total by up to {@link #getError(String)}.
+	 */
+	public double getTotal(String key) {
+		final Counter counter = counters.get(key);
+		return null == counter ? 0 : counter.total;
+	}
+	
+	/**
+	 * @return the maximum over-estimation of the total of a key, or zero if the key isn't tracked.
+	 */
+	public double getError(String key) {
+		final Counter counter = counters.get(key);
+		return null == counter ? 0 : counter.error;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	private Counter assignCounter(String key) {
+		Counter counter;
+		if(size < capacity) {
+			counter = new Counter(width);
+			counter.heapIndex = size;
+			heap[size++] = counter;
+			siftUp(counter.heapIndex);
+		} else {
+			//Reassign the smallest counter, the new key inherits its total as a possible error
+			counter = heap[0];
+			counters.remove(counter.key);
+			addRow(otherRow, counter.row);
+			counter.error = counter.total;
+		}
+		Arrays.fill(counter.row, Double.NaN);
+		counter.key = key;
+		counters.put(key, counter);
+		return counter;
+	}
+	
+	private static void addRow(double[] target, double[] row) {
+		for(int x = 0; x < row.length; x++) {
+			if(Double.isNaN(row[x])) continue;
+			target[x] = Double.isNaN(target[x]) ? row[x] : target[x] + row[x];
+		}
+	}
+	
+	/**
+	 * Moves a new counter, with a total of zero, up the heap.
+	 */
+	private void siftUp(int index) {
+		final Counter counter = heap[index];
+		while (index > 0) {
+			final int parent = (index - 1) / 2;
+			if(heap[parent].total <= counter.total) break;
+			heap[index] = heap[parent];
+			heap[index].heapIndex = index;
+			index = parent;
+		}
+		heap[index] = counter;
+		counter.heapIndex = index;
+	}
+	
+	/**
+	 * Moves a counter whose total has increased down the heap.
+	 */
+	private void siftDown(int index) {
+		final Counter counter = heap[index];
+		while (true) {
+			final int left = (index * 2) + 1;
+			if(left >= size) break;
+			final int right = left + 1;
+			final int smallest = (right < size && heap[right].total < heap[left].total) ? right : left;
+			if(heap[smallest].total >= counter.total) break;
+			heap[index] = heap[smallest];
+			heap[index].heapIndex = index;
+			index = smallest;
+		}
+		heap[index] = counter;
+		counter.heapIndex = index;
+	}
+}
@@ -0,0 +1,320 @@
+package com.dbf.heatmaps.data;
+
+import java.util.stream.IntStream;
+
+/**
+ * Orders the rows or columns of a grid so that similar rows or columns are next to each other, as in a clustermap.
+ * 
+ * The pairwise distances are computed in parallel, and the rows or columns are then merged into a tree of clusters using the nearest-neighbour chain algorithm,
+ * which takes O(n^2) time. The order is the order of the leaves of the tree. The resulting order can be applied to the axes using a
+ * {@link com.dbf.heatmaps.axis.ReorderedAxis}, and to a grid using a {@link ReorderedDataGrid}.
+ * 
+ * The distances are stored as single precision values, so clustering 10,000 rows uses about 200MB.
+ */
+public class HierarchicalClustering {
+	
+	private HierarchicalClustering() {}
+	
+	/**
+	 * Orders the rows of a grid, using the Euclidean distance between the values of each pair of rows.
+	 * Empty cells are skipped, and the distance is scaled up by the proportion of the cells that are skipped.
+	 * 
+	 * @return the index of each row of the grid, in their new order.
+	 */
+	public static int[] orderRows(DataGrid grid, Linkage linkage) {
+		if(null == grid) throw new IllegalArgumentException("Missing grid.");
+		final int rows = grid.getHeight();
+		final int columns = grid.getWidth();
+		checkCount(rows);
+		if(((long) rows) * columns > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + columns + "x" + rows);
+		
+		final float[] vectors = new float[rows * columns];
+		final double[] row = new double[columns];
+		for(int y = 0; y < rows; y++) {
+			grid.getValues(0, y, columns, 1, row);
+			for(int x = 0; x < columns; x++) {
+				vectors[(y * columns) + x] = (float) row[x];
+			}
+		}
+		return cluster(computeDistances(vectors, rows, columns), rows, linkage);
+	}
+	
+	/**
+	 * Orders the columns of a grid, using the Euclidean distance between the values of each pair of columns.
+	 * Empty cells are skipped, and the distance is scaled up by the proportion of the cells that are skipped.
+	 * 
+	 * @return the index of each column of the grid, in their new order.
+	 */
+	public static int[] orderColumns(DataGrid grid, Linkage linkage) {
+		if(null == grid) throw new IllegalArgumentException("Missing grid.");
+		final int rows = grid.getHeight();
+		final int columns = grid.getWidth();
+		checkCount(columns);
+		if(((long) rows) * columns > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + columns + "x" + rows);
+		
+		//Transposed, so that the values of each column are contiguous
+		final float[] vectors = new float[rows * columns];
+		final double[] row = new double[columns];
+		for(int y = 0; y < rows; y++) {
+			grid.getValues(0, y, columns, 1, row);
+			for(int x = 0; x < columns; x++) {
+				vectors[(x * rows) + y] = (float) row[x];
+			}
+		}
+		return cluster(computeDistances(vectors, columns, rows), columns, linkage);
+	}
+	
+	/**
+	 * Orders the entries of a square grid of precomputed distances, such as one minus the values of a {@link CorrelationMatrix}.
+	 * Only the cells above the diagonal are read. Empty cells are treated as the largest distance of the grid.
+	 * 
+	 * @return the index of each entry of the grid, in their new order. The same order applies to both the rows and the columns.
+	 */
+	public static int[] orderDistances(DataGrid distances, Linkage linkage) {
+		if(null == distances) throw new IllegalArgumentException("Missing distances.");
+		final int count = distances.getWidth();
+		if(distances.getHeight() != count) throw new IllegalArgumentException("The distance grid must be square.");
+		checkCount(count);
+		
+		final float[] condensed = new float[getCondensedSize(count)];
+		final double[] row = new double[count];
+		for(int y = 0; y < count - 1; y++) {
+			final int length = count - y - 1;
+			distances.getValues(y + 1, y, length, 1, row);
+			final int offset = getIndex(y, y + 1, count);
+			for(int i = 0; i < length; i++) {
+				if(row[i] < 0 || Double.isInfinite(row[i])) throw new IllegalArgumentException("Invalid distance: " + row[i]);
+				condensed[offset + i] = (float) row[i];
+			}
+		}
+		fillMissing(condensed);
+		return cluster(condensed, count, linkage);
+	}
+	
+	private static void checkCount(int count) {
+		if(count < 1) throw new IllegalArgumentException("There must be at least one entry to order.");
+		if(((long) count) * (count - 1) / 2 > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many entries to order: " + count);
+	}
+	
+	/**
+	 * Computes the Euclidean distances between each pair of vectors, in parallel.
+	 * Empty values are skipped, pairs without any values in common are assigned the largest distance.
+	 */
+	private static float[] computeDistances(float[] vectors, int count, int length) {
+		//Vectors without any empty values can use a simpler loop
+		final boolean[] complete = new boolean[count];
+		for(int i = 0; i < count; i++) {
+			complete[i] = true;
+			for(int k = i * length; k < (i + 1) * length; k++) {
+				if(Float.isNaN(vectors[k])) {
+					complete[i] = false;
+					break;
+				}
+			}
+		}
+		
+		final float[] condensed = new float[getCondensedSize(count)];
+		IntStream.range(0, count - 1).parallel().forEach(i->{
+			final int offsetI = i * length;
+			int index = getIndex(i, i + 1, count);
+			for(int j = i + 1; j < count; j++, index++) {
+				final int offsetJ = j * length;
+				if(complete[i] && complete[j]) {
+					condensed[index] = (float) Math.sqrt(getSquaredDistance(vectors, offsetI, offsetJ, length));
+					continue;
+				}
+				double sum = 0;
+				int shared = 0;
+				for(int k = 0; k < length; k++) {
+					final float difference = vectors[offsetI + k] - vectors[offsetJ + k];
+					//NaN if either value is empty
+					if(difference == difference) {
+						sum += difference * difference;
+						shared++;
+					}
+				}
+				condensed[index] = shared == 0 ? Float.NaN : (float) Math.sqrt(sum * length / shared);
+			}
+		});
+		fillMissing(condensed);
+		return condensed;
+	}
+	
+	private static double getSquaredDistance(float[] vectors, int offsetI, int offsetJ, int length) {
+		//Four independent sums, so that consecutive additions don't wait on each other
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int k = 0;
+		for(; k + 3 < length; k += 4) {
+			final double d0 = vectors[offsetI + k]     - vectors[offsetJ + k];
+			final double d1 = vectors[offsetI + k + 1] - vectors[offsetJ + k + 1];
+			final double d2 = vectors[offsetI + k + 2] - vectors[offsetJ + k + 2];
+			final double d3 = vectors[offsetI + k + 3] - vectors[offsetJ + k + 3];
+			s0 += d0 * d0;
+			s1 += d1 * d1;
+			s2 += d2 * d2;
+			s3 += d3 * d3;
+		}
+		for(; k < length; k++) {
+			final double d0 = vectors[offsetI + k] - vectors[offsetJ + k];
+			s0 += d0 * d0;
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+	
+	private static void fillMissing(float[] condensed) {
+		float max = 0;
+		boolean missing = false;
+		for(float distance : condensed) {
+			if(Float.isNaN(distance)) missing = true;
+			else if(distance > max) max = distance;
+		}
+		if(!missing) return;
+		for(int i = 0; i < condensed.length; i++) {
+			if(Float.isNaN(condensed[i])) condensed[i] = max;
+		}
+	}
+	
+	/**
+	 * Clusters the entries using the nearest-neighbour chain algorithm, updating the condensed distances in place as clusters are merged.
+	 * 
+	 * @return the order of the leaves of the resulting tree.
+	 */
+	private static int[] cluster(float[] distances, int count, Linkage linkage) {
+		if(null == linkage) throw new IllegalArgumentException("Missing linkage.");
+		if(count == 1) return new int[] {0};
+		
+		//Ward's method is computed on the squared distances
+		if(linkage == Linkage.WARD) {
+			for(int i = 0; i < distances.length; i++) {
+				distances[i] *= distances[i];
+			}
+		}
+		
+		//The size of the cluster held by each slot, zero once the slot has been merged into another one
+		final int[] sizes = new int[count];
+		//The tree node held by each slot: the leaves are numbered 0 to count - 1, and each merge creates the node count + merge
+		final int[] nodes = new int[count];
+		for(int i = 0; i < count; i++) {
+			sizes[i] = 1;
+			nodes[i] = i;
+		}
+		final int[] left = new int[count - 1];
+		final int[] right = new int[count - 1];
+		
+		final int[] chain = new int[count];
+		int chainLength = 0;
+		int firstActive = 0;
+		for(int merge = 0; merge < count - 1; merge++) {
+			if(chainLength == 0) {
+				while (sizes[firstActive] == 0) firstActive++;
+				chain[chainLength++] = firstActive;
+			}
+			
+			//Follow the chain of nearest neighbours until two clusters are each other's nearest neighbour
+			int a;
+			int b;
+			while (true) {
+				a = chain[chainLength - 1];
+				b = chainLength > 1 ? chain[chainLength - 2] : -1;
+				final int next = findNearest(distances, sizes, count, a, b);
+				if(next == b) break;
+				chain[chainLength++] = next;
+			}
+			chainLength -= 2;
+			
+			//Merge the two clusters into the lower slot
+			final int low = Math.min(a, b);
+			final int high = Math.max(a, b);
+			final float merged = distances[getIndex(low, high, count)];
+			final int sizeLow = sizes[low];
+			final int sizeHigh = sizes[high];
+			for(int k = 0; k < count; k++) {
+				if(k == low || k == high || sizes[k] == 0) continue;
+				final int indexLow = getIndex(low, k, count);
+				distances[indexLow] = updateDistance(linkage, distances[indexLow], distances[getIndex(high, k, count)], merged, sizeLow, sizeHigh, sizes[k]);
+			}
+			left[merge] = nodes[low];
+			right[merge] = nodes[high];
+			nodes[low] = count + merge;
+			sizes[low] = sizeLow + sizeHigh;
+			sizes[high] = 0;
+		}
+		
+		//Collect the leaves of the tree, from left to right
+		final int[] order = new int[count];
+		final int[] stack = new int[count];
+		int stackSize = 0;
+		int position = 0;
+		stack[stackSize++] = (2 * count) - 2;
+		while (stackSize > 0) {
+			final int node = stack[--stackSize];
+			if(node < count) {
+				order[position++] = node;
+			} else {
+				stack[stackSize++] = right[node - count];
+				stack[stackSize++] = left[node - count];
+			}
+		}
+		return order;
+	}
+	
+	/**
+	 * @return the nearest active cluster to the cluster a, or the previous cluster of the chain if it is one of the nearest.
+	 * Resolving ties in favour of the previous cluster guarantees that the chain ends.
+	 */
+	private static int findNearest(float[] distances, int[] sizes, int count, int a, int previous) {
+		float nearest = previous < 0 ? Float.POSITIVE_INFINITY : distances[getIndex(a, previous, count)];
+		int next = previous;
+		
+		//The distances to the clusters before a are in the column of a, each one further down the triangle
+		int index = a - 1;
+		for(int k = 0; k < a; k++) {
+			if(sizes[k] != 0 && distances[index] < nearest) {
+				nearest = distances[index];
+				next = k;
+			}
+			index += count - k - 2;
+		}
+		
+		//The distances to the clusters after a are contiguous, in the row of a
+		index = getIndex(a, a + 1, count);
+		for(int k = a + 1; k < count; k++, index++) {
+			if(sizes[k] != 0 && distances[index] < nearest) {
+				nearest = distances[index];
+				next = k;
+			}
+		}
+		return next;
+	}
+	
+	/**
+	 * The Lance-Williams update of the distance between a cluster k and the cluster formed by merging the clusters a and b.
+	 */
+	private static float updateDistance(Linkage linkage, float distanceA, float distanceB, float distanceAB, int sizeA, int sizeB, int sizeK) {
+		switch (linkage) {
+		case SINGLE:
+			return Math.min(distanceA, distanceB);
+		case COMPLETE:
+			return Math.max(distanceA, distanceB);
+		case AVERAGE:
+			return ((sizeA * distanceA) + (sizeB * distanceB)) / (sizeA + sizeB);
+		case WARD:
+			return (((sizeA + sizeK) * distanceA) + ((sizeB + sizeK) * distanceB) - (sizeK * distanceAB)) / (sizeA + sizeB + sizeK);
+		default:
+			throw new IllegalArgumentException("Unsupported linkage: " + linkage);
+		}
+	}
+	
+	private static int getCondensedSize(int count) {
+		return (int) (((long) count) * (count - 1) / 2);
+	}
+	
+	/**
+	 * @return the index of the distance between the entries i and j, which must be different, within the condensed upper triangle.
+	 */
+	private static int getIndex(int i, int j, int count) {
+		final long low = Math.min(i, j);
+		final long high = Math.max(i, j);
+		return (int) ((low * count) - ((low * (low + 1)) / 2) + (high - low - 1));
+	}
+}
@@ -0,0 +1,142 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * A HyperLogLog sketch, used to estimate the number of distinct items of a stream using a small, fixed amount of memory.
+ * 
+ * The sketch uses <code>2^precision</code> one byte registers, no matter how many items are added.
+ * The standard error of the estimate is approximately <code>1.04 / sqrt(2^precision)</code>, for example 1.6% for the default precision of 12 (4KB).
+ * Sketches of the same precision can be merged, for example to combine sketches built by different threads or on different nodes.
+ */
+public class HyperLogLog {
+	
+	public static final int DEFAULT_PRECISION = 12;
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	
+	private final int precision;
+	private final byte[] registers;
+	
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+	
+	/**
+	 * @param precision The number of bits used to select a register, between 4 and 18 inclusively. Each additional bit doubles the memory used and improves the accuracy by about 30%.
+	 */
+	public HyperLogLog(int precision) {
+		if(precision < MIN_PRECISION || precision > MAX_PRECISION) throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ".");
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+	
+	/**
+	 * Adds an item to the sketch. Items are considered to be the same if they are equal.
+	 * Strings and other character sequences are hashed on their content, whole numbers on their value, and other items using their <code>hashCode()</code>.
+	 */
+	public void add(Object item) {
+		if(null == item) return;
+		if(item instanceof CharSequence) {
+			addHash(hash((CharSequence) item));
+		} else if (item instanceof Number && !(item instanceof Double || item instanceof Float)) {
+			add(((Number) item).longValue());
+		} else {
+			add((long) item.hashCode());
+		}
+	}
+	
+	/**
+	 * Adds an item, identified by a numeric ID, to the sketch.
+	 */
+	public void add(long item) {
+		addHash(mix(item));
+	}
+	
+	/**
+	 * Adds all of the items of another sketch to this one. Both sketches must have the same precision.
+	 */
+	public void merge(HyperLogLog other) {
+		if(null == other) return;
+		if(other.precision != precision) throw new IllegalArgumentException("Cannot merge sketches with different precisions.");
+		for(int i = 0; i < registers.length; i++) {
+			if(other.registers[i] > registers[i]) registers[i] = other.registers[i];
+		}
+	}
+	
+	/**
+	 * @return the estimated number of distinct items added to the sketch.
+	 */
+	public double getEstimate() {
+		final int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for(int i = 0; i < m; i++) {
+			sum += 1.0 / (1L << registers[i]);
+			if(registers[i] == 0) zeros++;
+		}
+		
+		final double estimate = getAlpha(m) * m * m / sum;
+		
+		//Small cardinalities are more accurately estimated using linear counting
+		if(estimate <= 2.5 * m && zeros > 0) return m * Math.log((double) m / zeros);
+		return estimate;
+	}
+	
+	/**
+	 * @return true if no items have been added to the sketch.
+	 */
+	public boolean isEmpty() {
+		for(int i = 0; i < registers.length; i++) {
+			if(registers[i] != 0) return false;
+		}
+		return true;
+	}
+	
+	public int getPrecision() {
+		return precision;
+	}
+	
+	private void addHash(long hash) {
+		//The first bits select the register, the position of the first set bit of the remaining bits is the rank
+		final int index = (int) (hash >>> (64 - precision));
+		final long remaining = (hash << precision) | (1L << (precision - 1));
+		final byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+		if(rank > registers[index]) registers[index] = rank;
+	}
+	
+	private static double getAlpha(int m) {
+		switch (m) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + (1.079 / m));
+		}
+	}
+	
+	/**
+	 * 64-bit FNV-1a hash of the characters, followed by a final mix to spread the bits.
+	 */
+	private static long hash(CharSequence chars) {
+		long hash = 0xcbf29ce484222325L;
+		for(int i = 0; i < chars.length(); i++) {
+			hash ^= chars.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+	
+	/**
+	 * The finalizer of the MurmurHash3 64-bit hash, so that similar inputs produce very different hashes.
+	 */
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
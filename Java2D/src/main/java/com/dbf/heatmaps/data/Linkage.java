@@ -0,0 +1,23 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * The method used by {@link HierarchicalClustering} to determine the distance between two clusters, from the distances between their members.
+ */
+public enum Linkage {
+	/**
+	 * The smallest distance between the members of the two clusters. Tends to produce long chains of clusters.
+	 */
+	SINGLE,
+	/**
+	 * The largest distance between the members of the two clusters. Tends to produce compact clusters.
+	 */
+	COMPLETE,
+	/**
+	 * The mean distance between the members of the two clusters.
+	 */
+	AVERAGE,
+	/**
+	 * Ward's minimum variance method, which merges the two clusters that least increase the total variance. Intended for Euclidean distances.
+	 */
+	WARD;
+}
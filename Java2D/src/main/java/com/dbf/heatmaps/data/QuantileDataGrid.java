@@ -0,0 +1,145 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+
+/**
+ * A grid where each cell summarizes all of its samples using a {@link QuantileSketch}, such as the latencies of an endpoint for each minute.
+ * 
+ * The memory used by each cell is bounded no matter how many samples are added. Any percentile can then be rendered using {@link #percentile(double)},
+ * so switching between p50 and p99 doesn't require the samples to be added again. Cells without any samples are empty.
+ */
+public class QuantileDataGrid {
+	
+	private final int width;
+	private final int height;
+	private final double relativeAccuracy;
+	private final int maxBuckets;
+	
+	//Created on the first sample of each cell
+	private final QuantileSketch[] sketches;
+	
+	/**
+	 * Creates a new grid with all of the cells empty, using the default sketch accuracy.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 */
+	public QuantileDataGrid(int width, int height) {
+		this(width, height, QuantileSketch.DEFAULT_RELATIVE_ACCURACY, QuantileSketch.DEFAULT_MAX_BUCKETS);
+	}
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 * @param relativeAccuracy The maximum relative error of the percentiles, between 0 and 1 exclusively.
+	 * @param maxBuckets The maximum number of buckets of each cell, which bounds the memory used.
+	 */
+	public QuantileDataGrid(int width, int height, double relativeAccuracy, int maxBuckets) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) width) * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		new QuantileSketch(relativeAccuracy, maxBuckets); //Validates the sketch parameters up front
+		this.width = width;
+		this.height = height;
+		this.relativeAccuracy = relativeAccuracy;
+		this.maxBuckets = maxBuckets;
+		this.sketches = new QuantileSketch[width * height];
+	}
+	
+	/**
+	 * Adds a single sample to a cell. <code>Double.NaN</code> samples are ignored.
+	 */
+	public void add(int x, int y, double value) {
+		if(Double.isNaN(value)) return;
+		getOrCreateSketch(x, y).add(value);
+	}
+	
+	/**
+	 * Adds all of the samples of another grid, of the same dimensions and accuracy, to this one.
+	 * This is useful to combine grids that were populated separately, for example by different threads.
+	 */
+	public void merge(QuantileDataGrid other) {
+		if(other.width != width || other.height != height) throw new IllegalArgumentException("Cannot merge grids with different dimensions.");
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				final QuantileSketch sketch = other.sketches[(y * width) + x];
+				if(null != sketch) getOrCreateSketch(x, y).merge(sketch);
+			}
+		}
+	}
+	
+	/**
+	 * @return the sketch of a cell, or null if the cell is empty.
+	 */
+	public QuantileSketch getSketch(int x, int y) {
+		return sketches[getIndex(x, y)];
+	}
+	
+	/**
+	 * @param percentile The percentile to estimate, between 0 and 100 inclusively. For example, 99 for p99.
+	 * 
+	 * @return the estimated percentile of a cell, or <code>Double.NaN</code> if the cell is empty.
+	 */
+	public double getPercentile(int x, int y, double percentile) {
+		final QuantileSketch sketch = getSketch(x, y);
+		return null == sketch ? Double.NaN : sketch.getQuantile(percentile / 100);
+	}
+	
+	/**
+	 * @param percentile The percentile to colour the heat map by, between 0 and 100 inclusively. For example, 99 for p99.
+	 * 
+	 * @return a read-only view of the grid where the value of each cell is its estimated percentile. The percentiles are estimated as they are read by the renderer.
+	 */
+	public DataGrid percentile(double percentile) {
+		if(!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		return new DataGrid() {
+			@Override
+			public int getWidth() {
+				return width;
+			}
+			
+			@Override
+			public int getHeight() {
+				return height;
+			}
+			
+			@Override
+			public double getValue(int x, int y) {
+				return getPercentile(x, y, percentile);
+			}
+		};
+	}
+	
+	/**
+	 * Empties all of the cells of the grid.
+	 */
+	public void clear() {
+		Arrays.fill(sketches, null);
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	private QuantileSketch getOrCreateSketch(int x, int y) {
+		final int i = getIndex(x, y);
+		QuantileSketch sketch = sketches[i];
+		if(null == sketch) {
+			sketch = new QuantileSketch(relativeAccuracy, maxBuckets);
+			sketches[i] = sketch;
+		}
+		return sketch;
+	}
+	
+	private int getIndex(int x, int y) {
+		if(x < 0 || x >= width) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + width);
+		if(y < 0 || y >= height) throw new IndexOutOfBoundsException("Row: " + y + ", Height: " + height);
+		return (y * width) + x;
+	}
+}
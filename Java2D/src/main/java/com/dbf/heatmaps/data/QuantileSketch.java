@@ -0,0 +1,222 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * A small, mergeable summary of a stream of values, such as latencies, that can estimate any quantile of the stream.
+ * 
+ * The values are counted in logarithmically sized buckets, so every estimate is within a fixed relative error of an actual value of the stream.
+ * Positive and negative values are counted separately, by magnitude.
+ * Memory is bounded by the maximum number of buckets: when the range of magnitudes becomes too wide, the buckets of the smallest magnitudes are merged together,
+ * which preserves the accuracy of the quantiles of the largest magnitudes (p90, p99, etc.) at the expense of the values closest to zero.
+ */
+public class QuantileSketch {
+	
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+	public static final int DEFAULT_MAX_BUCKETS = 2048;
+	
+	//Number of extra buckets allocated on each side when the range needs to grow
+	private static final int BUCKET_SLACK = 8;
+	
+	private final double relativeAccuracy;
+	private final int maxBuckets;
+	private final double gamma;
+	private final double logGamma;
+	
+	private final BucketStore positive;
+	private final BucketStore negative;
+	private long zeroCount;
+	private long count;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	
+	public QuantileSketch() {
+		this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+	}
+	
+	/**
+	 * @param relativeAccuracy The maximum relative error of the estimates, between 0 and 1 exclusively. For example, 0.01 for 1%.
+	 * @param maxBuckets The maximum number of buckets for each of the positive and negative values, which bounds the memory used. Must be at least 1.
+	 */
+	public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+		if(!(relativeAccuracy > 0 && relativeAccuracy < 1)) throw new IllegalArgumentException("Relative accuracy must be between 0 and 1.");
+		if(maxBuckets < 1) throw new IllegalArgumentException("Maximum number of buckets must be at least 1.");
+		this.relativeAccuracy = relativeAccuracy;
+		this.maxBuckets = maxBuckets;
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.logGamma = Math.log(gamma);
+		this.positive = new BucketStore(maxBuckets);
+		this.negative = new BucketStore(maxBuckets);
+	}
+	
+	/**
+	 * Adds a single value to the sketch. <code>Double.NaN</code> values are ignored.
+	 */
+	public void add(double value) {
+		add(value, 1);
+	}
+	
+	/**
+	 * Adds the same value multiple times to the sketch. <code>Double.NaN</code> values are ignored.
+	 */
+	public void add(double value, long occurrences) {
+		if(Double.isNaN(value) || occurrences == 0) return;
+		if(Double.isInfinite(value)) throw new IllegalArgumentException("Invalid value: " + value + ". Only finite values are supported.");
+		if(occurrences < 0) throw new IllegalArgumentException("Occurrences must not be negative.");
+		
+		if(Math.abs(value) < Double.MIN_NORMAL) {
+			zeroCount += occurrences;
+		} else if (value > 0) {
+			positive.add(getBucketIndex(value), occurrences);
+		} else {
+			negative.add(getBucketIndex(-value), occurrences);
+		}
+		count += occurrences;
+		if(value < min) min = value;
+		if(value > max) max = value;
+	}
+	
+	/**
+	 * Adds all of the values of another sketch to this one, as if they had been added directly.
+	 * The other sketch must have the same relative accuracy.
+	 */
+	public void merge(QuantileSketch other) {
+		if(null == other || other.count == 0) return;
+		if(other.relativeAccuracy != relativeAccuracy) throw new IllegalArgumentException("Cannot merge sketches with different relative accuracies.");
+		
+		positive.merge(other.positive);
+		negative.merge(other.negative);
+		zeroCount += other.zeroCount;
+		count += other.count;
+		if(other.min < min) min = other.min;
+		if(other.max > max) max = other.max;
+	}
+	
+	/**
+	 * @param quantile The quantile to estimate, between 0 and 1 inclusively. For example, 0.99 for the 99th percentile.
+	 * 
+	 * @return the estimated value of the quantile, or <code>Double.NaN</code> if the sketch is empty.
+	 */
+	public double getQuantile(double quantile) {
+		if(!(quantile >= 0 && quantile <= 1)) throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+		if(count == 0) return Double.NaN;
+		if(quantile == 0) return min;
+		if(quantile == 1) return max;
+		
+		//Walk the negative values from the largest magnitude down, then zero, then the positive values from the smallest magnitude up
+		final double rank = quantile * (count - 1);
+		long cumulative = 0;
+		if(null != negative.counts) {
+			for(int i = negative.counts.length - 1; i >= 0; i--) {
+				cumulative += negative.counts[i];
+				if(rank < cumulative) return clamp(-getBucketValue(negative.offset + i));
+			}
+		}
+		cumulative += zeroCount;
+		if(rank < cumulative) return clamp(0);
+		if(null != positive.counts) {
+			for(int i = 0; i < positive.counts.length; i++) {
+				cumulative += positive.counts[i];
+				if(rank < cumulative) return clamp(getBucketValue(positive.offset + i));
+			}
+		}
+		return max;
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return the smallest value added, or <code>Double.NaN</code> if the sketch is empty.
+	 */
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+	
+	/**
+	 * @return the largest value added, or <code>Double.NaN</code> if the sketch is empty.
+	 */
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+	
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+	
+	public int getMaxBuckets() {
+		return maxBuckets;
+	}
+	
+	private int getBucketIndex(double magnitude) {
+		return (int) Math.ceil(Math.log(magnitude) / logGamma);
+	}
+	
+	/**
+	 * @return the midpoint of the bucket, in relative terms, which is within the relative accuracy of every value in the bucket.
+	 */
+	private double getBucketValue(int index) {
+		return 2 * Math.pow(gamma, index) / (gamma + 1);
+	}
+	
+	private double clamp(double estimate) {
+		return Math.max(min, Math.min(max, estimate));
+	}
+	
+	/**
+	 * The counts of a contiguous range of buckets, which grows as needed up to the maximum number of buckets.
+	 */
+	private static final class BucketStore {
+		private final int maxBuckets;
+		
+		//counts[i] is the number of values in the bucket with index (offset + i)
+		private long[] counts;
+		private int offset;
+		
+		private BucketStore(int maxBuckets) {
+			this.maxBuckets = maxBuckets;
+		}
+		
+		private void add(int index, long occurrences) {
+			if(null == counts || index < offset || index >= offset + counts.length) {
+				index = grow(index);
+			}
+			counts[index - offset] += occurrences;
+		}
+		
+		private void merge(BucketStore other) {
+			if(null == other.counts) return;
+			for(int i = 0; i < other.counts.length; i++) {
+				if(other.counts[i] > 0) add(other.offset + i, other.counts[i]);
+			}
+		}
+		
+		/**
+		 * Grows the range of buckets to include the given bucket index, merging the lowest buckets if needed to stay within the maximum number of buckets.
+		 * 
+		 * @return the index of the bucket to use, which may differ from the requested bucket if it was merged.
+		 */
+		private int grow(int index) {
+			if(null == counts) {
+				final int length = Math.min(maxBuckets, 1 + (2 * BUCKET_SLACK));
+				offset = index - (length / 2);
+				counts = new long[length];
+				return index;
+			}
+			
+			//Leave some room to grow in the same direction
+			final int end = offset + counts.length;
+			int newStart = index < offset ? index - BUCKET_SLACK : offset;
+			final int newEnd = index >= end ? index + 1 + BUCKET_SLACK : end;
+			if(newEnd - newStart > maxBuckets) newStart = newEnd - maxBuckets;
+			
+			final long[] newCounts = new long[newEnd - newStart];
+			for(int i = 0; i < counts.length; i++) {
+				//Any bucket that falls below the new range is merged into the lowest bucket
+				newCounts[Math.max(0, offset + i - newStart)] += counts[i];
+			}
+			counts = newCounts;
+			offset = newStart;
+			return Math.max(index, newStart);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * A view of a {@link DataGrid} with its columns and rows rearranged, for example in the order produced by {@link HierarchicalClustering}.
+ * 
+ * No values are copied: the cell (x, y) of the view is the cell <code>(xOrder[x], yOrder[y])</code> of the source grid.
+ */
+public class ReorderedDataGrid implements DataGrid {
+	
+	private final DataGrid source;
+	private final int[] xOrder;
+	private final int[] yOrder;
+	
+	/**
+	 * @param source The grid to rearrange.
+	 * @param xOrder The source column of each column of the view, or null to keep the columns in their current order.
+	 * @param yOrder The source row of each row of the view, or null to keep the rows in their current order.
+	 */
+	public ReorderedDataGrid(DataGrid source, int[] xOrder, int[] yOrder) {
+		if(null == source) throw new IllegalArgumentException("Missing source grid.");
+		this.source = source;
+		this.xOrder = null == xOrder ? identity(source.getWidth()) : checkOrder(xOrder, source.getWidth());
+		this.yOrder = null == yOrder ? identity(source.getHeight()) : checkOrder(yOrder, source.getHeight());
+	}
+	
+	@Override
+	public int getWidth() {
+		return xOrder.length;
+	}
+	
+	@Override
+	public int getHeight() {
+		return yOrder.length;
+	}
+	
+	@Override
+	public double getValue(int x, int y) {
+		return source.getValue(xOrder[x], yOrder[y]);
+	}
+	
+	/**
+	 * Makes sure the order contains each index from zero to <code>count - 1</code> exactly once.
+	 * 
+	 * @return a copy of the order.
+	 */
+	static int[] checkOrder(int[] order, int count) {
+		if(order.length != count) throw new IllegalArgumentException("The order has " + order.length + " indices, expected " + count + ".");
+		final boolean[] seen = new boolean[count];
+		for(int i : order) {
+			if(i < 0 || i >= count) throw new IllegalArgumentException("Invalid index in order: " + i);
+			if(seen[i]) throw new IllegalArgumentException("Duplicate index in order: " + i);
+			seen[i] = true;
+		}
+		return order.clone();
+	}
+	
+	private static int[] identity(int count) {
+		final int[] order = new int[count];
+		for(int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+}
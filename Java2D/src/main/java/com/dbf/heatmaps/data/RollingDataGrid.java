@@ -0,0 +1,147 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+
+import com.dbf.heatmaps.axis.RollingAxis;
+
+/**
+ * A {@link DataGrid} holding a fixed maximum number of columns, such as the last N minutes of values for each host.
+ * 
+ * The columns are stored in a circular buffer, shared with a {@link RollingAxis} used as the X-axis.
+ * Appending a new column only costs one column: once the grid is full, the oldest column is evicted and overwritten in place,
+ * and the remaining columns, along with their axis labels, move down by one index without being copied.
+ * The renderer reads the columns in order from oldest to newest, directly from the circular buffer.
+ */
+public class RollingDataGrid<T> implements DataGrid {
+	
+	private final int capacity;
+	private final int height;
+	private final RollingAxis<T> xAxis;
+	
+	//Stored column by column, so a whole column can be replaced at once
+	private final double[] values;
+	
+	//Position of the oldest column within the circular buffer
+	private int head;
+	
+	/**
+	 * Creates a new empty grid, with a new X-axis.
+	 * 
+	 * @param capacity The maximum number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 */
+	public RollingDataGrid(int capacity, int height) {
+		this(new RollingAxis<T>(capacity), height);
+	}
+	
+	/**
+	 * Creates a new empty grid, whose columns follow the entries of the provided X-axis.
+	 * The axis must be empty and must only be modified through this grid from now on.
+	 * 
+	 * @param xAxis The X-axis of the heat map.
+	 * @param height The number of rows, must be at least 1.
+	 */
+	public RollingDataGrid(RollingAxis<T> xAxis, int height) {
+		if(null == xAxis) throw new IllegalArgumentException("Missing X-axis.");
+		if(xAxis.getCount() > 0) throw new IllegalArgumentException("The X-axis must be empty.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) xAxis.getCapacity()) * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + xAxis.getCapacity() + "x" + height);
+		this.xAxis = xAxis;
+		this.capacity = xAxis.getCapacity();
+		this.height = height;
+		this.values = new double[capacity * height];
+		Arrays.fill(values, Double.NaN);
+	}
+	
+	/**
+	 * Appends a new empty column at the end of the grid, evicting the oldest column if the grid is already full.
+	 * 
+	 * @param entry The X-axis entry of the new column. Must not already be present on the axis.
+	 * @param label The X-axis label of the new column.
+	 * 
+	 * @return the X-axis index of the new column, which is always the last one.
+	 */
+	public int appendColumn(T entry, String label) {
+		if(null != xAxis.getIndex(entry)) throw new IllegalArgumentException("The entry " + entry + " is already present on the X-axis.");
+		
+		//The slot of the oldest column is reused when the grid is full
+		if(xAxis.isFull()) head = (head + 1) % capacity;
+		xAxis.addEntry(entry, label);
+		final int x = xAxis.getCount() - 1;
+		final int start = getColumnStart(x);
+		Arrays.fill(values, start, start + height, Double.NaN);
+		return x;
+	}
+	
+	/**
+	 * Appends a new column at the end of the grid, evicting the oldest column if the grid is already full.
+	 * 
+	 * @param entry The X-axis entry of the new column. Must not already be present on the axis.
+	 * @param label The X-axis label of the new column.
+	 * @param column The values of the new column, one for each row. <code>Double.NaN</code> represents an empty cell.
+	 * 
+	 * @return the X-axis index of the new column, which is always the last one.
+	 */
+	public int appendColumn(T entry, String label, double[] column) {
+		if(null == column || column.length != height) throw new IllegalArgumentException("The column must have exactly " + height + " values.");
+		final int x = appendColumn(entry, label);
+		System.arraycopy(column, 0, values, getColumnStart(x), height);
+		return x;
+	}
+	
+	public int appendColumn(T entry) {
+		return appendColumn(entry, null == entry ? "" : entry.toString());
+	}
+	
+	/**
+	 * @return the X-axis of the grid, to be used as the X-axis of the heat map. Its labels always follow the columns of the grid.
+	 */
+	public RollingAxis<T> getXAxis() {
+		return xAxis;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return the current number of columns, which grows until the grid is full.
+	 */
+	@Override
+	public int getWidth() {
+		return xAxis.getCount();
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	@Override
+	public double getValue(int x, int y) {
+		return values[getColumnStart(x) + y];
+	}
+	
+	/**
+	 * Sets the value of a single cell of an existing column. Setting a value of <code>Double.NaN</code> empties the cell.
+	 */
+	public void setValue(int x, int y, double value) {
+		if(x < 0 || x >= xAxis.getCount()) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + xAxis.getCount());
+		if(y < 0 || y >= height) throw new IndexOutOfBoundsException("Row: " + y + ", Height: " + height);
+		values[getColumnStart(x) + y] = value;
+	}
+	
+	/**
+	 * Empties a single cell of an existing column.
+	 */
+	public void clearValue(int x, int y) {
+		setValue(x, y, Double.NaN);
+	}
+	
+	/**
+	 * @return the position of the first value of the column within the circular buffer.
+	 */
+	private int getColumnStart(int x) {
+		return ((head + x) % capacity) * height;
+	}
+}
@@ -0,0 +1,142 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * Maintains the minimum and maximum values over a sliding window of the most recent frames of a live or animated heat map.
+ * 
+ * Using the same colour scale for every frame within the window avoids scale jitter between frames.
+ * The bounds are maintained using a pair of monotonic queues, so adding a frame costs amortized O(1) and the bounds are always available in O(1).
+ */
+public class SlidingWindowBounds {
+	
+	private final int frames;
+	private final MonotonicQueue minQueue;
+	private final MonotonicQueue maxQueue;
+	private long frameCount;
+	
+	/**
+	 * @param frames The number of most recent frames to include in the bounds. Must be at least 1.
+	 */
+	public SlidingWindowBounds(int frames) {
+		if(frames < 1) throw new IllegalArgumentException("The number of frames must be at least 1.");
+		this.frames = frames;
+		this.minQueue = new MonotonicQueue(frames, true);
+		this.maxQueue = new MonotonicQueue(frames, false);
+	}
+	
+	/**
+	 * Adds the bounds of a new frame, evicting the oldest frame if the window is full.
+	 * 
+	 * @param min The smallest value of the frame, or <code>Double.NaN</code> if the frame is empty.
+	 * @param max The largest value of the frame, or <code>Double.NaN</code> if the frame is empty.
+	 */
+	public void addFrame(double min, double max) {
+		final long frame = frameCount++;
+		minQueue.add(frame, min);
+		maxQueue.add(frame, max);
+	}
+	
+	/**
+	 * Adds the bounds of a new frame, evicting the oldest frame if the window is full.
+	 */
+	public void addFrame(BoundedDataGrid grid) {
+		addFrame(grid.getMinValue(), grid.getMaxValue());
+	}
+	
+	/**
+	 * @return the smallest value of all of the frames within the window, or <code>Double.NaN</code> if they are all empty.
+	 */
+	public double getMinValue() {
+		return minQueue.getBest();
+	}
+	
+	/**
+	 * @return the largest value of all of the frames within the window, or <code>Double.NaN</code> if they are all empty.
+	 */
+	public double getMaxValue() {
+		return maxQueue.getBest();
+	}
+	
+	public int getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * @return a view of the grid that reports the bounds of the window, rather than the bounds of the grid itself, so the renderer uses them for the colour scale.
+	 * The latest frame of the grid should already have been added, so that all of its values are within the bounds.
+	 */
+	public BoundedDataGrid apply(DataGrid grid) {
+		return new BoundedDataGrid() {
+			@Override
+			public int getWidth() {
+				return grid.getWidth();
+			}
+			
+			@Override
+			public int getHeight() {
+				return grid.getHeight();
+			}
+			
+			@Override
+			public double getValue(int x, int y) {
+				return grid.getValue(x, y);
+			}
+			
+			@Override
+			public double getMinValue() {
+				return SlidingWindowBounds.this.getMinValue();
+			}
+			
+			@Override
+			public double getMaxValue() {
+				return SlidingWindowBounds.this.getMaxValue();
+			}
+		};
+	}
+	
+	/**
+	 * A queue of the values of the frames that may still become the best (smallest or largest) value of the window,
+	 * in order of both frame and value. Values that can never be the best again, because a newer frame has a better value, are dropped.
+	 */
+	private static final class MonotonicQueue {
+		private final int frames;
+		private final boolean minimum;
+		
+		//Circular buffer, at most one entry per frame of the window
+		private final long[] frameNumbers;
+		private final double[] values;
+		private int head;
+		private int size;
+		
+		private MonotonicQueue(int frames, boolean minimum) {
+			this.frames = frames;
+			this.minimum = minimum;
+			this.frameNumbers = new long[frames];
+			this.values = new double[frames];
+		}
+		
+		private void add(long frame, double value) {
+			//Drop the oldest entry if it has left the window
+			if(size > 0 && frameNumbers[head] <= frame - frames) {
+				head = (head + 1) % frames;
+				size--;
+			}
+			if(Double.isNaN(value)) return;
+			
+			//Drop the newest entries that are no better than the new value
+			while (size > 0) {
+				final double last = values[(head + size - 1) % frames];
+				if(minimum ? last < value : last > value) break;
+				size--;
+			}
+			final int tail = (head + size) % frames;
+			frameNumbers[tail] = frame;
+			values[tail] = value;
+			size++;
+		}
+		
+		private double getBest() {
+			//The oldest entry is the best one, and it's always within the window
+			return size == 0 ? Double.NaN : values[head];
+		}
+	}
+}
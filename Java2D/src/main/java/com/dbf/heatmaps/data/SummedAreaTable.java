@@ -0,0 +1,188 @@
+package com.dbf.heatmaps.data;
+
+/**
+ * A summed-area table (integral image) built over a {@link DataGrid}.
+ * 
+ * Once built, the sum, count and mean of the values over any rectangular region of the grid can be queried in constant time,
+ * without visiting the cells of the grid again. Empty cells contribute nothing to the sums and are excluded from the counts.
+ * 
+ * The table does not track changes made to the underlying grid. After modifying the grid, call
+ * {@link #rebuildRows(int, int)} with the range of rows that changed.
+ */
+public class SummedAreaTable {
+	
+	private final DataGrid grid;
+	private final int width;
+	private final int height;
+	
+	//Both tables have an extra leading row and column of zeros to avoid bounds checks when querying.
+	//Entry (x+1, y+1) holds the total of all of the cells from (0, 0) to (x, y), inclusive.
+	private final int stride;
+	private final double[] sums;
+	private final int[] counts;
+	
+	/**
+	 * Builds the summed-area table in a single pass over the grid.
+	 * 
+	 * @param grid The source grid.
+	 */
+	public SummedAreaTable(DataGrid grid) {
+		if(null == grid) throw new IllegalArgumentException("Missing grid.");
+		this.grid = grid;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.stride = width + 1;
+		
+		final long size = ((long) stride) * (height + 1);
+		if(size > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		this.sums = new double[(int) size];
+		this.counts = new int[(int) size];
+		
+		buildRows(0, height - 1);
+	}
+	
+	/**
+	 * Updates the summed-area table after some rows of the grid have changed.
+	 * 
+	 * Only the changed rows are read back from the grid. The rows that follow are shifted by the per-column
+	 * difference of the last changed row, which costs one addition per cell and no grid reads.
+	 * 
+	 * @param firstRow The first changed row, inclusive.
+	 * @param lastRow The last changed row, inclusive.
+	 */
+	public void rebuildRows(int firstRow, int lastRow) {
+		if(firstRow > lastRow) {
+			final int temp = firstRow;
+			firstRow = lastRow;
+			lastRow = temp;
+		}
+		checkRow(firstRow);
+		checkRow(lastRow);
+		
+		//Remember the old totals at the last changed row, so we can shift the subsequent rows by the difference
+		final int lastRowOffset = (lastRow + 1) * stride;
+		final double[] oldSums = new double[stride];
+		final int[] oldCounts = new int[stride];
+		System.arraycopy(sums, lastRowOffset, oldSums, 0, stride);
+		System.arraycopy(counts, lastRowOffset, oldCounts, 0, stride);
+		
+		buildRows(firstRow, lastRow);
+		
+		if(lastRow == height - 1) return;
+		
+		for (int x = 1; x <= width; x++) {
+			oldSums[x] = sums[lastRowOffset + x] - oldSums[x];
+			oldCounts[x] = counts[lastRowOffset + x] - oldCounts[x];
+		}
+		
+		for (int y = lastRow + 2; y <= height; y++) {
+			final int rowOffset = y * stride;
+			for (int x = 1; x <= width; x++) {
+				sums[rowOffset + x] += oldSums[x];
+				counts[rowOffset + x] += oldCounts[x];
+			}
+		}
+	}
+	
+	/**
+	 * Convenience method for when a single row has changed.
+	 * 
+	 * @see #rebuildRows(int, int)
+	 */
+	public void rebuildRow(int row) {
+		rebuildRows(row, row);
+	}
+	
+	private void buildRows(int firstRow, int lastRow) {
+		for (int y = firstRow; y <= lastRow; y++) {
+			final int rowOffset = (y + 1) * stride;
+			final int previousRowOffset = y * stride;
+			double rowSum = 0;
+			int rowCount = 0;
+			for (int x = 0; x < width; x++) {
+				final double value = grid.getValue(x, y);
+				if(!Double.isNaN(value)) {
+					rowSum += value;
+					rowCount++;
+				}
+				sums[rowOffset + x + 1]   = sums[previousRowOffset + x + 1] + rowSum;
+				counts[rowOffset + x + 1] = counts[previousRowOffset + x + 1] + rowCount;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the sum of all of the values in the rectangular region between the two corners, inclusive.
+	 * 
+	 * @param x0 The X-axis index of the first corner.
+	 * @param y0 The Y-axis index of the first corner.
+	 * @param x1 The X-axis index of the opposite corner.
+	 * @param y1 The Y-axis index of the opposite corner.
+	 * 
+	 * @return the sum of the values, or zero if the region contains no values.
+	 * 
+	 * @throws IllegalArgumentException if any index is outside the grid.
+	 */
+	public double sum(int x0, int y0, int x1, int y1) {
+		checkColumn(x0);
+		checkColumn(x1);
+		checkRow(y0);
+		checkRow(y1);
+		
+		final int left   = Math.min(x0, x1);
+		final int right  = Math.max(x0, x1) + 1;
+		final int top    = Math.min(y0, y1) * stride;
+		final int bottom = (Math.max(y0, y1) + 1) * stride;
+		return sums[bottom + right] - sums[top + right] - sums[bottom + left] + sums[top + left];
+	}
+	
+	/**
+	 * Returns the number of non-empty cells in the rectangular region between the two corners, inclusive.
+	 * 
+	 * @see #sum(int, int, int, int)
+	 */
+	public int count(int x0, int y0, int x1, int y1) {
+		checkColumn(x0);
+		checkColumn(x1);
+		checkRow(y0);
+		checkRow(y1);
+		
+		final int left   = Math.min(x0, x1);
+		final int right  = Math.max(x0, x1) + 1;
+		final int top    = Math.min(y0, y1) * stride;
+		final int bottom = (Math.max(y0, y1) + 1) * stride;
+		return counts[bottom + right] - counts[top + right] - counts[bottom + left] + counts[top + left];
+	}
+	
+	/**
+	 * Returns the mean of the values in the rectangular region between the two corners, inclusive.
+	 * 
+	 * @return the mean of the values, or <code>Double.NaN</code> if the region contains no values.
+	 * 
+	 * @see #sum(int, int, int, int)
+	 */
+	public double mean(int x0, int y0, int x1, int y1) {
+		final int count = count(x0, y0, x1, y1);
+		return count == 0 ? Double.NaN : sum(x0, y0, x1, y1) / count;
+	}
+	
+	private void checkColumn(int x) {
+		if(x < 0 || x >= width) throw new IllegalArgumentException("Column index is out of bounds: " + x);
+	}
+	
+	private void checkRow(int y) {
+		if(y < 0 || y >= height) throw new IllegalArgumentException("Row index is out of bounds: " + y);
+	}
+
+	public DataGrid getGrid() {
+		return grid;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+}
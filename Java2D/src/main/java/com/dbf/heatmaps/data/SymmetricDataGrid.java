@@ -0,0 +1,120 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.dbf.heatmaps.axis.Axis;
+
+/**
+ * A square {@link DataGrid} where the value of the cell (x, y) is always the same as the value of the cell (y, x),
+ * such as a core-to-core latency map, a correlation matrix or a distance matrix.
+ * 
+ * Only one triangle of the grid, including the diagonal, is stored, packed into a single primitive array.
+ * This halves the memory used compared to a {@link BasicDataGrid}. The renderer also determines the colour of each pair of cells only once,
+ * and draws it in both cells.
+ */
+public class SymmetricDataGrid implements DataGrid {
+	
+	private final int size;
+	
+	//The upper triangle, stored row by row: row i holds the cells (i, i) to (size - 1, i)
+	private final double[] values;
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param size The number of rows and columns, must be at least 1.
+	 */
+	public SymmetricDataGrid(int size) {
+		if(size < 1) throw new IllegalArgumentException("Grid size must be at least 1.");
+		if(((long) size) * (size + 1) / 2 > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + size + "x" + size);
+		this.size = size;
+		this.values = new double[(int) (((long) size) * (size + 1) / 2)];
+		Arrays.fill(values, Double.NaN);
+	}
+	
+	/**
+	 * Creates a new grid using the entries of the provided axis, used for both the X-axis and the Y-axis, to locate each data record.
+	 * Only one of the two records of each pair of cells needs to be provided, either from the upper or the lower triangle.
+	 * Records with a null value, or with coordinates that are not present on the axis, are ignored.
+	 */
+	public static SymmetricDataGrid fromRecords(Collection<? extends DataRecord> data, Axis<?> axis) {
+		SymmetricDataGrid grid = new SymmetricDataGrid(axis.getCount());
+		for (DataRecord record : data) {
+			if(null == record.getValue()) continue;
+			final Integer x = axis.getIndex(record.getX());
+			final Integer y = axis.getIndex(record.getY());
+			if(null == x || null == y) continue;
+			grid.setValue(x, y, record.getValue());
+		}
+		return grid;
+	}
+	
+	@Override
+	public int getWidth() {
+		return size;
+	}
+	
+	@Override
+	public int getHeight() {
+		return size;
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	@Override
+	public double getValue(int x, int y) {
+		return values[getIndex(x, y)];
+	}
+	
+	/**
+	 * Sets the value of both the cell (x, y) and the cell (y, x). Setting a value of <code>Double.NaN</code> empties the cells.
+	 */
+	public void setValue(int x, int y, double value) {
+		values[getIndex(x, y)] = value;
+	}
+	
+	/**
+	 * Empties both the cell (x, y) and the cell (y, x).
+	 */
+	public void clearValue(int x, int y) {
+		values[getIndex(x, y)] = Double.NaN;
+	}
+	
+	/**
+	 * Empties all of the cells of the grid.
+	 */
+	public void clear() {
+		Arrays.fill(values, Double.NaN);
+	}
+	
+	/**
+	 * Creates a copy of the grid with both its rows and its columns rearranged in the same order, for example the order produced by {@link HierarchicalClustering},
+	 * so that the copy is still symmetric.
+	 * 
+	 * @param order The index, in this grid, of each row and column of the copy.
+	 */
+	public SymmetricDataGrid reorder(int[] order) {
+		ReorderedDataGrid.checkOrder(order, size);
+		final SymmetricDataGrid copy = new SymmetricDataGrid(size);
+		int i = 0;
+		for (int y = 0; y < size; y++) {
+			for (int x = y; x < size; x++) {
+				copy.values[i++] = values[getIndex(order[x], order[y])];
+			}
+		}
+		return copy;
+	}
+	
+	private int getIndex(int x, int y) {
+		if(x < 0 || x >= size) throw new IndexOutOfBoundsException("Column: " + x + ", Size: " + size);
+		if(y < 0 || y >= size) throw new IndexOutOfBoundsException("Row: " + y + ", Size: " + size);
+		final long row = Math.min(x, y);
+		final long column = Math.max(x, y);
+		
+		//Rows before this one hold size, size - 1, size - 2, ... cells
+		return (int) ((row * size) - ((row * (row - 1)) / 2) + (column - row));
+	}
+}
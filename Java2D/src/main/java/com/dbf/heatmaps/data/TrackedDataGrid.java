@@ -0,0 +1,121 @@
+package com.dbf.heatmaps.data;
+
+import java.util.Arrays;
+
+/**
+ * A {@link BoundedDataGrid} that keeps its minimum and maximum values up to date as its cells are updated, such as for live heat maps.
+ * 
+ * The bounds are maintained using a tree of the minimum and maximum values of every pair of cells, pair of pairs, and so on.
+ * Updating a cell costs O(log cells), and the bounds are always available in O(1), so rendering a new frame doesn't require a scan of every cell.
+ * The tree uses twice as much memory as the values themselves, for each of the minimum and maximum.
+ */
+public class TrackedDataGrid implements BoundedDataGrid {
+	
+	private final int width;
+	private final int height;
+	private final int size;
+	
+	//The leaves, at [size, 2 * size), are the values of the cells. Each node at i is the min or max of its children at 2i and 2i + 1.
+	//Empty cells are positive infinity in the min tree and negative infinity in the max tree, so they never affect the bounds.
+	private final double[] minTree;
+	private final double[] maxTree;
+	
+	/**
+	 * Creates a new grid with all of the cells empty.
+	 * 
+	 * @param width The number of columns, must be at least 1.
+	 * @param height The number of rows, must be at least 1.
+	 */
+	public TrackedDataGrid(int width, int height) {
+		if(width < 1) throw new IllegalArgumentException("Grid width must be at least 1.");
+		if(height < 1) throw new IllegalArgumentException("Grid height must be at least 1.");
+		if(((long) width) * height * 2 > Integer.MAX_VALUE) throw new IllegalArgumentException("Grid is too large: " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		this.size = width * height;
+		this.minTree = new double[size * 2];
+		this.maxTree = new double[size * 2];
+		Arrays.fill(minTree, Double.POSITIVE_INFINITY);
+		Arrays.fill(maxTree, Double.NEGATIVE_INFINITY);
+	}
+	
+	/**
+	 * Creates a new grid with the same values as another grid.
+	 */
+	public static TrackedDataGrid copyOf(DataGrid grid) {
+		final TrackedDataGrid tracked = new TrackedDataGrid(grid.getWidth(), grid.getHeight());
+		for (int y = 0; y < tracked.height; y++) {
+			for (int x = 0; x < tracked.width; x++) {
+				final double value = grid.getValue(x, y);
+				if(Double.isNaN(value)) continue;
+				tracked.minTree[tracked.size + (y * tracked.width) + x] = value;
+				tracked.maxTree[tracked.size + (y * tracked.width) + x] = value;
+			}
+		}
+		
+		//Build all of the nodes at once, from the bottom up
+		for (int i = tracked.size - 1; i > 0; i--) {
+			tracked.minTree[i] = Math.min(tracked.minTree[2 * i], tracked.minTree[(2 * i) + 1]);
+			tracked.maxTree[i] = Math.max(tracked.maxTree[2 * i], tracked.maxTree[(2 * i) + 1]);
+		}
+		return tracked;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	@Override
+	public double getValue(int x, int y) {
+		final double value = minTree[size + (y * width) + x];
+		return value == Double.POSITIVE_INFINITY ? Double.NaN : value;
+	}
+	
+	/**
+	 * Sets the value of a single cell and updates the bounds. Setting a value of <code>Double.NaN</code> empties the cell.
+	 */
+	public void setValue(int x, int y, double value) {
+		if(x < 0 || x >= width) throw new IndexOutOfBoundsException("Column: " + x + ", Width: " + width);
+		if(y < 0 || y >= height) throw new IndexOutOfBoundsException("Row: " + y + ", Height: " + height);
+		if(Double.isInfinite(value)) throw new IllegalArgumentException("Invalid value: " + value + ". Only finite values are supported.");
+		
+		int i = size + (y * width) + x;
+		minTree[i] = Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+		maxTree[i] = Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+		
+		//Walk up the tree, stopping as soon as neither bound changes
+		for (i >>= 1; i > 0; i >>= 1) {
+			final double min = Math.min(minTree[2 * i], minTree[(2 * i) + 1]);
+			final double max = Math.max(maxTree[2 * i], maxTree[(2 * i) + 1]);
+			if(min == minTree[i] && max == maxTree[i]) break;
+			minTree[i] = min;
+			maxTree[i] = max;
+		}
+	}
+	
+	/**
+	 * Empties a single cell and updates the bounds.
+	 */
+	public void clearValue(int x, int y) {
+		setValue(x, y, Double.NaN);
+	}
+	
+	@Override
+	public double getMinValue() {
+		//The root of the tree, which is also the only leaf of a single cell grid
+		final double min = minTree[1];
+		return min == Double.POSITIVE_INFINITY ? Double.NaN : min;
+	}
+	
+	@Override
+	public double getMaxValue() {
+		final double max = maxTree[1];
+		return max == Double.NEGATIVE_INFINITY ? Double.NaN : max;
+	}
+}
@@ -0,0 +1,27 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Writes the frames of an animated image, one at a time.
+ * 
+ * The first frame covers the whole image. Every later frame only covers the rectangle that has changed since the previous frame,
+ * and is drawn over the previous frame, so the parts of the image that do not change are only stored once.
+ */
+public interface AnimationWriter {
+	
+	/**
+	 * Writes the next frame.
+	 * 
+	 * @param frame The pixels of the frame, which may be a sub-image of a larger image.
+	 * @param x The position of the left edge of the frame within the image. Must be 0 for the first frame.
+	 * @param y The position of the top edge of the frame within the image. Must be 0 for the first frame.
+	 */
+	void writeFrame(BufferedImage frame, int x, int y) throws IOException;
+	
+	/**
+	 * Completes the animation once every frame has been written. The stream is flushed but not closed.
+	 */
+	void finish() throws IOException;
+}
@@ -0,0 +1,108 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes an animated PNG (APNG) image, one frame at a time. The first frame is also the default image, shown by viewers that do not support animation.
+ * 
+ * Each later frame is written as a rectangle of pixels drawn over the previous frame, so only the part of the image that has changed is compressed and stored.
+ * Every frame must have the same format as the first frame, and indexed colour frames must share its palette. Created using {@link PngEncoder#openAnimation(OutputStream, int, int)}.
+ */
+public class ApngWriter implements AnimationWriter {
+	
+	private static final int DISPOSE_NONE = 0;
+	private static final int BLEND_SOURCE = 0;
+	
+	private final OutputStream out;
+	private final PngEncoder encoder;
+	private final int frameCount;
+	private final int frameDelayMillis;
+	
+	private int width;
+	private int height;
+	private int bytesPerPixel;
+	private int framesWritten;
+	
+	//Shared by the fcTL and fdAT chunks
+	private int sequence;
+	
+	ApngWriter(OutputStream out, PngEncoder encoder, int frameCount, int frameDelayMillis) {
+		this.out = out;
+		this.encoder = encoder;
+		this.frameCount = frameCount;
+		this.frameDelayMillis = frameDelayMillis;
+	}
+	
+	@Override
+	public void writeFrame(BufferedImage frame, int x, int y) throws IOException {
+		if(null == frame) throw new IllegalArgumentException("Missing frame.");
+		if(framesWritten == frameCount) throw new IllegalStateException("All " + frameCount + " frames have already been written.");
+		
+		final PixelReader pixels = new PixelReader(frame);
+		final int frameBytesPerPixel = pixels.isIndexed() ? 1 : pixels.hasAlpha() ? 4 : 3;
+		if(framesWritten == 0) {
+			if(x != 0 || y != 0) throw new IllegalArgumentException("The first frame must cover the whole image.");
+			width = pixels.getWidth();
+			height = pixels.getHeight();
+			bytesPerPixel = frameBytesPerPixel;
+			PngChunks.writeHeader(out, pixels);
+			
+			final byte[] control = new byte[8];
+			PngChunks.writeInt(control, 0, frameCount);
+			PngChunks.writeInt(control, 4, 0); //Loop forever
+			PngChunks.writeChunk(out, "acTL", control, 0, control.length);
+			
+			//The first frame is the default image
+			writeFrameControl(0, 0, width, height);
+			final PngChunks.IdatOutputStream idat = new PngChunks.IdatOutputStream(out);
+			encoder.compress(pixels, idat);
+			idat.close();
+		} else {
+			if(x < 0 || y < 0 || x + pixels.getWidth() > width || y + pixels.getHeight() > height)
+				throw new IllegalArgumentException("The frame does not fit within the image (" + width + "x" + height + ").");
+			if(frameBytesPerPixel != bytesPerPixel) throw new IllegalArgumentException("The frame format does not match the format of the first frame.");
+			
+			writeFrameControl(x, y, pixels.getWidth(), pixels.getHeight());
+			final PngChunks.IdatOutputStream fdat = new PngChunks.IdatOutputStream(out, ()->sequence++);
+			encoder.compress(pixels, fdat);
+			fdat.close();
+		}
+		framesWritten++;
+	}
+	
+	private void writeFrameControl(int x, int y, int frameWidth, int frameHeight) throws IOException {
+		final byte[] control = new byte[26];
+		PngChunks.writeInt(control, 0, sequence++);
+		PngChunks.writeInt(control, 4, frameWidth);
+		PngChunks.writeInt(control, 8, frameHeight);
+		PngChunks.writeInt(control, 12, x);
+		PngChunks.writeInt(control, 16, y);
+		
+		//The delay as a fraction of a second, in milliseconds
+		control[20] = (byte) (frameDelayMillis >>> 8);
+		control[21] = (byte) frameDelayMillis;
+		control[22] = (byte) (1000 >>> 8);
+		control[23] = (byte) 1000;
+		
+		//Each frame is left in place, and replaces the pixels underneath it
+		control[24] = DISPOSE_NONE;
+		control[25] = BLEND_SOURCE;
+		PngChunks.writeChunk(out, "fcTL", control, 0, control.length);
+	}
+	
+	@Override
+	public void finish() throws IOException {
+		if(framesWritten != frameCount) throw new IllegalStateException("Only " + framesWritten + " of the " + frameCount + " frames have been written.");
+		PngChunks.writeEnd(out);
+		out.flush();
+	}
+	
+	/**
+	 * @return the number of frames written so far.
+	 */
+	public int getFramesWritten() {
+		return framesWritten;
+	}
+}
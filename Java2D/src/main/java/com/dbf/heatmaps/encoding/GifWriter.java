@@ -0,0 +1,242 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes an animated GIF image, one frame at a time, looping forever.
+ * 
+ * Every frame must be an 8-bit indexed colour image sharing the palette of the first frame, such as an indexed colour heat map, since GIF images are limited to 256 colours.
+ * Each later frame is written as a rectangle of pixels drawn over the previous frame, so only the part of the image that has changed is compressed and stored.
+ * The pixels are compressed using LZW, read directly from the buffer of each frame.
+ */
+public class GifWriter implements AnimationWriter {
+	
+	private static final int MAX_SIZE = 0xFFFF;
+	
+	//Leave each frame in place, so that the next frame is drawn over it
+	private static final int DISPOSE_NONE = 1;
+	
+	private final OutputStream out;
+	private final int frameDelay;
+	
+	private int width;
+	private int height;
+	private int framesWritten;
+	
+	/**
+	 * @param out The stream the image is written to.
+	 * @param frameDelayMillis How long each frame is shown for, in milliseconds, rounded to the nearest hundredth of a second.
+	 */
+	public GifWriter(OutputStream out, int frameDelayMillis) {
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		if(frameDelayMillis < 0 || frameDelayMillis > MAX_SIZE * 10) throw new IllegalArgumentException("The frame delay must be between 0 and 655350 milliseconds.");
+		this.out = out;
+		this.frameDelay = (int) Math.round(frameDelayMillis / 10.0);
+	}
+	
+	@Override
+	public void writeFrame(BufferedImage frame, int x, int y) throws IOException {
+		if(null == frame) throw new IllegalArgumentException("Missing frame.");
+		final PixelReader pixels = new PixelReader(frame);
+		if(!pixels.isIndexed()) throw new IllegalArgumentException("GIF frames must be 8-bit indexed colour images.");
+		
+		if(framesWritten == 0) {
+			if(x != 0 || y != 0) throw new IllegalArgumentException("The first frame must cover the whole image.");
+			if(pixels.getWidth() > MAX_SIZE || pixels.getHeight() > MAX_SIZE) throw new IllegalArgumentException("GIF images are limited to 65535x65535 pixels.");
+			width = pixels.getWidth();
+			height = pixels.getHeight();
+			writeHeader(pixels.getPalette());
+		} else if(x < 0 || y < 0 || x + pixels.getWidth() > width || y + pixels.getHeight() > height) {
+			throw new IllegalArgumentException("The frame does not fit within the image (" + width + "x" + height + ").");
+		}
+		
+		//Graphic control extension, for the delay and the disposal of the frame
+		final byte[] control = {0x21, (byte) 0xF9, 4, (byte) (DISPOSE_NONE << 2), (byte) frameDelay, (byte) (frameDelay >>> 8), 0, 0};
+		out.write(control);
+		
+		//Image descriptor, without a local colour table
+		final byte[] descriptor = new byte[10];
+		descriptor[0] = 0x2C;
+		writeShort(descriptor, 1, x);
+		writeShort(descriptor, 3, y);
+		writeShort(descriptor, 5, pixels.getWidth());
+		writeShort(descriptor, 7, pixels.getHeight());
+		out.write(descriptor);
+		
+		final LzwEncoder lzw = new LzwEncoder(out);
+		final byte[] row = new byte[pixels.getWidth()];
+		for(int j = 0; j < pixels.getHeight(); j++) {
+			pixels.readIndices(j, row);
+			lzw.write(row);
+		}
+		lzw.finish();
+		framesWritten++;
+	}
+	
+	private void writeHeader(IndexColorModel palette) throws IOException {
+		out.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+		
+		//Logical screen descriptor, with a global colour table of 256 colours
+		final byte[] screen = new byte[7];
+		writeShort(screen, 0, width);
+		writeShort(screen, 2, height);
+		screen[4] = (byte) 0xF7;
+		out.write(screen);
+		
+		final byte[] colours = new byte[256 * 3];
+		for(int i = 0; i < palette.getMapSize() && i < 256; i++) {
+			colours[i * 3]     = (byte) palette.getRed(i);
+			colours[i * 3 + 1] = (byte) palette.getGreen(i);
+			colours[i * 3 + 2] = (byte) palette.getBlue(i);
+		}
+		out.write(colours);
+		
+		//Netscape application extension, to loop forever
+		out.write(new byte[] {0x21, (byte) 0xFF, 11});
+		out.write("NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII));
+		out.write(new byte[] {3, 1, 0, 0, 0});
+	}
+	
+	@Override
+	public void finish() throws IOException {
+		if(framesWritten == 0) throw new IllegalStateException("No frames have been written.");
+		out.write(0x3B);
+		out.flush();
+	}
+	
+	/**
+	 * @return the number of frames written so far.
+	 */
+	public int getFramesWritten() {
+		return framesWritten;
+	}
+	
+	private static void writeShort(byte[] target, int offset, int value) {
+		//Little endian
+		target[offset]     = (byte) value;
+		target[offset + 1] = (byte) (value >>> 8);
+	}
+	
+	/**
+	 * Compresses 8-bit palette indices using the variable length LZW codes of GIF images, written as a sequence of sub-blocks.
+	 * The table of codes is an open addressing hash table, reset whenever all 4096 codes have been used.
+	 */
+	private static final class LzwEncoder {
+		private static final int MIN_CODE_SIZE = 8;
+		private static final int CLEAR_CODE = 1 << MIN_CODE_SIZE;
+		private static final int END_CODE = CLEAR_CODE + 1;
+		private static final int MAX_CODE_SIZE = 12;
+		private static final int MAX_CODES = 1 << MAX_CODE_SIZE;
+		
+		//A prime larger than the number of codes, for a table that stays less than 80% full
+		private static final int HASH_SIZE = 5003;
+		
+		private final OutputStream out;
+		private final int[] keys = new int[HASH_SIZE];
+		private final int[] codes = new int[HASH_SIZE];
+		
+		//Complete sub-blocks of up to 255 bytes, each preceded by its length
+		private final byte[] buffer = new byte[1 << 16];
+		private int length;
+		private int blockStart;
+		
+		private int bits;
+		private int bitCount;
+		private int codeSize;
+		private int nextCode;
+		private int prefix = -1;
+		
+		private LzwEncoder(OutputStream out) throws IOException {
+			this.out = out;
+			out.write(MIN_CODE_SIZE);
+			blockStart = length++;
+			resetTable();
+			writeCode(CLEAR_CODE);
+		}
+		
+		private void resetTable() {
+			Arrays.fill(keys, -1);
+			codeSize = MIN_CODE_SIZE + 1;
+			nextCode = END_CODE + 1;
+		}
+		
+		private void write(byte[] indices) throws IOException {
+			for (byte index : indices) {
+				final int pixel = index & 0xFF;
+				if(prefix < 0) {
+					prefix = pixel;
+					continue;
+				}
+				
+				//Extend the current string if the table already has it
+				final int key = (pixel << MAX_CODE_SIZE) | prefix;
+				int slot = ((pixel << 4) ^ prefix) % HASH_SIZE;
+				final int step = slot == 0 ? 1 : HASH_SIZE - slot;
+				while (keys[slot] >= 0 && keys[slot] != key) {
+					slot -= step;
+					if(slot < 0) slot += HASH_SIZE;
+				}
+				if(keys[slot] == key) {
+					prefix = codes[slot];
+					continue;
+				}
+				
+				writeCode(prefix);
+				if(nextCode < MAX_CODES) {
+					keys[slot] = key;
+					codes[slot] = nextCode++;
+				} else {
+					writeCode(CLEAR_CODE);
+					resetTable();
+				}
+				prefix = pixel;
+			}
+		}
+		
+		private void writeCode(int code) throws IOException {
+			bits |= code << bitCount;
+			bitCount += codeSize;
+			while (bitCount >= 8) {
+				writeByte(bits);
+				bits >>>= 8;
+				bitCount -= 8;
+			}
+			
+			//The decoder adds a code to its table after every code it reads, so the codes widen as soon as the next code no longer fits
+			if(nextCode >= (1 << codeSize) && codeSize < MAX_CODE_SIZE) codeSize++;
+		}
+		
+		private void writeByte(int value) throws IOException {
+			buffer[length++] = (byte) value;
+			if(length - blockStart == 256) {
+				buffer[blockStart] = (byte) 255;
+				if(length > buffer.length - 256) {
+					out.write(buffer, 0, length);
+					length = 0;
+				}
+				blockStart = length++;
+			}
+		}
+		
+		private void finish() throws IOException {
+			if(prefix >= 0) writeCode(prefix);
+			writeCode(END_CODE);
+			if(bitCount > 0) writeByte(bits);
+			
+			//The last sub-block, followed by an empty sub-block
+			final int blockLength = length - blockStart - 1;
+			if(blockLength > 0) {
+				buffer[blockStart] = (byte) blockLength;
+				buffer[length++] = 0;
+			} else {
+				buffer[blockStart] = 0;
+			}
+			out.write(buffer, 0, length);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A PNG encoder that compresses the image on every available core, for very large heat maps.
+ * 
+ * The rows of the image are split into strips that are filtered and compressed independently, in parallel, in the same way as <code>pigz</code>.
+ * Each strip is compressed using the last 32KB of the previous strip as a preset dictionary, so that matches can still reach across strips,
+ * and ends on a byte boundary using a sync flush. The compressed strips are then concatenated, in order, into a single zlib stream
+ * whose checksum is combined from the checksums of the strips. The output is a standard PNG file, only slightly larger than the output of {@link PngEncoder}.
+ * 
+ * Images that fit in a single strip, or any image on a machine with a single core, are encoded without splitting them.
+ */
+public class ParallelPngEncoder extends PngEncoder {
+	
+	//The size of the deflate window, and of the preset dictionaries
+	private static final int WINDOW_SIZE = 1 << 15;
+	
+	//Strips of about 1MB of filtered bytes, when the strip height is not set
+	private static final int DEFAULT_STRIP_SIZE = 1 << 20;
+	
+	//Raw deflate, without a zlib header or checksum, since every strip is part of the same zlib stream
+	private static final ThreadLocal<Deflater[]> RAW_DEFLATERS = ThreadLocal.withInitial(()->new Deflater[10]);
+	
+	private final int stripHeight;
+	
+	/**
+	 * Creates an encoder using the default compression level, the {@link PngFilter#HEAT_MAP} filter strategy and strips of about 1MB each.
+	 */
+	public ParallelPngEncoder() {
+		this(DEFAULT_COMPRESSION_LEVEL, PngFilter.HEAT_MAP, 0);
+	}
+	
+	/**
+	 * @param compressionLevel The deflate compression level, from 0 (no compression) to 9 (smallest output).
+	 * @param filter The strategy used to filter the rows of pixels before they are compressed.
+	 * @param stripHeight The number of rows of each strip, or 0 to choose strips of about 1MB each.
+	 */
+	public ParallelPngEncoder(int compressionLevel, PngFilter filter, int stripHeight) {
+		super(compressionLevel, filter);
+		if(stripHeight < 0) throw new IllegalArgumentException("Strip height must not be negative.");
+		this.stripHeight = stripHeight;
+	}
+	
+	@Override
+	public void encode(BufferedImage image, OutputStream out) throws IOException {
+		if(null == image) throw new IllegalArgumentException("Missing image.");
+		final PixelReader pixels = new PixelReader(image);
+		final int height = pixels.getHeight();
+		final int rowLength = new PngRowSource(pixels, getFilter()).getFilteredLength();
+		
+		int rowsPerStrip = stripHeight;
+		if(rowsPerStrip == 0) {
+			//Splitting the image only adds overhead when there is a single core
+			rowsPerStrip = Runtime.getRuntime().availableProcessors() > 1 ? Math.max(1, DEFAULT_STRIP_SIZE / rowLength) : height;
+		}
+		if(rowsPerStrip >= height) {
+			super.encode(image, out);
+			return;
+		}
+		
+		PngChunks.writeHeader(out, pixels);
+		final PngChunks.IdatOutputStream idat = new PngChunks.IdatOutputStream(out);
+		idat.write(zlibHeader(getCompressionLevel()));
+		
+		//Compress a few strips per core at a time, so that only those strips are held in memory
+		final int stripCount = (height + rowsPerStrip - 1) / rowsPerStrip;
+		final int batchSize = Runtime.getRuntime().availableProcessors() * 4;
+		final int rows = rowsPerStrip;
+		long checksum = 1;
+		for(int batchStart = 0; batchStart < stripCount; batchStart += batchSize) {
+			final int batchEnd = Math.min(stripCount, batchStart + batchSize);
+			final Strip[] strips = new Strip[batchEnd - batchStart];
+			final int first = batchStart;
+			IntStream.range(batchStart, batchEnd).parallel().forEach(strip->{
+				final int start = strip * rows;
+				strips[strip - first] = compressStrip(pixels, start, Math.min(height, start + rows), rowLength);
+			});
+			for(Strip strip : strips) {
+				idat.write(strip.data, 0, strip.length);
+				checksum = combineAdler32(checksum, strip.checksum, strip.uncompressedLength);
+			}
+		}
+		
+		final byte[] trailer = new byte[4];
+		PngChunks.writeInt(trailer, 0, (int) checksum);
+		idat.write(trailer);
+		idat.close();
+		PngChunks.writeEnd(out);
+		out.flush();
+	}
+	
+	private Strip compressStrip(PixelReader pixels, int start, int end, int rowLength) {
+		final PngRowSource rows = new PngRowSource(pixels, getFilter());
+		final Deflater deflater = getRawDeflater(getCompressionLevel());
+		if(start > 0) deflater.setDictionary(dictionary(rows, start, rowLength));
+		
+		final Adler32 adler = new Adler32();
+		final StripOutputStream compressedBytes = new StripOutputStream();
+		try {
+			final DeflaterOutputStream compressed = new DeflaterOutputStream(compressedBytes, deflater, 1 << 16, true);
+			rows.seek(start);
+			for(int y = start; y < end; y++) {
+				final byte[] row = rows.next();
+				adler.update(row, 0, rowLength);
+				compressed.write(row, 0, rowLength);
+			}
+			
+			//Only the last strip ends the deflate stream, all others end on a byte boundary so they can be followed by the next strip
+			if(end == pixels.getHeight()) {
+				compressed.finish();
+			} else {
+				compressed.flush();
+			}
+		} catch (IOException e) {
+			//Only writes to memory
+			throw new UncheckedIOException(e);
+		}
+		return new Strip(compressedBytes.getBuffer(), compressedBytes.size(), adler.getValue(), (long) (end - start) * rowLength);
+	}
+	
+	/**
+	 * @return the last 32KB of filtered bytes before the given row, which is the end of the previous strip.
+	 */
+	private static byte[] dictionary(PngRowSource rows, int start, int rowLength) {
+		final int dictionaryRows = Math.min(start, (WINDOW_SIZE + rowLength - 1) / rowLength);
+		final byte[] filtered = new byte[dictionaryRows * rowLength];
+		rows.seek(start - dictionaryRows);
+		for(int i = 0; i < dictionaryRows; i++) {
+			System.arraycopy(rows.next(), 0, filtered, i * rowLength, rowLength);
+		}
+		if(filtered.length <= WINDOW_SIZE) return filtered;
+		
+		final byte[] dictionary = new byte[WINDOW_SIZE];
+		System.arraycopy(filtered, filtered.length - WINDOW_SIZE, dictionary, 0, WINDOW_SIZE);
+		return dictionary;
+	}
+	
+	/**
+	 * @return the two byte zlib header, for a 32KB window and the given compression level.
+	 */
+	static byte[] zlibHeader(int compressionLevel) {
+		final int cmf = 0x78;
+		final int levelFlag = compressionLevel < 2 ? 0 : compressionLevel < 6 ? 1 : compressionLevel == 6 ? 2 : 3;
+		int flg = levelFlag << 6;
+		//The header, read as a 16 bit number, must be a multiple of 31
+		flg += (31 - (((cmf << 8) | flg) % 31)) % 31;
+		return new byte[] {(byte) cmf, (byte) flg};
+	}
+	
+	/**
+	 * Combines the Adler-32 checksums of two consecutive blocks of data, in the same way as <code>adler32_combine</code> in zlib.
+	 * 
+	 * @param first The checksum of the first block.
+	 * @param second The checksum of the second block.
+	 * @param secondLength The number of bytes of the second block.
+	 * @return the checksum of both blocks.
+	 */
+	static long combineAdler32(long first, long second, long secondLength) {
+		final long base = 65521;
+		final long remainder = secondLength % base;
+		long sum1 = first & 0xFFFF;
+		long sum2 = (remainder * sum1) % base;
+		sum1 += (second & 0xFFFF) + base - 1;
+		sum2 += ((first >>> 16) & 0xFFFF) + ((second >>> 16) & 0xFFFF) + base - remainder;
+		if(sum1 >= base) sum1 -= base;
+		if(sum1 >= base) sum1 -= base;
+		if(sum2 >= (base << 1)) sum2 -= (base << 1);
+		if(sum2 >= base) sum2 -= base;
+		return sum1 | (sum2 << 16);
+	}
+	
+	static Deflater getRawDeflater(int compressionLevel) {
+		final Deflater[] deflaters = RAW_DEFLATERS.get();
+		Deflater deflater = deflaters[compressionLevel];
+		if(null == deflater) {
+			deflater = new Deflater(compressionLevel, true);
+			deflaters[compressionLevel] = deflater;
+		} else {
+			deflater.reset();
+		}
+		return deflater;
+	}
+	
+	public int getStripHeight() {
+		return stripHeight;
+	}
+	
+	private static final class Strip {
+		private final byte[] data;
+		private final int length;
+		private final long checksum;
+		private final long uncompressedLength;
+		
+		private Strip(byte[] data, int length, long checksum, long uncompressedLength) {
+			this.data = data;
+			this.length = length;
+			this.checksum = checksum;
+			this.uncompressedLength = uncompressedLength;
+		}
+	}
+	
+	/**
+	 * Exposes the buffer, to avoid copying each compressed strip.
+	 */
+	private static final class StripOutputStream extends ByteArrayOutputStream {
+		private byte[] getBuffer() {
+			return buf;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Reads rows of pixels from an image as packed ARGB integers.
+ * Images backed by an integer buffer, such as the images produced by the renderer, are copied directly from the buffer without any colour conversion.
+ * 8-bit indexed colour images can also be read as rows of palette indices.
+ */
+final class PixelReader {
+	
+	private final BufferedImage image;
+	private final int width;
+	private final boolean alpha;
+	
+	//Only set when the pixels can be read directly from the buffer
+	private final int[] data;
+	private final byte[] indexData;
+	private final int offset;
+	private final int scanlineStride;
+	
+	//Only set for 8-bit indexed colour images
+	private final IndexColorModel palette;
+	
+	PixelReader(BufferedImage image) {
+		this.image = image;
+		this.width = image.getWidth();
+		this.alpha = image.getColorModel().hasAlpha();
+		
+		final int type = image.getType();
+		if((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+				&& image.getRaster().getDataBuffer() instanceof DataBufferInt
+				&& image.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+			final DataBufferInt buffer = (DataBufferInt) image.getRaster().getDataBuffer();
+			final SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) image.getSampleModel();
+			this.data = buffer.getData();
+			this.indexData = null;
+			this.palette = null;
+			this.scanlineStride = model.getScanlineStride();
+			
+			//Images that are a sub-image of a larger image start part way through the buffer
+			this.offset = buffer.getOffset() + model.getOffset(-image.getRaster().getSampleModelTranslateX(), -image.getRaster().getSampleModelTranslateY());
+		} else if(type == BufferedImage.TYPE_BYTE_INDEXED
+				&& image.getColorModel() instanceof IndexColorModel
+				&& image.getRaster().getDataBuffer() instanceof DataBufferByte
+				&& image.getSampleModel() instanceof ComponentSampleModel
+				&& ((ComponentSampleModel) image.getSampleModel()).getPixelStride() == 1) {
+			final DataBufferByte buffer = (DataBufferByte) image.getRaster().getDataBuffer();
+			final ComponentSampleModel model = (ComponentSampleModel) image.getSampleModel();
+			this.data = null;
+			this.indexData = buffer.getData();
+			this.palette = (IndexColorModel) image.getColorModel();
+			this.scanlineStride = model.getScanlineStride();
+			this.offset = buffer.getOffset() + model.getOffset(-image.getRaster().getSampleModelTranslateX(), -image.getRaster().getSampleModelTranslateY());
+		} else {
+			this.data = null;
+			this.indexData = null;
+			this.palette = null;
+			this.offset = 0;
+			this.scanlineStride = 0;
+		}
+	}
+	
+	/**
+	 * Copies a row of pixels, as ARGB integers, into the target array. The alpha component is only meaningful when {@link #hasAlpha()} is true.
+	 */
+	void readRow(int y, int[] target) {
+		if(null != data) {
+			System.arraycopy(data, offset + (y * scanlineStride), target, 0, width);
+		} else {
+			image.getRGB(0, y, width, 1, target, 0, width);
+		}
+	}
+	
+	/**
+	 * Copies a row of palette indices into the target array. Only valid when {@link #isIndexed()} is true.
+	 */
+	void readIndices(int y, byte[] target) {
+		System.arraycopy(indexData, offset + (y * scanlineStride), target, 0, width);
+	}
+	
+	/**
+	 * @return true if the image is an 8-bit indexed colour image, which can be read as palette indices.
+	 */
+	boolean isIndexed() {
+		return null != palette;
+	}
+	
+	/**
+	 * @return the palette of an indexed colour image, null for all other images.
+	 */
+	IndexColorModel getPalette() {
+		return palette;
+	}
+	
+	boolean hasAlpha() {
+		return alpha;
+	}
+	
+	int getWidth() {
+		return width;
+	}
+	
+	int getHeight() {
+		return image.getHeight();
+	}
+}
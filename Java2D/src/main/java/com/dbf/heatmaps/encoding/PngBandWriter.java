@@ -0,0 +1,83 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a PNG image that is supplied as a sequence of horizontal bands, from top to bottom, so that the whole image never needs to be held in memory.
+ * Each band is filtered and compressed as soon as it is written, continuing from the last row of the previous band.
+ * 
+ * Every band must have the same width and format as the first band. Created using {@link PngEncoder#open(OutputStream, int)}.
+ */
+public class PngBandWriter {
+	
+	private final OutputStream out;
+	private final int height;
+	private final int compressionLevel;
+	private final PngFilter filter;
+	
+	private int width;
+	private int rowsWritten;
+	private PngRowSource previous;
+	private PngChunks.IdatOutputStream idat;
+	private Deflater deflater;
+	
+	PngBandWriter(OutputStream out, int height, int compressionLevel, PngFilter filter) {
+		this.out = out;
+		this.height = height;
+		this.compressionLevel = compressionLevel;
+		this.filter = filter;
+	}
+	
+	/**
+	 * Compresses and writes every row of the band, below the rows of the previous bands.
+	 */
+	public void write(BufferedImage band) throws IOException {
+		if(null == band) throw new IllegalArgumentException("Missing band.");
+		if(rowsWritten + band.getHeight() > height) throw new IllegalArgumentException("The band exceeds the height of the image (" + height + ").");
+		
+		final PixelReader pixels = new PixelReader(band);
+		final PngRowSource rows = new PngRowSource(pixels, filter);
+		if(null == previous) {
+			//The first band determines the width and format of the image
+			width = pixels.getWidth();
+			PngChunks.writeHeader(out, pixels, height);
+			idat = new PngChunks.IdatOutputStream(out);
+			//Not shared with the other encoders of the thread, since the writer stays open between bands
+			deflater = new Deflater(compressionLevel);
+			rows.seek(0);
+		} else {
+			if(pixels.getWidth() != width) throw new IllegalArgumentException("The band width (" + pixels.getWidth() + ") does not match the width of the image (" + width + ").");
+			if(rows.getFilteredLength() != previous.getFilteredLength()) throw new IllegalArgumentException("The band format does not match the format of the first band.");
+			rows.seekAfter(previous);
+		}
+		
+		final int length = rows.getFilteredLength();
+		for(int y = 0; y < band.getHeight(); y++) {
+			idat.deflate(deflater, rows.next(), 0, length);
+		}
+		rowsWritten += band.getHeight();
+		previous = rows;
+	}
+	
+	/**
+	 * Completes the image once every row has been written. The stream is flushed but not closed.
+	 */
+	public void finish() throws IOException {
+		if(rowsWritten != height) throw new IllegalStateException("Only " + rowsWritten + " of the " + height + " rows have been written.");
+		idat.finish(deflater);
+		deflater.end();
+		idat.close();
+		PngChunks.writeEnd(out);
+		out.flush();
+	}
+	
+	/**
+	 * @return the number of rows written so far.
+	 */
+	public int getRowsWritten() {
+		return rowsWritten;
+	}
+}
@@ -0,0 +1,228 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the chunks that make up a PNG file.
+ */
+final class PngChunks {
+	
+	static final byte[] SIGNATURE = new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	
+	static final int COLOUR_TYPE_RGB = 2;
+	static final int COLOUR_TYPE_PALETTE = 3;
+	static final int COLOUR_TYPE_RGBA = 6;
+	
+	private PngChunks() {}
+	
+	/**
+	 * Writes the PNG signature followed by the IHDR chunk, for an 8 bit image without interlacing.
+	 */
+	static void writeHeader(OutputStream out, int width, int height, int colourType) throws IOException {
+		writeHeader(out, width, height, 8, colourType);
+	}
+	
+	/**
+	 * Writes the PNG signature followed by the IHDR chunk, for an image without interlacing.
+	 */
+	static void writeHeader(OutputStream out, int width, int height, int bitDepth, int colourType) throws IOException {
+		out.write(SIGNATURE);
+		final byte[] header = new byte[13];
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		header[8] = (byte) bitDepth;
+		header[9] = (byte) colourType;
+		//Compression, filter and interlace methods are all zero
+		writeChunk(out, "IHDR", header, 0, header.length);
+	}
+	
+	/**
+	 * Writes the PNG signature and the IHDR chunk for the image, followed by its PLTE and tRNS chunks if it is an indexed colour image.
+	 * Indexed colour images are written using a palette, images with an alpha channel as RGBA, and all others as RGB.
+	 */
+	static void writeHeader(OutputStream out, PixelReader pixels) throws IOException {
+		writeHeader(out, pixels, pixels.getHeight());
+	}
+	
+	/**
+	 * Writes the header for an image of the same width and format as the pixels, but of a different height.
+	 * Used when an image is supplied as a sequence of horizontal bands.
+	 */
+	static void writeHeader(OutputStream out, PixelReader pixels, int height) throws IOException {
+		if(!pixels.isIndexed()) {
+			writeHeader(out, pixels.getWidth(), height, pixels.hasAlpha() ? COLOUR_TYPE_RGBA : COLOUR_TYPE_RGB);
+			return;
+		}
+		writeHeader(out, pixels.getWidth(), height, COLOUR_TYPE_PALETTE);
+		writePalette(out, pixels.getPalette());
+	}
+	
+	/**
+	 * Writes the PLTE chunk of the palette, and a tRNS chunk if any of its colours are not fully opaque.
+	 */
+	static void writePalette(OutputStream out, IndexColorModel palette) throws IOException {
+		final int size = palette.getMapSize();
+		final byte[] colours = new byte[size * 3];
+		final byte[] alphas = new byte[size];
+		int lastTransparent = -1;
+		for(int i = 0; i < size; i++) {
+			final int rgb = palette.getRGB(i);
+			colours[i * 3]     = (byte) (rgb >>> 16);
+			colours[i * 3 + 1] = (byte) (rgb >>> 8);
+			colours[i * 3 + 2] = (byte) rgb;
+			alphas[i] = (byte) (rgb >>> 24);
+			if(alphas[i] != (byte) 0xFF) lastTransparent = i;
+		}
+		writeChunk(out, "PLTE", colours, 0, colours.length);
+		
+		//Entries after the last transparent entry are opaque, and can be left out
+		if(lastTransparent >= 0) writeChunk(out, "tRNS", alphas, 0, lastTransparent + 1);
+	}
+	
+	static void writeEnd(OutputStream out) throws IOException {
+		writeChunk(out, "IEND", new byte[0], 0, 0);
+	}
+	
+	static void writeChunk(OutputStream out, String type, byte[] data, int offset, int length) throws IOException {
+		final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		final byte[] lengthBytes = new byte[4];
+		writeInt(lengthBytes, 0, length);
+		out.write(lengthBytes);
+		out.write(typeBytes);
+		out.write(data, offset, length);
+		
+		//The CRC covers the type and the data, but not the length
+		final CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, offset, length);
+		final byte[] crcBytes = new byte[4];
+		writeInt(crcBytes, 0, (int) crc.getValue());
+		out.write(crcBytes);
+	}
+	
+	static void writeInt(byte[] target, int offset, int value) {
+		target[offset]     = (byte) (value >>> 24);
+		target[offset + 1] = (byte) (value >>> 16);
+		target[offset + 2] = (byte) (value >>> 8);
+		target[offset + 3] = (byte) value;
+	}
+	
+	/**
+	 * An output stream that writes the compressed image data as a sequence of IDAT chunks, or of fdAT chunks for the later frames of an animated PNG.
+	 * 
+	 * Each chunk is assembled in a single buffer, along with its length, type and CRC, and written to the underlying stream using a single write.
+	 * The buffer is reused by the next stream created on the same thread once this stream is closed.
+	 */
+	static final class IdatOutputStream extends OutputStream {
+		
+		private static final int CHUNK_SIZE = 1 << 16;
+		
+		//The length, the type and the sequence number of fdAT chunks come before the data, and the CRC after
+		private static final int BUFFER_SIZE = 12 + CHUNK_SIZE + 4;
+		
+		//The buffer of the last closed stream of each thread
+		private static final ThreadLocal<byte[]> FREE_BUFFER = new ThreadLocal<byte[]>();
+		
+		private final OutputStream out;
+		private final IntSupplier sequence;
+		private final int dataOffset;
+		private final CRC32 crc = new CRC32();
+		private byte[] buffer;
+		private int length;
+		
+		IdatOutputStream(OutputStream out) {
+			this(out, null);
+		}
+		
+		/**
+		 * @param sequence Supplies the sequence number of each fdAT chunk, or null to write IDAT chunks.
+		 */
+		IdatOutputStream(OutputStream out, IntSupplier sequence) {
+			this.out = out;
+			this.sequence = sequence;
+			this.dataOffset = null == sequence ? 8 : 12;
+			buffer = FREE_BUFFER.get();
+			if(null == buffer) {
+				buffer = new byte[BUFFER_SIZE];
+			} else {
+				//Not shared with any other open stream of the thread
+				FREE_BUFFER.remove();
+			}
+			System.arraycopy((null == sequence ? "IDAT" : "fdAT").getBytes(StandardCharsets.US_ASCII), 0, buffer, 4, 4);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			if(length == CHUNK_SIZE) flush();
+			buffer[dataOffset + length++] = (byte) b;
+		}
+		
+		@Override
+		public void write(byte[] b, int offset, int count) throws IOException {
+			while (count > 0) {
+				if(length == CHUNK_SIZE) flush();
+				final int copied = Math.min(count, CHUNK_SIZE - length);
+				System.arraycopy(b, offset, buffer, dataOffset + length, copied);
+				length += copied;
+				offset += copied;
+				count -= copied;
+			}
+		}
+		
+		/**
+		 * Compresses the data directly into the chunk buffer, without an intermediate buffer.
+		 */
+		void deflate(Deflater deflater, byte[] b, int offset, int count) throws IOException {
+			deflater.setInput(b, offset, count);
+			while (!deflater.needsInput()) {
+				if(length == CHUNK_SIZE) flush();
+				length += deflater.deflate(buffer, dataOffset + length, CHUNK_SIZE - length);
+			}
+		}
+		
+		/**
+		 * Ends the compressed data, writing everything that is left in the deflater into the chunk buffer.
+		 */
+		void finish(Deflater deflater) throws IOException {
+			deflater.finish();
+			while (!deflater.finished()) {
+				if(length == CHUNK_SIZE) flush();
+				length += deflater.deflate(buffer, dataOffset + length, CHUNK_SIZE - length);
+			}
+		}
+		
+		/**
+		 * Writes the buffered data as an IDAT chunk. Does not flush or close the underlying stream.
+		 */
+		@Override
+		public void flush() throws IOException {
+			if(length == 0) return;
+			writeInt(buffer, 0, dataOffset - 8 + length);
+			if(null != sequence) writeInt(buffer, 8, sequence.getAsInt());
+			
+			//The CRC covers the type, the sequence number and the data, but not the length
+			crc.reset();
+			crc.update(buffer, 4, dataOffset - 4 + length);
+			writeInt(buffer, dataOffset + length, (int) crc.getValue());
+			out.write(buffer, 0, dataOffset + length + 4);
+			length = 0;
+		}
+		
+		/**
+		 * Writes any remaining buffered data and returns the buffer to the pool. Does not close the underlying stream.
+		 */
+		@Override
+		public void close() throws IOException {
+			if(null == buffer) return;
+			flush();
+			FREE_BUFFER.set(buffer);
+			buffer = null;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * A PNG encoder for rendered heat maps, which is much faster than <code>ImageIO</code>.
+ * 
+ * The pixels are read directly from the integer buffer of the image, the compression level and the row filter strategy are configurable,
+ * and the <code>Deflater</code> instances are reused between images. The default {@link PngFilter#HEAT_MAP} strategy takes advantage of
+ * the large blocks of solid colour of heat maps: rows that are identical to the row above are written as zeros without being filtered at all.
+ * 
+ * Encoders are immutable and can be shared between threads.
+ */
+public class PngEncoder {
+	
+	public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+	
+	//One deflater per compression level, per thread, reset before each image
+	private static final ThreadLocal<Deflater[]> DEFLATERS = ThreadLocal.withInitial(()->new Deflater[10]);
+	
+	private final int compressionLevel;
+	private final PngFilter filter;
+	
+	/**
+	 * Creates an encoder using the default compression level and the {@link PngFilter#HEAT_MAP} filter strategy.
+	 */
+	public PngEncoder() {
+		this(DEFAULT_COMPRESSION_LEVEL, PngFilter.HEAT_MAP);
+	}
+	
+	/**
+	 * @param compressionLevel The deflate compression level, from 0 (no compression) to 9 (smallest output).
+	 * @param filter The strategy used to filter the rows of pixels before they are compressed.
+	 */
+	public PngEncoder(int compressionLevel, PngFilter filter) {
+		if(compressionLevel < 0 || compressionLevel > 9) throw new IllegalArgumentException("Compression level must be between 0 and 9.");
+		if(null == filter) throw new IllegalArgumentException("Missing filter.");
+		this.compressionLevel = compressionLevel;
+		this.filter = filter;
+	}
+	
+	/**
+	 * Encodes the image as a PNG file.
+	 */
+	public void encode(BufferedImage image, File file) throws IOException {
+		if(null == file) throw new IllegalArgumentException("Invalid file.");
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+			encode(image, out);
+		}
+	}
+	
+	/**
+	 * Encodes the image as a PNG file, written to the output stream. The stream is flushed but not closed.
+	 * 8-bit indexed colour images are written using a palette, images with an alpha channel as RGBA, and all others as RGB.
+	 */
+	public void encode(BufferedImage image, OutputStream out) throws IOException {
+		if(null == image) throw new IllegalArgumentException("Missing image.");
+		final PixelReader pixels = new PixelReader(image);
+		PngChunks.writeHeader(out, pixels);
+		final PngChunks.IdatOutputStream idat = new PngChunks.IdatOutputStream(out);
+		compress(pixels, idat);
+		idat.close();
+		PngChunks.writeEnd(out);
+		out.flush();
+	}
+	
+	/**
+	 * Filters and compresses every row of the pixels into the image data chunks, as a complete zlib stream.
+	 */
+	void compress(PixelReader pixels, PngChunks.IdatOutputStream idat) throws IOException {
+		final PngRowSource rows = new PngRowSource(pixels, filter);
+		final Deflater deflater = getDeflater(compressionLevel);
+		final int height = pixels.getHeight();
+		final int length = rows.getFilteredLength();
+		rows.seek(0);
+		for(int y = 0; y < height; y++) {
+			idat.deflate(deflater, rows.next(), 0, length);
+		}
+		idat.finish(deflater);
+	}
+	
+	/**
+	 * Starts encoding an image that will be supplied as a sequence of horizontal bands, from top to bottom, written to the output stream.
+	 * The bands are always compressed on the calling thread.
+	 * 
+	 * @param height The total height of the image, in pixels. The width and format are determined by the first band.
+	 */
+	public PngBandWriter open(OutputStream out, int height) {
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		if(height < 1) throw new IllegalArgumentException("The height must be at least 1.");
+		return new PngBandWriter(out, height, compressionLevel, filter);
+	}
+	
+	/**
+	 * Starts encoding an animated PNG (APNG) image, written to the output stream. Viewers that do not support animation show the first frame.
+	 * 
+	 * @param frameCount The number of frames of the animation.
+	 * @param frameDelayMillis How long each frame is shown for, in milliseconds, up to 65535.
+	 */
+	public ApngWriter openAnimation(OutputStream out, int frameCount, int frameDelayMillis) {
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		if(frameCount < 1) throw new IllegalArgumentException("The frame count must be at least 1.");
+		if(frameDelayMillis < 0 || frameDelayMillis > 0xFFFF) throw new IllegalArgumentException("The frame delay must be between 0 and 65535 milliseconds.");
+		return new ApngWriter(out, this, frameCount, frameDelayMillis);
+	}
+	
+	static Deflater getDeflater(int compressionLevel) {
+		final Deflater[] deflaters = DEFLATERS.get();
+		Deflater deflater = deflaters[compressionLevel];
+		if(null == deflater) {
+			deflater = new Deflater(compressionLevel);
+			deflaters[compressionLevel] = deflater;
+		} else {
+			deflater.reset();
+		}
+		return deflater;
+	}
+	
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+	
+	public PngFilter getFilter() {
+		return filter;
+	}
+}
@@ -0,0 +1,32 @@
+package com.dbf.heatmaps.encoding;
+
+/**
+ * The strategy used by {@link PngEncoder} to choose the filter applied to each row of pixels before it is compressed.
+ */
+public enum PngFilter {
+	/**
+	 * No filtering. The fastest, but usually the largest output.
+	 */
+	NONE,
+	/**
+	 * Each byte is stored as the difference from the same byte of the pixel to its left.
+	 */
+	SUB,
+	/**
+	 * Each byte is stored as the difference from the same byte of the pixel above it.
+	 */
+	UP,
+	/**
+	 * Each byte is predicted from the pixels to its left, above it, and above and to its left, using the Paeth predictor.
+	 */
+	PAETH,
+	/**
+	 * Tries every filter on every row and keeps the one that is likely to compress best. The slowest, and similar to the <code>ImageIO</code> writer.
+	 */
+	ADAPTIVE,
+	/**
+	 * Suited to heat maps, which are made of large blocks of solid colour. Rows identical to the row above are written as zeros without being filtered at all,
+	 * and all other rows use the UP filter, which turns the difference between two rows of cells into short runs of repeated bytes.
+	 */
+	HEAT_MAP;
+}
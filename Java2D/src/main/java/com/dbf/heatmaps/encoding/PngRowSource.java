@@ -0,0 +1,118 @@
+package com.dbf.heatmaps.encoding;
+
+import java.util.Arrays;
+
+/**
+ * Produces the filtered rows of an image, in order, starting from any row.
+ * The filtered bytes of a row only depend on that row and the row above, so rows produced after a {@link #seek(int)} are identical to those produced by reading the whole image.
+ */
+final class PngRowSource {
+	
+	private final PixelReader pixels;
+	private final PngFilter filter;
+	private final int width;
+	private final boolean alpha;
+	private final int bpp;
+	private final int length;
+	
+	private int[] row;
+	private int[] previousRow;
+	private byte[] raw;
+	private byte[] previousRaw;
+	private final byte[] filtered;
+	private final byte[] scratch;
+	
+	//A row identical to the row above, using the UP filter, is all zeros
+	private final byte[] zeros;
+	
+	private int next;
+	private boolean hasPreviousRow;
+	
+	PngRowSource(PixelReader pixels, PngFilter filter) {
+		this.pixels = pixels;
+		this.filter = filter;
+		this.width = pixels.getWidth();
+		this.alpha = pixels.hasAlpha();
+		this.bpp = pixels.isIndexed() ? 1 : alpha ? 4 : 3;
+		this.length = width * bpp;
+		
+		row = new int[width];
+		previousRow = new int[width];
+		raw = new byte[length];
+		previousRaw = new byte[length];
+		filtered = new byte[length + 1];
+		scratch = new byte[length + 1];
+		zeros = new byte[length + 1];
+		zeros[0] = PngRows.FILTER_UP;
+	}
+	
+	/**
+	 * Positions the source so that the next call to {@link #next()} returns the given row.
+	 */
+	void seek(int y) {
+		next = y;
+		hasPreviousRow = y > 0;
+		if(y == 0) {
+			//The first row is filtered against a row of zeros
+			Arrays.fill(previousRaw, (byte) 0);
+		} else if(pixels.isIndexed()) {
+			pixels.readIndices(y - 1, previousRaw);
+		} else {
+			pixels.readRow(y - 1, previousRow);
+			PngRows.toBytes(previousRow, width, alpha, previousRaw);
+		}
+	}
+	
+	/**
+	 * Positions the source at its first row, filtering it against the last row produced by another source of the same width and format.
+	 * Used when an image is supplied as a sequence of horizontal bands.
+	 */
+	void seekAfter(PngRowSource above) {
+		next = 0;
+		hasPreviousRow = true;
+		System.arraycopy(above.previousRow, 0, previousRow, 0, width);
+		System.arraycopy(above.previousRaw, 0, previousRaw, 0, length);
+	}
+	
+	/**
+	 * Filters the next row.
+	 * 
+	 * @return an array holding the filter type followed by the filtered bytes, {@link #getFilteredLength()} bytes in total.
+	 * The array is only valid until the next call.
+	 */
+	byte[] next() {
+		final int y = next++;
+		final boolean checkSameRow = filter == PngFilter.HEAT_MAP && hasPreviousRow;
+		hasPreviousRow = true;
+		if(pixels.isIndexed()) {
+			//Palette indices are filtered as they are, one byte per pixel
+			pixels.readIndices(y, raw);
+			if(checkSameRow && PngRows.isSameRow(raw, previousRaw, length)) {
+				return zeros;
+			}
+		} else {
+			pixels.readRow(y, row);
+			if(checkSameRow && PngRows.isSameRow(row, previousRow, width)) {
+				return zeros;
+			}
+			PngRows.toBytes(row, width, alpha, raw);
+		}
+		
+		final byte[] result = PngRows.filter(filter, raw, previousRaw, length, bpp, filtered, scratch);
+		
+		final int[] swapRow = previousRow;
+		previousRow = row;
+		row = swapRow;
+		final byte[] swapRaw = previousRaw;
+		previousRaw = raw;
+		raw = swapRaw;
+		return result;
+	}
+	
+	/**
+	 * @return the number of bytes of each filtered row, including the filter type.
+	 */
+	int getFilteredLength() {
+		return length + 1;
+	}
+}
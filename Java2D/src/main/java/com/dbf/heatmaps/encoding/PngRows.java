@@ -0,0 +1,155 @@
+package com.dbf.heatmaps.encoding;
+
+/**
+ * Converts rows of pixels to bytes and applies the PNG row filters.
+ */
+final class PngRows {
+	
+	static final int FILTER_NONE = 0;
+	static final int FILTER_SUB = 1;
+	static final int FILTER_UP = 2;
+	static final int FILTER_AVERAGE = 3;
+	static final int FILTER_PAETH = 4;
+	
+	private PngRows() {}
+	
+	/**
+	 * Converts a row of ARGB pixels to RGB or RGBA bytes.
+	 */
+	static void toBytes(int[] pixels, int width, boolean alpha, byte[] target) {
+		int i = 0;
+		if(alpha) {
+			for(int x = 0; x < width; x++) {
+				final int pixel = pixels[x];
+				target[i++] = (byte) (pixel >>> 16);
+				target[i++] = (byte) (pixel >>> 8);
+				target[i++] = (byte) pixel;
+				target[i++] = (byte) (pixel >>> 24);
+			}
+		} else {
+			for(int x = 0; x < width; x++) {
+				final int pixel = pixels[x];
+				target[i++] = (byte) (pixel >>> 16);
+				target[i++] = (byte) (pixel >>> 8);
+				target[i++] = (byte) pixel;
+			}
+		}
+	}
+	
+	/**
+	 * @return true if the first <code>width</code> pixels of both rows are the same.
+	 */
+	static boolean isSameRow(int[] row, int[] previous, int width) {
+		for(int x = 0; x < width; x++) {
+			if(row[x] != previous[x]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if the first <code>length</code> bytes of both rows are the same.
+	 */
+	static boolean isSameRow(byte[] row, byte[] previous, int length) {
+		for(int i = 0; i < length; i++) {
+			if(row[i] != previous[i]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Filters a row of bytes using the given strategy, writing the filter type followed by the filtered bytes into the target.
+	 * 
+	 * @param raw The bytes of the row.
+	 * @param previous The bytes of the row above, all zeros for the first row.
+	 * @param length The number of bytes of the row.
+	 * @param bpp The number of bytes per pixel.
+	 * @param target Receives the filter type and the filtered bytes, <code>length + 1</code> bytes in total.
+	 * @param scratch A second array of <code>length + 1</code> bytes, only used by the adaptive strategy.
+	 * 
+	 * @return the array holding the filtered row, either the target or the scratch array.
+	 */
+	static byte[] filter(PngFilter strategy, byte[] raw, byte[] previous, int length, int bpp, byte[] target, byte[] scratch) {
+		switch (strategy) {
+		case NONE:
+			apply(FILTER_NONE, raw, previous, length, bpp, target);
+			return target;
+		case SUB:
+			apply(FILTER_SUB, raw, previous, length, bpp, target);
+			return target;
+		case UP:
+		case HEAT_MAP:
+			apply(FILTER_UP, raw, previous, length, bpp, target);
+			return target;
+		case PAETH:
+			apply(FILTER_PAETH, raw, previous, length, bpp, target);
+			return target;
+		default:
+			//Keep the filter with the smallest sum of absolute differences, a common estimate of how well the row compresses
+			byte[] best = target;
+			byte[] other = scratch;
+			long bestScore = Long.MAX_VALUE;
+			for(int type = FILTER_NONE; type <= FILTER_PAETH; type++) {
+				apply(type, raw, previous, length, bpp, other);
+				final long score = score(other, length);
+				if(score < bestScore) {
+					bestScore = score;
+					final byte[] swap = best;
+					best = other;
+					other = swap;
+				}
+			}
+			return best;
+		}
+	}
+	
+	private static long score(byte[] filtered, int length) {
+		long score = 0;
+		for(int i = 1; i <= length; i++) {
+			score += Math.abs(filtered[i]);
+		}
+		return score;
+	}
+	
+	static void apply(int type, byte[] raw, byte[] previous, int length, int bpp, byte[] target) {
+		target[0] = (byte) type;
+		switch (type) {
+		case FILTER_NONE:
+			System.arraycopy(raw, 0, target, 1, length);
+			break;
+		case FILTER_SUB:
+			System.arraycopy(raw, 0, target, 1, bpp);
+			for(int i = bpp; i < length; i++) {
+				target[i + 1] = (byte) (raw[i] - raw[i - bpp]);
+			}
+			break;
+		case FILTER_UP:
+			for(int i = 0; i < length; i++) {
+				target[i + 1] = (byte) (raw[i] - previous[i]);
+			}
+			break;
+		case FILTER_AVERAGE:
+			for(int i = 0; i < length; i++) {
+				final int left = i < bpp ? 0 : raw[i - bpp] & 0xFF;
+				target[i + 1] = (byte) (raw[i] - ((left + (previous[i] & 0xFF)) >>> 1));
+			}
+			break;
+		default:
+			for(int i = 0; i < length; i++) {
+				final int left = i < bpp ? 0 : raw[i - bpp] & 0xFF;
+				final int up = previous[i] & 0xFF;
+				final int upLeft = i < bpp ? 0 : previous[i - bpp] & 0xFF;
+				target[i + 1] = (byte) (raw[i] - paeth(left, up, upLeft));
+			}
+		}
+	}
+	
+	private static int paeth(int a, int b, int c) {
+		final int p = a + b - c;
+		final int pa = Math.abs(p - a);
+		final int pb = Math.abs(p - b);
+		final int pc = Math.abs(p - c);
+		if(pa <= pb && pa <= pc) return a;
+		if(pb <= pc) return b;
+		return c;
+	}
+}
@@ -0,0 +1,131 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A decoder for the QOI (Quite OK Image) format, as written by {@link QoiEncoder}.
+ * 
+ * The pixels are decoded directly into the buffer of a <code>TYPE_INT_RGB</code> image, or a <code>TYPE_INT_ARGB</code> image when the file has 4 channels.
+ * 
+ * Decoders are immutable and can be shared between threads.
+ */
+public class QoiDecoder {
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Decodes a QOI file.
+	 */
+	public BufferedImage decode(File file) throws IOException {
+		if(null == file) throw new IllegalArgumentException("Invalid file.");
+		try (InputStream in = new FileInputStream(file)) {
+			return decode(in);
+		}
+	}
+	
+	/**
+	 * Decodes a QOI image read from the input stream. The stream is not closed, and may have been read past the end of the image.
+	 * 
+	 * @throws IOException if the stream does not contain a valid QOI image.
+	 */
+	public BufferedImage decode(InputStream in) throws IOException {
+		if(null == in) throw new IllegalArgumentException("Missing input stream.");
+		final Input input = new Input(in);
+		
+		//Header
+		for (byte magic : QoiEncoder.MAGIC) {
+			if(input.read() != (magic & 0xFF)) throw new IOException("Not a QOI image.");
+		}
+		final long width = input.readInt() & 0xFFFFFFFFL;
+		final long height = input.readInt() & 0xFFFFFFFFL;
+		final int channels = input.read();
+		input.read(); //The colour space is informative only
+		if(channels != 3 && channels != 4) throw new IOException("Invalid number of channels: " + channels);
+		if(width < 1 || height < 1 || width * height > Integer.MAX_VALUE - 8)
+			throw new IOException("Unsupported image dimensions: " + width + "x" + height);
+		
+		final BufferedImage image = new BufferedImage((int) width, (int) height, channels == 4 ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		final int[] seen = new int[64];
+		int pixel = 0xFF000000;
+		int position = 0;
+		while (position < data.length) {
+			final int op = input.read();
+			if(op == QoiEncoder.OP_RGB) {
+				pixel = (pixel & 0xFF000000) | (input.read() << 16) | (input.read() << 8) | input.read();
+			} else if(op == QoiEncoder.OP_RGBA) {
+				pixel = (input.read() << 16) | (input.read() << 8) | input.read() | (input.read() << 24);
+			} else {
+				switch (op & QoiEncoder.OP_MASK) {
+				case QoiEncoder.OP_INDEX:
+					pixel = seen[op];
+					break;
+				case QoiEncoder.OP_DIFF:
+					pixel = add(pixel, ((op >> 4) & 3) - 2, ((op >> 2) & 3) - 2, (op & 3) - 2);
+					break;
+				case QoiEncoder.OP_LUMA:
+					final int dg = (op & 0x3F) - 32;
+					final int next = input.read();
+					pixel = add(pixel, dg + ((next >> 4) - 8), dg, dg + ((next & 0x0F) - 8));
+					break;
+				default:
+					//Runs repeat the previous pixel, without updating the seen pixels
+					final int run = Math.min((op & 0x3F) + 1, data.length - position);
+					Arrays.fill(data, position, position + run, pixel);
+					position += run;
+					continue;
+				}
+			}
+			seen[QoiEncoder.hash(pixel)] = pixel;
+			data[position++] = pixel;
+		}
+		return image;
+	}
+	
+	/**
+	 * @return the pixel with the differences added to each colour component, wrapping around, and the same alpha component.
+	 */
+	private static int add(int pixel, int dr, int dg, int db) {
+		final int red   = ((pixel >> 16) + dr) & 0xFF;
+		final int green = ((pixel >> 8) + dg) & 0xFF;
+		final int blue  = (pixel + db) & 0xFF;
+		return (pixel & 0xFF000000) | (red << 16) | (green << 8) | blue;
+	}
+	
+	/**
+	 * Reads the stream through a buffer, without the synchronisation of <code>BufferedInputStream</code>.
+	 */
+	private static final class Input {
+		private final InputStream in;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int position;
+		private int limit;
+		
+		private Input(InputStream in) {
+			this.in = in;
+		}
+		
+		private int read() throws IOException {
+			if(position == limit) {
+				limit = in.read(buffer, 0, BUFFER_SIZE);
+				position = 0;
+				if(limit <= 0) {
+					limit = 0;
+					throw new EOFException("Unexpected end of the QOI image.");
+				}
+			}
+			return buffer[position++] & 0xFF;
+		}
+		
+		private int readInt() throws IOException {
+			return (read() << 24) | (read() << 16) | (read() << 8) | read();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.dbf.heatmaps.encoding;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A lossless encoder for the QOI (Quite OK Image) format, which is many times faster to encode and decode than PNG, at the cost of larger files.
+ * Suited to passing rendered heat maps between the stages of a pipeline, where the image is decoded again right away. See {@link QoiDecoder}.
+ * 
+ * The pixels are read directly from the buffer of the image, in the same way as {@link PngEncoder}, and encoded in a single pass.
+ * The large blocks of solid colour of heat maps are mostly written as runs of a single byte per 62 pixels.
+ * 
+ * Encoders are immutable and can be shared between threads.
+ */
+public class QoiEncoder {
+	
+	static final byte[] MAGIC = new byte[] {'q', 'o', 'i', 'f'};
+	static final byte[] END_MARKER = new byte[] {0, 0, 0, 0, 0, 0, 0, 1};
+	
+	static final int OP_INDEX = 0x00;
+	static final int OP_DIFF  = 0x40;
+	static final int OP_LUMA  = 0x80;
+	static final int OP_RUN   = 0xC0;
+	static final int OP_RGB   = 0xFE;
+	static final int OP_RGBA  = 0xFF;
+	static final int OP_MASK  = 0xC0;
+	
+	static final int MAX_RUN = 62;
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	//The largest operation, an RGBA pixel, is 5 bytes
+	private static final int MAX_OPERATION_SIZE = 5;
+	
+	//The output buffer of the last completed image of each thread
+	private static final ThreadLocal<byte[]> FREE_BUFFER = new ThreadLocal<byte[]>();
+	
+	/**
+	 * Encodes the image as a QOI file.
+	 */
+	public void encode(BufferedImage image, File file) throws IOException {
+		if(null == file) throw new IllegalArgumentException("Invalid file.");
+		//Already written in large blocks
+		try (OutputStream out = new FileOutputStream(file)) {
+			encode(image, out);
+		}
+	}
+	
+	/**
+	 * Encodes the image as a QOI file, written to the output stream. The stream is flushed but not closed.
+	 * Images with an alpha channel are written using 4 channels, and all others using 3 channels.
+	 */
+	public void encode(BufferedImage image, OutputStream out) throws IOException {
+		if(null == image) throw new IllegalArgumentException("Missing image.");
+		if(null == out) throw new IllegalArgumentException("Missing output stream.");
+		final PixelReader pixels = new PixelReader(image);
+		final int width = pixels.getWidth();
+		final int height = pixels.getHeight();
+		final boolean alpha = pixels.hasAlpha();
+		
+		byte[] buffer = FREE_BUFFER.get();
+		if(null == buffer) {
+			buffer = new byte[BUFFER_SIZE];
+		} else {
+			FREE_BUFFER.remove();
+		}
+		
+		//Header
+		System.arraycopy(MAGIC, 0, buffer, 0, 4);
+		PngChunks.writeInt(buffer, 4, width);
+		PngChunks.writeInt(buffer, 8, height);
+		buffer[12] = (byte) (alpha ? 4 : 3);
+		buffer[13] = 0; //sRGB with linear alpha
+		int length = 14;
+		
+		//Indexed colour images are read as indices, and looked up in the palette, which is much faster than converting the image
+		final int[] colours = pixels.isIndexed() ? new int[256] : null;
+		final byte[] indices = pixels.isIndexed() ? new byte[width] : null;
+		if(null != colours) pixels.getPalette().getRGBs(colours);
+		
+		final int[] row = new int[width];
+		final int[] seen = new int[64];
+		int previous = 0xFF000000;
+		int run = 0;
+		for(int y = 0; y < height; y++) {
+			if(null != colours) {
+				pixels.readIndices(y, indices);
+				for(int x = 0; x < width; x++) {
+					row[x] = colours[indices[x] & 0xFF];
+				}
+			} else {
+				pixels.readRow(y, row);
+			}
+			
+			for(int x = 0; x < width; x++) {
+				//The alpha component of opaque images is not meaningful
+				final int pixel = alpha ? row[x] : row[x] | 0xFF000000;
+				if(pixel == previous) {
+					//Runs continue across rows
+					if(++run == MAX_RUN) {
+						if(length == BUFFER_SIZE) {
+							out.write(buffer, 0, length);
+							length = 0;
+						}
+						buffer[length++] = (byte) (OP_RUN | (run - 1));
+						run = 0;
+					}
+					continue;
+				}
+				
+				if(length > BUFFER_SIZE - MAX_OPERATION_SIZE - 1) {
+					out.write(buffer, 0, length);
+					length = 0;
+				}
+				if(run > 0) {
+					buffer[length++] = (byte) (OP_RUN | (run - 1));
+					run = 0;
+				}
+				
+				final int hash = hash(pixel);
+				if(seen[hash] == pixel) {
+					buffer[length++] = (byte) (OP_INDEX | hash);
+				} else {
+					seen[hash] = pixel;
+					if((pixel >>> 24) == (previous >>> 24)) {
+						//Differences wrap around, in the same way as the decoder
+						final int dr = (byte) ((pixel >> 16) - (previous >> 16));
+						final int dg = (byte) ((pixel >> 8) - (previous >> 8));
+						final int db = (byte) (pixel - previous);
+						final int drdg = dr - dg;
+						final int dbdg = db - dg;
+						if(dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1) {
+							buffer[length++] = (byte) (OP_DIFF | ((dr + 2) << 4) | ((dg + 2) << 2) | (db + 2));
+						} else if(dg >= -32 && dg <= 31 && drdg >= -8 && drdg <= 7 && dbdg >= -8 && dbdg <= 7) {
+							buffer[length++] = (byte) (OP_LUMA | (dg + 32));
+							buffer[length++] = (byte) (((drdg + 8) << 4) | (dbdg + 8));
+						} else {
+							buffer[length++] = (byte) OP_RGB;
+							buffer[length++] = (byte) (pixel >> 16);
+							buffer[length++] = (byte) (pixel >> 8);
+							buffer[length++] = (byte) pixel;
+						}
+					} else {
+						buffer[length++] = (byte) OP_RGBA;
+						buffer[length++] = (byte) (pixel >> 16);
+						buffer[length++] = (byte) (pixel >> 8);
+						buffer[length++] = (byte) pixel;
+						buffer[length++] = (byte) (pixel >>> 24);
+					}
+				}
+				previous = pixel;
+			}
+		}
+		
+		if(length > BUFFER_SIZE - END_MARKER.length - 1) {
+			out.write(buffer, 0, length);
+			length = 0;
+		}
+		if(run > 0) buffer[length++] = (byte) (OP_RUN | (run - 1));
+		System.arraycopy(END_MARKER, 0, buffer, length, END_MARKER.length);
+		length += END_MARKER.length;
+		out.write(buffer, 0, length);
+		out.flush();
+		FREE_BUFFER.set(buffer);
+	}
+	
+	/**
+	 * @return the position of the ARGB pixel within the array of previously seen pixels.
+	 */
+	static int hash(int pixel) {
+		final int red   = (pixel >> 16) & 0xFF;
+		final int green = (pixel >> 8) & 0xFF;
+		final int blue  = pixel & 0xFF;
+		final int alpha = pixel >>> 24;
+		return (red * 3 + green * 5 + blue * 7 + alpha * 11) & 63;
+	}
+}
@@ -0,0 +1,244 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.encoding.ParallelPngEncoder;
+
+class AnimationTest extends AbstractHeatMapTest {
+	
+	private static final int FRAMES = 8;
+	
+	@Test
+	void ApngAnimationTest() throws IOException {
+		final List<BasicDataGrid> frames = createFrames(60, 40);
+		final HeatMapOptions[] allOptions = {
+			HeatMapOptions.builder().withCellWidth(24).withCellHeight(20).withShowGridlines(true).withShowGridValues(true).withGridValuesFormat("0").build(),
+			HeatMapOptions.builder().withCellWidth(10).withCellHeight(10).withIndexedColour(true).build(),
+			HeatMapOptions.builder().withCellWidth(10).withCellHeight(10).withBlendColours(true).build()
+		};
+		
+		for (int i = 0; i < allOptions.length; i++) {
+			final HeatMap heatMap = createHeatMap(frames, allOptions[i]);
+			final File output = getTempFile("animation_" + i + ".png");
+			System.out.println("Generating the APNG animation test heat map at file " + output.getAbsolutePath());
+			final byte[] animation = writeAnimation(heatMap, frames, AnimationFormat.APNG, output);
+			System.out.println("Generated the APNG animation test heat map at file " + output.getAbsolutePath());
+			
+			final List<BufferedImage> decoded = decodeApng(animation);
+			assertEquals(FRAMES, decoded.size());
+			long pngSize = 0;
+			for (int frame = 0; frame < FRAMES; frame++) {
+				final BufferedImage expected = heatMap.render(frames.get(frame));
+				PngEncoderTest.assertSamePixels(expected, decoded.get(frame));
+				
+				final ByteArrayOutputStream png = new ByteArrayOutputStream();
+				new ParallelPngEncoder().encode(expected, png);
+				pngSize += png.size();
+			}
+			System.out.println("APNG animation size: " + animation.length + " bytes, separate PNG images: " + pngSize + " bytes");
+			
+			//Only a small part of the matrix changes between the frames
+			if(i < 2) assertTrue(animation.length * 2 < pngSize);
+		}
+	}
+	
+	@Test
+	void GifAnimationTest() throws IOException {
+		final List<BasicDataGrid> frames = createFrames(60, 40);
+		final HeatMap heatMap = createHeatMap(frames, HeatMapOptions.builder().withCellWidth(10).withCellHeight(10).withIndexedColour(true).build());
+		
+		final File output = getTempFile("animation.gif");
+		System.out.println("Generating the GIF animation test heat map at file " + output.getAbsolutePath());
+		final byte[] animation = writeAnimation(heatMap, frames, AnimationFormat.GIF, output);
+		System.out.println("Generated the GIF animation test heat map at file " + output.getAbsolutePath());
+		
+		final List<BufferedImage> decoded = decodeGif(animation);
+		assertEquals(FRAMES, decoded.size());
+		for (int frame = 0; frame < FRAMES; frame++) {
+			PngEncoderTest.assertSamePixels(heatMap.render(frames.get(frame)), decoded.get(frame));
+		}
+		System.out.println("GIF animation size: " + animation.length + " bytes");
+		
+		//GIF is limited to 256 colours
+		final HeatMap trueColour = createHeatMap(frames, HeatMapOptions.builder().build());
+		assertThrows(IllegalArgumentException.class, ()->trueColour.renderAnimation(frames, null, 100, AnimationFormat.GIF, new ByteArrayOutputStream()));
+		assertThrows(IllegalArgumentException.class, ()->heatMap.renderAnimation(Collections.emptyList(), null, 100, AnimationFormat.GIF, new ByteArrayOutputStream()));
+		assertThrows(IllegalArgumentException.class, ()->heatMap.renderAnimation(frames, null, -1, AnimationFormat.APNG, new ByteArrayOutputStream()));
+	}
+	
+	/**
+	 * A blob that moves across the grid, with the same minimum and maximum values in every frame so that each frame can also be rendered on its own.
+	 */
+	private static List<BasicDataGrid> createFrames(int width, int height) {
+		final List<BasicDataGrid> frames = new ArrayList<BasicDataGrid>();
+		for (int frame = 0; frame < FRAMES; frame++) {
+			final BasicDataGrid grid = new BasicDataGrid(width, height);
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					final double distance = Math.hypot(x - 10 - (frame * 4), y - 20);
+					grid.setValue(x, y, distance < 5 ? 10 - distance : 0);
+				}
+			}
+			grid.setValue(width - 1, height - 1, 10);
+			//The same frame twice in a row, which produces an empty frame
+			if(frame == 3) grid.setValue(0, 0, Double.NaN);
+			if(frame == 4) frames.add(frames.get(3));
+			else frames.add(grid);
+		}
+		return frames;
+	}
+	
+	private static HeatMap createHeatMap(List<BasicDataGrid> frames, HeatMapOptions options) {
+		return HeatMap.builder()
+				.withTitle("Animation Test")
+				.withXAxis(new IntegerAxis("X", 0, frames.get(0).getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, frames.get(0).getHeight() - 1))
+				.withOptions(options)
+				.build();
+	}
+	
+	private static byte[] writeAnimation(HeatMap heatMap, List<BasicDataGrid> frames, AnimationFormat format, File output) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		heatMap.renderAnimation(frames, null, 100, format, out);
+		try (OutputStream file = new FileOutputStream(output)) {
+			out.writeTo(file);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Decodes each frame of an APNG image as a standalone PNG image, and draws it over the previous frame.
+	 */
+	private static List<BufferedImage> decodeApng(byte[] animation) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(animation, 8, animation.length - 8);
+		byte[] header = null;
+		final List<byte[]> paletteChunks = new ArrayList<byte[]>();
+		final List<BufferedImage> frames = new ArrayList<BufferedImage>();
+		BufferedImage canvas = null;
+		int[] frameControl = null;
+		ByteArrayOutputStream frameData = new ByteArrayOutputStream();
+		while (buffer.hasRemaining()) {
+			final int length = buffer.getInt();
+			final byte[] typeBytes = new byte[4];
+			buffer.get(typeBytes);
+			final String type = new String(typeBytes, StandardCharsets.US_ASCII);
+			final byte[] data = new byte[length];
+			buffer.get(data);
+			buffer.getInt(); //CRC
+			
+			if(type.equals("fcTL") || type.equals("IEND")) {
+				if(null != frameControl) {
+					final BufferedImage frame = ImageIO.read(new ByteArrayInputStream(createPng(header, frameControl[0], frameControl[1], paletteChunks, frameData.toByteArray())));
+					if(null == canvas) canvas = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+					final int[] pixels = frame.getRGB(0, 0, frame.getWidth(), frame.getHeight(), null, 0, frame.getWidth());
+					canvas.setRGB(frameControl[2], frameControl[3], frame.getWidth(), frame.getHeight(), pixels, 0, frame.getWidth());
+					frames.add(copy(canvas));
+					frameData = new ByteArrayOutputStream();
+				}
+				if(type.equals("fcTL")) {
+					final ByteBuffer control = ByteBuffer.wrap(data);
+					control.getInt(); //Sequence number
+					frameControl = new int[] {control.getInt(), control.getInt(), control.getInt(), control.getInt()};
+				}
+			} else if(type.equals("IHDR")) {
+				header = data;
+			} else if(type.equals("PLTE") || type.equals("tRNS")) {
+				paletteChunks.add(Arrays.copyOf(typeBytes, 4));
+				paletteChunks.add(data);
+			} else if(type.equals("IDAT")) {
+				frameData.write(data);
+			} else if(type.equals("fdAT")) {
+				//Without the sequence number
+				frameData.write(data, 4, data.length - 4);
+			}
+		}
+		return frames;
+	}
+	
+	private static byte[] createPng(byte[] header, int width, int height, List<byte[]> paletteChunks, byte[] imageData) throws IOException {
+		final ByteArrayOutputStream png = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(png);
+		out.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+		final ByteBuffer frameHeader = ByteBuffer.wrap(header.clone());
+		frameHeader.putInt(0, width);
+		frameHeader.putInt(4, height);
+		writeChunk(out, "IHDR".getBytes(StandardCharsets.US_ASCII), frameHeader.array());
+		for (int i = 0; i < paletteChunks.size(); i += 2) writeChunk(out, paletteChunks.get(i), paletteChunks.get(i + 1));
+		writeChunk(out, "IDAT".getBytes(StandardCharsets.US_ASCII), imageData);
+		writeChunk(out, "IEND".getBytes(StandardCharsets.US_ASCII), new byte[0]);
+		return png.toByteArray();
+	}
+	
+	private static void writeChunk(DataOutputStream out, byte[] type, byte[] data) throws IOException {
+		final CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(data);
+		out.writeInt(data.length);
+		out.write(type);
+		out.write(data);
+		out.writeInt((int) crc.getValue());
+	}
+	
+	/**
+	 * Decodes each frame of a GIF image, and draws it over the previous frame at the position of its image descriptor.
+	 */
+	private static List<BufferedImage> decodeGif(byte[] animation) throws IOException {
+		final List<BufferedImage> frames = new ArrayList<BufferedImage>();
+		final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+		try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(animation))) {
+			reader.setInput(in);
+			BufferedImage canvas = null;
+			final int count = reader.getNumImages(true);
+			for (int i = 0; i < count; i++) {
+				final BufferedImage frame = reader.read(i);
+				final IIOMetadataNode metadata = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+				final IIOMetadataNode descriptor = (IIOMetadataNode) metadata.getElementsByTagName("ImageDescriptor").item(0);
+				final int left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+				final int top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+				final int width = Integer.parseInt(descriptor.getAttribute("imageWidth"));
+				final int height = Integer.parseInt(descriptor.getAttribute("imageHeight"));
+				
+				if(null == canvas) canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+				final int[] pixels = frame.getRGB(0, 0, width, height, null, 0, width);
+				canvas.setRGB(left, top, width, height, pixels, 0, width);
+				frames.add(copy(canvas));
+			}
+		} finally {
+			reader.dispose();
+		}
+		return frames;
+	}
+	
+	private static BufferedImage copy(BufferedImage image) {
+		final BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		copy.setData(image.getData());
+		return copy;
+	}
+}
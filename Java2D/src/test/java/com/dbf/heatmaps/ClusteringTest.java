@@ -0,0 +1,160 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.axis.ReorderedAxis;
+import com.dbf.heatmaps.axis.StringAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.CorrelationMatrix;
+import com.dbf.heatmaps.data.CorrelationMethod;
+import com.dbf.heatmaps.data.FunctionDataGrid;
+import com.dbf.heatmaps.data.HierarchicalClustering;
+import com.dbf.heatmaps.data.Linkage;
+import com.dbf.heatmaps.data.ReorderedDataGrid;
+import com.dbf.heatmaps.data.SymmetricDataGrid;
+
+class ClusteringTest extends AbstractHeatMapTest {
+	
+	@Test
+	void ClustermapTest() throws IOException {
+		File output = getTempFile("clustermap.png");
+		System.out.println("Generating the clustermap test heat map at file " + output.getAbsolutePath());
+		
+		//Rows belonging to 4 hidden groups, in a shuffled order, with a few empty cells
+		final int rows = 120;
+		final int columns = 40;
+		final int groups = 4;
+		final Random random = new Random(5);
+		final double[][] profiles = new double[groups][columns];
+		for (double[] profile : profiles) {
+			for (int x = 0; x < columns; x++) {
+				profile[x] = random.nextDouble() * 100;
+			}
+		}
+		final List<Integer> groupOfRow = new ArrayList<Integer>();
+		for (int y = 0; y < rows; y++) {
+			groupOfRow.add(y % groups);
+		}
+		Collections.shuffle(groupOfRow, random);
+		
+		final BasicDataGrid grid = new BasicDataGrid(columns, rows);
+		final StringAxis yAxis = new StringAxis("Host");
+		for (int y = 0; y < rows; y++) {
+			yAxis.addEntry("host-" + y);
+			for (int x = 0; x < columns; x++) {
+				if(random.nextInt(20) == 0) continue;
+				grid.setValue(x, y, profiles[groupOfRow.get(y)][x] + random.nextGaussian() * 5);
+			}
+		}
+		
+		for (Linkage linkage : Linkage.values()) {
+			final int[] order = HierarchicalClustering.orderRows(grid, linkage);
+			assertPermutation(order, rows);
+			
+			//Each group must be contiguous once the rows are reordered
+			final Set<Integer> finished = new HashSet<Integer>();
+			for (int i = 1; i < rows; i++) {
+				final int previous = groupOfRow.get(order[i - 1]);
+				final int current = groupOfRow.get(order[i]);
+				if(current != previous) {
+					assertTrue(finished.add(previous), "Group " + previous + " is split with " + linkage + " linkage.");
+					assertTrue(!finished.contains(current), "Group " + current + " is split with " + linkage + " linkage.");
+				}
+			}
+		}
+		
+		final int[] rowOrder = HierarchicalClustering.orderRows(grid, Linkage.AVERAGE);
+		final int[] columnOrder = HierarchicalClustering.orderColumns(grid, Linkage.AVERAGE);
+		assertPermutation(columnOrder, columns);
+		
+		final IntegerAxis xAxis = new IntegerAxis("Metric", 0, columns - 1);
+		final ReorderedAxis<String> clusteredYAxis = new ReorderedAxis<String>(yAxis, rowOrder);
+		final ReorderedAxis<Integer> clusteredXAxis = new ReorderedAxis<Integer>(xAxis, columnOrder);
+		for (int i = 0; i < rows; i++) {
+			assertEquals(i, clusteredYAxis.getIndex("host-" + rowOrder[i]));
+			assertEquals("host-" + rowOrder[i], clusteredYAxis.getOrderedLabels().get(i));
+		}
+		for (int i = 0; i < columns; i++) {
+			assertEquals(i, clusteredXAxis.getIndex(columnOrder[i]));
+		}
+		
+		final BufferedImage image = HeatMap.builder()
+			.withTitle("Clustered Hosts")
+			.withXAxis(clusteredXAxis)
+			.withYAxis(clusteredYAxis)
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(12)
+					.withCellHeight(8)
+					.withShowYAxisLabels(false)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.render(new ReorderedDataGrid(grid, columnOrder, rowOrder));
+		ImageIO.write(image, "png", output);
+		System.out.println("Generated the clustermap test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void CorrelationClusteringTest() {
+		//Series following one of 3 factors, clustered on one minus their correlation
+		final int count = 60;
+		final int length = 200;
+		final Random random = new Random(9);
+		final double[][] factors = new double[3][length];
+		for (double[] factor : factors) {
+			for (int k = 0; k < length; k++) {
+				factor[k] = random.nextGaussian();
+			}
+		}
+		final int[] factorOfSeries = new int[count];
+		final double[][] series = new double[count][length];
+		for (int i = 0; i < count; i++) {
+			factorOfSeries[i] = random.nextInt(factors.length);
+			for (int k = 0; k < length; k++) {
+				series[i][k] = factors[factorOfSeries[i]][k] + random.nextGaussian() * 0.3;
+			}
+		}
+		
+		final SymmetricDataGrid correlations = CorrelationMatrix.compute(series, CorrelationMethod.PEARSON);
+		final int[] order = HierarchicalClustering.orderDistances(new FunctionDataGrid(count, count, (x, y)->1 - correlations.getValue(x, y)), Linkage.COMPLETE);
+		assertPermutation(order, count);
+		
+		int changes = 0;
+		for (int i = 1; i < count; i++) {
+			if(factorOfSeries[order[i]] != factorOfSeries[order[i - 1]]) changes++;
+		}
+		assertEquals(factors.length - 1, changes);
+		
+		final SymmetricDataGrid reordered = correlations.reorder(order);
+		for (int y = 0; y < count; y++) {
+			for (int x = 0; x < count; x++) {
+				assertEquals(correlations.getValue(order[x], order[y]), reordered.getValue(x, y));
+			}
+		}
+	}
+	
+	private static void assertPermutation(int[] order, int count) {
+		assertEquals(count, order.length);
+		final boolean[] seen = new boolean[count];
+		for (int i : order) {
+			assertTrue(!seen[i]);
+			seen[i] = true;
+		}
+	}
+}
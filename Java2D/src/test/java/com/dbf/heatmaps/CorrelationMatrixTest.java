@@ -0,0 +1,131 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.CorrelationMatrix;
+import com.dbf.heatmaps.data.CorrelationMethod;
+import com.dbf.heatmaps.data.SymmetricDataGrid;
+
+class CorrelationMatrixTest extends AbstractHeatMapTest {
+	
+	@Test
+	void CorrelationHeatMapTest() throws IOException {
+		File output = getTempFile("correlation.png");
+		System.out.println("Generating the correlation test heat map at file " + output.getAbsolutePath());
+		
+		//Enough series and values to span several blocks and chunks, with groups of related series
+		final int count = 150;
+		final int length = 700;
+		final Random random = new Random(3);
+		final double[][] factors = new double[5][length];
+		for (double[] factor : factors) {
+			for (int k = 0; k < length; k++) {
+				factor[k] = random.nextGaussian();
+			}
+		}
+		final double[][] series = new double[count][length];
+		for (int i = 0; i < count; i++) {
+			final double[] factor = factors[i % factors.length];
+			final double weight = random.nextDouble() * 2 - 1;
+			for (int k = 0; k < length; k++) {
+				//Rounded, so that the ranks have ties
+				series[i][k] = Math.round((weight * factor[k] + random.nextGaussian() * 0.5) * 4) / 4.0;
+			}
+		}
+		//A flat series has no correlation
+		series[7] = new double[length];
+		
+		for (CorrelationMethod method : CorrelationMethod.values()) {
+			final SymmetricDataGrid grid = CorrelationMatrix.compute(series, method);
+			assertEquals(count, grid.getSize());
+			
+			final double[][] values = new double[count][];
+			for (int i = 0; i < count; i++) {
+				values[i] = (method == CorrelationMethod.SPEARMAN) ? rank(series[i]) : series[i];
+			}
+			for (int y = 0; y < count; y++) {
+				for (int x = 0; x < count; x++) {
+					if(x == 7 || y == 7) {
+						assertTrue(Double.isNaN(grid.getValue(x, y)));
+					} else {
+						assertEquals(pearson(values[x], values[y]), grid.getValue(x, y), 1e-9);
+					}
+				}
+			}
+			
+			if(method == CorrelationMethod.PEARSON) {
+				final BufferedImage image = HeatMap.builder()
+					.withTitle("Series Correlation")
+					.withXAxis(new IntegerAxis("Series", 0, count - 1))
+					.withYAxis(new IntegerAxis("Series", 0, count - 1))
+					.withOptions(HeatMapOptions.builder()
+							.withCellWidth(4)
+							.withCellHeight(4)
+							.withShowXAxisLabels(false)
+							.withShowYAxisLabels(false)
+							.withColourScaleLowerBound(-1.0)
+							.withColourScaleUpperBound(1.0)
+							.withGradient(HeatMapGradient.BASIC_GRADIENT)
+							.build())
+					.build()
+					.render(grid);
+				ImageIO.write(image, "png", output);
+			}
+		}
+		System.out.println("Generated the correlation test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void InvalidValuesTest() {
+		//Both methods reject invalid values, even though they would still have a rank
+		final double[][] series = {{1, 2, 3, 4}, {4, 3, Double.NaN, 1}};
+		final double[][] infinite = {{1, 2, 3, 4}, {4, 3, Double.POSITIVE_INFINITY, 1}};
+		for (CorrelationMethod method : CorrelationMethod.values()) {
+			assertThrows(IllegalArgumentException.class, ()->CorrelationMatrix.compute(series, method));
+			assertThrows(IllegalArgumentException.class, ()->CorrelationMatrix.compute(infinite, method));
+		}
+	}
+	
+	private static double pearson(double[] a, double[] b) {
+		double meanA = 0, meanB = 0;
+		for (int k = 0; k < a.length; k++) {
+			meanA += a[k];
+			meanB += b[k];
+		}
+		meanA /= a.length;
+		meanB /= b.length;
+		double covariance = 0, varianceA = 0, varianceB = 0;
+		for (int k = 0; k < a.length; k++) {
+			covariance += (a[k] - meanA) * (b[k] - meanB);
+			varianceA += (a[k] - meanA) * (a[k] - meanA);
+			varianceB += (b[k] - meanB) * (b[k] - meanB);
+		}
+		return covariance / Math.sqrt(varianceA * varianceB);
+	}
+	
+	private static double[] rank(double[] values) {
+		//The average rank of a value is 1 + the number of smaller values + half the number of other equal values
+		final double[] ranks = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			int smaller = 0, equal = 0;
+			for (int j = 0; j < values.length; j++) {
+				if(values[j] < values[i]) smaller++;
+				else if (values[j] == values[i] && j != i) equal++;
+			}
+			ranks[i] = 1 + smaller + equal / 2.0;
+		}
+		return ranks;
+	}
+}
@@ -0,0 +1,116 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.axis.StringAxis;
+import com.dbf.heatmaps.data.Aggregation;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.DataCube;
+
+class DataCubeTest extends AbstractHeatMapTest {
+	
+	@Test
+	void DataCubeHeatMapTest() throws IOException {
+		File output = getTempFile("cube.png");
+		System.out.println("Generating the data cube test heat map at file " + output.getAbsolutePath());
+		
+		final StringAxis hosts = new StringAxis("Host");
+		for (int h = 0; h < 12; h++) {
+			hosts.addEntry("host-" + h);
+		}
+		final IntegerAxis hours = new IntegerAxis("Hour", 0, 23);
+		final StringAxis days = new StringAxis("Day", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
+		
+		//Ingest the raw events once, keeping our own totals to compare against
+		final DataCube sums = new DataCube(Aggregation.SUM, hosts, hours, days);
+		final DataCube means = new DataCube(Aggregation.MEAN, hosts, hours, days);
+		final DataCube maxes = new DataCube(Aggregation.MAX, hosts, hours, days);
+		final double[][][] sum = new double[12][24][7];
+		final int[][][] count = new int[12][24][7];
+		final double[][][] max = new double[12][24][7];
+		final Random random = new Random(8);
+		for (int i = 0; i < 50000; i++) {
+			final int h = random.nextInt(12);
+			final int hour = random.nextInt(24);
+			final int d = random.nextInt(7);
+			if(h == 3 && d == 6) continue; //Leave some cells empty
+			final double value = random.nextInt(100);
+			final Object[] entries = new Object[] {"host-" + h, hour, days.getOrderedLabels().get(d)};
+			assertTrue(sums.add(value, entries));
+			assertTrue(means.add(value, entries));
+			maxes.addByIndex(value, h, hour, d);
+			sum[h][hour][d] += value;
+			count[h][hour][d]++;
+			max[h][hour][d] = count[h][hour][d] == 1 ? value : Math.max(max[h][hour][d], value);
+		}
+		assertFalse(sums.add(1, "unknown-host", 0, "Mon"));
+		
+		//Hour by day
+		final BasicDataGrid hourByDay = sums.rollUp(1, 2);
+		for (int d = 0; d < 7; d++) {
+			for (int hour = 0; hour < 24; hour++) {
+				double expected = 0;
+				for (int h = 0; h < 12; h++) {
+					expected += sum[h][hour][d];
+				}
+				assertEquals(expected, hourByDay.getValue(hour, d), 1e-9);
+			}
+		}
+		
+		//Host by day, mean and max
+		final BasicDataGrid meanByHostDay = means.rollUp(2, 0);
+		final BasicDataGrid maxByHostDay = maxes.rollUp(2, 0);
+		for (int h = 0; h < 12; h++) {
+			for (int d = 0; d < 7; d++) {
+				double total = 0;
+				int n = 0;
+				double highest = Double.NEGATIVE_INFINITY;
+				for (int hour = 0; hour < 24; hour++) {
+					total += sum[h][hour][d];
+					n += count[h][hour][d];
+					if(count[h][hour][d] > 0) highest = Math.max(highest, max[h][hour][d]);
+				}
+				if(n == 0) {
+					assertTrue(Double.isNaN(meanByHostDay.getValue(d, h)));
+					assertTrue(Double.isNaN(maxByHostDay.getValue(d, h)));
+				} else {
+					assertEquals(total / n, meanByHostDay.getValue(d, h), 1e-9);
+					assertEquals(highest, maxByHostDay.getValue(d, h));
+				}
+			}
+		}
+		
+		//Host by hour, on Wednesdays only
+		final BasicDataGrid wednesday = sums.slice(1, 0, -1, -1, 2);
+		for (int h = 0; h < 12; h++) {
+			for (int hour = 0; hour < 24; hour++) {
+				assertEquals(sum[h][hour][2], wednesday.getValue(hour, h), 1e-9);
+				assertEquals(sum[h][hour][2], sums.getValue(h, hour, 2), 1e-9);
+			}
+		}
+		
+		final BufferedImage image = HeatMap.builder()
+			.withTitle("Events by Host and Hour")
+			.withXAxis(sums.getAxis(1))
+			.withYAxis(sums.getAxis(0))
+			.withOptions(HeatMapOptions.builder()
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.render(sums.rollUp(1, 0));
+		ImageIO.write(image, "png", output);
+		System.out.println("Generated the data cube test heat map at file " + output.getAbsolutePath());
+	}
+}
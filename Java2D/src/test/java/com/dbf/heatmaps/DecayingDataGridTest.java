@@ -0,0 +1,68 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.DataGrid;
+import com.dbf.heatmaps.data.DecayingDataGrid;
+
+class DecayingDataGridTest extends AbstractHeatMapTest {
+	
+	@Test
+	void DecayingDataGridHeatMapTest() throws IOException {
+		File output = getTempFile("decaying.png");
+		System.out.println("Generating the decaying grid test heat map at file " + output.getAbsolutePath());
+		
+		final int columns = 24;
+		final int rows = 12;
+		final long halfLife = 60000; //One minute
+		final DecayingDataGrid grid = new DecayingDataGrid(columns, rows, halfLife);
+		
+		//A value is halved after each half-life
+		grid.add(0, 0, 8.0, 0);
+		assertEquals(8.0, grid.getValue(0, 0, 0), 1e-9);
+		assertEquals(4.0, grid.getValue(0, 0, halfLife), 1e-9);
+		assertEquals(1.0, grid.getValue(0, 0, 3 * halfLife), 1e-9);
+		
+		//Events arriving out of order give the same result as in order
+		grid.add(1, 0, 8.0, halfLife);
+		grid.add(1, 0, 8.0, 0);
+		grid.add(2, 0, 8.0, 0);
+		grid.add(2, 0, 8.0, halfLife);
+		assertEquals(12.0, grid.getValue(1, 0, halfLife), 1e-9);
+		assertEquals(grid.getValue(2, 0, 2 * halfLife), grid.getValue(1, 0, 2 * halfLife), 1e-9);
+		assertTrue(Double.isNaN(grid.getValue(3, 0, 0)));
+		
+		//Simulate some recent activity, newer events are in the later columns
+		final Random random = new Random(1234);
+		for (int i = 0; i < 10000; i++) {
+			final int x = random.nextInt(columns);
+			grid.add(x, random.nextInt(rows), 1.0, x * 10000L);
+		}
+		
+		final DataGrid snapshot = grid.snapshot(columns * 10000L);
+		assertEquals(grid.getValue(5, 5, columns * 10000L), snapshot.getValue(5, 5));
+		
+		final BufferedImage image = HeatMap.builder()
+			.withTitle("Recent Activity")
+			.withXAxis(new IntegerAxis("Source", 1, columns))
+			.withYAxis(new IntegerAxis("Target", 1, rows))
+			.withOptions(HeatMapOptions.builder()
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.render(snapshot);
+		ImageIO.write(image, "png", output);
+		System.out.println("Generated the decaying grid test heat map at file " + output.getAbsolutePath());
+	}
+}
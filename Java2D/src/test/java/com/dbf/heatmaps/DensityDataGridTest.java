@@ -0,0 +1,136 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.data.DensityDataGrid;
+import com.dbf.heatmaps.data.DensityKernel;
+
+class DensityDataGridTest extends AbstractHeatMapTest {
+	
+	@Test
+	void DensityHeatMapTest() throws IOException {
+		File output = getTempFile("density.png");
+		System.out.println("Generating the density test heat map at file " + output.getAbsolutePath());
+		
+		//Two clusters of points, enough to be binned in parallel chunks
+		final int count = 3_000_000;
+		final double[] xs = new double[count];
+		final double[] ys = new double[count];
+		final Random random = new Random(17);
+		for (int i = 0; i < count; i++) {
+			final boolean first = random.nextInt(3) > 0;
+			xs[i] = (first ? 30 : 70) + random.nextGaussian() * (first ? 8 : 5);
+			ys[i] = (first ? 40 : 75) + random.nextGaussian() * (first ? 10 : 4);
+		}
+		
+		final DensityDataGrid density = new DensityDataGrid(100, 80, 0, 100, 0, 100);
+		density.addAll(xs, ys);
+		
+		//The parallel binning must match adding the points one at a time
+		final DensityDataGrid sequential = new DensityDataGrid(100, 80, 0, 100, 0, 100);
+		int inside = 0;
+		for (int i = 0; i < count; i++) {
+			sequential.add(xs[i], ys[i]);
+			if(xs[i] >= 0 && xs[i] <= 100 && ys[i] >= 0 && ys[i] <= 100) inside++;
+		}
+		assertEquals(inside, density.getTotal(), 0);
+		for (int y = 0; y < density.getHeight(); y++) {
+			for (int x = 0; x < density.getWidth(); x++) {
+				assertEquals(sequential.getValue(x, y), density.getValue(x, y));
+			}
+		}
+		
+		final DensityDataGrid smoothed = density.smooth(DensityKernel.GAUSSIAN, 2);
+		assertEquals(density.getTotal(), smoothed.getTotal(), density.getTotal() * 0.001);
+		
+		final BufferedImage image = HeatMap.builder()
+			.withTitle("Latency by Payload Size")
+			.withXAxis(density.buildXAxis("Payload (KB)", "%.0f"))
+			.withYAxis(density.buildYAxis("Latency (ms)", "%.0f"))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(6)
+					.withCellHeight(6)
+					.withShowXAxisLabels(false)
+					.withShowYAxisLabels(false)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.render(smoothed);
+		ImageIO.write(image, "png", output);
+		System.out.println("Generated the density test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void SmoothingTest() {
+		final int width = 300;
+		final int height = 40;
+		final DensityDataGrid grid = new DensityDataGrid(width, height, 0, width, 0, height);
+		final Random random = new Random(4);
+		for (int i = 0; i < 2000; i++) {
+			grid.add(random.nextDouble() * width, random.nextDouble() * height, random.nextInt(5));
+		}
+		
+		for (DensityKernel kernel : DensityKernel.values()) {
+			final double radius = 3;
+			final DensityDataGrid smoothed = grid.smooth(kernel, radius);
+			
+			//Compare against a direct two dimensional convolution
+			final int r = kernel == DensityKernel.BOX ? 3 : 9;
+			final double[] weights = new double[r + 1];
+			double sum = 0;
+			for (int k = 0; k <= r; k++) {
+				weights[k] = kernel == DensityKernel.BOX ? 1 : Math.exp(-(k * k) / (2 * radius * radius));
+				sum += k == 0 ? weights[k] : 2 * weights[k];
+			}
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					double expected = 0;
+					for (int dy = -r; dy <= r; dy++) {
+						for (int dx = -r; dx <= r; dx++) {
+							if(x + dx < 0 || x + dx >= width || y + dy < 0 || y + dy >= height) continue;
+							final double value = grid.getValue(x + dx, y + dy);
+							if(!Double.isNaN(value)) expected += value * weights[Math.abs(dx)] * weights[Math.abs(dy)] / (sum * sum);
+						}
+					}
+					final double actual = smoothed.getValue(x, y);
+					if(expected == 0) {
+						assertTrue(Double.isNaN(actual));
+					} else {
+						assertEquals(expected, actual, 1e-9);
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	void BoxSmoothingEmptyCellsTest() {
+		for (boolean fractional : new boolean[] {false, true}) {
+			//Points only in one corner, fractional weights can't be subtracted exactly from the running sums
+			final DensityDataGrid grid = new DensityDataGrid(200, 200, 0, 200, 0, 200);
+			final Random random = new Random(9);
+			for (int i = 0; i < 5000; i++) {
+				grid.add(random.nextDouble() * 50, random.nextDouble() * 50, fractional ? random.nextDouble() : 1);
+			}
+			
+			final int r = 3;
+			final DensityDataGrid smoothed = grid.smooth(DensityKernel.BOX, r);
+			for (int y = 0; y < grid.getHeight(); y++) {
+				for (int x = 0; x < grid.getWidth(); x++) {
+					//Every cell that the window has passed beyond must be empty again
+					if(x >= 50 + r || y >= 50 + r) assertTrue(Double.isNaN(smoothed.getValue(x, y)), "Cell " + x + ", " + y);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.axis.StringAxis;
+import com.dbf.heatmaps.data.DistinctCountDataGrid;
+
+class DistinctCountDataGridTest extends AbstractHeatMapTest {
+
+	@Test
+	void DistinctCountHeatMapTest() throws IOException {
+		File output = getTempFile("distinct_count.png");
+		System.out.println("Generating the distinct count test heat map at file " + output.getAbsolutePath());
+		
+		final StringAxis days = new StringAxis("Day", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday");
+		final DistinctCountDataGrid first = new DistinctCountDataGrid(24, days.getCount());
+		final DistinctCountDataGrid second = new DistinctCountDataGrid(24, days.getCount());
+		
+		//200,000 distinct users visit on Monday at midnight, split across two grids, and each visits twice
+		for (int user = 0; user < 200000; user++) {
+			final DistinctCountDataGrid grid = (user % 2 == 0) ? first : second;
+			grid.add(0, 0, "user-" + user);
+			grid.add(0, 0, "user-" + user);
+		}
+		
+		//Simulate random activity for the other hours
+		final Random random = new Random(99);
+		for (int i = 0; i < 50000; i++) {
+			final int hour = 1 + random.nextInt(23);
+			second.add(hour, random.nextInt(days.getCount()), random.nextInt(hour * 100));
+		}
+		
+		first.merge(second);
+		final double estimate = first.getValue(0, 0);
+		assertTrue(Math.abs(estimate - 200000) < 200000 * 0.05, "Estimate was " + estimate);
+		assertTrue(Double.isNaN(new DistinctCountDataGrid(1, 1).getValue(0, 0))); //Empty cells
+		
+		//Small counts are nearly exact
+		final DistinctCountDataGrid small = new DistinctCountDataGrid(1, 1);
+		for (long user = 0; user < 100; user++) {
+			small.add(0, 0, user);
+		}
+		assertEquals(100, small.getValue(0, 0), 2);
+		
+		final BufferedImage image = HeatMap.builder()
+			.withTitle("Unique Users")
+			.withXAxis(new IntegerAxis("Hour", 0, 23))
+			.withYAxis(days)
+			.withOptions(HeatMapOptions.builder()
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.withColourScaleUpperBound(2000.0)
+					.build())
+			.build()
+			.render(first);
+		ImageIO.write(image, "png", output);
+		System.out.println("Generated the distinct count test heat map at file " + output.getAbsolutePath());
+	}
+}
@@ -0,0 +1,113 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.CellFunction;
+import com.dbf.heatmaps.data.FunctionDataGrid;
+
+class FunctionDataGridTest extends AbstractHeatMapTest {
+
+	@Test
+	void FunctionDataGridHeatMapTest() throws IOException {
+		File output = getTempFile("function.png");
+		System.out.println("Generating the function test heat map at file " + output.getAbsolutePath());
+		
+		final int columns = 400;
+		final int rows = 300;
+		final AtomicInteger evaluations = new AtomicInteger();
+		final CellFunction surface = (x, y)->{
+			evaluations.incrementAndGet();
+			return Math.sin(x / 20.0) * Math.cos(y / 15.0);
+		};
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("")
+			.withXAxis(new IntegerAxis("", 0, columns - 1))
+			.withYAxis(new IntegerAxis("", 0, rows - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(2)
+					.withCellHeight(2)
+					.withOutsidePadding(0)
+					.withShowLegend(false)
+					.withShowXAxisLabels(false)
+					.withShowYAxisLabels(false)
+					.withColourScaleLowerBound(-1.0)
+					.withColourScaleUpperBound(1.0)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build();
+		
+		//Evaluated in parallel, must match the same values stored in a grid
+		final BufferedImage image = heatMap.render(new FunctionDataGrid(columns, rows, surface, true));
+		ImageIO.write(image, "png", output);
+		assertEquals(columns * rows, evaluations.get());
+		
+		final BasicDataGrid stored = new BasicDataGrid(columns, rows);
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++) {
+				stored.setValue(x, y, surface.getValue(x, y));
+			}
+		}
+		final BufferedImage expected = heatMap.render(stored);
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				assertEquals(expected.getRGB(x, y), image.getRGB(x, y));
+			}
+		}
+		
+		//Only the cells within the viewport are evaluated
+		evaluations.set(0);
+		heatMap.render(new FunctionDataGrid(columns, rows, surface, true), Viewport.of(100, 149, 50, 59));
+		assertEquals(50 * 10, evaluations.get());
+		System.out.println("Generated the function test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void WideBandParallelTest() throws InterruptedException, ExecutionException {
+		//A band of a single row, as read from grids that are 65,536 columns wide or more
+		final int columns = 200_000;
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		final CellFunction function = (x, y)->{
+			threads.add(Thread.currentThread());
+			double value = 0;
+			for (int i = 1; i <= 50; i++) value += Math.sin(x / (double) i) + y;
+			return value;
+		};
+		
+		//Parallel streams started from within a pool run in that pool, so that the test doesn't depend on the number of processors
+		final double[] values = new double[columns * 2];
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			pool.submit(()->new FunctionDataGrid(columns + 10, 5, function, true).getValues(10, 3, columns, 1, values)).get();
+		} finally {
+			pool.shutdown();
+		}
+		assertTrue(threads.size() > 1, "Threads: " + threads.size());
+		for (int x = 0; x < columns; x++) {
+			assertEquals(function.getValue(x + 10, 3), values[x]);
+		}
+		
+		//Runs of cells that wrap around onto the next row
+		final double[] band = new double[columns * 2];
+		new FunctionDataGrid(columns, 5, function, true).getValues(0, 1, 1001, 3, band);
+		for (int i = 0; i < 1001 * 3; i++) {
+			assertEquals(function.getValue(i % 1001, 1 + (i / 1001)), band[i]);
+		}
+	}
+}
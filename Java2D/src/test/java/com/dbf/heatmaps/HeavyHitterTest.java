@@ -0,0 +1,68 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.axis.StringAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.HeavyHitterAccumulator;
+
+class HeavyHitterTest extends AbstractHeatMapTest {
+
+	@Test
+	void HeavyHitterHeatMapTest() throws IOException {
+		File output = getTempFile("heavy_hitters.png");
+		System.out.println("Generating the heavy hitter test heat map at file " + output.getAbsolutePath());
+		
+		final int hours = 24;
+		final HeavyHitterAccumulator accumulator = new HeavyHitterAccumulator(hours, 50);
+		
+		//A few very busy clients, hidden among 100,000 clients with a single request
+		final Random random = new Random(5);
+		double total = 0;
+		for (int i = 0; i < 100000; i++) {
+			accumulator.add(random.nextInt(hours), "10.0." + (i / 256) + "." + (i % 256), 1);
+			total++;
+			if(i % 10 == 0) {
+				final int busy = i % 30 == 0 ? 1 : 2;
+				accumulator.add(random.nextInt(hours), "192.168.0." + busy, 1);
+				total++;
+			}
+		}
+		
+		final StringAxis axis = accumulator.buildAxis("Client IP", 2, "Other");
+		assertEquals(Arrays.asList("192.168.0.2", "192.168.0.1", "Other"), axis.getOrderedLabels());
+		
+		//Nothing is lost, every value is either in a top row or in the other row
+		final BasicDataGrid grid = accumulator.buildGrid(axis);
+		double gridTotal = 0;
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++ ) {
+				if(grid.hasValue(x, y)) gridTotal += grid.getValue(x, y);
+			}
+		}
+		assertEquals(total, gridTotal, 0.0);
+		
+		final BufferedImage image = HeatMap.builder()
+			.withTitle("Top Clients")
+			.withXAxis(new IntegerAxis("Hour", 0, hours - 1))
+			.withYAxis(axis)
+			.withOptions(HeatMapOptions.builder()
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.render(grid);
+		ImageIO.write(image, "png", output);
+		System.out.println("Generated the heavy hitter test heat map at file " + output.getAbsolutePath());
+	}
+}
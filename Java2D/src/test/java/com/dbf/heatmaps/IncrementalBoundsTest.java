@@ -0,0 +1,90 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.SlidingWindowBounds;
+import com.dbf.heatmaps.data.TrackedDataGrid;
+
+class IncrementalBoundsTest {
+
+	@Test
+	void TrackedDataGridTest() {
+		final int columns = 37;
+		final int rows = 11;
+		final TrackedDataGrid grid = new TrackedDataGrid(columns, rows);
+		assertTrue(Double.isNaN(grid.getMinValue()));
+		
+		//Compare against a full scan after every update, including values being cleared and lowered
+		final Random random = new Random(3);
+		for (int i = 0; i < 5000; i++) {
+			final int x = random.nextInt(columns);
+			final int y = random.nextInt(rows);
+			if(random.nextInt(5) == 0) {
+				grid.clearValue(x, y);
+			} else {
+				grid.setValue(x, y, random.nextGaussian() * 100);
+			}
+			
+			double min = Double.NaN;
+			double max = Double.NaN;
+			for (int yy = 0; yy < rows; yy++) {
+				for (int xx = 0; xx < columns; xx++) {
+					final double value = grid.getValue(xx, yy);
+					if(Double.isNaN(value)) continue;
+					if(Double.isNaN(min) || value < min) min = value;
+					if(Double.isNaN(max) || value > max) max = value;
+				}
+			}
+			assertEquals(min, grid.getMinValue());
+			assertEquals(max, grid.getMaxValue());
+		}
+	}
+	
+	@Test
+	void SlidingWindowBoundsTest() {
+		final int window = 5;
+		final SlidingWindowBounds bounds = new SlidingWindowBounds(window);
+		final Random random = new Random(4);
+		final double[] mins = new double[200];
+		final double[] maxes = new double[200];
+		for (int frame = 0; frame < mins.length; frame++) {
+			final boolean empty = random.nextInt(4) == 0;
+			mins[frame] = empty ? Double.NaN : random.nextInt(100);
+			maxes[frame] = empty ? Double.NaN : mins[frame] + random.nextInt(100);
+			bounds.addFrame(mins[frame], maxes[frame]);
+			
+			double min = Double.NaN;
+			double max = Double.NaN;
+			for (int i = Math.max(0, frame - window + 1); i <= frame; i++) {
+				if(Double.isNaN(mins[i])) continue;
+				if(Double.isNaN(min) || mins[i] < min) min = mins[i];
+				if(Double.isNaN(max) || maxes[i] > max) max = maxes[i];
+			}
+			assertEquals(min, bounds.getMinValue());
+			assertEquals(max, bounds.getMaxValue());
+		}
+		
+		//The renderer uses the bounds of the window rather than scanning the grid
+		final TrackedDataGrid grid = new TrackedDataGrid(3, 3);
+		grid.setValue(1, 1, 10);
+		grid.setValue(2, 2, 20);
+		final SlidingWindowBounds frames = new SlidingWindowBounds(10);
+		frames.addFrame(-50, 70);
+		frames.addFrame(grid);
+		
+		final RenderedHeatMap rendered = HeatMap.builder()
+			.withXAxis(new IntegerAxis("X", 0, 2))
+			.withYAxis(new IntegerAxis("Y", 0, 2))
+			.withOptions(HeatMapOptions.builder().build())
+			.build()
+			.renderWithLayout(frames.apply(grid), null);
+		assertEquals(-50.0, rendered.getLayout().getMinValue());
+		assertEquals(70.0, rendered.getLayout().getMaxValue());
+	}
+}
@@ -0,0 +1,85 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+
+class IncrementalUpdateTest extends AbstractHeatMapTest {
+
+	@Test
+	void IncrementalUpdateHeatMapTest() throws IOException {
+		File output = getTempFile("incremental.png");
+		System.out.println("Generating the incremental update test heat map at file " + output.getAbsolutePath());
+		
+		final int columns = 40;
+		final int rows = 30;
+		final BasicDataGrid grid = new BasicDataGrid(columns, rows);
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++ ) {
+				if((x + y) % 7 != 0) grid.setValue(x, y, (x * y) % 100);
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("Incremental Update")
+			.withXAxis(IntegerAxis.instance()
+					.withTitle("X")
+					.addEntries(0, columns - 1))
+			.withYAxis(IntegerAxis.instance()
+					.withTitle("Y")
+					.addEntries(0, rows - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(30)
+					.withCellHeight(20)
+					.withShowGridValues(true)
+					.withGridValuesFormat("#")
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build();
+		
+		final RenderedHeatMap rendered = heatMap.renderWithLayout(grid, null);
+		
+		//Change, add and remove a few cells, all within the current colour scale
+		grid.setValue(3, 4, 50);
+		grid.setValue(0, 0, 12);
+		grid.clearValue(5, 6);
+		grid.setValue(39, 29, 0);
+		final List<Point> changed = Arrays.asList(new Point(3, 4), new Point(0, 0), new Point(5, 6), new Point(39, 29));
+		
+		final RenderedHeatMap updated = heatMap.update(rendered, grid, changed);
+		ImageIO.write(updated.getImage(), "png", output);
+		assertSame(rendered, updated);
+		assertImagesEqual(heatMap.render(grid), updated.getImage());
+		
+		//A value outside of the colour scale requires a full re-render
+		grid.setValue(10, 10, 1000);
+		final RenderedHeatMap rerendered = heatMap.update(updated, grid, Arrays.asList(new Point(10, 10)));
+		assertNotSame(updated, rerendered);
+		assertImagesEqual(heatMap.render(grid), rerendered.getImage());
+		System.out.println("Generated the incremental update test heat map at file " + output.getAbsolutePath());
+	}
+	
+	private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++ ) {
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel mismatch at " + x + ", " + y);
+			}
+		}
+	}
+}
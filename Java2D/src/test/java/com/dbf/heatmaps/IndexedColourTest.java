@@ -0,0 +1,108 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.encoding.ParallelPngEncoder;
+import com.dbf.heatmaps.encoding.PngEncoder;
+import com.dbf.heatmaps.encoding.PngFilter;
+
+class IndexedColourTest extends AbstractHeatMapTest {
+	
+	@Test
+	void IndexedColourHeatMapTest() throws IOException {
+		File output = getTempFile("indexed_colour.png");
+		System.out.println("Generating the indexed colour test heat map at file " + output.getAbsolutePath());
+		
+		final BasicDataGrid grid = new BasicDataGrid(60, 30);
+		final Random random = new Random(3);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				if(random.nextInt(10) > 0) grid.setValue(x, y, Math.sin(x / 8.0) * Math.cos(y / 5.0) + random.nextDouble() * 0.2);
+			}
+		}
+		
+		for (boolean blend : new boolean[] {false, true}) {
+			final BufferedImage truecolour = buildHeatMap(grid, blend, false).render(grid);
+			final BufferedImage indexed = buildHeatMap(grid, blend, true).render(grid);
+			assertEquals(BufferedImage.TYPE_BYTE_INDEXED, indexed.getType());
+			assertEquals(truecolour.getWidth(), indexed.getWidth());
+			assertEquals(truecolour.getHeight(), indexed.getHeight());
+			
+			//Only the quantised gradient, and the anti-aliased text and blended colours, should differ
+			assertTrue(getMeanError(truecolour, indexed) < (blend ? 16 : 4));
+			
+			//Written as a palette PNG by both encoders
+			final ByteArrayOutputStream truecolourPng = new ByteArrayOutputStream();
+			new PngEncoder().encode(truecolour, truecolourPng);
+			for (PngEncoder encoder : new PngEncoder[] {new PngEncoder(), new ParallelPngEncoder(6, PngFilter.HEAT_MAP, 50)}) {
+				final ByteArrayOutputStream indexedPng = new ByteArrayOutputStream();
+				encoder.encode(indexed, indexedPng);
+				final byte[] png = indexedPng.toByteArray();
+				assertEquals(3, png[25]); //The colour type of the IHDR chunk
+				assertTrue(png.length < truecolourPng.size());
+				PngEncoderTest.assertSamePixels(indexed, ImageIO.read(new ByteArrayInputStream(png)));
+				System.out.println("Blend " + blend + ", truecolour: " + truecolourPng.size() + " bytes, indexed: " + png.length + " bytes");
+			}
+		}
+		
+		//Cells are updated in place using the palette
+		final HeatMap heatMap = buildHeatMap(grid, false, true);
+		final RenderedHeatMap rendered = heatMap.renderWithLayout(grid, null);
+		grid.setValue(5, 5, 0.0);
+		assertTrue(rendered == heatMap.update(rendered, grid, Collections.singletonList(new Point(5, 5))));
+		assertEquals(BufferedImage.TYPE_BYTE_INDEXED, rendered.getImage().getType());
+		PngEncoderTest.assertSamePixels(heatMap.render(grid), rendered.getImage());
+		
+		new PngEncoder().encode(rendered.getImage(), output);
+		System.out.println("Generated the indexed colour test heat map at file " + output.getAbsolutePath());
+	}
+	
+	private static HeatMap buildHeatMap(BasicDataGrid grid, boolean blend, boolean indexed) {
+		return HeatMap.builder()
+			.withTitle("Indexed Colour")
+			.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+			.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(12)
+					.withCellHeight(12)
+					.withShowGridlines(true)
+					.withBlendColours(blend)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.withColourScaleLowerBound(-1.0)
+					.withColourScaleUpperBound(1.2)
+					.withIndexedColour(indexed)
+					.build())
+			.build();
+	}
+	
+	/**
+	 * @return the mean difference between the pixels of the images, summed over the red, green and blue components.
+	 */
+	private static double getMeanError(BufferedImage expected, BufferedImage actual) {
+		long error = 0;
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				final int p = expected.getRGB(x, y);
+				final int q = actual.getRGB(x, y);
+				error += Math.abs(((p >> 16) & 0xFF) - ((q >> 16) & 0xFF)) + Math.abs(((p >> 8) & 0xFF) - ((q >> 8) & 0xFF)) + Math.abs((p & 0xFF) - (q & 0xFF));
+			}
+		}
+		return error / (double) (expected.getWidth() * expected.getHeight());
+	}
+}
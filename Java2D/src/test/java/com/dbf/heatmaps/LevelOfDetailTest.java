@@ -0,0 +1,105 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.Aggregation;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.BasicDataRecord;
+import com.dbf.heatmaps.data.DataRecord;
+
+class LevelOfDetailTest extends AbstractHeatMapTest {
+
+	@Test
+	void LevelOfDetailHeatMapTest() throws IOException {
+		File output = getTempFile("level_of_detail.png");
+		System.out.println("Generating the level of detail test heat map at file " + output.getAbsolutePath());
+		
+		final int columns = 20000;
+		final int rows = 24;
+		ArrayList<DataRecord> records = new ArrayList<DataRecord>(columns * rows);
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++ ) {
+				records.add(new BasicDataRecord(x, y, Math.sin(x / 500.0) * Math.cos(y / 4.0)));
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("")
+			.withXAxis(IntegerAxis.instance()
+					.withTitle("")
+					.addEntries(0, columns - 1))
+			.withYAxis(IntegerAxis.instance()
+					.withTitle("")
+					.addEntries(0, rows - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(2)
+					.withCellHeight(20)
+					.withOutsidePadding(0)
+					.withShowLegend(false)
+					.withShowXAxisLabels(false)
+					.withShowYAxisLabels(false)
+					.withGradient(HeatMapGradient.EXTENDED_GRADIENT)
+					.withTargetMatrixWidth(1000)
+					.withAggregation(Aggregation.MAX)
+					.build())
+			.build();
+		
+		final BufferedImage image = heatMap.render(records);
+		ImageIO.write(image, "png", output);
+		
+		//20,000 columns at 2 pixels each are reduced to blocks of 40 columns, 500 cells of 2 pixels each
+		assertEquals(1000, image.getWidth());
+		assertEquals(rows * 20, image.getHeight());
+		System.out.println("Generated the level of detail test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void DefaultOptionsTargetSizeTest() throws IOException {
+		final BasicDataGrid grid = new BasicDataGrid(5000, 3000);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				grid.setValue(x, y, (x % 97) + (y % 13));
+			}
+		}
+		
+		final HeatMapOptions[] allOptions = {
+			//The cells are enlarged to fit the axis labels
+			HeatMapOptions.builder().withTargetMatrixWidth(1200).withTargetMatrixHeight(800).build(),
+			//The sums of the aggregated cells are wider than the values of the original cells
+			HeatMapOptions.builder().withTargetMatrixWidth(1200).withTargetMatrixHeight(800).withShowGridValues(true).withGridValuesFormat("0")
+				.withAggregation(Aggregation.SUM).build()
+		};
+		for (int i = 0; i < allOptions.length; i++) {
+			final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Default Options Target Size Test")
+				.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(allOptions[i])
+				.build();
+			
+			File output = getTempFile("level_of_detail_default_" + i + ".png");
+			System.out.println("Generating the default options level of detail test heat map at file " + output.getAbsolutePath());
+			final RenderedHeatMap rendered = heatMap.renderWithLayout(grid, null);
+			ImageIO.write(rendered.getImage(), "png", output);
+			System.out.println("Generated the default options level of detail test heat map at file " + output.getAbsolutePath());
+			
+			final HeatMapLayout layout = rendered.getLayout();
+			assertTrue(layout.matrixWidth <= 1200, "Matrix width: " + layout.matrixWidth);
+			assertTrue(layout.matrixHeight <= 800, "Matrix height: " + layout.matrixHeight);
+			//Not reduced any further than needed
+			assertTrue(layout.matrixWidth > 1200 - (2 * layout.cellWidth), "Matrix width: " + layout.matrixWidth);
+			assertTrue(layout.matrixHeight > 800 - (2 * layout.cellHeight), "Matrix height: " + layout.matrixHeight);
+		}
+	}
+}
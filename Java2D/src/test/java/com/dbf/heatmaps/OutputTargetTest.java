@@ -0,0 +1,100 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.BasicDataRecord;
+import com.dbf.heatmaps.data.DataRecord;
+import com.dbf.heatmaps.encoding.QoiDecoder;
+
+class OutputTargetTest extends AbstractHeatMapTest {
+	
+	//SVG output is covered by SvgRenderTest
+	private static final OutputFormat[] BITMAP_FORMATS = {OutputFormat.PNG, OutputFormat.PNG_STREAMING, OutputFormat.QOI};
+	
+	@Test
+	void OutputStreamTargetTest() throws IOException {
+		final List<DataRecord> records = new ArrayList<DataRecord>();
+		final BasicDataGrid grid = new BasicDataGrid(40, 25);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				final double value = Math.sin(x / 6.0) * Math.cos(y / 4.0);
+				records.add(new BasicDataRecord(x, y, value));
+				grid.setValue(x, y, value);
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Output Target Test")
+				.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(HeatMapOptions.builder().withCellWidth(20).withCellHeight(20).withShowGridlines(true).build())
+				.build();
+		final Viewport viewport = Viewport.of(5, 34, 0, 19);
+		
+		for (OutputFormat format : BITMAP_FORMATS) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			HeatMapLayout layout = heatMap.render(out, format, records);
+			PngEncoderTest.assertSamePixels(heatMap.render(records), decode(format, new ByteArrayInputStream(out.toByteArray())));
+			assertEquals(grid.getWidth(), layout.getColumnCount());
+			
+			out = new ByteArrayOutputStream();
+			layout = heatMap.render(out, format, grid, viewport);
+			PngEncoderTest.assertSamePixels(heatMap.render(grid, viewport), decode(format, new ByteArrayInputStream(out.toByteArray())));
+			assertEquals(30, layout.getColumnCount());
+		}
+		
+		assertThrows(IllegalArgumentException.class, ()->heatMap.render(new ByteArrayOutputStream(), null, records));
+	}
+	
+	@Test
+	void ChannelTargetTest() throws IOException {
+		final BasicDataGrid grid = new BasicDataGrid(300, 200);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				grid.setValue(x, y, Math.sin(x / 20.0) + Math.cos(y / 15.0));
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Channel Target Test")
+				.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(HeatMapOptions.builder().withCellWidth(8).withCellHeight(8).withShowXAxisLabels(false).withShowYAxisLabels(false).build())
+				.build();
+		
+		for (OutputFormat format : BITMAP_FORMATS) {
+			File output = getTempFile("channel_" + format.name().toLowerCase() + (format == OutputFormat.QOI ? ".qoi" : ".png"));
+			System.out.println("Generating the channel target test heat map at file " + output.getAbsolutePath());
+			try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				heatMap.render(channel, format, grid, null);
+			}
+			System.out.println("Generated the channel target test heat map at file " + output.getAbsolutePath());
+			try (InputStream in = new FileInputStream(output)) {
+				PngEncoderTest.assertSamePixels(heatMap.render(grid), decode(format, in));
+			}
+		}
+	}
+	
+	private static BufferedImage decode(OutputFormat format, InputStream in) throws IOException {
+		return format == OutputFormat.QOI ? new QoiDecoder().decode(in) : ImageIO.read(in);
+	}
+}
@@ -0,0 +1,99 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.encoding.ParallelPngEncoder;
+import com.dbf.heatmaps.encoding.PngEncoder;
+import com.dbf.heatmaps.encoding.PngFilter;
+
+class ParallelPngEncoderTest extends AbstractHeatMapTest {
+	
+	@Test
+	void ParallelPngEncoderHeatMapTest() throws IOException, DataFormatException {
+		File output = getTempFile("parallel_png_encoder.png");
+		System.out.println("Generating the parallel PNG encoder test heat map at file " + output.getAbsolutePath());
+		
+		final BufferedImage image = PngEncoderTest.renderHeatMap();
+		final BufferedImage window = image.getSubimage(0, image.getHeight() / 2, image.getWidth(), 80);
+		
+		//Strips of a single row, strips smaller and larger than the deflate window, and strips that don't divide the height evenly
+		for (int stripHeight : new int[] {1, 7, 64}) {
+			for (PngFilter filter : PngFilter.values()) {
+				for (int level : new int[] {0, 6}) {
+					final PngEncoder encoder = new ParallelPngEncoder(level, filter, stripHeight);
+					PngEncoderTest.assertRoundTrip(window, encoder);
+					assertValidStream(window, encoder);
+				}
+			}
+		}
+		
+		//The same filtered bytes as the serial encoder, and a similar size
+		final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+		long start = System.nanoTime();
+		new PngEncoder().encode(image, serial);
+		final long serialTime = System.nanoTime() - start;
+		
+		final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		start = System.nanoTime();
+		new ParallelPngEncoder(PngEncoder.DEFAULT_COMPRESSION_LEVEL, PngFilter.HEAT_MAP, 100).encode(image, parallel);
+		final long parallelTime = System.nanoTime() - start;
+		System.out.println("PngEncoder: " + serial.size() + " bytes in " + (serialTime / 1000000) + "ms, ParallelPngEncoder: " + parallel.size() + " bytes in " + (parallelTime / 1000000) + "ms, "
+				+ Runtime.getRuntime().availableProcessors() + " core(s)");
+		assertArrayEquals(inflate(serial.toByteArray()), inflate(parallel.toByteArray()));
+		
+		new ParallelPngEncoder().encode(image, output);
+		PngEncoderTest.assertSamePixels(image, ImageIO.read(output));
+		System.out.println("Generated the parallel PNG encoder test heat map at file " + output.getAbsolutePath());
+	}
+	
+	/**
+	 * Inflates the whole zlib stream, which also verifies the combined checksum.
+	 */
+	private static void assertValidStream(BufferedImage image, PngEncoder encoder) throws IOException, DataFormatException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.encode(image, out);
+		final int bpp = image.getColorModel().hasAlpha() ? 4 : 3;
+		assertEquals((image.getWidth() * bpp + 1) * image.getHeight(), inflate(out.toByteArray()).length);
+	}
+	
+	/**
+	 * @return the filtered rows of the PNG file, from the concatenated IDAT chunks.
+	 */
+	private static byte[] inflate(byte[] png) throws DataFormatException {
+		final ByteArrayOutputStream idat = new ByteArrayOutputStream();
+		final ByteBuffer buffer = ByteBuffer.wrap(png);
+		buffer.position(8);
+		while (buffer.remaining() > 0) {
+			final int length = buffer.getInt();
+			final byte[] type = new byte[4];
+			buffer.get(type);
+			if("IDAT".equals(new String(type))) idat.write(png, buffer.position(), length);
+			buffer.position(buffer.position() + length + 4);
+		}
+		
+		final Inflater inflater = new Inflater();
+		inflater.setInput(idat.toByteArray());
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		final byte[] chunk = new byte[1 << 16];
+		while (!inflater.finished()) {
+			final int count = inflater.inflate(chunk);
+			if(count == 0 && inflater.needsInput()) throw new DataFormatException("Truncated stream.");
+			result.write(chunk, 0, count);
+		}
+		inflater.end();
+		return result.toByteArray();
+	}
+}
@@ -0,0 +1,55 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataRecord;
+import com.dbf.heatmaps.data.DataRecord;
+
+class PercentileColourScaleTest extends AbstractHeatMapTest {
+
+	@Test
+	void PercentileColourScaleHeatMapTest() throws IOException {
+		File output = getTempFile("percentile_colour_scale.png");
+		System.out.println("Generating the percentile colour scale test heat map at file " + output.getAbsolutePath());
+		
+		//Values from -500 to 499, with two large outliers that would otherwise crush the colour scale
+		final List<DataRecord> records = new ArrayList<DataRecord>();
+		for (int y = 0; y < 20; y++) {
+			for (int x = 0; x < 50; x++) {
+				records.add(new BasicDataRecord(x, y, (double) ((y * 50) + x - 500)));
+			}
+		}
+		records.set(0, new BasicDataRecord(0, 0, -1000000.0));
+		records.set(999, new BasicDataRecord(49, 19, 1000000.0));
+		
+		final RenderedHeatMap rendered = HeatMap.builder()
+			.withTitle("Percentile Colour Scale")
+			.withXAxis(new IntegerAxis("X", 0, 49))
+			.withYAxis(new IntegerAxis("Y", 0, 19))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(20)
+					.withCellHeight(20)
+					.withColourScaleLowerPercentile(5.0)
+					.withColourScaleUpperPercentile(95.0)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.renderWithLayout(records, null);
+		ImageIO.write(rendered.getImage(), "png", output);
+		
+		//Within the 1% relative accuracy of the estimate
+		assertEquals(-450.0, rendered.getLayout().getMinValue(), 4.5);
+		assertEquals(449.0, rendered.getLayout().getMaxValue(), 4.5);
+		System.out.println("Generated the percentile colour scale test heat map at file " + output.getAbsolutePath());
+	}
+}
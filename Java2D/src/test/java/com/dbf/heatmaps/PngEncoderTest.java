@@ -0,0 +1,124 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.encoding.PngEncoder;
+import com.dbf.heatmaps.encoding.PngFilter;
+
+class PngEncoderTest extends AbstractHeatMapTest {
+	
+	@Test
+	void PngEncoderHeatMapTest() throws IOException {
+		File output = getTempFile("png_encoder.png");
+		System.out.println("Generating the PNG encoder test heat map at file " + output.getAbsolutePath());
+		
+		final BufferedImage image = renderHeatMap();
+		
+		//Every filter and a few levels, on a window of the heat map that includes cells, labels and the legend
+		final BufferedImage window = image.getSubimage(0, image.getHeight() / 2, image.getWidth(), 200);
+		for (PngFilter filter : PngFilter.values()) {
+			for (int level : new int[] {0, 1, 6, 9}) {
+				assertRoundTrip(window, new PngEncoder(level, filter));
+			}
+		}
+		
+		//Compare against ImageIO, with the default settings
+		final ByteArrayOutputStream imageIO = new ByteArrayOutputStream();
+		long start = System.nanoTime();
+		ImageIO.write(image, "png", imageIO);
+		final long imageIOTime = System.nanoTime() - start;
+		
+		final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		start = System.nanoTime();
+		new PngEncoder().encode(image, encoded);
+		final long encoderTime = System.nanoTime() - start;
+		System.out.println("ImageIO: " + imageIO.size() + " bytes in " + (imageIOTime / 1000000) + "ms, PngEncoder: " + encoded.size() + " bytes in " + (encoderTime / 1000000) + "ms");
+		assertTrue(encoded.size() <= imageIO.size(), "The PngEncoder output is larger than the ImageIO output.");
+		
+		new PngEncoder().encode(image, output);
+		assertSamePixels(image, ImageIO.read(output));
+		System.out.println("Generated the PNG encoder test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void PngEncoderImageTypesTest() throws IOException {
+		final Random random = new Random(2);
+		
+		//Alpha channel
+		final BufferedImage argb = new BufferedImage(97, 31, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < argb.getHeight(); y++) {
+			for (int x = 0; x < argb.getWidth(); x++) {
+				argb.setRGB(x, y, (random.nextInt(256) << 24) | (x * 2 << 16) | (y * 8 << 8) | random.nextInt(4));
+			}
+		}
+		
+		//Not backed by an integer buffer
+		final BufferedImage bgr = new BufferedImage(40, 25, BufferedImage.TYPE_3BYTE_BGR);
+		final Graphics2D g = bgr.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillRect(5, 5, 20, 10);
+		g.dispose();
+		
+		//A window of a larger image
+		final BufferedImage sub = renderHeatMap().getSubimage(30, 40, 200, 100);
+		
+		for (BufferedImage image : new BufferedImage[] {argb, bgr, sub}) {
+			for (PngFilter filter : PngFilter.values()) {
+				assertRoundTrip(image, new PngEncoder(6, filter));
+			}
+		}
+	}
+	
+	static BufferedImage renderHeatMap() {
+		final BasicDataGrid grid = new BasicDataGrid(120, 60);
+		final Random random = new Random(1);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				if(random.nextInt(10) > 0) grid.setValue(x, y, Math.sin(x / 10.0) * Math.cos(y / 7.0) + random.nextDouble() * 0.2);
+			}
+		}
+		return HeatMap.builder()
+			.withTitle("PNG Encoder")
+			.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+			.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(10)
+					.withCellHeight(10)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build()
+			.render(grid);
+	}
+	
+	static void assertRoundTrip(BufferedImage image, PngEncoder encoder) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.encode(image, out);
+		assertSamePixels(image, ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+	}
+	
+	static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		final int width = expected.getWidth();
+		for (int y = 0; y < expected.getHeight(); y++) {
+			assertArrayEquals(expected.getRGB(0, y, width, 1, null, 0, width), actual.getRGB(0, y, width, 1, null, 0, width));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.encoding.PngEncoder;
+import com.dbf.heatmaps.encoding.QoiDecoder;
+import com.dbf.heatmaps.encoding.QoiEncoder;
+
+class QoiEncoderTest extends AbstractHeatMapTest {
+	
+	@Test
+	void QoiEncoderHeatMapTest() throws IOException {
+		File output = getTempFile("qoi_encoder.qoi");
+		System.out.println("Generating the QOI encoder test heat map at file " + output.getAbsolutePath());
+		
+		final BufferedImage image = PngEncoderTest.renderHeatMap();
+		new QoiEncoder().encode(image, output);
+		PngEncoderTest.assertSamePixels(image, new QoiDecoder().decode(output));
+		System.out.println("Generated the QOI encoder test heat map at file " + output.getAbsolutePath());
+		
+		//Compare against the PNG encoder, after warming up both
+		final ByteArrayOutputStream png = new ByteArrayOutputStream();
+		final ByteArrayOutputStream qoi = new ByteArrayOutputStream();
+		for (int i = 0; i < 3; i++) {
+			png.reset();
+			new PngEncoder().encode(image, png);
+			qoi.reset();
+			new QoiEncoder().encode(image, qoi);
+		}
+		png.reset();
+		qoi.reset();
+		long start = System.nanoTime();
+		new PngEncoder().encode(image, png);
+		final long pngTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		new QoiEncoder().encode(image, qoi);
+		final long qoiTime = System.nanoTime() - start;
+		System.out.println("PngEncoder: " + png.size() + " bytes in " + (pngTime / 1000) + "us, QoiEncoder: " + qoi.size() + " bytes in " + (qoiTime / 1000) + "us");
+	}
+	
+	@Test
+	void QoiEncoderImageTypesTest() throws IOException {
+		final Random random = new Random(3);
+		
+		//Alpha channel, with noise that exercises every operation
+		final BufferedImage argb = new BufferedImage(97, 31, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < argb.getHeight(); y++) {
+			for (int x = 0; x < argb.getWidth(); x++) {
+				final int alpha = random.nextInt(4) == 0 ? random.nextInt(256) : 0xFF;
+				argb.setRGB(x, y, (alpha << 24) | (x * 2 << 16) | (y * 8 << 8) | random.nextInt(x % 3 == 0 ? 256 : 4));
+			}
+		}
+		
+		//Not backed by an integer buffer
+		final BufferedImage bgr = new BufferedImage(40, 25, BufferedImage.TYPE_3BYTE_BGR);
+		final Graphics2D g = bgr.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillRect(5, 5, 20, 10);
+		g.dispose();
+		
+		//Runs longer than the maximum run, across rows
+		final BufferedImage solid = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+		
+		//A window of a larger image, and an indexed colour image
+		final BufferedImage sub = PngEncoderTest.renderHeatMap().getSubimage(30, 40, 200, 100);
+		final BasicDataGrid grid = new BasicDataGrid(10, 10);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				grid.setValue(x, y, random.nextDouble());
+			}
+		}
+		final BufferedImage indexed = HeatMap.builder()
+				.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(HeatMapOptions.builder().withIndexedColour(true).build())
+				.build()
+				.render(grid);
+		
+		for (BufferedImage image : new BufferedImage[] {argb, bgr, solid, sub, indexed}) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new QoiEncoder().encode(image, out);
+			final BufferedImage decoded = new QoiDecoder().decode(new ByteArrayInputStream(out.toByteArray()));
+			assertEquals(image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB, decoded.getType());
+			PngEncoderTest.assertSamePixels(image, decoded);
+		}
+		
+		//Truncated and invalid images
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new QoiEncoder().encode(argb, out);
+		final byte[] encoded = out.toByteArray();
+		assertThrows(IOException.class, ()->new QoiDecoder().decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length / 2))));
+		encoded[0] = 'x';
+		assertThrows(IOException.class, ()->new QoiDecoder().decode(new ByteArrayInputStream(encoded)));
+	}
+}
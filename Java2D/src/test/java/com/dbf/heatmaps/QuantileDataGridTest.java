@@ -0,0 +1,85 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.axis.StringAxis;
+import com.dbf.heatmaps.data.QuantileDataGrid;
+import com.dbf.heatmaps.data.QuantileSketch;
+
+class QuantileDataGridTest extends AbstractHeatMapTest {
+
+	@Test
+	void QuantileSketchAccuracyTest() {
+		final Random random = new Random(42);
+		final int samples = 100000;
+		final double[] values = new double[samples];
+		final QuantileSketch first = new QuantileSketch();
+		final QuantileSketch second = new QuantileSketch();
+		for (int i = 0; i < samples; i++) {
+			values[i] = Math.exp(random.nextGaussian() * 2 + 3); //Log-normal, like latencies
+			(i % 2 == 0 ? first : second).add(values[i]);
+		}
+		first.merge(second);
+		Arrays.sort(values);
+		
+		assertEquals(samples, first.getCount());
+		assertEquals(values[0], first.getMin());
+		assertEquals(values[samples - 1], first.getMax());
+		for (double quantile : new double[] {0.01, 0.25, 0.5, 0.9, 0.99, 0.999}) {
+			final double expected = values[(int) (quantile * (samples - 1))];
+			final double actual = first.getQuantile(quantile);
+			assertTrue(Math.abs(actual - expected) <= expected * first.getRelativeAccuracy() * 1.0001, "Quantile " + quantile + ": expected " + expected + " but was " + actual);
+		}
+		
+		//Bounded buckets keep the high quantiles accurate
+		final QuantileSketch bounded = new QuantileSketch(0.01, 512);
+		for (int i = 0; i < samples; i++) {
+			bounded.add(values[i]);
+		}
+		final double expected = values[(int) (0.99 * (samples - 1))];
+		assertTrue(Math.abs(bounded.getQuantile(0.99) - expected) <= expected * 0.0101);
+	}
+	
+	@Test
+	void QuantileHeatMapTest() throws IOException {
+		File output = getTempFile("quantile.png");
+		System.out.println("Generating the quantile test heat map at file " + output.getAbsolutePath());
+		
+		final int minutes = 60;
+		final StringAxis endpoints = new StringAxis("Endpoint", "/login", "/search", "/cart", "/checkout");
+		final QuantileDataGrid grid = new QuantileDataGrid(minutes, endpoints.getCount());
+		final Random random = new Random(7);
+		for (int i = 0; i < 200000; i++) {
+			final int minute = random.nextInt(minutes);
+			final int endpoint = random.nextInt(endpoints.getCount());
+			grid.add(minute, endpoint, Math.exp(random.nextGaussian() + endpoint));
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("p99 Latency")
+			.withXAxis(new IntegerAxis("Minute", 0, minutes - 1))
+			.withYAxis(endpoints)
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(20)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build();
+		
+		final BufferedImage p99 = heatMap.render(grid.percentile(99));
+		ImageIO.write(p99, "png", output);
+		assertTrue(grid.getPercentile(10, 3, 99) > grid.getPercentile(10, 3, 50));
+		System.out.println("Generated the quantile test heat map at file " + output.getAbsolutePath());
+	}
+}
@@ -0,0 +1,84 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.axis.StringAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.RollingDataGrid;
+
+class RollingWindowTest extends AbstractHeatMapTest {
+
+	@Test
+	void RollingWindowHeatMapTest() throws IOException {
+		File output = getTempFile("rolling_window.png");
+		System.out.println("Generating the rolling window test heat map at file " + output.getAbsolutePath());
+		
+		final int capacity = 10;
+		final StringAxis hosts = new StringAxis("Host", "host-a", "host-b", "host-c");
+		final RollingDataGrid<Integer> rolling = new RollingDataGrid<Integer>(capacity, hosts.getCount());
+		rolling.getXAxis().withTitle("Minute");
+		
+		final HeatMapOptions options = HeatMapOptions.builder()
+				.withShowGridValues(true)
+				.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+				.build();
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("Rolling Window")
+			.withXAxis(rolling.getXAxis())
+			.withYAxis(hosts)
+			.withOptions(options)
+			.build();
+		
+		//Append 25 minutes, only the last 10 are kept
+		for (int minute = 0; minute < 25; minute++) {
+			rolling.appendColumn(minute, "" + minute, new double[] {minute, minute * 2, minute % 3});
+		}
+		
+		assertEquals(capacity, rolling.getWidth());
+		assertEquals(Integer.valueOf(15), rolling.getXAxis().getEntry(0));
+		assertEquals(Integer.valueOf(24), rolling.getXAxis().getNewestEntry());
+		assertEquals(Integer.valueOf(0), rolling.getXAxis().getIndex(15));
+		assertEquals(null, rolling.getXAxis().getIndex(14));
+		assertEquals(Arrays.asList("15", "16", "17", "18", "19", "20", "21", "22", "23", "24"), rolling.getXAxis().getOrderedLabels());
+		assertEquals(48.0, rolling.getValue(9, 1));
+		
+		final BufferedImage image = heatMap.render(rolling);
+		ImageIO.write(image, "png", output);
+		
+		//Must be identical to a heat map of the same window built from scratch
+		final BasicDataGrid expected = new BasicDataGrid(capacity, hosts.getCount());
+		for (int x = 0; x < capacity; x++) {
+			final int minute = x + 15;
+			expected.setValue(x, 0, minute);
+			expected.setValue(x, 1, minute * 2);
+			expected.setValue(x, 2, minute % 3);
+		}
+		final BufferedImage expectedImage = HeatMap.builder()
+			.withTitle("Rolling Window")
+			.withXAxis(new IntegerAxis("Minute", 15, 24))
+			.withYAxis(hosts)
+			.withOptions(options)
+			.build()
+			.render(expected);
+		
+		assertEquals(expectedImage.getWidth(), image.getWidth());
+		assertEquals(expectedImage.getHeight(), image.getHeight());
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++ ) {
+				assertEquals(expectedImage.getRGB(x, y), image.getRGB(x, y));
+			}
+		}
+		System.out.println("Generated the rolling window test heat map at file " + output.getAbsolutePath());
+	}
+}
@@ -0,0 +1,150 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.BasicDataRecord;
+import com.dbf.heatmaps.data.DataGrid;
+import com.dbf.heatmaps.data.DataRecord;
+import com.dbf.heatmaps.data.FunctionDataGrid;
+import com.dbf.heatmaps.data.SymmetricDataGrid;
+import com.dbf.heatmaps.encoding.PngEncoder;
+
+class StreamingRenderTest extends AbstractHeatMapTest {
+	
+	@Test
+	void StreamingRenderMatchesImageTest() throws IOException {
+		final BasicDataGrid grid = new BasicDataGrid(30, 16);
+		final SymmetricDataGrid symmetric = new SymmetricDataGrid(12);
+		final Random random = new Random(4);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				if(random.nextInt(10) > 0) grid.setValue(x, y, random.nextDouble() * 100);
+			}
+		}
+		for (int y = 0; y < symmetric.getHeight(); y++) {
+			for (int x = y; x < symmetric.getWidth(); x++) {
+				symmetric.setValue(x, y, random.nextDouble());
+			}
+		}
+		
+		final HeatMapOptions[] variants = {
+			HeatMapOptions.builder().withShowGridlines(true).withShowGridValues(true).withGridValuesFormat("0").build(),
+			HeatMapOptions.builder().withShowGridlines(true).withXAxisLabelsBelow(true).withLegendSteps(7).build(),
+			HeatMapOptions.builder().withCellWidth(15).withCellHeight(15).withIndexedColour(true).build()
+		};
+		for (HeatMapOptions options : variants) {
+			for (DataGrid data : new DataGrid[] {grid, symmetric}) {
+				final HeatMap heatMap = HeatMap.builder()
+						.withTitle("Streaming Render Test")
+						.withXAxis(new IntegerAxis("X", 0, data.getWidth() - 1))
+						.withYAxis(new IntegerAxis("Y", 0, data.getHeight() - 1))
+						.withOptions(options)
+						.build();
+				
+				//Bands of a single row, bands smaller than a cell, and bands that don't divide the height evenly
+				for (int bandHeight : new int[] {1, 7, 64, 0}) {
+					final ByteArrayOutputStream out = new ByteArrayOutputStream();
+					heatMap.renderStreaming(data, null, out, new PngEncoder(), bandHeight);
+					PngEncoderTest.assertSamePixels(heatMap.render(data), ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+				}
+			}
+		}
+		
+		//Blending needs the whole matrix
+		final HeatMap blended = HeatMap.builder()
+				.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(HeatMapOptions.builder().withBlendColours(true).build())
+				.build();
+		assertThrows(IllegalArgumentException.class, ()->blended.renderStreaming(grid, new ByteArrayOutputStream()));
+	}
+	
+	@Test
+	void StreamingRecordsTest() throws IOException {
+		//Counts the passes over the records
+		final int[] passes = {0};
+		final List<DataRecord> records = new ArrayList<DataRecord>() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public Iterator<DataRecord> iterator() {
+				passes[0]++;
+				return super.iterator();
+			}
+		};
+		final int columns = 500;
+		final int rows = 8000;
+		final Random random = new Random(8);
+		for (int i = 0; i < 400_000; i++) {
+			records.add(new BasicDataRecord(random.nextInt(columns), random.nextInt(rows), random.nextDouble()));
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Streaming Records Test")
+				.withXAxis(new IntegerAxis("X", 0, columns - 1))
+				.withYAxis(new IntegerAxis("Y", 0, rows - 1))
+				.withOptions(HeatMapOptions.builder().withCellWidth(4).withCellHeight(1).withShowXAxisLabels(false).withShowYAxisLabels(false).build())
+				.build();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final HeatMapLayout layout = heatMap.render(out, OutputFormat.PNG_STREAMING, records);
+		
+		//The records are binned by row once, rather than visited again for every band
+		assertTrue(layout.getImageHeight() > 3 * (4_194_304 / layout.getImageWidth()));
+		assertTrue(passes[0] <= 3, "Passes over the records: " + passes[0]);
+		//The legend labels are taller than the legend boxes, so they extend into the neighbouring bands
+		PngEncoderTest.assertSamePixels(heatMap.render(records), ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+	}
+	
+	@Test
+	void StreamingRenderLargeTest() throws IOException {
+		File output = getTempFile("streaming_large.png");
+		System.out.println("Generating the large streaming test heat map at file " + output.getAbsolutePath());
+		
+		//About 64 megapixels, computed on demand, which would be 256MB as an image
+		final int size = 2000;
+		final DataGrid grid = new FunctionDataGrid(size, size, (x, y)->Math.sin(x / 300.0) * Math.cos(y / 200.0));
+		final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Streaming Render Test")
+				.withXAxis(new IntegerAxis("X", 0, size - 1))
+				.withYAxis(new IntegerAxis("Y", 0, size - 1))
+				.withOptions(HeatMapOptions.builder().withCellWidth(4).withCellHeight(4).withShowXAxisLabels(false).withShowYAxisLabels(false).build())
+				.build();
+		
+		final long start = System.nanoTime();
+		final HeatMapLayout layout;
+		try (OutputStream out = new FileOutputStream(output)) {
+			layout = heatMap.renderStreaming(grid, out);
+		}
+		System.out.println("Rendered " + layout.getImageWidth() + "x" + layout.getImageHeight() + " pixels in " + ((System.nanoTime() - start) / 1000000) + "ms, "
+				+ output.length() + " bytes");
+		
+		//The dimensions of the IHDR chunk, after the signature, length and type
+		try (DataInputStream in = new DataInputStream(new FileInputStream(output))) {
+			in.skipBytes(16);
+			assertEquals(layout.getImageWidth(), in.readInt());
+			assertEquals(layout.getImageHeight(), in.readInt());
+		}
+		System.out.println("Generated the large streaming test heat map at file " + output.getAbsolutePath());
+	}
+}
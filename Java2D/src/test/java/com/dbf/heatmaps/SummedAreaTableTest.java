@@ -0,0 +1,68 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.SummedAreaTable;
+
+class SummedAreaTableTest {
+
+	@Test
+	void SummedAreaTableQueryTest() {
+		final Random random = new Random(42);
+		final BasicDataGrid grid = new BasicDataGrid(23, 17);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				//Leave roughly 1 in 5 cells empty
+				if(random.nextInt(5) > 0) grid.setValue(x, y, random.nextInt(100));
+			}
+		}
+		
+		final SummedAreaTable table = new SummedAreaTable(grid);
+		assertMatches(grid, table, random);
+		
+		//Change a band of rows and incrementally rebuild
+		for (int y = 5; y <= 8; y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				if(random.nextBoolean()) {
+					grid.setValue(x, y, random.nextInt(100) - 50);
+				} else {
+					grid.clearValue(x, y);
+				}
+			}
+		}
+		table.rebuildRows(5, 8);
+		assertMatches(grid, table, random);
+		
+		//Change the last row only
+		grid.setValue(3, grid.getHeight() - 1, 1000);
+		table.rebuildRow(grid.getHeight() - 1);
+		assertMatches(grid, table, random);
+	}
+	
+	private static void assertMatches(BasicDataGrid grid, SummedAreaTable table, Random random) {
+		for (int i = 0; i < 200; i++) {
+			final int x0 = random.nextInt(grid.getWidth());
+			final int x1 = random.nextInt(grid.getWidth());
+			final int y0 = random.nextInt(grid.getHeight());
+			final int y1 = random.nextInt(grid.getHeight());
+			
+			double sum = 0;
+			int count = 0;
+			for (int y = Math.min(y0, y1); y <= Math.max(y0, y1); y++) {
+				for (int x = Math.min(x0, x1); x <= Math.max(x0, x1); x++) {
+					if(grid.hasValue(x, y)) {
+						sum += grid.getValue(x, y);
+						count++;
+					}
+				}
+			}
+			assertEquals(sum, table.sum(x0, y0, x1, y1), 1e-9);
+			assertEquals(count, table.count(x0, y0, x1, y1));
+		}
+	}
+}
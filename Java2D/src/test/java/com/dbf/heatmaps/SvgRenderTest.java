@@ -0,0 +1,151 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.BasicDataRecord;
+import com.dbf.heatmaps.data.DataRecord;
+import com.dbf.heatmaps.data.FunctionDataGrid;
+
+class SvgRenderTest extends AbstractHeatMapTest {
+	
+	@Test
+	void SvgRenderLabelsTest() throws Exception {
+		final List<DataRecord> records = new ArrayList<DataRecord>();
+		final BasicDataGrid grid = new BasicDataGrid(12, 8);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				//A few empty cells, and runs of equal values
+				if((x + y) % 7 == 0) continue;
+				final double value = (x / 3) + y;
+				records.add(new BasicDataRecord(x, y, value));
+				grid.setValue(x, y, value);
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+				.withTitle("SVG <Render> & Test")
+				.withXAxis(new IntegerAxis("X & Y", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(HeatMapOptions.builder().withShowGridlines(true).withShowGridValues(true).withGridValuesFormat("0").build())
+				.build();
+		
+		final StringWriter fromGrid = new StringWriter();
+		final HeatMapLayout layout = heatMap.renderSvg(fromGrid, grid, null);
+		final StringWriter fromRecords = new StringWriter();
+		heatMap.renderSvg(fromRecords, records, null);
+		assertEquals(fromGrid.toString(), fromRecords.toString());
+		
+		final Document document = parse(fromGrid.toString());
+		final Element root = document.getDocumentElement();
+		assertEquals(Integer.toString(layout.getImageWidth()), root.getAttribute("width"));
+		assertEquals(Integer.toString(layout.getImageHeight()), root.getAttribute("height"));
+		
+		//Every label and value is text, and the title is escaped
+		assertEquals(grid.getWidth() + grid.getHeight(), countElements(document, "text", "axis-label"));
+		assertEquals(records.size(), countElements(document, "text", "value"));
+		assertEquals("SVG <Render> & Test", getElements(document, "text", "title").get(0).getTextContent());
+		
+		//Each run of equal values along a row is a single rectangle, and the empty cells are skipped
+		int runs = 0;
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				if(Double.isNaN(grid.getValue(x, y))) continue;
+				if(x == 0 || Double.isNaN(grid.getValue(x - 1, y)) || grid.getValue(x - 1, y) != grid.getValue(x, y)) runs++;
+			}
+		}
+		assertEquals(runs, countCells(document) - layout.legendBoxes);
+		
+		//Also available as an output format
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		heatMap.render(out, OutputFormat.SVG, grid, null);
+		assertEquals(fromGrid.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+		
+		//Blending needs a bitmap of the matrix
+		final HeatMap blended = HeatMap.builder()
+				.withXAxis(new IntegerAxis("X", 0, grid.getWidth() - 1))
+				.withYAxis(new IntegerAxis("Y", 0, grid.getHeight() - 1))
+				.withOptions(HeatMapOptions.builder().withBlendColours(true).build())
+				.build();
+		assertThrows(IllegalArgumentException.class, ()->blended.renderSvg(new StringWriter(), grid, null));
+	}
+	
+	@Test
+	void SvgRenderLargeTest() throws Exception {
+		File output = getTempFile("svg_large.svg");
+		System.out.println("Generating the large SVG test heat map at file " + output.getAbsolutePath());
+		
+		//A million cells, in wide bands of the same colour
+		final int size = 1000;
+		final FunctionDataGrid grid = new FunctionDataGrid(size, size, (x, y)->Math.floor(y / 10.0) + Math.floor(x / 250.0));
+		final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Large SVG Test")
+				.withXAxis(new IntegerAxis("X", 0, size - 1))
+				.withYAxis(new IntegerAxis("Y", 0, size - 1))
+				.withOptions(HeatMapOptions.builder().withCellWidth(2).withCellHeight(2).withShowXAxisLabels(false).withShowYAxisLabels(false).build())
+				.build();
+		
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)) {
+			heatMap.renderSvg(writer, grid, null);
+		}
+		System.out.println("Generated the large SVG test heat map at file " + output.getAbsolutePath() + ", " + output.length() + " bytes");
+		
+		//Four runs per row, rather than a thousand cells
+		final Document document = parse(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+		final int legendBoxes = countCells(document) - size * 4;
+		assertTrue(legendBoxes > 0 && legendBoxes <= size, "Unexpected number of rectangles");
+		assertTrue(output.length() < 1 << 20, "The SVG image should be less than 1MB");
+	}
+	
+	private static Document parse(String svg) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	private static List<Element> getElements(Document document, String tag, String cssClass) {
+		final List<Element> elements = new ArrayList<Element>();
+		final NodeList nodes = document.getElementsByTagName(tag);
+		for (int i = 0; i < nodes.getLength(); i++) {
+			final Element element = (Element) nodes.item(i);
+			if(cssClass.equals(element.getAttribute("class"))) elements.add(element);
+		}
+		return elements;
+	}
+	
+	private static int countElements(Document document, String tag, String cssClass) {
+		return getElements(document, tag, cssClass).size();
+	}
+	
+	/**
+	 * @return the number of rectangles filled with a gradient colour, in the matrix and the legend.
+	 */
+	private static int countCells(Document document) {
+		int count = 0;
+		final NodeList nodes = document.getElementsByTagName("rect");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			if(((Element) nodes.item(i)).getAttribute("class").matches("g\\d+")) count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,71 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.BasicDataGrid;
+import com.dbf.heatmaps.data.SymmetricDataGrid;
+
+class SymmetricDataGridTest extends AbstractHeatMapTest {
+
+	@Test
+	void SymmetricHeatMapTest() throws IOException {
+		File output = getTempFile("symmetric.png");
+		System.out.println("Generating the symmetric test heat map at file " + output.getAbsolutePath());
+		
+		//Only the upper triangle is provided to the symmetric grid, both halves to the regular grid
+		final int cores = 32;
+		final SymmetricDataGrid symmetric = new SymmetricDataGrid(cores);
+		final BasicDataGrid full = new BasicDataGrid(cores, cores);
+		final Random random = new Random(11);
+		for (int y = 0; y < cores; y++) {
+			for (int x = y; x < cores; x++) {
+				if(random.nextInt(10) == 0) continue; //Leave a few gaps
+				final double latency = (x == y) ? 0 : 20 + random.nextInt(100);
+				symmetric.setValue(x, y, latency);
+				full.setValue(x, y, latency);
+				full.setValue(y, x, latency);
+			}
+		}
+		
+		for (int y = 0; y < cores; y++) {
+			for (int x = 0; x < cores; x++) {
+				assertEquals(full.getValue(x, y), symmetric.getValue(x, y));
+			}
+		}
+		
+		for (boolean blend : new boolean[] {false, true}) {
+			final HeatMap heatMap = HeatMap.builder()
+				.withTitle("Core to Core Latency")
+				.withXAxis(new IntegerAxis("Core", 0, cores - 1))
+				.withYAxis(new IntegerAxis("Core", 0, cores - 1))
+				.withOptions(HeatMapOptions.builder()
+						.withCellWidth(30)
+						.withCellHeight(24)
+						.withShowGridlines(!blend)
+						.withBlendColours(blend)
+						.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+						.build())
+				.build();
+			
+			final BufferedImage image = heatMap.render(symmetric);
+			if(!blend) ImageIO.write(image, "png", output);
+			final BufferedImage expected = heatMap.render(full);
+			for (int y = 0; y < image.getHeight(); y++) {
+				for (int x = 0; x < image.getWidth(); x++) {
+					assertEquals(expected.getRGB(x, y), image.getRGB(x, y));
+				}
+			}
+		}
+		System.out.println("Generated the symmetric test heat map at file " + output.getAbsolutePath());
+	}
+}
@@ -0,0 +1,120 @@
+package com.dbf.heatmaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.dbf.heatmaps.axis.IntegerAxis;
+import com.dbf.heatmaps.data.Aggregation;
+import com.dbf.heatmaps.data.BasicDataGrid;
+
+class ViewportTest extends AbstractHeatMapTest {
+
+	@Test
+	void ViewportHeatMapTest() throws IOException {
+		File output = getTempFile("viewport.png");
+		System.out.println("Generating the viewport test heat map at file " + output.getAbsolutePath());
+		
+		final int columns = 1000;
+		final int rows = 200;
+		final BasicDataGrid grid = new BasicDataGrid(columns, rows);
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++ ) {
+				grid.setValue(x, y, x * y);
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("")
+			.withXAxis(IntegerAxis.instance()
+					.withTitle("")
+					.addEntries(0, columns - 1))
+			.withYAxis(IntegerAxis.instance()
+					.withTitle("")
+					.addEntries(0, rows - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(4)
+					.withCellHeight(4)
+					.withOutsidePadding(0)
+					.withShowLegend(false)
+					.withShowXAxisLabels(false)
+					.withShowYAxisLabels(false)
+					.withGradient(HeatMapGradient.SMOOTH_GRADIENT)
+					.build())
+			.build();
+		
+		final BufferedImage full = heatMap.render(grid);
+		final BufferedImage window = heatMap.render(grid, Viewport.of(100, 149, 20, 29).withGlobalColourScale(true));
+		ImageIO.write(window, "png", output);
+		
+		assertEquals(50 * 4, window.getWidth());
+		assertEquals(10 * 4, window.getHeight());
+		
+		//With the global colour scale, every cell must match the full rendering
+		for (int y = 0; y < 10; y++) {
+			for (int x = 0; x < 50; x++ ) {
+				assertEquals(full.getRGB((100 + x) * 4, (20 + y) * 4), window.getRGB(x * 4, y * 4));
+			}
+		}
+		
+		//With a local colour scale, the last cell of the window is the maximum colour
+		final BufferedImage local = heatMap.render(grid, Viewport.of(100, 149, 20, 29));
+		assertEquals(HeatMapGradient.SMOOTH_GRADIENT.getColour(1.0).getRGB(), local.getRGB(49 * 4, 9 * 4));
+		System.out.println("Generated the viewport test heat map at file " + output.getAbsolutePath());
+	}
+	
+	@Test
+	void GlobalColourScaleAggregatedTest() {
+		final int columns = 1000;
+		final int rows = 10;
+		final BasicDataGrid grid = new BasicDataGrid(columns, rows);
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++ ) {
+				grid.setValue(x, y, (x * y) % 7);
+			}
+		}
+		
+		final HeatMap heatMap = HeatMap.builder()
+			.withTitle("")
+			.withXAxis(IntegerAxis.instance()
+					.withTitle("")
+					.addEntries(0, columns - 1))
+			.withYAxis(IntegerAxis.instance()
+					.withTitle("")
+					.addEntries(0, rows - 1))
+			.withOptions(HeatMapOptions.builder()
+					.withCellWidth(4)
+					.withCellHeight(4)
+					.withOutsidePadding(0)
+					.withShowLegend(false)
+					.withShowXAxisLabels(false)
+					.withShowYAxisLabels(false)
+					.withTargetMatrixWidth(200)
+					.withAggregation(Aggregation.SUM)
+					.build())
+			.build();
+		
+		//The sums of the blocks are well above the largest raw value, so the global colour scale must be taken from the aggregated data
+		final RenderedHeatMap full = heatMap.renderWithLayout(grid, null);
+		assertTrue(full.getLayout().getBlockWidth() > 1);
+		assertTrue(full.getLayout().getMaxValue() > 6);
+		
+		final RenderedHeatMap global = heatMap.renderWithLayout(grid, Viewport.of(0, columns - 1, 0, rows - 1).withGlobalColourScale(true));
+		assertEquals(full.getLayout().getMinValue(), global.getLayout().getMinValue());
+		assertEquals(full.getLayout().getMaxValue(), global.getLayout().getMaxValue());
+		PngEncoderTest.assertSamePixels(full.getImage(), global.getImage());
+		
+		//A window that does not start on a block boundary, where the last block is cut short
+		final RenderedHeatMap window = heatMap.renderWithLayout(grid, Viewport.of(103, 601, 1, 8).withGlobalColourScale(true));
+		final RenderedHeatMap local = heatMap.renderWithLayout(grid, Viewport.of(103, 601, 1, 8));
+		assertTrue(window.getLayout().getMinValue() <= local.getLayout().getMinValue());
+		assertTrue(window.getLayout().getMaxValue() >= local.getLayout().getMaxValue());
+	}
+}